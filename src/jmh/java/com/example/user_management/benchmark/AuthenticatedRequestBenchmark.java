@@ -0,0 +1,95 @@
+package com.example.user_management.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of authenticated {@code GET /api/v1/users/{id}} requests over HTTP with
+ * <ul>
+ *     <li>{@code BASIC}: HTTP Basic, a BCrypt check on every request,</li>
+ *     <li>{@code BASIC_CACHED}: HTTP Basic with the verified credential cache,</li>
+ *     <li>{@code BEARER}: an access token checked by its HMAC signature.</li>
+ * </ul>
+ * The user lookup itself is served from the user cache, so the difference is the authentication cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(4)
+@Fork(1)
+public class AuthenticatedRequestBenchmark {
+
+    private static final String BASIC_CREDENTIALS = "Basic " + Base64.getEncoder()
+            .encodeToString("user:user@123".getBytes(StandardCharsets.UTF_8));
+    private static final Pattern ACCESS_TOKEN = Pattern.compile("\"access_token\"\\s*:\\s*\"([^\"]+)\"");
+
+    @Param({"BASIC", "BASIC_CACHED", "BEARER"})
+    public String auth;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    /**
+     * Start the server and prepare the request, exchanging the credentials for a token in bearer mode.
+     *
+     * @throws IOException          the io exception
+     * @throws InterruptedException the interrupted exception
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        context = BenchmarkSupport.startServer("auth" + auth,
+                "user-management.security.credential-cache.enabled=" + auth.equals("BASIC_CACHED"));
+        client = HttpClient.newHttpClient();
+        String baseUrl = BenchmarkSupport.baseUrl(context);
+        String authorization = BASIC_CREDENTIALS;
+        if (auth.equals("BEARER")) {
+            String body = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/token"))
+                    .header("Authorization", BASIC_CREDENTIALS)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build(), HttpResponse.BodyHandlers.ofString()).body();
+            Matcher matcher = ACCESS_TOKEN.matcher(body);
+            if (!matcher.find()) {
+                throw new IllegalStateException("No access token in " + body);
+            }
+            authorization = "Bearer " + matcher.group(1);
+        }
+        request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/users/1"))
+                .header("Authorization", authorization)
+                .GET()
+                .build();
+    }
+
+    /**
+     * Stop the server.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * One authenticated GET.
+     *
+     * @return the status code
+     * @throws IOException          the io exception
+     * @throws InterruptedException the interrupted exception
+     */
+    @Benchmark
+    public int authenticatedGet() throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
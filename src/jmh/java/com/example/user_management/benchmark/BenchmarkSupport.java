@@ -0,0 +1,90 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.UserManagementApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application without a web server against a private in-memory H2 database and seeds it.
+ */
+public final class BenchmarkSupport {
+
+    private static final int SEED_BATCH_SIZE = 5_000;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Start the application context on its own in-memory database.
+     *
+     * @param databaseName the database name, distinct per benchmark
+     * @param properties   extra properties in {@code key=value} form
+     * @return the application context
+     */
+    public static ConfigurableApplicationContext start(String databaseName, String... properties) {
+        return run(WebApplicationType.NONE, databaseName, properties);
+    }
+
+    /**
+     * Start the application with its web server on a random port, on its own in-memory database.
+     *
+     * @param databaseName the database name, distinct per benchmark
+     * @param properties   extra properties in {@code key=value} form
+     * @return the application context
+     */
+    public static ConfigurableApplicationContext startServer(String databaseName, String... properties) {
+        List<String> all = new ArrayList<>(List.of(properties));
+        all.add("server.port=0");
+        return run(WebApplicationType.SERVLET, databaseName, all.toArray(new String[0]));
+    }
+
+    /**
+     * Gets the base URL of a context started with {@link #startServer(String, String...)}.
+     *
+     * @param context the context
+     * @return the base URL
+     */
+    public static String baseUrl(ConfigurableApplicationContext context) {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    private static ConfigurableApplicationContext run(WebApplicationType type, String databaseName,
+                                                      String... properties) {
+        List<String> all = new ArrayList<>();
+        all.add("spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        all.add("spring.h2.console.enabled=false");
+        all.add("logging.level.root=WARN");
+        all.addAll(List.of(properties));
+        return new SpringApplicationBuilder(UserManagementApplication.class)
+                .web(type)
+                .properties(all.toArray(new String[0]))
+                .run();
+    }
+
+    /**
+     * Insert synthetic users named {@code user<n>} in JDBC batches.
+     *
+     * @param jdbcTemplate the jdbc template
+     * @param count        the number of users to insert
+     */
+    public static void seedUsers(JdbcTemplate jdbcTemplate, int count) {
+        LocalDateTime base = LocalDateTime.now().minusDays(1);
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            batch.add(new Object[]{"user" + i, "user" + i + "@example.com",
+                    Timestamp.valueOf(base.plusNanos(i * 1_000L)), "First" + i, "Last" + i});
+            if (batch.size() == SEED_BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (username, email, created_at, first_name, last_name) "
+                        + "VALUES (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
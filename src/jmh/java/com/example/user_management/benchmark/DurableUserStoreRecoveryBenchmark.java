@@ -0,0 +1,120 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.repository.offheap.DurableUserStore;
+import com.example.user_management.repository.offheap.OffHeapUserStore;
+import com.example.user_management.service.dto.UserDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures startup of {@link DurableUserStore}: restoring only its snapshot, and the full recovery of the
+ * snapshot plus a log of updates to 1% of the users written after it. Each trial writes the users to a fresh
+ * temporary directory first; the recovery time and the number of replayed records are printed after it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:MaxDirectMemorySize=8g"})
+public class DurableUserStoreRecoveryBenchmark {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1000000", "10000000"})
+    public int users;
+
+    private Path directory;
+    private Path snapshot;
+    private DurableUserStore recovered;
+
+    /**
+     * Write the users, a snapshot and a log tail of updates.
+     *
+     * @throws IOException if the directory cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("user-store");
+        List<UserDTO> batch = new ArrayList<>(BATCH_SIZE);
+        try (DurableUserStore store = DurableUserStore.open(directory, Long.MAX_VALUE)) {
+            for (int i = 0; i < users; i++) {
+                batch.add(new UserDTO(null, "user" + i, "user" + i + "@example.com", "First" + i, "Last" + i,
+                        null, null));
+                if (batch.size() == BATCH_SIZE || i == users - 1) {
+                    store.saveAll(batch);
+                    batch.clear();
+                }
+            }
+            store.snapshot();
+            for (int i = 0; i < users; i += 100) {
+                batch.add(new UserDTO(i + 1L, "user" + i, "user" + i + "@example.com", "Changed", "Last" + i,
+                        null, null));
+                if (batch.size() == BATCH_SIZE || i + 100 >= users) {
+                    store.saveAll(batch);
+                    batch.clear();
+                }
+            }
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            snapshot = files.filter(file -> file.getFileName().toString().endsWith(".snapshot")).findFirst()
+                    .orElseThrow();
+        }
+    }
+
+    /**
+     * Close the store opened last and delete the directory.
+     *
+     * @throws IOException if the directory cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (recovered != null) {
+            System.out.printf("%nRecovered %d users in %d ms, replaying %d log records%n", recovered.count(),
+                    recovered.getRecoveryTime().toMillis(), recovered.getReplayedRecords());
+            recovered.close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+    }
+
+    /**
+     * Map the snapshot and rebuild the indexes.
+     *
+     * @return the store
+     */
+    @Benchmark
+    public OffHeapUserStore restoreSnapshot() {
+        return OffHeapUserStore.restore(snapshot);
+    }
+
+    /**
+     * Open the store, restoring the snapshot and replaying the log after it.
+     *
+     * @return the store
+     */
+    @Benchmark
+    public DurableUserStore recover() {
+        if (recovered != null) {
+            recovered.close();
+        }
+        recovered = DurableUserStore.open(directory, Long.MAX_VALUE);
+        return recovered;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.repository.UserRepository;
+import com.example.user_management.repository.offheap.OffHeapUserStore;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.mapper.UserMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares lookups by id and username and keyset pages served by {@link OffHeapUserStore} against the JPA path
+ * over in-memory H2, both through managed entities and through dto projections. The store is filled from the
+ * same users; its bytes per user are printed after each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OffHeapUserStoreBenchmark {
+
+    private static final int SEEDED_USERS = 100_000;
+    private static final int PAGE_SIZE = 50;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private UserMapper userMapper;
+    private OffHeapUserStore store;
+    private Long[] ids;
+
+    /**
+     * Boot the context, seed the users and copy them into the store.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start("offheap");
+        userRepository = context.getBean(UserRepository.class);
+        userMapper = context.getBean(UserMapper.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkSupport.seedUsers(jdbcTemplate, SEEDED_USERS);
+        store = new OffHeapUserStore();
+        userRepository.findAllDTOs().forEach(store::save);
+        ids = jdbcTemplate.queryForList("SELECT user_id FROM users", Long.class).toArray(new Long[0]);
+    }
+
+    /**
+     * Print the size of the store and close the context.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        long users = store.count();
+        System.out.printf("%nOff-heap store: %d users, %d record bytes and %d index bytes per user%n", users,
+                store.getRecordBytes() / users, store.getIndexBytes() / users);
+        context.close();
+    }
+
+    /**
+     * Load one user as an entity and map it.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public UserDTO getByIdEntity() {
+        return userRepository.findById(randomId()).map(userMapper::toUserDTO).orElse(null);
+    }
+
+    /**
+     * Load one user as a dto projection.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public UserDTO getByIdProjection() {
+        return userRepository.findDTOById(randomId()).orElse(null);
+    }
+
+    /**
+     * Read one user from the store.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public UserDTO getByIdOffHeap() {
+        return store.findDTOById(randomId()).orElse(null);
+    }
+
+    /**
+     * Load one user by username as a dto projection.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public UserDTO getByUsernameProjection() {
+        return userRepository.findDTOByUsername(randomUsername()).orElse(null);
+    }
+
+    /**
+     * Read one user by username from the store.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public UserDTO getByUsernameOffHeap() {
+        return store.findDTOByUsername(randomUsername()).orElse(null);
+    }
+
+    /**
+     * Load one page of users as dto projections.
+     *
+     * @return the users
+     */
+    @Benchmark
+    public List<UserDTO> pageProjection() {
+        return userRepository.findDTOPage(randomId(), null, PAGE_SIZE);
+    }
+
+    /**
+     * Read one page of users from the store.
+     *
+     * @return the users
+     */
+    @Benchmark
+    public List<UserDTO> pageOffHeap() {
+        return store.findDTOPage(randomId(), null, PAGE_SIZE);
+    }
+
+    private Long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private String randomUsername() {
+        return "user" + ThreadLocalRandom.current().nextInt(SEEDED_USERS);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.user_management.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of {@code GET /api/v1/users} at high concurrency with Tomcat on platform threads and on virtual
+ * threads. The page is read from the database on every request, so requests block on JDBC; 400 client
+ * threads are more than Tomcat's 200 platform workers. Throughput mode reports requests per second, sample
+ * time mode reports the latency distribution including p0.99.
+ * <p>
+ * Run with {@code -Djdk.tracePinnedThreads=short} in the fork to have pinned virtual threads reported.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+public class ThreadModelBenchmark {
+
+    private static final String BASIC_CREDENTIALS = "Basic " + Base64.getEncoder()
+            .encodeToString("user:user@123".getBytes(StandardCharsets.UTF_8));
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    /**
+     * Start the server in the given thread mode and seed the table.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startServer("threads" + threads,
+                "spring.threads.virtual.enabled=" + threads.equals("virtual"));
+        BenchmarkSupport.seedUsers(context.getBean(JdbcTemplate.class), 10_000);
+        client = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder(URI.create(BenchmarkSupport.baseUrl(context) + "/api/v1/users?limit=20"))
+                .header("Authorization", BASIC_CREDENTIALS)
+                .GET()
+                .build();
+    }
+
+    /**
+     * Stop the server.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * One page request.
+     *
+     * @return the status code
+     * @throws IOException          the io exception
+     * @throws InterruptedException the interrupted exception
+     */
+    @Benchmark
+    public int listUsers() throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
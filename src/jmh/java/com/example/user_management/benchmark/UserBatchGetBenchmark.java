@@ -0,0 +1,92 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.service.UserBatchGetService;
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.BatchGetRequestDTO;
+import com.example.user_management.service.dto.BatchGetResultDTO;
+import com.example.user_management.service.dto.UserDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving a list of random user ids with {@link UserBatchGetService#getUsers(BatchGetRequestDTO)}
+ * against looping over {@link UserService#getUserById(Long)}, with the cache disabled so every lookup
+ * reaches the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserBatchGetBenchmark {
+
+    private static final int SEEDED_USERS = 100_000;
+
+    @Param({"50", "500"})
+    public int keys;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private UserBatchGetService userBatchGetService;
+    private Long[] ids;
+
+    /**
+     * Boot the context and seed the users.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start("batchget" + keys, "user-management.cache.max-size=0");
+        userService = context.getBean(UserService.class);
+        userBatchGetService = context.getBean(UserBatchGetService.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkSupport.seedUsers(jdbcTemplate, SEEDED_USERS);
+        ids = jdbcTemplate.queryForList("SELECT user_id FROM users", Long.class).toArray(new Long[0]);
+    }
+
+    /**
+     * Close the context.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Resolve the ids with one batch get.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public BatchGetResultDTO batchGet() {
+        return userBatchGetService.getUsers(new BatchGetRequestDTO(randomIds(), null));
+    }
+
+    /**
+     * Resolve the ids one at a time, as the baseline.
+     *
+     * @return the users
+     */
+    @Benchmark
+    public List<UserDTO> getOneByOne() {
+        List<UserDTO> users = new ArrayList<>(keys);
+        for (Long id : randomIds()) {
+            users.add(userService.getUserById(id));
+        }
+        return users;
+    }
+
+    private List<Long> randomIds() {
+        List<Long> batch = new ArrayList<>(keys);
+        for (int i = 0; i < keys; i++) {
+            batch.add(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+        }
+        return batch;
+    }
+}
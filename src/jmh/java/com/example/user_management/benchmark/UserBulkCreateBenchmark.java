@@ -0,0 +1,88 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.service.UserBulkService;
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.BulkCreateResultDTO;
+import com.example.user_management.service.dto.UserDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares inserting a batch of users through the bulk endpoint's service with looping over
+ * {@link UserService#createUser(UserDTO)}. Divide the score by {@code users} for the per-row cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class UserBulkCreateBenchmark {
+
+    @Param({"10000"})
+    public int users;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private UserBulkService userBulkService;
+    private List<UserDTO> batch;
+    private int round;
+
+    /**
+     * Boot the context.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start("bulk");
+        userService = context.getBean(UserService.class);
+        userBulkService = context.getBean(UserBulkService.class);
+    }
+
+    /**
+     * Generate a batch of users that do not exist yet.
+     */
+    @Setup(Level.Invocation)
+    public void nextBatch() {
+        round++;
+        batch = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            String name = "bulk" + round + "_" + i;
+            batch.add(new UserDTO(null, name, name + "@example.com", "First", "Last", null, null));
+        }
+    }
+
+    /**
+     * Close the context.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Insert the batch with JDBC batching.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public BulkCreateResultDTO bulkCreate() {
+        return userBulkService.createUsers(batch);
+    }
+
+    /**
+     * Insert the batch one user at a time, as the baseline.
+     *
+     * @return the number of users created
+     */
+    @Benchmark
+    public int createOneByOne() {
+        for (UserDTO user : batch) {
+            userService.createUser(user);
+        }
+        return batch.size();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.UserDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link UserService#getUserById(Long)} and {@link UserService#getUserByUserName(String)} over a
+ * hot set of users with the cache disabled ({@code cacheSize=0}) and enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserCacheBenchmark {
+
+    private static final int HOT_USERS = 1_000;
+
+    @Param({"0", "100000"})
+    public int cacheSize;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private Long[] ids;
+
+    /**
+     * Boot the context and seed the users.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start("cache" + cacheSize, "user-management.cache.max-size=" + cacheSize);
+        userService = context.getBean(UserService.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkSupport.seedUsers(jdbcTemplate, HOT_USERS);
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT user_id FROM users WHERE username LIKE 'user%'",
+                Long.class);
+        ids = userIds.toArray(new Long[0]);
+    }
+
+    /**
+     * Close the context.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Look up a random hot user by id.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public UserDTO getUserById() {
+        return userService.getUserById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    /**
+     * Look up a random hot user by username.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public UserDTO getUserByUserName() {
+        return userService.getUserByUserName("user" + ThreadLocalRandom.current().nextInt(HOT_USERS));
+    }
+}
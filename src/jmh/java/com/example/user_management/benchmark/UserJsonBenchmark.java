@@ -0,0 +1,107 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.service.dto.UserDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Jackson serialization of a single {@link UserDTO} and of lists of several sizes, and reading a
+ * request body back, with an object mapper configured like the application's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private UserDTO userDTO;
+    private byte[] userJson;
+
+    /**
+     * A list of users of a given size.
+     */
+    @State(Scope.Benchmark)
+    public static class UserList {
+
+        @Param({"10", "100", "1000"})
+        public int size;
+
+        private List<UserDTO> users;
+
+        /**
+         * Build the list.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            users = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                users.add(user(i));
+            }
+        }
+    }
+
+    /**
+     * Create the object mapper and the inputs.
+     *
+     * @throws JsonProcessingException the json processing exception
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        userDTO = user(1);
+        userJson = objectMapper.writeValueAsBytes(userDTO);
+    }
+
+    /**
+     * Serialize one user.
+     *
+     * @return the json
+     * @throws JsonProcessingException the json processing exception
+     */
+    @Benchmark
+    public byte[] writeUser() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(userDTO);
+    }
+
+    /**
+     * Serialize a list of users.
+     *
+     * @param userList the user list
+     * @return the json
+     * @throws JsonProcessingException the json processing exception
+     */
+    @Benchmark
+    public byte[] writeUserList(UserList userList) throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(userList.users);
+    }
+
+    /**
+     * Deserialize one user, as for a request body.
+     *
+     * @return the user dto
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public UserDTO readUser() throws IOException {
+        return objectMapper.readValue(userJson, UserDTO.class);
+    }
+
+    private static UserDTO user(int i) {
+        return new UserDTO((long) i, "user" + i, "user" + i + "@example.com", "First" + i, "Last" + i,
+                LocalDateTime.now(), 0L);
+    }
+}
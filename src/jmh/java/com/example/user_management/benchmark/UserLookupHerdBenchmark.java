@@ -0,0 +1,67 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.cache.UserCache;
+import com.example.user_management.service.dto.UserDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a thundering herd: 64 threads looking up the same user with the cache disabled, so every lookup
+ * misses, with load coalescing off ({@code maxLoadsInFlight=0}) and on. Sample time reports the tail latencies;
+ * the number of loads that reached the database is printed after each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class UserLookupHerdBenchmark {
+
+    @Param({"0", "10000"})
+    public int maxLoadsInFlight;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private UserCache userCache;
+    private Long id;
+
+    /**
+     * Boot the context and seed the users.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start("herd" + maxLoadsInFlight, "user-management.cache.max-size=0",
+                "user-management.cache.max-loads-in-flight=" + maxLoadsInFlight);
+        userService = context.getBean(UserService.class);
+        userCache = context.getBean(UserCache.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkSupport.seedUsers(jdbcTemplate, 100);
+        id = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE username = 'user0'", Long.class);
+    }
+
+    /**
+     * Print the load counts and close the context.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        userCache.loads().forEach((name, loads) -> System.out.printf("%n%s: %d loaded, %d coalesced, %d overflows%n",
+                name, loads.getLoads(), loads.getCoalesced(), loads.getOverflows()));
+        context.close();
+    }
+
+    /**
+     * Look up the hot user by id.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public UserDTO getUserById() {
+        return userService.getUserById(id);
+    }
+}
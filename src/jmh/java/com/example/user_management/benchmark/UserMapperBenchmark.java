@@ -0,0 +1,57 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.model.User;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.mapper.UserMapper;
+import com.example.user_management.service.mapper.UserMapperImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the generated {@link UserMapper} in both directions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    private UserMapper userMapper;
+    private User user;
+    private UserDTO userDTO;
+
+    /**
+     * Create the mapper and the inputs.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        userMapper = new UserMapperImpl();
+        LocalDateTime createdAt = LocalDateTime.now();
+        user = new User(1L, "user1", "user1@example.com", "First1", "Last1", createdAt, 0L);
+        userDTO = new UserDTO(1L, "user1", "user1@example.com", "First1", "Last1", createdAt, 0L);
+    }
+
+    /**
+     * Map an entity to a dto.
+     *
+     * @return the user dto
+     */
+    @Benchmark
+    public UserDTO toUserDTO() {
+        return userMapper.toUserDTO(user);
+    }
+
+    /**
+     * Map a dto to an entity.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public User toUser() {
+        return userMapper.toUser(userDTO);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.repository.UserRepository;
+import com.example.user_management.service.UserCursor;
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.UserPageDTO;
+import com.example.user_management.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency of fetching the first, a middle and the last page of users with the keyset cursor
+ * against offset paging. Keyset latency should stay flat while offset paging grows with the page depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserPaginationBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"200000"})
+    public int users;
+
+    @Param({"FIRST", "MIDDLE", "LAST"})
+    public String position;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private UserRepository userRepository;
+    private String cursor;
+    private int pageIndex;
+
+    /**
+     * Boot the context, seed the users and locate the page to fetch.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start("pagination");
+        userService = context.getBean(UserService.class);
+        userRepository = context.getBean(UserRepository.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkSupport.seedUsers(jdbcTemplate, users);
+
+        long total = userRepository.count();
+        long offset = switch (position) {
+            case "FIRST" -> 0;
+            case "MIDDLE" -> total / 2;
+            default -> total - PAGE_SIZE;
+        };
+        pageIndex = (int) (offset / PAGE_SIZE);
+        offset = (long) pageIndex * PAGE_SIZE;
+        cursor = offset == 0 ? null : UserCursor.encode(jdbcTemplate.queryForObject(
+                "SELECT user_id FROM users ORDER BY user_id LIMIT 1 OFFSET ?", Long.class, offset - 1));
+    }
+
+    /**
+     * Close the context.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Keyset page through the service.
+     *
+     * @return the page
+     */
+    @Benchmark
+    public UserPageDTO keysetPage() {
+        return userService.getUsers(cursor, PAGE_SIZE, null);
+    }
+
+    /**
+     * Offset page straight from the repository, as the baseline.
+     *
+     * @return the users
+     */
+    @Benchmark
+    public List<User> offsetPage() {
+        return userRepository.findAll(PageRequest.of(pageIndex, PAGE_SIZE, Sort.by("userId"))).getContent();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserPageDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON, Smile and CBOR representations negotiated by the user API: the time to write and read a
+ * single user, a page of users and a bulk create body, and the bytes each takes on the wire. The sizes are
+ * printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserPayloadFormatBenchmark {
+
+    private static final TypeReference<List<UserDTO>> USER_LIST = new TypeReference<>() {
+    };
+
+    /**
+     * A media type the user API can negotiate.
+     */
+    public enum Format {
+        JSON, SMILE, CBOR
+    }
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    public Format format;
+
+    @Param({"10", "100", "500"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private UserDTO userDTO;
+    private UserPageDTO page;
+    private byte[] userBytes;
+    private byte[] pageBytes;
+    private byte[] listBytes;
+
+    /**
+     * Create the object mapper for the format and encode the inputs.
+     *
+     * @throws IOException the io exception
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = switch (format) {
+            case JSON -> Jackson2ObjectMapperBuilder.json();
+            case SMILE -> Jackson2ObjectMapperBuilder.smile();
+            case CBOR -> Jackson2ObjectMapperBuilder.cbor();
+        };
+        objectMapper = builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+        userDTO = user(1);
+        List<UserDTO> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(user(i));
+        }
+        page = new UserPageDTO(users, "eyJpZCI6MTAwfQ", size);
+        userBytes = objectMapper.writeValueAsBytes(userDTO);
+        pageBytes = objectMapper.writeValueAsBytes(page);
+        listBytes = objectMapper.writeValueAsBytes(users);
+    }
+
+    /**
+     * Print the encoded sizes.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n%s: %d bytes per user, %d bytes per page of %d, %d bytes per bulk body of %d%n",
+                format, userBytes.length, pageBytes.length, size, listBytes.length, size);
+    }
+
+    /**
+     * Serialize one user, as for a lookup by id.
+     *
+     * @return the encoded user
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public byte[] writeUser() throws IOException {
+        return objectMapper.writeValueAsBytes(userDTO);
+    }
+
+    /**
+     * Deserialize one user, as for a create or update body.
+     *
+     * @return the user dto
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public UserDTO readUser() throws IOException {
+        return objectMapper.readValue(userBytes, UserDTO.class);
+    }
+
+    /**
+     * Serialize a page of users.
+     *
+     * @return the encoded page
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public byte[] writePage() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    /**
+     * Deserialize a page of users, as a client does.
+     *
+     * @return the user page dto
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public UserPageDTO readPage() throws IOException {
+        return objectMapper.readValue(pageBytes, UserPageDTO.class);
+    }
+
+    /**
+     * Deserialize a bulk create body.
+     *
+     * @return the users
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public List<UserDTO> readBulkBody() throws IOException {
+        return objectMapper.readValue(listBytes, USER_LIST);
+    }
+
+    private static UserDTO user(int i) {
+        return new UserDTO((long) i, "user" + i, "user" + i + "@example.com", "First" + i, "Last" + i,
+                LocalDateTime.now(), 0L);
+    }
+}
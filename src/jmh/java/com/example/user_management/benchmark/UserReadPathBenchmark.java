@@ -0,0 +1,100 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.repository.UserRepository;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.mapper.UserMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the read paths of {@code UserService}: loading managed {@code User} entities and mapping them with
+ * {@link UserMapper}, as the baseline, against building {@link UserDTO} directly from dto projections in
+ * read-only transactions. Run with the GC profiler (on by default, see {@code jmh.profilers}) and compare
+ * {@code gc.alloc.rate.norm} for the bytes allocated per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserReadPathBenchmark {
+
+    private static final int SEEDED_USERS = 100_000;
+    private static final int PAGE_SIZE = 50;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private UserMapper userMapper;
+    private Long[] ids;
+
+    /**
+     * Boot the context and seed the users.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start("readpath");
+        userRepository = context.getBean(UserRepository.class);
+        userMapper = context.getBean(UserMapper.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkSupport.seedUsers(jdbcTemplate, SEEDED_USERS);
+        ids = jdbcTemplate.queryForList("SELECT user_id FROM users", Long.class).toArray(new Long[0]);
+    }
+
+    /**
+     * Close the context.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Load one user as an entity and map it, as the baseline.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public UserDTO getByIdEntity() {
+        return userRepository.findById(randomId()).map(userMapper::toUserDTO).orElse(null);
+    }
+
+    /**
+     * Load one user as a dto projection.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public UserDTO getByIdProjection() {
+        return userRepository.findDTOById(randomId()).orElse(null);
+    }
+
+    /**
+     * Load one page of users as entities and map them, as the baseline.
+     *
+     * @return the users
+     */
+    @Benchmark
+    public List<UserDTO> pageEntity() {
+        return userRepository.findPage(randomId(), null, PAGE_SIZE).stream().map(userMapper::toUserDTO).toList();
+    }
+
+    /**
+     * Load one page of users as dto projections.
+     *
+     * @return the users
+     */
+    @Benchmark
+    public List<UserDTO> pageProjection() {
+        return userRepository.findDTOPage(randomId(), null, PAGE_SIZE);
+    }
+
+    private Long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
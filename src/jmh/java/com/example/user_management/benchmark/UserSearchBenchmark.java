@@ -0,0 +1,94 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.search.UserSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link UserSearchIndex#search(String, int)} over 5 million synthetic users for a selective prefix,
+ * a selective infix, a short prefix and an unselective infix query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class UserSearchBenchmark {
+
+    private static final String[] FIRST_NAMES = {"John", "Alice", "Bob", "Maria", "Wei", "Fatima", "Olga", "Ravi"};
+    private static final String[] LAST_NAMES = {"Doe", "Schmidt", "Dorian", "Garcia", "Chen", "Khan", "Ivanova"};
+
+    @Param({"5000000"})
+    public int users;
+
+    private UserSearchIndex userSearchIndex;
+
+    /**
+     * Build the index.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        userSearchIndex = new UserSearchIndex(10_000);
+        userSearchIndex.replaceAll(new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < users;
+            }
+
+            @Override
+            public UserDTO next() {
+                int i = next++;
+                return new UserDTO((long) i, "user" + i, "user" + i + "@example.com",
+                        FIRST_NAMES[i % FIRST_NAMES.length], LAST_NAMES[i % LAST_NAMES.length], null, 0L);
+            }
+        });
+    }
+
+    /**
+     * Prefix of one username.
+     *
+     * @return the users
+     */
+    @Benchmark
+    public List<UserDTO> selectivePrefix() {
+        return userSearchIndex.search("user" + ThreadLocalRandom.current().nextInt(users), 20);
+    }
+
+    /**
+     * Infix of a few usernames and emails.
+     *
+     * @return the users
+     */
+    @Benchmark
+    public List<UserDTO> selectiveInfix() {
+        return userSearchIndex.search("er" + ThreadLocalRandom.current().nextInt(users / 10, users), 20);
+    }
+
+    /**
+     * One-character prefix shared by a large part of the users.
+     *
+     * @return the users
+     */
+    @Benchmark
+    public List<UserDTO> shortPrefix() {
+        return userSearchIndex.search("j", 20);
+    }
+
+    /**
+     * Infix shared by every user.
+     *
+     * @return the users
+     */
+    @Benchmark
+    public List<UserDTO> unselectiveInfix() {
+        return userSearchIndex.search("example", 20);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.user_management.benchmark;
+
+import com.example.user_management.service.dto.UserDTO;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the bean validation that {@code @Valid UserDTO} runs on every create and update, for a valid
+ * user and for one that violates several constraints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private UserDTO validUser;
+    private UserDTO invalidUser;
+
+    /**
+     * Create the validator and the inputs.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validUser = new UserDTO(null, "user1", "user1@example.com", "First1", "Last1", null, null);
+        invalidUser = new UserDTO(null, "u", "not-an-email", "F".repeat(60), "Last1", null, null);
+    }
+
+    /**
+     * Close the validator factory.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    /**
+     * Validate a valid user.
+     *
+     * @return the violations
+     */
+    @Benchmark
+    public Set<ConstraintViolation<UserDTO>> validateValid() {
+        return validator.validate(validUser);
+    }
+
+    /**
+     * Validate an invalid user.
+     *
+     * @return the violations
+     */
+    @Benchmark
+    public Set<ConstraintViolation<UserDTO>> validateInvalid() {
+        return validator.validate(invalidUser);
+    }
+}
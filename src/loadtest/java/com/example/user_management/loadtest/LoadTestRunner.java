@@ -0,0 +1,291 @@
+package com.example.user_management.loadtest;
+
+import com.example.user_management.UserManagementApplication;
+import com.example.user_management.service.cache.UserExistenceFilterLoader;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end load test. Starts the application on a random port against an in-memory H2 database, seeds
+ * users, then drives each {@link Workload} over HTTP from a fixed number of client threads. Latencies are
+ * recorded per operation in HDR histograms; a summary is printed and written to {@code summary.csv}, and
+ * the full percentile distribution of every operation to a {@code .hgrm} file, in the output directory.
+ * <p>
+ * Arguments, all optional: {@code --users=10000 --threads=32 --warmup=10 --duration=30
+ * --workloads=READ_HEAVY,WRITE_HEAVY,USERNAME_LOOKUP --stack=servlet --out=target/load-test}, durations in
+ * seconds. {@code --stack=reactive} runs the application with the {@code reactive} profile, on WebFlux and
+ * R2DBC instead of Tomcat and JPA. The client threads are virtual and every one keeps its own connection
+ * open, so {@code --threads=10000} compares the stacks at 10k concurrent connections.
+ */
+public final class LoadTestRunner {
+
+    private static final String BASIC_CREDENTIALS = "Basic " + Base64.getEncoder()
+            .encodeToString("user:user@123".getBytes(StandardCharsets.UTF_8));
+    private static final Pattern USER_ID = Pattern.compile("\"userId\"\\s*:\\s*(\\d+)");
+    private static final int SEED_BATCH_SIZE = 5_000;
+    private static final int PAGE_SIZE = 20;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final String baseUrl;
+    private final long[] seededIds;
+    private final Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private LoadTestRunner(String baseUrl, long[] seededIds) {
+        this.baseUrl = baseUrl;
+        this.seededIds = seededIds;
+    }
+
+    /**
+     * Run the load test.
+     *
+     * @param args the arguments
+     * @throws Exception the exception
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "10000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "32"));
+        long warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "10"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        Path out = Path.of(options.getOrDefault("out", "target/load-test"));
+        List<Workload> workloads = new ArrayList<>();
+        for (String name : options.getOrDefault("workloads", "READ_HEAVY,WRITE_HEAVY,USERNAME_LOOKUP").split(",")) {
+            workloads.add(Workload.valueOf(name.trim()));
+        }
+        String stack = options.getOrDefault("stack", "servlet");
+        if (!stack.equals("servlet") && !stack.equals("reactive")) {
+            throw new IllegalArgumentException("Unknown stack " + stack + ", expected servlet or reactive");
+        }
+        boolean reactive = stack.equals("reactive");
+        // Devtools would restart the application in a new class loader, stopping the context the load runs against
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserManagementApplication.class)
+                .web(reactive ? WebApplicationType.REACTIVE : WebApplicationType.SERVLET)
+                .profiles(reactive ? new String[]{"reactive"} : new String[0])
+                .properties("server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "spring.r2dbc.url=r2dbc:h2:mem:///loadtest?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        // Tomcat refuses connections beyond 8192 by default; Netty has no such limit
+                        "server.tomcat.max-connections=" + Math.max(8192, threads + 1024),
+                        "spring.h2.console.enabled=false",
+                        // The load test is the only writer, so the existence filters are safe to use
+                        "user-management.existence-filter.enabled=true",
+                        "logging.level.root=WARN")
+                .run()) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            long[] seededIds = seed(jdbcTemplate, users);
+            // The seeded users bypass the service, so the existence filters would answer them as unknown
+            context.getBean(UserExistenceFilterLoader.class).rebuild();
+            LoadTestRunner runner = new LoadTestRunner(
+                    "http://localhost:" + context.getEnvironment().getProperty("local.server.port"), seededIds);
+
+            Files.createDirectories(out);
+            try (PrintStream summary = new PrintStream(Files.newOutputStream(out.resolve("summary.csv")), true,
+                    StandardCharsets.UTF_8)) {
+                summary.println("workload,operation,count,errors,throughput_per_s,p50_ms,p99_ms,p999_ms,max_ms");
+                for (Workload workload : workloads) {
+                    runner.run(workload, threads, warmupSeconds, null);
+                    Map<Operation, Result> results = new EnumMap<>(Operation.class);
+                    long elapsedNanos = runner.run(workload, threads, durationSeconds, results);
+                    report(workload, results, elapsedNanos, summary, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drive one workload for a fixed time.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    private long run(Workload workload, int threads, long seconds, Map<Operation, Result> results)
+            throws InterruptedException {
+        if (results != null) {
+            for (Operation operation : Operation.values()) {
+                results.put(operation, new Result());
+            }
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = Thread.ofVirtual().name("load-test-" + i).unstarted(() -> {
+                Random random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    Operation operation = workload.next(random);
+                    Long deleteId = operation == Operation.DELETE ? createdIds.poll() : null;
+                    if (operation == Operation.DELETE && deleteId == null) {
+                        // Only users created by the load test are deleted, so the seeded ones stay readable
+                        operation = Operation.CREATE;
+                    }
+                    long begin = System.nanoTime();
+                    boolean ok = execute(operation, deleteId, random);
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin);
+                    if (results != null) {
+                        results.get(operation).record(micros, ok);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private boolean execute(Operation operation, Long deleteId, Random random) {
+        int index = random.nextInt(seededIds.length);
+        HttpRequest.Builder request = switch (operation) {
+            case GET_BY_ID -> request("/api/v1/users/" + seededIds[index]).GET();
+            case GET_BY_USERNAME -> request("/api/v1/users/username/user" + index).GET();
+            case LIST -> request("/api/v1/users?limit=" + PAGE_SIZE).GET();
+            case CREATE -> {
+                String username = "lt" + sequence.incrementAndGet();
+                yield request("/api/v1/users").POST(json(username, "Load", "Test"));
+            }
+            case UPDATE -> request("/api/v1/users/" + seededIds[index])
+                    .PUT(json("user" + index, "First" + sequence.incrementAndGet(), "Last" + index));
+            case DELETE -> request("/api/v1/users/" + deleteId).DELETE();
+        };
+        try {
+            HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            boolean ok = response.statusCode() / 100 == 2;
+            if (ok && operation == Operation.CREATE) {
+                Matcher matcher = USER_ID.matcher(response.body());
+                if (matcher.find()) {
+                    createdIds.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+            return ok;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", BASIC_CREDENTIALS)
+                .header("Content-Type", "application/json");
+    }
+
+    private static HttpRequest.BodyPublisher json(String username, String firstName, String lastName) {
+        return HttpRequest.BodyPublishers.ofString("{\"username\":\"" + username + "\",\"email\":\"" + username
+                + "@example.com\",\"firstName\":\"" + firstName + "\",\"lastName\":\"" + lastName + "\"}");
+    }
+
+    /**
+     * Insert users named {@code user<n>}, with the same columns as {@code data.sql}, in JDBC batches.
+     *
+     * @return the ids of the users, indexed by n
+     */
+    private static long[] seed(JdbcTemplate jdbcTemplate, int count) {
+        LocalDateTime base = LocalDateTime.now().minusDays(1);
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            batch.add(new Object[]{"user" + i, "user" + i + "@example.com",
+                    Timestamp.valueOf(base.plusNanos(i * 1_000L)), "First" + i, "Last" + i});
+            if (batch.size() == SEED_BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (username, email, created_at, first_name, last_name) "
+                        + "VALUES (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        long[] ids = new long[count];
+        jdbcTemplate.query("SELECT user_id, username FROM users WHERE username LIKE 'user%'", row -> {
+            String username = row.getString("username");
+            if (username.matches("user\\d+")) {
+                ids[Integer.parseInt(username.substring(4))] = row.getLong("user_id");
+            }
+        });
+        return ids;
+    }
+
+    private static void report(Workload workload, Map<Operation, Result> results, long elapsedNanos,
+                               PrintStream summary, Path out) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        System.out.printf("%n%s (%.1f s)%n", workload, seconds);
+        System.out.printf("%-16s %10s %8s %12s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Map.Entry<Operation, Result> entry : results.entrySet()) {
+            Histogram histogram = entry.getValue().latencies;
+            long count = histogram.getTotalCount();
+            if (count == 0) {
+                continue;
+            }
+            total += count;
+            long errors = entry.getValue().errors.sum();
+            double throughput = count / seconds;
+            double p50 = histogram.getValueAtPercentile(50) / 1000.0;
+            double p99 = histogram.getValueAtPercentile(99) / 1000.0;
+            double p999 = histogram.getValueAtPercentile(99.9) / 1000.0;
+            double max = histogram.getMaxValue() / 1000.0;
+            System.out.printf("%-16s %10d %8d %12.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    entry.getKey(), count, errors, throughput, p50, p99, p999, max);
+            summary.printf(Locale.ROOT, "%s,%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f%n",
+                    workload, entry.getKey(), count, errors, throughput, p50, p99, p999, max);
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(
+                    out.resolve(workload + "-" + entry.getKey() + ".hgrm")), true, StandardCharsets.UTF_8)) {
+                histogram.outputPercentileDistribution(hgrm, 1000.0);
+            }
+        }
+        System.out.printf("%-16s %10d %8s %12.1f%n", "total", total, "", total / seconds);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Latencies in microseconds and the error count of one operation.
+     */
+    private static final class Result {
+
+        private final Histogram latencies = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+
+        private void record(long micros, boolean ok) {
+            latencies.recordValue(micros);
+            if (!ok) {
+                errors.increment();
+            }
+        }
+    }
+}
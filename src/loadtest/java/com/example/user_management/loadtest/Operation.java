@@ -0,0 +1,31 @@
+package com.example.user_management.loadtest;
+
+/**
+ * A request the load test sends, one per {@code UserController} endpoint it drives.
+ */
+public enum Operation {
+    /**
+     * {@code GET /api/v1/users/{id}}.
+     */
+    GET_BY_ID,
+    /**
+     * {@code GET /api/v1/users/username/{username}}.
+     */
+    GET_BY_USERNAME,
+    /**
+     * {@code GET /api/v1/users}, one page.
+     */
+    LIST,
+    /**
+     * {@code POST /api/v1/users}.
+     */
+    CREATE,
+    /**
+     * {@code PUT /api/v1/users/{id}}.
+     */
+    UPDATE,
+    /**
+     * {@code DELETE /api/v1/users/{id}} of a user the load test created.
+     */
+    DELETE
+}
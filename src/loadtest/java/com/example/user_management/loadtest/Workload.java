@@ -0,0 +1,52 @@
+package com.example.user_management.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A mix of operations, given as percentages.
+ */
+public enum Workload {
+    /**
+     * Mostly lookups and pages, a few writes.
+     */
+    READ_HEAVY(50, 15, 25, 5, 4, 1),
+    /**
+     * Mostly creates, updates and deletes.
+     */
+    WRITE_HEAVY(10, 5, 5, 40, 30, 10),
+    /**
+     * Only lookups by username.
+     */
+    USERNAME_LOOKUP(0, 100, 0, 0, 0, 0);
+
+    private final Operation[] slots;
+
+    Workload(int getById, int getByUsername, int list, int create, int update, int delete) {
+        List<Operation> operations = new ArrayList<>(100);
+        add(operations, Operation.GET_BY_ID, getById);
+        add(operations, Operation.GET_BY_USERNAME, getByUsername);
+        add(operations, Operation.LIST, list);
+        add(operations, Operation.CREATE, create);
+        add(operations, Operation.UPDATE, update);
+        add(operations, Operation.DELETE, delete);
+        this.slots = operations.toArray(new Operation[0]);
+    }
+
+    /**
+     * Pick the next operation according to the mix.
+     *
+     * @param random the random
+     * @return the operation
+     */
+    public Operation next(Random random) {
+        return slots[random.nextInt(slots.length)];
+    }
+
+    private static void add(List<Operation> operations, Operation operation, int percent) {
+        for (int i = 0; i < percent; i++) {
+            operations.add(operation);
+        }
+    }
+}
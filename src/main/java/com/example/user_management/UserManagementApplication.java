@@ -2,11 +2,13 @@ package com.example.user_management;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * The type User management application.
  */
 @SpringBootApplication
+@EnableScheduling
 public class UserManagementApplication {
 
 	/**
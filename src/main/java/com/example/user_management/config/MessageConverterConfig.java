@@ -0,0 +1,42 @@
+package com.example.user_management.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * The type Message converter config. Lets clients exchange user payloads as Smile
+ * ({@code application/x-jackson-smile}) or CBOR ({@code application/cbor}) instead of JSON, chosen by the
+ * {@code Accept} and {@code Content-Type} headers. JSON stays the default for clients that accept anything.
+ */
+@Configuration
+@Profile("!reactive")
+public class MessageConverterConfig {
+
+    /**
+     * Smile converter, replacing Spring's default one so it uses the application's Jackson settings.
+     *
+     * @param builder the object mapper builder configured by Spring Boot
+     * @return the smile converter
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    /**
+     * CBOR converter, replacing Spring's default one so it uses the application's Jackson settings.
+     *
+     * @param builder the object mapper builder configured by Spring Boot
+     * @return the cbor converter
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.user_management.config;
+
+import com.example.user_management.metrics.StatementCountingInspector;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The type Metrics config.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Registers the statement counter with Hibernate.
+     *
+     * @return the hibernate properties customizer
+     */
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.user_management.config;
+
+import com.example.user_management.repository.offheap.DurableUserStore;
+import com.example.user_management.repository.offheap.OffHeapUserRepository;
+import com.example.user_management.repository.offheap.OffHeapUserStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Serves the users of the user API from an {@link OffHeapUserStore} instead of the {@code users} table when
+ * {@code user-management.offheap.enabled} is set. With {@code user-management.offheap.directory} the store is a
+ * {@link DurableUserStore} that logs every write to that directory and recovers the users from it on startup;
+ * without it the users are lost on shutdown.
+ * <p>
+ * The database still holds the change outbox and log, the import jobs and the token tables. Cannot be combined
+ * with sharding.
+ */
+@Configuration
+@ConditionalOnProperty(name = "user-management.offheap.enabled", havingValue = "true")
+public class OffHeapStoreConfig {
+
+    /**
+     * The off-heap store, closed on shutdown.
+     *
+     * @param directory          the directory of the write-ahead log and snapshots, empty to keep the users in
+     *                           memory only
+     * @param snapshotAfterBytes how many bytes the log may grow by before a new snapshot is written
+     * @param shardUrls          the shard urls, which must not be set
+     * @return the store
+     */
+    @Bean
+    public OffHeapUserStore offHeapUserStore(
+            @Value("${user-management.offheap.directory:}") String directory,
+            @Value("${user-management.offheap.snapshot-after-bytes:268435456}") long snapshotAfterBytes,
+            @Value("${user-management.sharding.urls:}") List<String> shardUrls) {
+        if (!shardUrls.isEmpty()) {
+            throw new IllegalStateException("The off-heap user store cannot be combined with sharding");
+        }
+        return directory.isEmpty() ? new OffHeapUserStore()
+                : DurableUserStore.open(Path.of(directory), snapshotAfterBytes);
+    }
+
+    /**
+     * The user store backed by the off-heap store.
+     *
+     * @param offHeapUserStore the off-heap store
+     * @return the user store
+     */
+    @Bean
+    public OffHeapUserRepository offHeapUserRepository(OffHeapUserStore offHeapUserStore) {
+        return new OffHeapUserRepository(offHeapUserStore);
+    }
+
+    /**
+     * Gauges of the users in the store and the memory it takes on and off the heap.
+     *
+     * @param offHeapUserStore the off-heap store
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder offHeapUserStoreMetrics(OffHeapUserStore offHeapUserStore) {
+        return registry -> {
+            Gauge.builder("user_management.offheap.users", offHeapUserStore, OffHeapUserStore::count)
+                    .description("Users in the off-heap store")
+                    .register(registry);
+            Gauge.builder("user_management.offheap.bytes", offHeapUserStore, OffHeapUserStore::getOffHeapBytes)
+                    .description("Bytes allocated for the off-heap slab")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("user_management.offheap.index.bytes", offHeapUserStore, OffHeapUserStore::getIndexBytes)
+                    .description("Heap bytes of the indexes of the off-heap store")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+}
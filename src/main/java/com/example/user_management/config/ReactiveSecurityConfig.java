@@ -0,0 +1,91 @@
+package com.example.user_management.config;
+
+import com.example.user_management.security.CachingPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.*;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+import java.time.Duration;
+
+/**
+ * The type Reactive security config. The WebFlux counterpart of {@link WebSecurityConfig} for the
+ * {@code reactive} profile: the same user, HTTP Basic and password encoder. Access tokens are not accepted,
+ * since the endpoint that issues them is only served by the servlet stack.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@Profile("reactive")
+public class ReactiveSecurityConfig {
+
+    private static final String[] AUTH_WHITELIST = {
+            "/swagger-ui/**",
+            "/swagger-ui.html"
+    };
+
+    @Value("${user-management.security.credential-cache.enabled:true}")
+    private boolean credentialCacheEnabled;
+
+    @Value("${user-management.security.credential-cache.ttl:60s}")
+    private Duration credentialCacheTtl;
+
+    @Value("${user-management.security.credential-cache.max-size:10000}")
+    private long credentialCacheMaxSize;
+
+    /**
+     * Security web filter chain security web filter chain.
+     *
+     * @param http the http
+     * @return the security web filter chain
+     */
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        return http
+                .authorizeExchange(
+                        exchange -> exchange
+                                .pathMatchers(AUTH_WHITELIST).permitAll()
+                                .anyExchange().authenticated()
+                )
+                .httpBasic(Customizer.withDefaults())
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .cors(ServerHttpSecurity.CorsSpec::disable)
+                .build();
+    }
+
+    /**
+     * User details service map reactive user details service.
+     *
+     * @return the map reactive user details service
+     */
+    @Bean
+    public MapReactiveUserDetailsService userDetailsService() {
+        UserDetails user = User.builder()
+                .username("user")
+                .password(passwordEncoder().encode("user@123"))
+                .roles("ADMIN")
+                .build();
+        return new MapReactiveUserDetailsService(user);
+    }
+
+    /**
+     * Password encoder password encoder. BCrypt, fronted by a short-lived cache of verified credentials
+     * unless {@code user-management.security.credential-cache.enabled} is false.
+     *
+     * @return the password encoder
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder() {
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        if (!credentialCacheEnabled) {
+            return bcrypt;
+        }
+        return new CachingPasswordEncoder(bcrypt, credentialCacheTtl, credentialCacheMaxSize);
+    }
+}
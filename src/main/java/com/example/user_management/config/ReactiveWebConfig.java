@@ -0,0 +1,45 @@
+package com.example.user_management.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The type Reactive web config. With the {@code reactive} profile the application is a WebFlux application
+ * (see {@code application-reactive.properties}).
+ */
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveWebConfig {
+
+    /**
+     * Serve WebFlux with Reactor Netty. Tomcat is on the classpath for the servlet stack and would otherwise
+     * be picked first, running WebFlux behind the servlet adapter.
+     *
+     * @return the netty reactive web server factory
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * The JDBC pool, configured by {@code spring.datasource.*} as on the servlet stack. Spring Boot does not
+     * create one once an R2DBC connection factory exists, but the change relay, the cache and the search index
+     * still read the users through JPA.
+     *
+     * @param properties the data source properties
+     * @return the data source
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.user_management.config;
+
+import com.example.user_management.datasource.ReadWriteRoutingDataSource;
+import com.example.user_management.datasource.ReadYourWritesFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Routes read-only transactions to a read replica when {@code user-management.datasource.replica.url} is
+ * set. {@code spring.datasource.*} stays the primary and receives all writes.
+ * <p>
+ * The replica is checked every {@code health-check-interval} and reads fall back to the primary while it is
+ * down. Reads after a write in the same request go to the primary, as do all reads of a caller for
+ * {@code read-your-writes-window} after one of their writes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "user-management.datasource.replica.url")
+public class ReadReplicaConfig {
+
+    /**
+     * The primary pool, configured by {@code spring.datasource.*}.
+     *
+     * @param properties the data source properties
+     * @return the primary data source
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * The replica pool, configured by {@code user-management.datasource.replica.*}.
+     *
+     * @param url      the replica url
+     * @param username the replica username
+     * @param password the replica password
+     * @return the replica data source
+     */
+    @Bean
+    @ConfigurationProperties("user-management.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            @Value("${user-management.datasource.replica.url}") String url,
+            @Value("${user-management.datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${user-management.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * The routing data source.
+     *
+     * @param primary           the primary
+     * @param replica           the replica
+     * @param validationTimeout how long a health check waits for the replica
+     * @return the routing data source
+     */
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(
+            @Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica,
+            @Value("${user-management.datasource.replica.validation-timeout:2s}") Duration validationTimeout) {
+        return new ReadWriteRoutingDataSource(primary, replica, validationTimeout);
+    }
+
+    /**
+     * The data source used by JPA and JDBC. Defers choosing a target until the first statement, when the
+     * transaction's read-only flag is known.
+     *
+     * @param routingDataSource the routing data source
+     * @return the data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Periodically checks the replica, so reads return to it once it recovers.
+     *
+     * @param routingDataSource the routing data source
+     * @return the replica health check
+     */
+    @Bean
+    public ReplicaHealthCheck replicaHealthCheck(ReadWriteRoutingDataSource routingDataSource) {
+        return new ReplicaHealthCheck(routingDataSource);
+    }
+
+    /**
+     * Scopes read-your-writes tracking to each request. Runs after Spring Security, so the caller is known.
+     *
+     * @param window the read-your-writes window, zero to only cover the request itself
+     * @return the filter registration bean
+     */
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${user-management.datasource.replica.read-your-writes-window:0s}") Duration window) {
+        return new FilterRegistrationBean<>(new ReadYourWritesFilter(window, 100_000));
+    }
+
+    /**
+     * Publishes {@code user_management.datasource.replica.healthy} and the connections handed out per target
+     * as {@code user_management.datasource.connections}.
+     *
+     * @param routingDataSource the routing data source
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder readReplicaMetrics(ReadWriteRoutingDataSource routingDataSource) {
+        return registry -> {
+            Gauge.builder("user_management.datasource.replica.healthy", routingDataSource,
+                            routing -> routing.isReplicaHealthy() ? 1 : 0)
+                    .description("Whether reads are routed to the replica")
+                    .register(registry);
+            FunctionCounter.builder("user_management.datasource.connections", routingDataSource,
+                            ReadWriteRoutingDataSource::getPrimaryConnections)
+                    .description("Connections handed out per routing target")
+                    .tag("target", ReadWriteRoutingDataSource.PRIMARY)
+                    .register(registry);
+            FunctionCounter.builder("user_management.datasource.connections", routingDataSource,
+                            ReadWriteRoutingDataSource::getReplicaConnections)
+                    .description("Connections handed out per routing target")
+                    .tag("target", ReadWriteRoutingDataSource.REPLICA)
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Runs {@link ReadWriteRoutingDataSource#checkReplica()} on a fixed delay.
+     */
+    public static class ReplicaHealthCheck {
+
+        private final ReadWriteRoutingDataSource routingDataSource;
+
+        /**
+         * Instantiates a new Replica health check.
+         *
+         * @param routingDataSource the routing data source
+         */
+        public ReplicaHealthCheck(ReadWriteRoutingDataSource routingDataSource) {
+            this.routingDataSource = routingDataSource;
+        }
+
+        /**
+         * Check the replica.
+         */
+        @Scheduled(fixedDelayString = "${user-management.datasource.replica.health-check-interval:PT5S}")
+        public void check() {
+            routingDataSource.checkReplica();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.user_management.config;
+
+import com.example.user_management.datasource.ConnectionLimitingDataSource;
+import com.example.user_management.datasource.ShardRoutingDataSource;
+import com.example.user_management.datasource.ShardedPooledOptimizer;
+import com.example.user_management.service.shard.UserShards;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads users over several databases when {@code user-management.sharding.urls} lists their urls. The first
+ * database is shard 0, which is also where {@code spring.datasource.*} scripts run and where every table that
+ * is not sharded lives. All shards use the {@code spring.datasource} credentials.
+ * <p>
+ * Each other shard gets the schema on startup, and its {@code users_seq} is moved to the id range of the shard.
+ * Cannot be combined with a read replica.
+ */
+@Configuration
+@ConditionalOnProperty(name = "user-management.sharding.urls")
+public class ShardingConfig {
+
+    /**
+     * Matches the {@code allocationSize} of the user id sequence.
+     */
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * The routing data source over one pool per shard.
+     *
+     * @param properties     the data source properties
+     * @param urls           the url of each shard, in shard order
+     * @param schema         the schema script applied to each shard after the first
+     * @param poolSize       the maximum number of connections per shard
+     * @param replicaUrl     the read replica url, which must not be set
+     * @param virtualThreads whether requests run on virtual threads
+     * @param acquireTimeout how long to wait for a connection under virtual threads
+     * @return the shard routing data source
+     */
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            DataSourceProperties properties,
+            @Value("${user-management.sharding.urls}") List<String> urls,
+            @Value("${user-management.sharding.schema:classpath:schema.sql}") Resource schema,
+            @Value("${user-management.sharding.pool-size:10}") int poolSize,
+            @Value("${user-management.datasource.replica.url:}") String replicaUrl,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${user-management.jdbc.acquire-timeout:30s}") Duration acquireTimeout) {
+        if (!replicaUrl.isEmpty()) {
+            throw new IllegalStateException("A read replica cannot be combined with sharding");
+        }
+        if (urls.size() > UserShards.MAX_SHARDS) {
+            throw new IllegalStateException("At most " + UserShards.MAX_SHARDS + " shards are supported");
+        }
+        List<DataSource> shards = new ArrayList<>(urls.size());
+        for (int shard = 0; shard < urls.size(); shard++) {
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(urls.get(shard))
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build();
+            pool.setPoolName("shard-" + shard);
+            pool.setMaximumPoolSize(poolSize);
+            if (shard > 0) {
+                initialize(pool, schema, shard);
+            }
+            shards.add(virtualThreads ? new ConnectionLimitingDataSource(pool, poolSize, acquireTimeout) : pool);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * The data source used by JPA and JDBC. Defers choosing a shard until the first statement.
+     *
+     * @param shardRoutingDataSource the shard routing data source
+     * @return the data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    /**
+     * Keeps one pool of sequence ids per shard, so ids stay in the range of the shard they are inserted on.
+     *
+     * @return the hibernate properties customizer
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardedIdOptimizer() {
+        return properties -> properties.put(AvailableSettings.PREFERRED_POOLED_OPTIMIZER,
+                ShardedPooledOptimizer.class.getName());
+    }
+
+    /**
+     * Publishes the connections handed out per shard as {@code user_management.datasource.connections}.
+     *
+     * @param shardRoutingDataSource the shard routing data source
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder shardMetrics(ShardRoutingDataSource shardRoutingDataSource) {
+        return registry -> {
+            for (int shard = 0; shard < shardRoutingDataSource.getShardCount(); shard++) {
+                int current = shard;
+                FunctionCounter.builder("user_management.datasource.connections", shardRoutingDataSource,
+                                routing -> routing.getConnections(current))
+                        .description("Connections handed out per routing target")
+                        .tag("target", "shard-" + shard)
+                        .register(registry);
+            }
+        };
+    }
+
+    private static void initialize(DataSource shard, Resource schema, int index) {
+        new ResourceDatabasePopulator(schema).execute(shard);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(shard);
+        long rangeStart = (long) index << UserShards.SHARD_SHIFT;
+        Long next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR users_seq", Long.class);
+        if (next != null && next < rangeStart) {
+            // Hibernate's pooled optimizer hands out the allocation up to the value it reads
+            jdbcTemplate.execute("ALTER SEQUENCE users_seq RESTART WITH " + (rangeStart + ID_ALLOCATION_SIZE));
+        }
+    }
+}
@@ -26,7 +26,11 @@ public class SwaggerConfig {
                         .description("Details the APIs to manage User")
                         .version("1.0"))
                 .addSecurityItem(new SecurityRequirement().addList("Enter user credentials"))
-                .components(new Components().addSecuritySchemes("Enter user credentials", new SecurityScheme()
-                        .name("Enter user credentials").type(SecurityScheme.Type.HTTP).scheme("basic")));
+                .addSecurityItem(new SecurityRequirement().addList("Enter access token"))
+                .components(new Components()
+                        .addSecuritySchemes("Enter user credentials", new SecurityScheme()
+                                .name("Enter user credentials").type(SecurityScheme.Type.HTTP).scheme("basic"))
+                        .addSecuritySchemes("Enter access token", new SecurityScheme()
+                                .name("Enter access token").type(SecurityScheme.Type.HTTP).scheme("bearer")));
     }
 }
@@ -0,0 +1,71 @@
+package com.example.user_management.config;
+
+import com.example.user_management.datasource.ConnectionLimitingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Settings that only apply while requests run on virtual threads ({@code spring.threads.virtual.enabled=true}).
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    /**
+     * Wraps each connection pool so no more connections are checked out than the pool holds. Data sources that
+     * only delegate or route to pools are left alone, so each pool is limited once.
+     *
+     * @param maxConnections the maximum number of connections checked out at once
+     * @param acquireTimeout how long to wait for a connection
+     * @return the bean post processor
+     */
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(
+            @Value("${user-management.jdbc.max-concurrent-connections:10}") int maxConnections,
+            @Value("${user-management.jdbc.acquire-timeout:30s}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)
+                        && !(bean instanceof AbstractRoutingDataSource)) {
+                    return new ConnectionLimitingDataSource(dataSource, maxConnections, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Publishes the connection limit as {@code user_management.jdbc.permits.available} and
+     * {@code user_management.jdbc.permits.waiting}, next to the pool's own {@code hikaricp} metrics.
+     *
+     * @param dataSource the data source
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder connectionLimitMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConnectionLimitingDataSource limited) {
+                Gauge.builder("user_management.jdbc.permits.available", limited,
+                                ConnectionLimitingDataSource::getAvailablePermits)
+                        .description("Connections that can be checked out without waiting")
+                        .register(registry);
+                Gauge.builder("user_management.jdbc.permits.waiting", limited,
+                                ConnectionLimitingDataSource::getWaitingCount)
+                        .description("Callers waiting for a connection")
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -1,5 +1,10 @@
 package com.example.user_management.config;
 
+import com.example.user_management.security.AccessTokenService;
+import com.example.user_management.security.BearerTokenAuthenticationFilter;
+import com.example.user_management.security.CachingPasswordEncoder;
+import com.example.user_management.security.CredentialChangeAwareUserDetailsManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -10,14 +15,17 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+
+import java.time.Duration;
 
 /**
  * The type Web security config.
  */
 @Configuration
 @EnableWebSecurity
+@Profile("!reactive")
 public class WebSecurityConfig {
 
     private static final String[] AUTH_WHITELIST = {
@@ -25,21 +33,35 @@ public class WebSecurityConfig {
             "/swagger-ui.html"
     };
 
+    @Value("${user-management.security.credential-cache.enabled:true}")
+    private boolean credentialCacheEnabled;
+
+    @Value("${user-management.security.credential-cache.ttl:60s}")
+    private Duration credentialCacheTtl;
+
+    @Value("${user-management.security.credential-cache.max-size:10000}")
+    private long credentialCacheMaxSize;
+
     /**
-     * Security filter chain security filter chain.
+     * Security filter chain security filter chain. Requests are authenticated by an access token when
+     * they carry one and by HTTP Basic otherwise.
      *
-     * @param http the http
+     * @param http               the http
+     * @param accessTokenService the access token service
      * @return the security filter chain
      * @throws Exception the exception
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AccessTokenService accessTokenService)
+            throws Exception {
         http
                 .authorizeHttpRequests(
                         request -> request
                                 .requestMatchers(AUTH_WHITELIST).permitAll()
                                 .anyRequest().authenticated()
                 )
+                .addFilterBefore(new BearerTokenAuthenticationFilter(accessTokenService),
+                        BasicAuthenticationFilter.class)
                 .httpBasic(Customizer.withDefaults())
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(AbstractHttpConfigurer::disable);
@@ -60,17 +82,27 @@ public class WebSecurityConfig {
                 .password(passwordEncoder().encode("user@123"))
                 .roles("ADMIN")
                 .build();
-        return new InMemoryUserDetailsManager(user);
+        PasswordEncoder passwordEncoder = passwordEncoder();
+        return new CredentialChangeAwareUserDetailsManager(() -> {
+            if (passwordEncoder instanceof CachingPasswordEncoder cachingPasswordEncoder) {
+                cachingPasswordEncoder.clear();
+            }
+        }, user);
     }
 
     /**
-     * Password encoder password encoder.
+     * Password encoder password encoder. BCrypt, fronted by a short-lived cache of verified credentials
+     * unless {@code user-management.security.credential-cache.enabled} is false.
      *
      * @return the password encoder
      */
     @Bean
     public PasswordEncoder passwordEncoder()
     {
-        return new BCryptPasswordEncoder();
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        if (!credentialCacheEnabled) {
+            return bcrypt;
+        }
+        return new CachingPasswordEncoder(bcrypt, credentialCacheTtl, credentialCacheMaxSize);
     }
 }
@@ -0,0 +1,61 @@
+package com.example.user_management.controller;
+
+import com.example.user_management.security.AccessTokenAuthentication;
+import com.example.user_management.security.AccessTokenService;
+import com.example.user_management.service.dto.AccessTokenDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * The type Auth controller.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("api/v1/auth")
+public class AuthController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+    private final AccessTokenService accessTokenService;
+
+    /**
+     * Instantiates a new Auth controller.
+     *
+     * @param accessTokenService the access token service
+     */
+    public AuthController(AccessTokenService accessTokenService) {
+        this.accessTokenService = accessTokenService;
+    }
+
+    /**
+     * Issue token response entity.
+     *
+     * @param authentication the authentication
+     * @return the response entity
+     */
+    @Operation(summary = "Exchange Basic credentials for an access token",
+            description = "Returns a signed bearer token to send as 'Authorization: Bearer <token>' until it expires")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Token issued"),
+            @ApiResponse(responseCode = "401", description = "Invalid credentials"),
+            @ApiResponse(responseCode = "403", description = "A token cannot be used to obtain another token")
+    })
+    @PostMapping("/token")
+    public ResponseEntity<AccessTokenDTO> issueToken(Authentication authentication) {
+        if (authentication instanceof AccessTokenAuthentication) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        logger.info("Issuing access token for {}", authentication.getName());
+        return ResponseEntity.ok(new AccessTokenDTO(accessTokenService.issue(authentication), "Bearer",
+                accessTokenService.getTtl().toSeconds()));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.user_management.controller;
+
+import com.example.user_management.security.CachingPasswordEncoder;
+import com.example.user_management.service.cache.UserCache;
+import com.example.user_management.service.cache.UserExistenceFilter;
+import com.example.user_management.service.dto.CacheStatsDTO;
+import com.example.user_management.service.dto.ExistenceFilterStatsDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * The type Cache stats controller.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("api/v1/admin/caches")
+public class CacheStatsController {
+
+    private final UserCache userCache;
+    private final UserExistenceFilter userExistenceFilter;
+    private final PasswordEncoder passwordEncoder;
+
+    /**
+     * Instantiates a new Cache stats controller.
+     *
+     * @param userCache           the user cache
+     * @param userExistenceFilter the user existence filter
+     * @param passwordEncoder     the password encoder
+     */
+    public CacheStatsController(UserCache userCache, UserExistenceFilter userExistenceFilter,
+                                PasswordEncoder passwordEncoder) {
+        this.userCache = userCache;
+        this.userExistenceFilter = userExistenceFilter;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    /**
+     * Gets cache stats.
+     *
+     * @return the cache stats by cache name
+     */
+    @Operation(summary = "Get cache statistics", description = "Returns size, hit, miss and eviction counters per cache")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the cache statistics"),
+    })
+    @GetMapping
+    public Map<String, CacheStatsDTO> getCacheStats() {
+        Map<String, CacheStatsDTO> stats = userCache.stats();
+        if (passwordEncoder instanceof CachingPasswordEncoder cachingPasswordEncoder) {
+            stats.put("verifiedCredentials", cachingPasswordEncoder.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Gets existence filter stats.
+     *
+     * @return the existence filter stats by filter name
+     */
+    @Operation(summary = "Get existence filter statistics",
+            description = "Returns the size and the estimated and measured false-positive rate of the username and "
+                    + "email filters")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the filter statistics"),
+    })
+    @GetMapping("/existence-filters")
+    public Map<String, ExistenceFilterStatsDTO> getExistenceFilterStats() {
+        return userExistenceFilter.stats();
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.user_management.controller;
+
+import com.example.user_management.service.ReactiveUserService;
+import com.example.user_management.service.UserETag;
+import com.example.user_management.service.UserRepresentation;
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserFilter;
+import com.example.user_management.service.dto.UserPageDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * The type Reactive user controller. Serves the user API of {@link UserController} on WebFlux when the
+ * {@code reactive} profile is active, with the same paths, bodies, entity tags and conditional requests.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("api/v1/users")
+public class ReactiveUserController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserController.class);
+    private final ReactiveUserService userService;
+
+    /**
+     * Instantiates a new Reactive user controller.
+     *
+     * @param userService the user service
+     */
+    public ReactiveUserController(ReactiveUserService userService) {
+        this.userService = userService;
+    }
+
+    /**
+     * Gets one page of users.
+     *
+     * @param cursor        the cursor returned with the previous page
+     * @param limit         the page size
+     * @param username      the username prefix filter
+     * @param email         the email prefix filter
+     * @param createdAfter  the inclusive lower bound on the creation time
+     * @param createdBefore the exclusive upper bound on the creation time
+     * @param exchange      the exchange
+     * @return the user page
+     */
+    @Operation(summary = "Get a page of users",
+            description = "Returns users ordered by ID. Pass the returned nextCursor to fetch the following page")
+    @GetMapping
+    public Mono<ResponseEntity<UserPageDTO>> getAllUsers(@RequestParam(required = false) String cursor,
+                                   @RequestParam(defaultValue = "" + UserService.DEFAULT_PAGE_SIZE) int limit,
+                                   @RequestParam(required = false) String username,
+                                   @RequestParam(required = false) String email,
+                                   @RequestParam(required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdAfter,
+                                   @RequestParam(required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
+                                   ServerWebExchange exchange) {
+        logger.info("Fetching users page after cursor: {}", cursor);
+        UserFilter filter = new UserFilter(username, email, createdAfter, createdBefore);
+        UserRepresentation representation = representation(exchange);
+        return ifModified(exchange, userService.getUsersETag(cursor, limit, filter).map(representation::tag),
+                userService.getUsers(cursor, limit, filter).map(page -> negotiated(HttpStatus.OK)
+                        .eTag(representation.tag(UserETag.ofPage(page))).body(page)));
+    }
+
+    /**
+     * Export all users.
+     *
+     * @return the users, streamed as newline-delimited JSON as fast as the client reads them
+     */
+    @Operation(summary = "Export all users",
+            description = "Streams every user as newline-delimited JSON, ordered by ID. Users are read from the "
+                    + "database in chunks as the client consumes the stream")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserDTO> exportUsers() {
+        logger.info("Exporting all users as ndjson");
+        return userService.exportUsers();
+    }
+
+    /**
+     * Gets user by id.
+     *
+     * @param id       the id
+     * @param exchange the exchange
+     * @return the user by id
+     */
+    @Operation(summary = "Get user by ID",
+            description = "Returns a user by their unique ID. The ETag is the user's id and version; send it as "
+                    + "If-None-Match to get 304 while the user is unchanged")
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<UserDTO>> getUserById(@PathVariable Long id, ServerWebExchange exchange) {
+        logger.info("Fetching user with ID: {}", id);
+        UserRepresentation representation = representation(exchange);
+        return ifModified(exchange,
+                userService.getUserVersion(id).map(version -> UserETag.of(id, version)).map(representation::tag),
+                userService.getUserById(id).map(user -> withETag(user, representation)));
+    }
+
+    /**
+     * Gets user by user name.
+     *
+     * @param username the username
+     * @param exchange the exchange
+     * @return the user by user name
+     */
+    @Operation(summary = "Get user by username",
+            description = "Returns a user by their username. Answers If-None-Match like the lookup by ID")
+    @GetMapping("username/{username}")
+    public Mono<ResponseEntity<UserDTO>> getUserByUserName(@PathVariable String username,
+                                                           ServerWebExchange exchange) {
+        logger.info("Fetching user with username: {}", username);
+        UserRepresentation representation = representation(exchange);
+        return ifModified(exchange,
+                userService.getUserVersionByUserName(username).map(UserETag::of).map(representation::tag),
+                userService.getUserByUserName(username).map(user -> withETag(user, representation)));
+    }
+
+    /**
+     * Check whether a user with the username exists.
+     *
+     * @param username the username
+     * @return 200 if the user exists, 404 otherwise, without a body
+     */
+    @Operation(summary = "Check username exists",
+            description = "Answers 200 if a user has the username and 404 otherwise")
+    @RequestMapping(value = "username/{username}", method = RequestMethod.HEAD)
+    public Mono<ResponseEntity<Void>> headUserByUserName(@PathVariable String username) {
+        return userService.userNameExists(username)
+                .map(exists -> exists ? ResponseEntity.ok().<Void>build() : ResponseEntity.notFound().<Void>build());
+    }
+
+    /**
+     * Create user response entity.
+     *
+     * @param userDTO  the user dto
+     * @param exchange the exchange
+     * @return the response entity
+     */
+    @Operation(summary = "Create a new user", description = "Creates a new user in the system")
+    @PostMapping()
+    public Mono<ResponseEntity<UserDTO>> createUser(@Valid @RequestBody UserDTO userDTO,
+                                                    ServerWebExchange exchange) {
+        logger.info("Creating new user: {}", userDTO);
+        UserRepresentation representation = representation(exchange);
+        return userService.createUser(userDTO)
+                .map(created -> negotiated(HttpStatus.CREATED)
+                        .eTag(representation.tag(UserETag.of(created)))
+                        .body(created));
+    }
+
+    /**
+     * Update user response entity.
+     *
+     * @param id       the id
+     * @param userDTO  the user dto
+     * @param ifMatch  the ETag the client last read, or null to update any version
+     * @param exchange the exchange
+     * @return the response entity
+     */
+    @Operation(summary = "Update user by ID",
+            description = "Updates an existing user by their unique ID. With If-Match, only updates the user if "
+                    + "it still has that ETag")
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<UserDTO>> updateUser(@PathVariable Long id, @RequestBody UserDTO userDTO,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                    String ifMatch, ServerWebExchange exchange) {
+        UserRepresentation representation = representation(exchange);
+        return Mono.defer(() -> userService.updateUser(id, userDTO, UserETag.parseIfMatch(id, ifMatch)))
+                .map(updated -> withETag(updated, representation));
+    }
+
+    /**
+     * Patch user response entity.
+     *
+     * @param id       the id
+     * @param changes  the fields to change; absent or null fields are left unchanged
+     * @param ifMatch  the ETag the client last read, or null to update any version
+     * @param exchange the exchange
+     * @return the response entity, with the new ETag
+     */
+    @Operation(summary = "Patch user by ID",
+            description = "Changes only the supplied username, email, first name and last name with a single "
+                    + "UPDATE, without reading the user. With If-Match, only updates the user if it still has "
+                    + "that ETag")
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<Void>> patchUser(@PathVariable Long id, @RequestBody UserDTO changes,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                String ifMatch, ServerWebExchange exchange) {
+        UserRepresentation representation = representation(exchange);
+        return Mono.defer(() -> userService.patchUser(id, changes, UserETag.parseIfMatch(id, ifMatch)))
+                .map(version -> negotiated(HttpStatus.NO_CONTENT)
+                        .eTag(representation.tag(UserETag.of(id, version)))
+                        .<Void>build());
+    }
+
+    /**
+     * Delete user response entity.
+     *
+     * @param id the id
+     * @return the response entity
+     */
+    @Operation(summary = "Delete user by ID", description = "Deletes a user by their unique ID")
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<String>> deleteUser(@PathVariable Long id) {
+        return userService.deleteUser(id)
+                .thenReturn(ResponseEntity.status(HttpStatus.OK).body("User successfully deleted."));
+    }
+
+    private static ResponseEntity<UserDTO> withETag(UserDTO user, UserRepresentation representation) {
+        return negotiated(HttpStatus.OK).eTag(representation.tag(UserETag.of(user))).body(user);
+    }
+
+    /**
+     * Start a response whose body, or whose entity tag, depends on the representation the Accept header
+     * chose, so shared caches keep one copy per representation.
+     */
+    private static ResponseEntity.BodyBuilder negotiated(HttpStatus status) {
+        return ResponseEntity.status(status).varyBy(HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * The representation the response body will be written in, of the ones WebFlux's default codecs write.
+     */
+    private static UserRepresentation representation(ServerWebExchange exchange) {
+        try {
+            return UserRepresentation.negotiate(exchange.getRequest().getHeaders().getAccept(),
+                    UserRepresentation.JSON, UserRepresentation.SMILE);
+        } catch (InvalidMediaTypeException ex) {
+            // Refused as not acceptable when the body is written
+            return UserRepresentation.JSON;
+        }
+    }
+
+    /**
+     * Answer 304 if the request has an If-None-Match matching the entity tag, and the response otherwise.
+     * Without If-None-Match the entity tag is not computed.
+     */
+    private static <T> Mono<ResponseEntity<T>> ifModified(ServerWebExchange exchange, Mono<String> eTag,
+                                                          Mono<ResponseEntity<T>> response) {
+        if (exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH) == null) {
+            return response;
+        }
+        return eTag.flatMap(tag -> exchange.checkNotModified(tag)
+                ? Mono.just(negotiated(HttpStatus.NOT_MODIFIED).eTag(tag).<T>build()) : response);
+    }
+}
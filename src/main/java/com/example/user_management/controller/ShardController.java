@@ -0,0 +1,69 @@
+package com.example.user_management.controller;
+
+import com.example.user_management.service.dto.ShardRebalanceResultDTO;
+import com.example.user_management.service.shard.ShardRebalancer;
+import com.example.user_management.service.shard.UserShards;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * The type Shard controller.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("api/v1/admin/shards")
+public class ShardController {
+
+    private final UserShards userShards;
+    private final ShardRebalancer shardRebalancer;
+
+    /**
+     * Instantiates a new Shard controller.
+     *
+     * @param userShards      the user shards
+     * @param shardRebalancer the shard rebalancer
+     */
+    public ShardController(UserShards userShards, ShardRebalancer shardRebalancer) {
+        this.userShards = userShards;
+        this.shardRebalancer = shardRebalancer;
+    }
+
+    /**
+     * Gets the number of users per shard.
+     *
+     * @return the number of users per shard, in shard order
+     */
+    @Operation(summary = "Get users per shard", description = "Counts the users on each shard")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully counted the users"),
+    })
+    @GetMapping
+    public List<Long> getUsersPerShard() {
+        return userShards.countPerShard();
+    }
+
+    /**
+     * Rebalance the shards.
+     *
+     * @param maxMoves the maximum number of users to move
+     * @return the rebalance result
+     */
+    @Operation(summary = "Rebalance the shards",
+            description = "Moves users from the fullest to the emptiest shards while they keep being served")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully moved the users"),
+    })
+    @PostMapping("/rebalance")
+    public ShardRebalanceResultDTO rebalance(@RequestParam(defaultValue = "10000") int maxMoves) {
+        return shardRebalancer.rebalance(maxMoves);
+    }
+}
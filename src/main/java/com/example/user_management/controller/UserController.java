@@ -1,91 +1,298 @@
 package com.example.user_management.controller;
 
+import com.example.user_management.service.UserBatchGetService;
+import com.example.user_management.service.UserBulkService;
+import com.example.user_management.service.UserETag;
+import com.example.user_management.service.UserExportService;
+import com.example.user_management.service.UserFileFormat;
+import com.example.user_management.service.UserRepresentation;
+import com.example.user_management.service.dto.BatchGetRequestDTO;
+import com.example.user_management.service.dto.BatchGetResultDTO;
+import com.example.user_management.service.dto.BulkCreateResultDTO;
 import com.example.user_management.service.dto.UserDTO;
 import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.UserFilter;
+import com.example.user_management.service.dto.UserPageDTO;
+import com.example.user_management.service.event.UserChangeFeed;
+import com.example.user_management.service.search.UserSearchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
- * The type User controller.
+ * The type User controller. Request and response bodies are JSON, Smile or CBOR as negotiated by the
+ * {@code Content-Type} and {@code Accept} headers, see
+ * {@link com.example.user_management.config.MessageConverterConfig}.
  */
 @RestController
+@Profile("!reactive")
 @RequestMapping("api/v1/users")
 public class UserController {
 
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
     private final UserService userService;
+    private final UserExportService userExportService;
+    private final UserBulkService userBulkService;
+    private final UserSearchService userSearchService;
+    private final UserBatchGetService userBatchGetService;
+    private final UserChangeFeed userChangeFeed;
 
     /**
      * Instantiates a new User controller.
      *
-     * @param userService the user service
+     * @param userService       the user service
+     * @param userExportService the user export service
+     * @param userBulkService   the user bulk service
+     * @param userSearchService   the user search service
+     * @param userBatchGetService the user batch get service
+     * @param userChangeFeed      the user change feed
      */
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserExportService userExportService,
+                          UserBulkService userBulkService, UserSearchService userSearchService,
+                          UserBatchGetService userBatchGetService, UserChangeFeed userChangeFeed) {
         this.userService = userService;
+        this.userExportService = userExportService;
+        this.userBulkService = userBulkService;
+        this.userSearchService = userSearchService;
+        this.userBatchGetService = userBatchGetService;
+        this.userChangeFeed = userChangeFeed;
     }
 
     /**
-     * Gets all users.
+     * Gets one page of users.
      *
-     * @return the all users
+     * @param cursor        the cursor returned with the previous page
+     * @param limit         the page size
+     * @param username      the username prefix filter
+     * @param email         the email prefix filter
+     * @param createdAfter  the inclusive lower bound on the creation time
+     * @param createdBefore the exclusive upper bound on the creation time
+     * @param request       the request
+     * @return the user page
      */
-    @Operation(summary = "Get a list of all users", description = "Returns a list of all registered users")
+    @Operation(summary = "Get a page of users",
+            description = "Returns users ordered by ID. Pass the returned nextCursor to fetch the following page. "
+                    + "The ETag covers the ids and versions of the users on the page; send it as If-None-Match "
+                    + "to get 304 while the page is unchanged")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved the list of users"),
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the page of users"),
+            @ApiResponse(responseCode = "304", description = "The page did not change"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
     })
     @GetMapping
-    public List<UserDTO> getAllUsers() {
-        logger.info("Fetching all users");
-        return userService.getAllUsers();
+    public ResponseEntity<UserPageDTO> getAllUsers(@RequestParam(required = false) String cursor,
+                                   @RequestParam(defaultValue = "" + UserService.DEFAULT_PAGE_SIZE) int limit,
+                                   @RequestParam(required = false) String username,
+                                   @RequestParam(required = false) String email,
+                                   @RequestParam(required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdAfter,
+                                   @RequestParam(required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
+                                   WebRequest request) {
+        logger.info("Fetching users page after cursor: {}", cursor);
+        UserFilter filter = new UserFilter(username, email, createdAfter, createdBefore);
+        UserRepresentation representation = representation(request);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            String eTag = representation.tag(userService.getUsersETag(cursor, limit, filter));
+            if (request.checkNotModified(eTag)) {
+                return notModified(eTag);
+            }
+        }
+        UserPageDTO page = userService.getUsers(cursor, limit, filter);
+        return negotiated(HttpStatus.OK).eTag(representation.tag(UserETag.ofPage(page))).body(page);
+    }
+
+    /**
+     * Search users.
+     *
+     * @param q     the text to find in username, email, first name or last name
+     * @param limit the maximum number of results
+     * @return the matching users, best first
+     */
+    @Operation(summary = "Search users",
+            description = "Case-insensitive prefix and infix search over username, email, first name and last name. "
+                    + "Exact matches rank first, then prefix matches, then infix matches (3 characters or more)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the matching users")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<UserDTO>> searchUsers(@RequestParam String q,
+                                                     @RequestParam(defaultValue = ""
+                                                             + UserSearchService.DEFAULT_LIMIT) int limit) {
+        logger.info("Searching users for: {}", q);
+        return negotiated(HttpStatus.OK).body(userSearchService.search(q, limit));
+    }
+
+    /**
+     * Export all users.
+     *
+     * @param format the format, ndjson or csv
+     * @return the response entity streaming the users
+     */
+    @Operation(summary = "Export all users",
+            description = "Streams every user as newline-delimited JSON or CSV, ordered by ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Export streamed"),
+            @ApiResponse(responseCode = "400", description = "Unknown format")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(defaultValue = "ndjson") UserFileFormat format) {
+        logger.info("Exporting all users as {}", format);
+        StreamingResponseBody body = out -> {
+            long count = userExportService.export(format, out);
+            logger.info("Exported {} users as {}", count, format);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"users." + format.name().toLowerCase() + "\"")
+                .body(body);
+    }
+
+    /**
+     * Stream user changes.
+     *
+     * @param after       the sequence number of the last change seen
+     * @param lastEventId the id of the last event received, sent by reconnecting event sources
+     * @return the emitter streaming the changes
+     */
+    @Operation(summary = "Stream user changes",
+            description = "Server-Sent Events stream of every create, update, patch and delete, in commit order. "
+                    + "The event id is the sequence number of the change; pass it as after, or reconnect with "
+                    + "Last-Event-ID, to resume with the next change. Without either, only new changes are sent. "
+                    + "A reset event means the changes to resume from were pruned and the users should be "
+                    + "reloaded")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Change stream opened")
+    })
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) Long after,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Long resumeAfter = after != null ? after : lastEventId;
+        logger.info("Streaming user changes after: {}", resumeAfter);
+        return userChangeFeed.subscribe(resumeAfter);
     }
 
     /**
      * Gets user by id.
      *
-     * @param id the id
+     * @param id      the id
+     * @param request the request
      * @return the user by id
      */
-    @Operation(summary = "Get user by ID", description = "Returns a user by their unique ID")
+    @Operation(summary = "Get user by ID",
+            description = "Returns a user by their unique ID. The ETag is the user's id and version; send it as "
+                    + "If-None-Match to get 304 while the user is unchanged")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved the user"),
+            @ApiResponse(responseCode = "304", description = "The user did not change"),
             @ApiResponse(responseCode = "404", description = "User not found")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<UserDTO> getUserById(@PathVariable Long id) {
+    public ResponseEntity<UserDTO> getUserById(@PathVariable Long id, WebRequest request) {
         logger.info("Fetching user with ID: {}", id);
-        return ResponseEntity.ok(userService.getUserById(id));
+        UserRepresentation representation = representation(request);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            String eTag = representation.tag(UserETag.of(id, userService.getUserVersion(id)));
+            if (request.checkNotModified(eTag)) {
+                return notModified(eTag);
+            }
+        }
+        UserDTO user = userService.getUserById(id);
+        return negotiated(HttpStatus.OK).eTag(representation.tag(UserETag.of(user))).body(user);
     }
 
     /**
      * Gets user by user name.
      *
      * @param username the username
+     * @param request  the request
      * @return the user by user name
      */
-    @Operation(summary = "Get user by username", description = "Returns a user by their username")
+    @Operation(summary = "Get user by username",
+            description = "Returns a user by their username. Answers If-None-Match like the lookup by ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved the user"),
+            @ApiResponse(responseCode = "304", description = "The user did not change"),
             @ApiResponse(responseCode = "404", description = "User not found")
     })
     @GetMapping("username/{username}")
-    public ResponseEntity<UserDTO> getUserByUserName(@PathVariable String username) {
+    public ResponseEntity<UserDTO> getUserByUserName(@PathVariable String username, WebRequest request) {
         logger.info("Fetching user with username: {}", username);
-        return ResponseEntity.ok(userService.getUserByUserName(username));
+        UserRepresentation representation = representation(request);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            String eTag = representation.tag(UserETag.of(userService.getUserVersionByUserName(username)));
+            if (request.checkNotModified(eTag)) {
+                return notModified(eTag);
+            }
+        }
+        UserDTO user = userService.getUserByUserName(username);
+        return negotiated(HttpStatus.OK).eTag(representation.tag(UserETag.of(user))).body(user);
+    }
+
+    /**
+     * Get many users by id or username.
+     *
+     * @param request the ids and usernames
+     * @return one result per requested key, in request order
+     */
+    @Operation(summary = "Get users by IDs or usernames",
+            description = "Looks up to 1000 ids and usernames with a few IN queries. Returns one result per "
+                    + "requested id, then one per requested username, in request order; missing users have "
+                    + "found=false")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully looked up the users"),
+            @ApiResponse(responseCode = "400", description = "Too many keys in one request")
+    })
+    @PostMapping("/batch-get")
+    public ResponseEntity<BatchGetResultDTO> batchGetUsers(@RequestBody BatchGetRequestDTO request) {
+        logger.info("Batch getting {} ids and {} usernames",
+                request.getIds() == null ? 0 : request.getIds().size(),
+                request.getUsernames() == null ? 0 : request.getUsernames().size());
+        return negotiated(HttpStatus.OK).body(userBatchGetService.getUsers(request));
+    }
+
+    /**
+     * Check whether a user with the username exists.
+     *
+     * @param username the username
+     * @return 200 if the user exists, 404 otherwise, without a body
+     */
+    @Operation(summary = "Check username exists",
+            description = "Answers 200 if a user has the username and 404 otherwise. Most unknown usernames are "
+                    + "answered without a database query")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "The username exists"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    @RequestMapping(value = "username/{username}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> headUserByUserName(@PathVariable String username) {
+        return userService.userNameExists(username) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
     }
 
     /**
      * Create user response entity.
      *
      * @param userDTO the user dto
+     * @param request the request
      * @return the response entity
      */
     @Operation(summary = "Create a new user", description = "Creates a new user in the system")
@@ -94,10 +301,32 @@ public class UserController {
             @ApiResponse(responseCode = "400", description = "Invalid user data")
     })
     @PostMapping()
-    public ResponseEntity<UserDTO> createUser(@Valid @RequestBody UserDTO userDTO) {
+    public ResponseEntity<UserDTO> createUser(@Valid @RequestBody UserDTO userDTO, WebRequest request) {
         logger.info("Creating new user: {}", userDTO);
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(userService.createUser(userDTO));
+        UserDTO created = userService.createUser(userDTO);
+        return negotiated(HttpStatus.CREATED)
+                .eTag(representation(request).tag(UserETag.of(created)))
+                .body(created);
+    }
+
+    /**
+     * Create users in bulk response entity.
+     *
+     * @param users the users
+     * @return the response entity with one result per item
+     */
+    @Operation(summary = "Create users in bulk",
+            description = "Validates and inserts many users in batches. Returns one result per item in request order")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "All users successfully created"),
+            @ApiResponse(responseCode = "207", description = "Some users were rejected, see the per-item results"),
+            @ApiResponse(responseCode = "400", description = "Too many users in one request")
+    })
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkCreateResultDTO> createUsers(@RequestBody List<UserDTO> users) {
+        logger.info("Bulk creating {} users", users.size());
+        BulkCreateResultDTO result = userBulkService.createUsers(users);
+        return negotiated(result.getFailed() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS).body(result);
     }
 
     /**
@@ -105,17 +334,54 @@ public class UserController {
      *
      * @param id      the id
      * @param userDTO the user dto
+     * @param ifMatch the ETag the client last read, or null to update any version
+     * @param request the request
      * @return the response entity
      */
-    @Operation(summary = "Update user by ID", description = "Updates an existing user by their unique ID")
+    @Operation(summary = "Update user by ID",
+            description = "Updates an existing user by their unique ID. With If-Match, only updates the user if "
+                    + "it still has that ETag")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User successfully updated"),
             @ApiResponse(responseCode = "404", description = "User not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid user data")
+            @ApiResponse(responseCode = "400", description = "Invalid user data"),
+            @ApiResponse(responseCode = "409", description = "The user was updated concurrently"),
+            @ApiResponse(responseCode = "412", description = "The user no longer matches If-Match")
     })
     @PutMapping("/{id}")
-    public ResponseEntity<UserDTO> updateUser(@PathVariable Long id, @RequestBody UserDTO userDTO) {
-        return ResponseEntity.ok(userService.updateUser(id, userDTO));
+    public ResponseEntity<UserDTO> updateUser(@PathVariable Long id, @RequestBody UserDTO userDTO,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                              String ifMatch, WebRequest request) {
+        UserDTO updated = userService.updateUser(id, userDTO, UserETag.parseIfMatch(id, ifMatch));
+        return negotiated(HttpStatus.OK).eTag(representation(request).tag(UserETag.of(updated)))
+                .body(updated);
+    }
+
+    /**
+     * Patch user response entity.
+     *
+     * @param id      the id
+     * @param changes the fields to change; absent or null fields are left unchanged
+     * @param ifMatch the ETag the client last read, or null to update any version
+     * @param request the request
+     * @return the response entity, with the new ETag
+     */
+    @Operation(summary = "Patch user by ID",
+            description = "Changes only the supplied username, email, first name and last name with a single "
+                    + "UPDATE, without reading the user. With If-Match, only updates the user if it still has "
+                    + "that ETag")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "User successfully updated"),
+            @ApiResponse(responseCode = "404", description = "User not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid user data"),
+            @ApiResponse(responseCode = "412", description = "The user no longer matches If-Match")
+    })
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchUser(@PathVariable Long id, @RequestBody UserDTO changes,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                          String ifMatch, WebRequest request) {
+        Long version = userService.patchUser(id, changes, UserETag.parseIfMatch(id, ifMatch));
+        return negotiated(HttpStatus.NO_CONTENT).eTag(representation(request).tag(UserETag.of(id, version))).build();
     }
 
     /**
@@ -134,4 +400,30 @@ public class UserController {
         userService.deleteUser(id);
         return ResponseEntity.status(HttpStatus.OK).body("User successfully deleted.");
     }
+
+    private static <T> ResponseEntity<T> notModified(String eTag) {
+        return negotiated(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+
+    /**
+     * Start a response whose body, or whose entity tag, depends on the representation the Accept header
+     * chose, so shared caches keep one copy per representation.
+     */
+    private static ResponseEntity.BodyBuilder negotiated(HttpStatus status) {
+        return ResponseEntity.status(status).varyBy(HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * The representation the response body will be written in, whose entity tags the response carries.
+     */
+    private static UserRepresentation representation(WebRequest request) {
+        String[] accept = request.getHeaderValues(HttpHeaders.ACCEPT);
+        try {
+            return UserRepresentation.negotiate(accept == null ? List.of() : MediaType.parseMediaTypes(List.of(accept)),
+                    UserRepresentation.values());
+        } catch (InvalidMediaTypeException ex) {
+            // Refused as not acceptable when the body is written
+            return UserRepresentation.JSON;
+        }
+    }
 }
@@ -0,0 +1,103 @@
+package com.example.user_management.controller;
+
+import com.example.user_management.service.UserFileFormat;
+import com.example.user_management.service.UserImportService;
+import com.example.user_management.service.dto.ImportJobDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * The type User import controller.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("api/v1/users/imports")
+public class UserImportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportController.class);
+    private final UserImportService userImportService;
+
+    /**
+     * Instantiates a new User import controller.
+     *
+     * @param userImportService the user import service
+     */
+    public UserImportController(UserImportService userImportService) {
+        this.userImportService = userImportService;
+    }
+
+    /**
+     * Start import response entity.
+     *
+     * @param file   the file
+     * @param format the format, csv or ndjson
+     * @return the response entity
+     * @throws IOException if the upload cannot be stored
+     */
+    @Operation(summary = "Import users from a file",
+            description = "Accepts a CSV or NDJSON file and imports it in the background. Poll the returned job for progress")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Import job queued"),
+            @ApiResponse(responseCode = "400", description = "Unknown format")
+    })
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobDTO> startImport(@RequestParam("file") MultipartFile file,
+                                                    @RequestParam(defaultValue = "csv") UserFileFormat format)
+            throws IOException {
+        logger.info("Starting {} import of {} ({} bytes)", format, file.getOriginalFilename(), file.getSize());
+        ImportJobDTO job;
+        try (InputStream content = file.getInputStream()) {
+            job = userImportService.startImport(format, content);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/users/imports/" + job.getJobId()))
+                .body(job);
+    }
+
+    /**
+     * Gets import response entity.
+     *
+     * @param jobId the job id
+     * @return the response entity
+     */
+    @Operation(summary = "Get import progress", description = "Returns the status and counters of an import job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the import job"),
+            @ApiResponse(responseCode = "404", description = "Import job not found")
+    })
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ImportJobDTO> getImport(@PathVariable String jobId) {
+        return ResponseEntity.ok(userImportService.getImport(jobId));
+    }
+
+    /**
+     * Resume import response entity.
+     *
+     * @param jobId the job id
+     * @return the response entity
+     */
+    @Operation(summary = "Resume an import",
+            description = "Restarts a failed or interrupted import after its last committed chunk")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Import job queued"),
+            @ApiResponse(responseCode = "404", description = "Import job not found"),
+            @ApiResponse(responseCode = "409", description = "Import job is not failed or interrupted")
+    })
+    @PostMapping("/{jobId}/resume")
+    public ResponseEntity<ImportJobDTO> resumeImport(@PathVariable String jobId) {
+        logger.info("Resuming import job {}", jobId);
+        return ResponseEntity.accepted().body(userImportService.resumeImport(jobId));
+    }
+}
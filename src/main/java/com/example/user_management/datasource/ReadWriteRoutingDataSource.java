@@ -0,0 +1,144 @@
+package com.example.user_management.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends connections of read-only transactions to a replica and all others to the primary.
+ * <p>
+ * Must be wrapped in a {@code LazyConnectionDataSourceProxy}, so the physical connection is only chosen once
+ * the transaction's read-only flag is set. Reads also go to the primary while the replica is unhealthy and
+ * when {@link ReadYourWrites} requires it. A replica that fails to hand out a connection is marked unhealthy
+ * and the read falls back to the primary; {@link #checkReplica()} marks it healthy again once it answers.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    /**
+     * Lookup key of the primary.
+     */
+    public static final String PRIMARY = "primary";
+
+    /**
+     * Lookup key of the replica.
+     */
+    public static final String REPLICA = "replica";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Duration validationTimeout;
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private volatile boolean replicaHealthy = true;
+
+    /**
+     * Instantiates a new Read write routing data source.
+     *
+     * @param primary           the primary
+     * @param replica           the replica
+     * @param validationTimeout how long a health check waits for the replica
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Duration validationTimeout) {
+        this.primary = primary;
+        this.replica = replica;
+        this.validationTimeout = validationTimeout;
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReadYourWrites.markWritten();
+            }
+            return PRIMARY;
+        }
+        return replicaHealthy && !ReadYourWrites.isPrimaryRequired() ? REPLICA : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (PRIMARY.equals(determineCurrentLookupKey())) {
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.getConnection();
+            replicaConnections.increment();
+            return connection;
+        } catch (SQLException ex) {
+            markReplicaUnhealthy(ex);
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Connections are routed with the credentials of each pool");
+    }
+
+    /**
+     * Check whether the replica answers, and mark it healthy or unhealthy accordingly.
+     */
+    public void checkReplica() {
+        try (Connection connection = replica.getConnection()) {
+            if (connection.isValid((int) Math.max(1, validationTimeout.toSeconds()))) {
+                if (!replicaHealthy) {
+                    logger.info("Replica is healthy again, routing reads to it");
+                }
+                replicaHealthy = true;
+            } else {
+                markReplicaUnhealthy(null);
+            }
+        } catch (SQLException ex) {
+            markReplicaUnhealthy(ex);
+        }
+    }
+
+    /**
+     * Whether reads are currently routed to the replica.
+     *
+     * @return true if the replica is healthy
+     */
+    public boolean isReplicaHealthy() {
+        return replicaHealthy;
+    }
+
+    /**
+     * Gets the number of connections handed out by the primary.
+     *
+     * @return the count
+     */
+    public long getPrimaryConnections() {
+        return primaryConnections.sum();
+    }
+
+    /**
+     * Gets the number of connections handed out by the replica.
+     *
+     * @return the count
+     */
+    public long getReplicaConnections() {
+        return replicaConnections.sum();
+    }
+
+    private void markReplicaUnhealthy(SQLException ex) {
+        if (replicaHealthy) {
+            logger.warn("Replica is unhealthy, routing reads to the primary: {}",
+                    ex == null ? "connection is not valid" : ex.getMessage());
+        }
+        replicaHealthy = false;
+    }
+}
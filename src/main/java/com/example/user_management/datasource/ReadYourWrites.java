@@ -0,0 +1,85 @@
+package com.example.user_management.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread read-your-writes state consulted by {@link ReadWriteRoutingDataSource}.
+ * <p>
+ * Between {@link #begin(boolean)} and {@link #end()}, usually one request, reads are sent to the primary once
+ * the thread wrote, or from the start if the caller wrote recently, so they cannot miss a write the replica
+ * has not applied yet. Outside of that scope nothing is tracked, but {@link #onPrimary(Supplier)} still sends
+ * single reads to the primary.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<boolean[]> STATE = new ThreadLocal<>();
+
+    private static final int PRIMARY_REQUIRED = 0;
+    private static final int WROTE = 1;
+
+    private ReadYourWrites() {
+    }
+
+    /**
+     * Start tracking writes on the current thread.
+     *
+     * @param primaryRequired whether reads must go to the primary from the start
+     */
+    public static void begin(boolean primaryRequired) {
+        STATE.set(new boolean[]{primaryRequired, false});
+    }
+
+    /**
+     * Stop tracking writes on the current thread.
+     *
+     * @return whether the thread wrote since {@link #begin(boolean)}
+     */
+    public static boolean end() {
+        boolean[] state = STATE.get();
+        STATE.remove();
+        return state != null && state[WROTE];
+    }
+
+    /**
+     * Record that the current thread wrote to the primary.
+     */
+    public static void markWritten() {
+        boolean[] state = STATE.get();
+        if (state != null) {
+            state[WROTE] = true;
+        }
+    }
+
+    /**
+     * Run a read on the primary, whether or not the current thread tracks writes.
+     *
+     * @param read the read
+     * @param <T>  the result type
+     * @return the result of the read
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        boolean[] outer = STATE.get();
+        boolean[] state = {true, false};
+        STATE.set(state);
+        try {
+            return read.get();
+        } finally {
+            if (outer == null) {
+                STATE.remove();
+            } else {
+                outer[WROTE] |= state[WROTE];
+                STATE.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Whether reads on the current thread must go to the primary.
+     *
+     * @return true if the thread wrote or the caller wrote recently
+     */
+    public static boolean isPrimaryRequired() {
+        boolean[] state = STATE.get();
+        return state != null && (state[PRIMARY_REQUIRED] || state[WROTE]);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.user_management.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Scopes {@link ReadYourWrites} to a request. Reads after a write in the same request always go to the
+ * primary. With a non-zero window, reads of a caller who wrote within the window go to the primary too,
+ * keyed by the authenticated name.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final Cache<String, Boolean> recentWriters;
+
+    /**
+     * Instantiates a new Read your writes filter.
+     *
+     * @param window         how long after a write the caller's reads go to the primary, zero to disable
+     * @param maxRecentUsers the maximum number of callers tracked at once
+     */
+    public ReadYourWritesFilter(Duration window, long maxRecentUsers) {
+        this.recentWriters = window.isZero() ? null
+                : Caffeine.newBuilder().expireAfterWrite(window).maximumSize(maxRecentUsers).build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String caller = recentWriters == null ? null : callerName();
+        ReadYourWrites.begin(caller != null && recentWriters.getIfPresent(caller) != null);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (ReadYourWrites.end() && caller != null) {
+                recentWriters.put(caller, Boolean.TRUE);
+            }
+        }
+    }
+
+    private static String callerName() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || !authentication.isAuthenticated() ? null : authentication.getName();
+    }
+}
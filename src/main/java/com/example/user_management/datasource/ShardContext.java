@@ -0,0 +1,49 @@
+package com.example.user_management.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread shard selection consulted by {@link ShardRoutingDataSource} and {@link ShardedPooledOptimizer}.
+ * <p>
+ * Connections are routed when a transaction issues its first statement, so the shard must be selected before
+ * that and stays with the transaction until it ends. Outside of {@link #call(int, Supplier)} connections go to
+ * shard 0.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * Run an action with connections routed to a shard, restoring the previous selection afterwards.
+     *
+     * @param shard  the shard
+     * @param action the action
+     * @param <T>    the result type
+     * @return the result of the action
+     */
+    public static <T> T call(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Gets the shard selected on the current thread.
+     *
+     * @return the shard, or null if none is selected
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.user_management.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends connections to the shard selected with {@link ShardContext}, and to shard 0 when none is selected.
+ * <p>
+ * Must be wrapped in a {@code LazyConnectionDataSourceProxy}, so the physical connection is only chosen at the
+ * first statement of a transaction. Selecting a shard that does not exist fails instead of falling back.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final List<DataSource> shards;
+    private final LongAdder[] connections;
+
+    /**
+     * Instantiates a new Shard routing data source.
+     *
+     * @param shards the data source of each shard, in shard order
+     */
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+        this.connections = new LongAdder[shards.size()];
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+            connections[shard] = new LongAdder();
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Integer shard = ShardContext.current();
+        Connection connection = super.getConnection();
+        connections[shard == null ? 0 : shard].increment();
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Connections are routed with the credentials of each pool");
+    }
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Gets the data source of a shard, for work that must not go through JPA.
+     *
+     * @param shard the shard
+     * @return the data source
+     */
+    public DataSource getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * Gets the number of connections a shard handed out.
+     *
+     * @param shard the shard
+     * @return the count
+     */
+    public long getConnections(int shard) {
+        return connections[shard].sum();
+    }
+
+    /**
+     * Close the pools of all shards.
+     *
+     * @throws Exception if a pool fails to close
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : shards) {
+            DataSource pool = shard instanceof DelegatingDataSource delegating
+                    ? delegating.getTargetDataSource() : shard;
+            if (pool instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
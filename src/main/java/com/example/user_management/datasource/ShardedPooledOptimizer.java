@@ -0,0 +1,61 @@
+package com.example.user_management.datasource;
+
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.PooledOptimizer;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pooled sequence optimizer that keeps one pool of ids per shard.
+ * <p>
+ * Hibernate shares one optimizer per sequence across all connections. With a single pool, ids fetched from one
+ * shard's sequence would be handed out for inserts on another, and an id would no longer tell on which shard
+ * its user was created. Installed with {@code hibernate.id.optimizer.pooled.preferred} when sharding is on.
+ */
+public class ShardedPooledOptimizer extends PooledOptimizer {
+
+    private final Class<?> returnClass;
+    private final int incrementSize;
+    private final Map<Integer, PooledOptimizer> shards = new ConcurrentHashMap<>();
+    private volatile long initialValue = -1;
+
+    /**
+     * Instantiates a new Sharded pooled optimizer.
+     *
+     * @param returnClass   the type of the generated ids
+     * @param incrementSize the increment of the sequence
+     */
+    public ShardedPooledOptimizer(Class<?> returnClass, int incrementSize) {
+        super(returnClass, incrementSize);
+        this.returnClass = returnClass;
+        this.incrementSize = incrementSize;
+    }
+
+    @Override
+    public void injectInitialValue(long initialValue) {
+        super.injectInitialValue(initialValue);
+        this.initialValue = initialValue;
+    }
+
+    @Override
+    public Serializable generate(AccessCallback callback) {
+        return currentShard().generate(callback);
+    }
+
+    @Override
+    public IntegralDataTypeHolder getLastSourceValue() {
+        return currentShard().getLastSourceValue();
+    }
+
+    private PooledOptimizer currentShard() {
+        Integer shard = ShardContext.current();
+        return shards.computeIfAbsent(shard == null ? 0 : shard, key -> {
+            PooledOptimizer optimizer = new PooledOptimizer(returnClass, incrementSize);
+            optimizer.injectInitialValue(initialValue);
+            return optimizer;
+        });
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.user_management.exception;
+
+/**
+ * The type Bulk limit exceeded exception.
+ */
+public class BulkLimitExceededException extends RuntimeException {
+
+    /**
+     * Instantiates a new Bulk limit exceeded exception.
+     *
+     * @param message the message
+     */
+    public BulkLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -1,12 +1,22 @@
 package com.example.user_management.exception;
 
+import jakarta.validation.ConstraintViolationException;
 import org.slf4j.*;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -15,6 +25,7 @@ import java.util.Map;
  * The type Global exception handler.
  */
 @RestControllerAdvice
+@Profile("!reactive")
 public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
@@ -28,11 +39,105 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(UserNotFoundException.class)
     public ResponseEntity<String> handleUserNotFoundException(UserNotFoundException ex) {
         logger.error("User not found exception: {}", ex.getMessage());
+        recordError(ex);
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
     }
 
     /**
-     * Handle invalid json response entity.
+     * Handle import job not found exception response entity.
+     *
+     * @param ex the ex
+     * @return the response entity
+     */
+    @ExceptionHandler(ImportJobNotFoundException.class)
+    public ResponseEntity<String> handleImportJobNotFoundException(ImportJobNotFoundException ex) {
+        logger.error("Import job not found exception: {}", ex.getMessage());
+        recordError(ex);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Handle import job state exception response entity.
+     *
+     * @param ex the ex
+     * @return the response entity
+     */
+    @ExceptionHandler(ImportJobStateException.class)
+    public ResponseEntity<String> handleImportJobStateException(ImportJobStateException ex) {
+        logger.error("Import job state exception: {}", ex.getMessage());
+        recordError(ex);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handle invalid cursor exception response entity.
+     *
+     * @param ex the ex
+     * @return the response entity
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursorException(InvalidCursorException ex) {
+        logger.error("Invalid cursor exception: {}", ex.getMessage());
+        recordError(ex);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handle bulk limit exceeded exception response entity.
+     *
+     * @param ex the ex
+     * @return the response entity
+     */
+    @ExceptionHandler(BulkLimitExceededException.class)
+    public ResponseEntity<String> handleBulkLimitExceededException(BulkLimitExceededException ex) {
+        logger.error("Bulk limit exceeded exception: {}", ex.getMessage());
+        recordError(ex);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handle precondition failed exception response entity.
+     *
+     * @param ex the ex
+     * @return the response entity
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<String> handlePreconditionFailedException(PreconditionFailedException ex) {
+        logger.error("Precondition failed exception: {}", ex.getMessage());
+        recordError(ex);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.PRECONDITION_FAILED);
+    }
+
+    /**
+     * Handle optimistic locking failure response entity, raised when a concurrent write changed the user
+     * between reading and updating it.
+     *
+     * @param ex the ex
+     * @return the response entity
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex) {
+        logger.error("Optimistic locking failure: {}", ex.getMessage());
+        recordError(ex);
+        return new ResponseEntity<>("The user was modified concurrently, fetch it and retry", HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handle argument type mismatch response entity.
+     *
+     * @param ex the ex
+     * @return the response entity
+     */
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<String> handleArgumentTypeMismatch(MethodArgumentTypeMismatchException ex) {
+        logger.error("Invalid value for parameter {}: {}", ex.getName(), ex.getValue());
+        recordError(ex);
+        return new ResponseEntity<>("Invalid value for parameter " + ex.getName(), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handle invalid json response entity. Also raised for a Smile or CBOR body that cannot be read, which
+     * gets the same answer.
      *
      * @param ex the ex
      * @return the response entity
@@ -40,9 +145,41 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<String> handleInvalidJson(HttpMessageNotReadableException ex) {
         logger.error("Invalid JSON format: {}", ex.getMessage());
+        recordError(ex);
         return new ResponseEntity<>("Invalid JSON format", HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Handle not acceptable response entity, raised when the request accepts none of JSON, Smile and CBOR.
+     * There is no body, since no representation the client accepts could carry it.
+     *
+     * @param ex the ex
+     * @return the response entity
+     */
+    @ExceptionHandler(HttpMediaTypeNotAcceptableException.class)
+    public ResponseEntity<Void> handleNotAcceptable(HttpMediaTypeNotAcceptableException ex) {
+        logger.error("Not acceptable: {}", ex.getMessage());
+        recordError(ex);
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+    }
+
+    /**
+     * Handle unsupported media type response entity, raised for a request body that is not JSON, Smile or
+     * CBOR. The Accept header lists the media types that are.
+     *
+     * @param ex the ex
+     * @return the response entity
+     */
+    @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
+    public ResponseEntity<String> handleUnsupportedMediaType(HttpMediaTypeNotSupportedException ex) {
+        logger.error("Unsupported media type: {}", ex.getMessage());
+        recordError(ex);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(ex.getSupportedMediaTypes());
+        return new ResponseEntity<>("Unsupported content type " + ex.getContentType(), headers,
+                HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+
     /**
      * Handle validation exception response entity.
      *
@@ -56,6 +193,24 @@ public class GlobalExceptionHandler {
                 errors.put(error.getField(), error.getDefaultMessage())
         );
         logger.error("Validation errors: {}", errors);
+        recordError(ex);
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handle constraint violation exception response entity.
+     *
+     * @param ex the ex
+     * @return the response entity
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<Map<String, String>> handleConstraintViolationException(ConstraintViolationException ex) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getConstraintViolations().forEach(violation ->
+                errors.put(violation.getPropertyPath().toString(), violation.getMessage())
+        );
+        logger.error("Validation errors: {}", errors);
+        recordError(ex);
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
 
@@ -68,6 +223,18 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleGenericException(Exception ex) {
         logger.error("An unexpected error occurred: {}", ex.getMessage(), ex);
+        recordError(ex);
         return new ResponseEntity<>("An error occurred: " + ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    /**
+     * Attach a handled exception to the request's observation, so {@code http.server.requests} is tagged
+     * with it instead of {@code none}.
+     */
+    private static void recordError(Exception ex) {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            ServerHttpObservationFilter.findObservationContext(attributes.getRequest())
+                    .ifPresent(context -> context.setError(ex));
+        }
+    }
 }
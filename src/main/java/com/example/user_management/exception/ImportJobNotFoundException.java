@@ -0,0 +1,16 @@
+package com.example.user_management.exception;
+
+/**
+ * The type Import job not found exception.
+ */
+public class ImportJobNotFoundException extends RuntimeException {
+
+    /**
+     * Instantiates a new Import job not found exception.
+     *
+     * @param message the message
+     */
+    public ImportJobNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.user_management.exception;
+
+/**
+ * The type Import job state exception.
+ */
+public class ImportJobStateException extends RuntimeException {
+
+    /**
+     * Instantiates a new Import job state exception.
+     *
+     * @param message the message
+     */
+    public ImportJobStateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.user_management.exception;
+
+/**
+ * The type Invalid cursor exception.
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    /**
+     * Instantiates a new Invalid cursor exception.
+     *
+     * @param message the message
+     */
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
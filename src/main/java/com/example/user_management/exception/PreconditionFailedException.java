@@ -0,0 +1,17 @@
+package com.example.user_management.exception;
+
+/**
+ * The type Precondition failed exception, thrown when an {@code If-Match} header does not match the current
+ * version of a user.
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    /**
+     * Instantiates a new Precondition failed exception.
+     *
+     * @param message the message
+     */
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.user_management.exception;
+
+import jakarta.validation.ConstraintViolationException;
+import org.slf4j.*;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.observation.ServerRequestObservationContext;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The type Reactive exception handler. Maps the exceptions of the WebFlux controllers of the {@code reactive}
+ * profile to the same statuses and bodies as {@link GlobalExceptionHandler} does for the servlet ones.
+ */
+@RestControllerAdvice
+@Profile("reactive")
+public class ReactiveExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveExceptionHandler.class);
+
+    /**
+     * Handle user not found exception response entity.
+     *
+     * @param ex       the ex
+     * @param exchange the exchange
+     * @return the response entity
+     */
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<String> handleUserNotFoundException(UserNotFoundException ex, ServerWebExchange exchange) {
+        logger.error("User not found exception: {}", ex.getMessage());
+        recordError(ex, exchange);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Handle invalid cursor exception response entity.
+     *
+     * @param ex       the ex
+     * @param exchange the exchange
+     * @return the response entity
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursorException(InvalidCursorException ex, ServerWebExchange exchange) {
+        logger.error("Invalid cursor exception: {}", ex.getMessage());
+        recordError(ex, exchange);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handle precondition failed exception response entity.
+     *
+     * @param ex       the ex
+     * @param exchange the exchange
+     * @return the response entity
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<String> handlePreconditionFailedException(PreconditionFailedException ex,
+                                                                    ServerWebExchange exchange) {
+        logger.error("Precondition failed exception: {}", ex.getMessage());
+        recordError(ex, exchange);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.PRECONDITION_FAILED);
+    }
+
+    /**
+     * Handle optimistic locking failure response entity, raised when a concurrent write changed the user
+     * between reading and updating it.
+     *
+     * @param ex       the ex
+     * @param exchange the exchange
+     * @return the response entity
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(OptimisticLockingFailureException ex,
+                                                                 ServerWebExchange exchange) {
+        logger.error("Optimistic locking failure: {}", ex.getMessage());
+        recordError(ex, exchange);
+        return new ResponseEntity<>("The user was modified concurrently, fetch it and retry", HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handle invalid input response entity: a parameter of the wrong type, a body that is not valid JSON, or
+     * another request the controller cannot read.
+     *
+     * @param ex       the ex
+     * @param exchange the exchange
+     * @return the response entity
+     */
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<String> handleInvalidInput(ServerWebInputException ex, ServerWebExchange exchange) {
+        recordError(ex, exchange);
+        if (ex.getCause() instanceof TypeMismatchException mismatch) {
+            String name = ex.getMethodParameter() != null ? ex.getMethodParameter().getParameterName()
+                    : mismatch.getPropertyName();
+            logger.error("Invalid value for parameter {}: {}", name, mismatch.getValue());
+            return new ResponseEntity<>("Invalid value for parameter " + name, HttpStatus.BAD_REQUEST);
+        }
+        if (ex.getCause() instanceof DecodingException) {
+            logger.error("Invalid JSON format: {}", ex.getMessage());
+            return new ResponseEntity<>("Invalid JSON format", HttpStatus.BAD_REQUEST);
+        }
+        logger.error("Invalid request: {}", ex.getMessage());
+        return new ResponseEntity<>(ex.getReason(), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handle validation exception response entity.
+     *
+     * @param ex       the ex
+     * @param exchange the exchange
+     * @return the response entity
+     */
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, String>> handleValidationException(WebExchangeBindException ex,
+                                                                         ServerWebExchange exchange) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getBindingResult().getFieldErrors().forEach(error ->
+                errors.put(error.getField(), error.getDefaultMessage())
+        );
+        logger.error("Validation errors: {}", errors);
+        recordError(ex, exchange);
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handle constraint violation exception response entity.
+     *
+     * @param ex       the ex
+     * @param exchange the exchange
+     * @return the response entity
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<Map<String, String>> handleConstraintViolationException(ConstraintViolationException ex,
+                                                                                  ServerWebExchange exchange) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getConstraintViolations().forEach(violation ->
+                errors.put(violation.getPropertyPath().toString(), violation.getMessage())
+        );
+        logger.error("Validation errors: {}", errors);
+        recordError(ex, exchange);
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handle response status exception response entity, raised by WebFlux itself for unknown paths, methods
+     * and media types.
+     *
+     * @param ex       the ex
+     * @param exchange the exchange
+     * @return the response entity
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusException(ResponseStatusException ex,
+                                                                ServerWebExchange exchange) {
+        logger.error("Response status exception: {}", ex.getMessage());
+        recordError(ex, exchange);
+        return new ResponseEntity<>(ex.getReason(), ex.getStatusCode());
+    }
+
+    /**
+     * Handle generic exception response entity.
+     *
+     * @param ex       the ex
+     * @param exchange the exchange
+     * @return the response entity
+     */
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<String> handleGenericException(Exception ex, ServerWebExchange exchange) {
+        logger.error("An unexpected error occurred: {}", ex.getMessage(), ex);
+        recordError(ex, exchange);
+        return new ResponseEntity<>("An error occurred: " + ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * Attach a handled exception to the request's observation, so {@code http.server.requests} is tagged
+     * with it instead of {@code none}.
+     */
+    private static void recordError(Exception ex, ServerWebExchange exchange) {
+        ServerRequestObservationContext.findCurrent(exchange.getAttributes())
+                .ifPresent(context -> context.setError(ex));
+    }
+}
@@ -4,6 +4,8 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * The type User not found exception.
+ * <p>
+ * Thrown for every lookup miss and always answered with a 404, so it skips filling in the stack trace.
  */
 @Slf4j
 public class UserNotFoundException extends RuntimeException {
@@ -14,6 +16,6 @@ public class UserNotFoundException extends RuntimeException {
      * @param message the message
      */
     public UserNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
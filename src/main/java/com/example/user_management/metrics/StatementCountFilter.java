@@ -0,0 +1,64 @@
+package com.example.user_management.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records the number of SQL statements each request issues as {@code http.server.requests.statements},
+ * tagged like {@code http.server.requests} by method and URI pattern, and logs requests above the warning
+ * threshold.
+ */
+@Component
+public class StatementCountFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementCountFilter.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int warnThreshold;
+
+    /**
+     * Instantiates a new Statement count filter.
+     *
+     * @param meterRegistry the meter registry
+     * @param warnThreshold the statement count above which a request is logged
+     */
+    public StatementCountFilter(MeterRegistry meterRegistry,
+                                @Value("${user-management.metrics.statements-warn-threshold:20}") int warnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        StatementCountingInspector.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int statements = StatementCountingInspector.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            DistributionSummary.builder("http.server.requests.statements")
+                    .description("SQL statements issued per request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(statements);
+            if (statements > warnThreshold) {
+                logger.warn("{} {} issued {} SQL statements", request.getMethod(), uri, statements);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.user_management.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a count is open. Used to find
+ * requests that issue one query per row (N+1).
+ * <p>
+ * Id sequence fetches are not counted. The sequences are pooled, so whether a request fetches the next block of
+ * ids depends on how many ids earlier requests took, not on the request itself.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+    private static final String SEQUENCE_FETCH = "next value for ";
+
+    /**
+     * Start counting on the current thread.
+     */
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * Stop counting on the current thread.
+     *
+     * @return the number of statements since {@link #start()}
+     */
+    public static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null && !isSequenceFetch(sql)) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    private static boolean isSequenceFetch(String sql) {
+        return sql.regionMatches(true, 0, "select " + SEQUENCE_FETCH, 0, 7 + SEQUENCE_FETCH.length());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.user_management.model;
+
+import com.example.user_management.service.UserFileFormat;
+import com.example.user_management.service.dto.ImportErrorDTO;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The type Import job.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "import_jobs")
+public class ImportJob {
+
+    @Id
+    private String jobId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private UserFileFormat format;
+
+    /**
+     * Location of the spooled upload, kept until the job completes so it can be resumed.
+     */
+    @Column(nullable = false, length = 1024)
+    private String filePath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    /**
+     * Number of records covered by committed chunks. A resumed job skips this many records.
+     */
+    private long recordsCommitted;
+
+    private long created;
+
+    private long failed;
+
+    @Column(length = 1024)
+    private String message;
+
+    /**
+     * The first rejected records, saved with the progress of every committed chunk so they outlive the run.
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    private List<ImportErrorDTO> errorSamples = new ArrayList<>();
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    /**
+     * The import job status.
+     */
+    public enum Status {
+        /**
+         * Waiting for a free import slot.
+         */
+        QUEUED,
+        /**
+         * Being processed.
+         */
+        RUNNING,
+        /**
+         * Every record was processed.
+         */
+        COMPLETED,
+        /**
+         * Stopped on an error that is not a bad record, such as an unreadable file.
+         */
+        FAILED,
+        /**
+         * Stopped by an application shutdown.
+         */
+        INTERRUPTED
+    }
+}
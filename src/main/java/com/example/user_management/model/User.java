@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 /**
  * The type User.
@@ -15,8 +16,18 @@ import java.time.LocalDateTime;
 @Table(name = "users")
 public class User {
 
+    /**
+     * The precision of the {@code created_at} column.
+     */
+    public static final ChronoUnit CREATED_AT_PRECISION = ChronoUnit.MICROS;
+
+    /**
+     * Allocated from a pooled sequence so Hibernate can assign ids in memory and batch the inserts.
+     * The sequence increment must match {@code allocationSize}.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long userId;
 
     @Column(nullable = false, unique = true)
@@ -31,6 +42,13 @@ public class User {
 
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    /**
+     * Incremented on every update; used for optimistic locking and as the ETag of the user.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     /**
      * Instantiates a new User.
      */
@@ -38,4 +56,15 @@ public class User {
         this.createdAt = LocalDateTime.now();
     }
 
+    /**
+     * Truncate the creation time to the precision of its column, so the user returned by a create is the
+     * one later reads return.
+     */
+    @PrePersist
+    void truncateCreatedAt() {
+        if (createdAt != null) {
+            createdAt = createdAt.truncatedTo(CREATED_AT_PRECISION);
+        }
+    }
+
 }
@@ -0,0 +1,90 @@
+package com.example.user_management.model;
+
+import com.example.user_management.service.dto.UserChangeDTO;
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * The type User change. One entry of the ordered change log, copied from the outbox of the database the
+ * change was written to.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "user_changes", uniqueConstraints = @UniqueConstraint(columnNames = {"source_shard", "outbox_id"}))
+public class UserChange implements Persistable<Long> {
+
+    /**
+     * Assigned by the relay, one more than the last logged change.
+     */
+    @Id
+    @Column(name = "change_seq")
+    private Long changeSeq;
+
+    /**
+     * The shard whose outbox held the change, 0 without sharding.
+     */
+    @Column(name = "source_shard", nullable = false)
+    private int sourceShard;
+
+    /**
+     * The id of the outbox entry, which keeps an entry from being logged twice.
+     */
+    @Column(name = "outbox_id", nullable = false)
+    private Long outboxId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private UserChangeDTO.Type changeType;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(length = 4096)
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean isNew = true;
+
+    /**
+     * Instantiates a new User change from an outbox entry.
+     *
+     * @param sequence    the sequence
+     * @param sourceShard the shard whose outbox held the entry
+     * @param entry       the outbox entry
+     */
+    public UserChange(Long sequence, int sourceShard, UserOutboxEntry entry) {
+        this.changeSeq = sequence;
+        this.sourceShard = sourceShard;
+        this.outboxId = entry.getOutboxId();
+        this.changeType = entry.getChangeType();
+        this.userId = entry.getUserId();
+        this.payload = entry.getPayload();
+        this.createdAt = entry.getCreatedAt();
+    }
+
+    @Override
+    public Long getId() {
+        return changeSeq;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    private void markNotNew() {
+        this.isNew = false;
+    }
+}
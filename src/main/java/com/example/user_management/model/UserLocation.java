@@ -0,0 +1,69 @@
+package com.example.user_management.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * The type User location. One row of the user directory, which records the username, email and current shard
+ * of every user when users are sharded.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "user_directory")
+public class UserLocation implements Persistable<Long> {
+
+    @Id
+    private Long userId;
+
+    @Column(nullable = false, unique = true)
+    private String username;
+
+    @Column(nullable = false, unique = true)
+    private String email;
+
+    @Column(nullable = false)
+    private int shard;
+
+    /**
+     * Ids are assigned by the shard the user is created on, so new locations are persisted without checking
+     * for an existing row first.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean isNew = true;
+
+    /**
+     * Instantiates a new User location.
+     *
+     * @param userId   the user id
+     * @param username the username
+     * @param email    the email
+     * @param shard    the shard
+     */
+    public UserLocation(Long userId, String username, String email, int shard) {
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.shard = shard;
+    }
+
+    @Override
+    public Long getId() {
+        return userId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    private void markNotNew() {
+        this.isNew = false;
+    }
+}
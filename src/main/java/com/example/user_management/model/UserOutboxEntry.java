@@ -0,0 +1,58 @@
+package com.example.user_management.model;
+
+import com.example.user_management.service.dto.UserChangeDTO;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * The type User outbox entry. A change to a user, written in the transaction that changed the user and removed
+ * once it was copied to the change log.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "user_outbox")
+public class UserOutboxEntry {
+
+    /**
+     * Taken from the sequence one value at a time, after the user was written. A block allocated in advance
+     * would let an instance log a later write of a user before the write another instance made first.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_outbox_seq")
+    @SequenceGenerator(name = "user_outbox_seq", sequenceName = "user_outbox_seq", allocationSize = 1)
+    private Long outboxId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private UserChangeDTO.Type changeType;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    /**
+     * The user dto as JSON, null for deletes.
+     */
+    @Column(length = 4096)
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Instantiates a new User outbox entry.
+     *
+     * @param changeType the change type
+     * @param userId     the user id
+     * @param payload    the payload
+     */
+    public UserOutboxEntry(UserChangeDTO.Type changeType, Long userId, String payload) {
+        this.changeType = changeType;
+        this.userId = userId;
+        this.payload = payload;
+        this.createdAt = LocalDateTime.now();
+    }
+}
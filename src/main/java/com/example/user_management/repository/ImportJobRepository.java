@@ -0,0 +1,28 @@
+package com.example.user_management.repository;
+
+import com.example.user_management.model.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+/**
+ * The interface Import job repository.
+ */
+public interface ImportJobRepository extends JpaRepository<ImportJob, String> {
+
+    /**
+     * Move every job in one of the given states to a new state.
+     *
+     * @param from the current states
+     * @param to   the new state
+     * @return the number of jobs updated
+     */
+    @Transactional
+    @Modifying
+    @Query("update ImportJob j set j.status = :to where j.status in :from")
+    int updateStatus(@Param("from") Collection<ImportJob.Status> from, @Param("to") ImportJob.Status to);
+}
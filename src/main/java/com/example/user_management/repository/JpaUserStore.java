@@ -0,0 +1,136 @@
+package com.example.user_management.repository;
+
+import com.example.user_management.model.User;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The type Jpa user store. Keeps the users in the {@code users} table through {@link UserRepository}, so
+ * queries follow the shard and replica routing of the data source. The default store.
+ */
+@Component
+@ConditionalOnProperty(name = "user-management.offheap.enabled", havingValue = "false", matchIfMissing = true)
+public class JpaUserStore implements UserStore {
+
+    private final UserRepository userRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Instantiates a new Jpa user store.
+     *
+     * @param userRepository the user repository
+     */
+    public JpaUserStore(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public Optional<User> findByIdForWrite(Long id) {
+        return userRepository.findByIdForWrite(id);
+    }
+
+    @Override
+    public User save(User user) {
+        return userRepository.save(user);
+    }
+
+    @Override
+    public List<User> insertAll(List<User> users) {
+        // Persisted with ids from the pooled sequence, so the flush sends the inserts as JDBC batches
+        users.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+        return users;
+    }
+
+    @Override
+    public List<String> findExistingUsernames(Collection<String> usernames) {
+        return userRepository.findExistingUsernames(usernames);
+    }
+
+    @Override
+    public List<String> findExistingEmails(Collection<String> emails) {
+        return userRepository.findExistingEmails(emails);
+    }
+
+    @Override
+    public Optional<UserDTO> findDTOById(Long id) {
+        return userRepository.findDTOById(id);
+    }
+
+    @Override
+    public Optional<UserDTO> findDTOByUsername(String username) {
+        return userRepository.findDTOByUsername(username);
+    }
+
+    @Override
+    public List<UserDTO> findDTOsByIdIn(Collection<Long> ids) {
+        return userRepository.findDTOsByIdIn(ids);
+    }
+
+    @Override
+    public List<UserDTO> findDTOsByUsernameIn(Collection<String> usernames) {
+        return userRepository.findDTOsByUsernameIn(usernames);
+    }
+
+    @Override
+    public List<UserDTO> findAllDTOs() {
+        return userRepository.findAllDTOs();
+    }
+
+    @Override
+    public List<UserDTO> findDTOPage(Long afterUserId, UserFilter filter, int limit) {
+        return userRepository.findDTOPage(afterUserId, filter, limit);
+    }
+
+    @Override
+    public List<UserVersion> findPageVersions(Long afterUserId, UserFilter filter, int limit) {
+        return userRepository.findPageVersions(afterUserId, filter, limit);
+    }
+
+    @Override
+    public Optional<Long> findVersionById(Long id) {
+        return userRepository.findVersionById(id);
+    }
+
+    @Override
+    public Optional<UserVersion> findVersionByUsername(String username) {
+        return userRepository.findVersionByUsername(username);
+    }
+
+    @Override
+    public int updateFields(Long id, UserDTO changes, Long expectedVersion) {
+        return userRepository.updateFields(id, changes, expectedVersion);
+    }
+
+    @Override
+    public int deleteUserById(Long id) {
+        return userRepository.deleteUserById(id);
+    }
+
+    @Override
+    public Stream<UserDTO> streamAllDTOs() {
+        return userRepository.streamAllDTOs();
+    }
+
+    @Override
+    public Stream<UsernameAndEmail> streamUsernamesAndEmails() {
+        return userRepository.streamUsernamesAndEmails();
+    }
+
+    @Override
+    public long count() {
+        return userRepository.count();
+    }
+}
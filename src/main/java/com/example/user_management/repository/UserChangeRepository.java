@@ -0,0 +1,67 @@
+package com.example.user_management.repository;
+
+import com.example.user_management.model.UserChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The interface User change repository.
+ */
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+
+    /**
+     * Find the changes after a sequence number.
+     *
+     * @param sequence the sequence number of the last change already seen
+     * @param limit    the maximum number of changes
+     * @return the changes ordered by sequence number
+     */
+    List<UserChange> findByChangeSeqGreaterThanOrderByChangeSeqAsc(Long sequence, Limit limit);
+
+    /**
+     * Lock the relay lock row until the end of the transaction, so one relay logs changes at a time.
+     *
+     * @return the lock id, null if the lock row is missing
+     */
+    @Query(value = "SELECT lock_id FROM user_change_relay_lock WHERE lock_id = 1 FOR UPDATE", nativeQuery = true)
+    Integer lockRelay();
+
+    /**
+     * Find the sequence number of the last change.
+     *
+     * @return the sequence number, null if no change was logged
+     */
+    @Query("select max(c.changeSeq) from UserChange c")
+    Long findLastSequence();
+
+    /**
+     * Find which outbox entries of a shard were already logged.
+     *
+     * @param sourceShard the shard
+     * @param outboxIds   the outbox entry ids
+     * @return the ids of the logged entries
+     */
+    @Query("select c.outboxId from UserChange c where c.sourceShard = :sourceShard and c.outboxId in :outboxIds")
+    List<Long> findLoggedOutboxIds(@Param("sourceShard") int sourceShard,
+                                   @Param("outboxIds") Collection<Long> outboxIds);
+
+    /**
+     * Delete the changes logged before a time, except the last one, which the next sequence number follows.
+     *
+     * @param before the time
+     * @return the number of deleted changes
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from UserChange c where c.createdAt < :before "
+            + "and c.changeSeq < (select max(d.changeSeq) from UserChange d)")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,100 @@
+package com.example.user_management.repository;
+
+import com.example.user_management.model.UserLocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The interface User directory repository. The directory lives on shard 0; callers select it before using
+ * this repository.
+ */
+public interface UserDirectoryRepository extends JpaRepository<UserLocation, Long> {
+
+    /**
+     * Find the location of a user by username.
+     *
+     * @param username the username
+     * @return the location, empty if no user has the username
+     */
+    Optional<UserLocation> findByUsername(String username);
+
+    /**
+     * Find the locations of the users with the given usernames.
+     *
+     * @param usernames the usernames
+     * @return the locations that exist, in no particular order
+     */
+    List<UserLocation> findByUsernameIn(Collection<String> usernames);
+
+    /**
+     * Find which of the given usernames are already taken on any shard.
+     *
+     * @param usernames the usernames
+     * @return the usernames that exist
+     */
+    @Query("select l.username from UserLocation l where l.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    /**
+     * Find which of the given emails are already taken on any shard.
+     *
+     * @param emails the emails
+     * @return the emails that exist
+     */
+    @Query("select l.email from UserLocation l where l.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Find which of the given user ids are registered.
+     *
+     * @param userIds the user ids
+     * @return the registered user ids
+     */
+    @Query("select l.userId from UserLocation l where l.userId in :userIds")
+    List<Long> findExistingUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Set the non-null username and email of a user.
+     *
+     * @param userId   the user id
+     * @param username the username, or null to keep it
+     * @param email    the email, or null to keep it
+     * @return the number of updated rows
+     */
+    @Transactional
+    @Modifying
+    @Query("update UserLocation l set l.username = coalesce(:username, l.username), "
+            + "l.email = coalesce(:email, l.email) where l.userId = :userId")
+    int updateKeys(@Param("userId") Long userId, @Param("username") String username, @Param("email") String email);
+
+    /**
+     * Record that a user moved to another shard, if it still is on the shard it moves from.
+     *
+     * @param userId the user id
+     * @param from   the shard the user moves from
+     * @param to     the shard the user moves to
+     * @return the number of updated rows, 0 if the user is not on the shard it moves from
+     */
+    @Transactional
+    @Modifying
+    @Query("update UserLocation l set l.shard = :to where l.userId = :userId and l.shard = :from")
+    int updateShard(@Param("userId") Long userId, @Param("from") int from, @Param("to") int to);
+
+    /**
+     * Delete the location of a user.
+     *
+     * @param userId the user id
+     * @return the number of deleted rows
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from UserLocation l where l.userId = :userId")
+    int deleteLocation(@Param("userId") Long userId);
+}
@@ -0,0 +1,21 @@
+package com.example.user_management.repository;
+
+import com.example.user_management.model.UserOutboxEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/**
+ * The interface User outbox repository.
+ */
+public interface UserOutboxRepository extends JpaRepository<UserOutboxEntry, Long> {
+
+    /**
+     * Find the oldest outbox entries.
+     *
+     * @param limit the maximum number of entries
+     * @return the entries ordered by id
+     */
+    List<UserOutboxEntry> findByOrderByOutboxIdAsc(Limit limit);
+}
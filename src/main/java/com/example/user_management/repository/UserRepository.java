@@ -1,14 +1,94 @@
 package com.example.user_management.repository;
 
 import com.example.user_management.model.User;
+import com.example.user_management.service.dto.UserDTO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * The interface User repository.
+ * <p>
+ * The {@code find...DTO...} queries build {@link UserDTO} directly from the selected columns in read-only
+ * transactions, so reads neither hydrate managed entities nor dirty-check them at flush.
  */
-public interface UserRepository extends JpaRepository <User,Long>{
+public interface UserRepository extends JpaRepository <User,Long>, UserRepositoryCustom {
+
+    /**
+     * JPQL constructor expression building a {@link UserDTO} from the user aliased {@code u}.
+     */
+    String USER_DTO = "new com.example.user_management.service.dto.UserDTO("
+            + "u.userId, u.username, u.email, u.firstName, u.lastName, u.createdAt, u.version)";
+
+    /**
+     * Find a user that is about to be modified. Runs in a read-write transaction, so the row is read from
+     * the primary even when read-only transactions are routed to a replica.
+     *
+     * @param id the id
+     * @return the user, empty if it does not exist
+     */
+    @Transactional
+    @Query("select u from User u where u.userId = :id")
+    Optional<User> findByIdForWrite(@Param("id") Long id);
+
+    /**
+     * Find a user by id as a dto.
+     *
+     * @param id the id
+     * @return the user, empty if it does not exist
+     */
+    @Transactional(readOnly = true)
+    @Query("select " + USER_DTO + " from User u where u.userId = :id")
+    Optional<UserDTO> findDTOById(@Param("id") Long id);
+
+    /**
+     * Find a user by username as a dto.
+     *
+     * @param username the username
+     * @return the user, empty if it does not exist
+     */
+    @Transactional(readOnly = true)
+    @Query("select " + USER_DTO + " from User u where u.username = :username")
+    Optional<UserDTO> findDTOByUsername(@Param("username") String username);
+
+    /**
+     * Find the users with the given ids as dtos.
+     *
+     * @param ids the ids
+     * @return the users that exist, in no particular order
+     */
+    @Transactional(readOnly = true)
+    @Query("select " + USER_DTO + " from User u where u.userId in :ids")
+    List<UserDTO> findDTOsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Find the users with the given usernames as dtos.
+     *
+     * @param usernames the usernames
+     * @return the users that exist, in no particular order
+     */
+    @Transactional(readOnly = true)
+    @Query("select " + USER_DTO + " from User u where u.username in :usernames")
+    List<UserDTO> findDTOsByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    /**
+     * Find all users as dtos, ordered by user id.
+     *
+     * @return the users
+     */
+    @Transactional(readOnly = true)
+    @Query("select " + USER_DTO + " from User u order by u.userId")
+    List<UserDTO> findAllDTOs();
 
     /**
      * Find by username optional.
@@ -17,4 +97,80 @@ public interface UserRepository extends JpaRepository <User,Long>{
      * @return the optional
      */
     Optional<User> findByUsername(String username);
+
+    /**
+     * Find the version of a user without loading the entity.
+     *
+     * @param id the id
+     * @return the version, empty if the user does not exist
+     */
+    @Transactional(readOnly = true)
+    @Query("select u.version from User u where u.userId = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Find the id and version of a user by username without loading the entity.
+     *
+     * @param username the username
+     * @return the id and version, empty if the user does not exist
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.example.user_management.repository.UserVersion(u.userId, u.version) from User u "
+            + "where u.username = :username")
+    Optional<UserVersion> findVersionByUsername(@Param("username") String username);
+
+    /**
+     * Delete a user with a single statement, without loading it first.
+     *
+     * @param id the id
+     * @return the number of deleted rows, 0 if the user did not exist
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from User u where u.userId = :id")
+    int deleteUserById(@Param("id") Long id);
+
+    /**
+     * Find which of the given usernames are already taken.
+     *
+     * @param usernames the usernames
+     * @return the usernames that exist
+     */
+    @Query("select u.username from User u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    /**
+     * Find which of the given emails are already taken.
+     *
+     * @param emails the emails
+     * @return the emails that exist
+     */
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Stream all users as dtos ordered by user id, fetching rows from the database in chunks.
+     * Must be consumed inside a transaction and closed by the caller.
+     *
+     * @return the stream
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select " + USER_DTO + " from User u order by u.userId")
+    Stream<UserDTO> streamAllDTOs();
+
+    /**
+     * Stream the username and email of every user, fetching rows from the database in chunks.
+     * Must be consumed inside a transaction and closed by the caller.
+     *
+     * @return the stream
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select u.username as username, u.email as email from User u")
+    Stream<UsernameAndEmail> streamUsernamesAndEmails();
 }
@@ -0,0 +1,58 @@
+package com.example.user_management.repository;
+
+import com.example.user_management.model.User;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserFilter;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * The interface User repository custom.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Find one keyset page of users ordered by user id.
+     *
+     * @param afterUserId the user id to continue after, or null for the first page
+     * @param filter      the filter, may be null
+     * @param limit       the maximum number of rows to return
+     * @return the users
+     */
+    List<User> findPage(Long afterUserId, UserFilter filter, int limit);
+
+    /**
+     * Find one keyset page of users ordered by user id as dtos, without hydrating entities.
+     *
+     * @param afterUserId the user id to continue after, or null for the first page
+     * @param filter      the filter, may be null
+     * @param limit       the maximum number of rows to return
+     * @return the users
+     */
+    @Transactional(readOnly = true)
+    List<UserDTO> findDTOPage(Long afterUserId, UserFilter filter, int limit);
+
+    /**
+     * Find the ids and versions of the users {@link #findPage(Long, UserFilter, int)} would return.
+     *
+     * @param afterUserId the user id to continue after, or null for the first page
+     * @param filter      the filter, may be null
+     * @param limit       the maximum number of rows to return
+     * @return the ids and versions
+     */
+    @Transactional(readOnly = true)
+    List<UserVersion> findPageVersions(Long afterUserId, UserFilter filter, int limit);
+
+    /**
+     * Set the non-null username, email, first name and last name of the changes on a user and increment its
+     * version, with a single statement and without loading the user.
+     *
+     * @param id              the id
+     * @param changes         the fields to set
+     * @param expectedVersion the version the user must have, or null to update any version
+     * @return the number of updated rows, 0 if the user did not exist or had another version
+     */
+    @Transactional
+    int updateFields(Long id, UserDTO changes, Long expectedVersion);
+}
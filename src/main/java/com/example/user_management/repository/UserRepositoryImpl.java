@@ -0,0 +1,116 @@
+package com.example.user_management.repository;
+
+import com.example.user_management.model.User;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The type User repository impl.
+ */
+class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<User> findPage(Long afterUserId, UserFilter filter, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> root = query.from(User.class);
+        query.select(root)
+                .where(pagePredicates(cb, root, afterUserId, filter))
+                .orderBy(cb.asc(root.get("userId")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<UserDTO> findDTOPage(Long afterUserId, UserFilter filter, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserDTO> query = cb.createQuery(UserDTO.class);
+        Root<User> root = query.from(User.class);
+        query.select(cb.construct(UserDTO.class, root.get("userId"), root.get("username"), root.get("email"),
+                        root.get("firstName"), root.get("lastName"), root.get("createdAt"), root.get("version")))
+                .where(pagePredicates(cb, root, afterUserId, filter))
+                .orderBy(cb.asc(root.get("userId")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<UserVersion> findPageVersions(Long afterUserId, UserFilter filter, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserVersion> query = cb.createQuery(UserVersion.class);
+        Root<User> root = query.from(User.class);
+        query.select(cb.construct(UserVersion.class, root.<Long>get("userId"), root.<Long>get("version")))
+                .where(pagePredicates(cb, root, afterUserId, filter))
+                .orderBy(cb.asc(root.get("userId")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public int updateFields(Long id, UserDTO changes, Long expectedVersion) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<User> update = cb.createCriteriaUpdate(User.class);
+        Root<User> root = update.from(User.class);
+        setIfPresent(update, "username", changes.getUsername());
+        setIfPresent(update, "email", changes.getEmail());
+        setIfPresent(update, "firstName", changes.getFirstName());
+        setIfPresent(update, "lastName", changes.getLastName());
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+        Predicate byId = cb.equal(root.get("userId"), id);
+        update.where(expectedVersion == null ? byId : cb.and(byId, cb.equal(root.get("version"), expectedVersion)));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    private static void setIfPresent(CriteriaUpdate<User> update, String attribute, String value) {
+        if (value != null) {
+            update.set(attribute, value);
+        }
+    }
+
+    private Predicate[] pagePredicates(CriteriaBuilder cb, Root<User> root, Long afterUserId, UserFilter filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (afterUserId != null) {
+            predicates.add(cb.greaterThan(root.<Long>get("userId"), afterUserId));
+        }
+        if (filter != null) {
+            if (filter.getUsername() != null && !filter.getUsername().isBlank()) {
+                predicates.add(cb.like(root.<String>get("username"), startsWith(filter.getUsername()), LIKE_ESCAPE));
+            }
+            if (filter.getEmail() != null && !filter.getEmail().isBlank()) {
+                predicates.add(cb.like(root.<String>get("email"), startsWith(filter.getEmail()), LIKE_ESCAPE));
+            }
+            if (filter.getCreatedAfter() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.<LocalDateTime>get("createdAt"), filter.getCreatedAfter()));
+            }
+            if (filter.getCreatedBefore() != null) {
+                predicates.add(cb.lessThan(root.<LocalDateTime>get("createdAt"), filter.getCreatedBefore()));
+            }
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    private static String startsWith(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+}
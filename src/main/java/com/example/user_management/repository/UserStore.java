@@ -0,0 +1,181 @@
+package com.example.user_management.repository;
+
+import com.example.user_management.model.User;
+import com.example.user_management.repository.offheap.OffHeapUserRepository;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserFilter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The interface User store: where the user API keeps its users. {@link JpaUserStore} keeps them in the
+ * {@code users} table; with {@code user-management.offheap.enabled}, {@link OffHeapUserRepository} keeps them
+ * in memory outside the heap instead.
+ * <p>
+ * The methods have the names and semantics of {@link UserRepository}: a taken username or email fails with
+ * {@link org.springframework.dao.DataIntegrityViolationException}, and saving a user that changed since it
+ * was read fails with {@link org.springframework.dao.OptimisticLockingFailureException}.
+ */
+public interface UserStore {
+
+    /**
+     * Find a user that is about to be modified, reading the primary.
+     *
+     * @param id the id
+     * @return the user, empty if it does not exist
+     */
+    Optional<User> findByIdForWrite(Long id);
+
+    /**
+     * Create a user without an id, or replace the fields of a user read with
+     * {@link #findByIdForWrite(Long)} if it still has the version it was read at.
+     *
+     * @param user the user
+     * @return the saved user, with its id, creation time and new version
+     */
+    User save(User user);
+
+    /**
+     * Find a user by id as a dto.
+     *
+     * @param id the id
+     * @return the user, empty if it does not exist
+     */
+    Optional<UserDTO> findDTOById(Long id);
+
+    /**
+     * Find a user by username as a dto.
+     *
+     * @param username the username
+     * @return the user, empty if it does not exist
+     */
+    Optional<UserDTO> findDTOByUsername(String username);
+
+    /**
+     * Find the users with the given ids as dtos.
+     *
+     * @param ids the ids
+     * @return the users that exist, in no particular order
+     */
+    List<UserDTO> findDTOsByIdIn(Collection<Long> ids);
+
+    /**
+     * Find the users with the given usernames as dtos.
+     *
+     * @param usernames the usernames
+     * @return the users that exist, in no particular order
+     */
+    List<UserDTO> findDTOsByUsernameIn(Collection<String> usernames);
+
+    /**
+     * Find all users as dtos, ordered by user id.
+     *
+     * @return the users
+     */
+    List<UserDTO> findAllDTOs();
+
+    /**
+     * Find one keyset page of users ordered by user id as dtos.
+     *
+     * @param afterUserId the user id to continue after, or null for the first page
+     * @param filter      the filter, may be null
+     * @param limit       the maximum number of users to return
+     * @return the users
+     */
+    List<UserDTO> findDTOPage(Long afterUserId, UserFilter filter, int limit);
+
+    /**
+     * Find the ids and versions of the users {@link #findDTOPage(Long, UserFilter, int)} would return.
+     *
+     * @param afterUserId the user id to continue after, or null for the first page
+     * @param filter      the filter, may be null
+     * @param limit       the maximum number of users to return
+     * @return the ids and versions
+     */
+    List<UserVersion> findPageVersions(Long afterUserId, UserFilter filter, int limit);
+
+    /**
+     * Insert new users in the caller's transaction. If a username or email is taken, none of them is inserted.
+     *
+     * @param users the users, without ids
+     * @return the inserted users with their ids, in the same order
+     */
+    List<User> insertAll(List<User> users);
+
+    /**
+     * Find which of the given usernames are taken.
+     *
+     * @param usernames the usernames
+     * @return the usernames that exist
+     */
+    List<String> findExistingUsernames(Collection<String> usernames);
+
+    /**
+     * Find which of the given emails are taken.
+     *
+     * @param emails the emails
+     * @return the emails that exist
+     */
+    List<String> findExistingEmails(Collection<String> emails);
+
+    /**
+     * Find the version of a user.
+     *
+     * @param id the id
+     * @return the version, empty if the user does not exist
+     */
+    Optional<Long> findVersionById(Long id);
+
+    /**
+     * Find the id and version of a user by username.
+     *
+     * @param username the username
+     * @return the id and version, empty if the user does not exist
+     */
+    Optional<UserVersion> findVersionByUsername(String username);
+
+    /**
+     * Set the non-null username, email, first name and last name of the changes on a user and increment its
+     * version, without reading the user.
+     *
+     * @param id              the id
+     * @param changes         the fields to set
+     * @param expectedVersion the version the user must have, or null to update any version
+     * @return 1 if the user was updated, 0 if it did not exist or had another version
+     */
+    int updateFields(Long id, UserDTO changes, Long expectedVersion);
+
+    /**
+     * Delete a user without reading it first.
+     *
+     * @param id the id
+     * @return the number of deleted users, 0 if the user did not exist
+     */
+    int deleteUserById(Long id);
+
+    /**
+     * Stream all users as dtos ordered by user id, without holding them all in memory. Must be closed by the
+     * caller, and consumed inside a transaction when the users are in the database.
+     *
+     * @return the stream
+     */
+    Stream<UserDTO> streamAllDTOs();
+
+    /**
+     * Stream the username and email of every user. Must be closed by the caller, and consumed inside a
+     * transaction when the users are in the database.
+     *
+     * @return the stream
+     */
+    Stream<UsernameAndEmail> streamUsernamesAndEmails();
+
+    /**
+     * Count the users.
+     *
+     * @return the number of users
+     */
+    long count();
+}
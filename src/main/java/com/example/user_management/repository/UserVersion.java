@@ -0,0 +1,10 @@
+package com.example.user_management.repository;
+
+/**
+ * Projection of the id and version of a user.
+ *
+ * @param userId  the user id
+ * @param version the version
+ */
+public record UserVersion(Long userId, Long version) {
+}
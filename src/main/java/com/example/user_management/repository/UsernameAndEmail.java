@@ -0,0 +1,21 @@
+package com.example.user_management.repository;
+
+/**
+ * Projection of the unique keys of a user.
+ */
+public interface UsernameAndEmail {
+
+    /**
+     * Gets username.
+     *
+     * @return the username
+     */
+    String getUsername();
+
+    /**
+     * Gets email.
+     *
+     * @return the email
+     */
+    String getEmail();
+}
@@ -0,0 +1,320 @@
+package com.example.user_management.repository.offheap;
+
+import com.example.user_management.service.dto.UserDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * {@link OffHeapUserStore} that survives restarts: every write is recorded in a {@link UserWriteAheadLog} and
+ * acknowledged once the log is forced to disk, and the users are periodically written to a compacted snapshot.
+ * <p>
+ * On open the latest snapshot is memory-mapped and indexed, and only the log records after it are replayed.
+ * Once the log has grown by {@code snapshotAfterBytes} since the last snapshot, a background thread writes a
+ * new snapshot named after the last log sequence number it covers and deletes the older snapshots and log
+ * segments. Writes pause while the snapshot is written; reads do not.
+ * <p>
+ * Writes are applied to the store and appended to the log under one lock, so the log has them in the order
+ * they were applied. Waiting for the log to be forced happens outside that lock, so concurrent writers share
+ * one force. A write is visible to readers as soon as it is applied, before it is durable.
+ */
+public class DurableUserStore extends OffHeapUserStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DurableUserStore.class);
+
+    private final Path directory;
+    private final long snapshotAfterBytes;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private UserWriteAheadLog log;
+    private boolean closed;
+    private volatile Thread snapshotThread;
+    private Duration recoveryTime;
+    private long replayedRecords;
+
+    private DurableUserStore(Path directory, long snapshotAfterBytes) {
+        this.directory = directory;
+        this.snapshotAfterBytes = snapshotAfterBytes;
+    }
+
+    /**
+     * Open the store in a directory, recovering the users from its latest snapshot and log.
+     *
+     * @param directory          the directory, created if it does not exist
+     * @param snapshotAfterBytes how many bytes the log may grow by before a new snapshot is written
+     * @return the store
+     */
+    public static DurableUserStore open(Path directory, long snapshotAfterBytes) {
+        long start = System.nanoTime();
+        DurableUserStore store = new DurableUserStore(directory, snapshotAfterBytes);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create " + directory, ex);
+        }
+        List<Path> snapshots = snapshots(directory);
+        long snapshotLsn = 0;
+        if (!snapshots.isEmpty()) {
+            Path latest = snapshots.get(snapshots.size() - 1);
+            store.load(latest);
+            snapshotLsn = snapshotLsn(latest);
+        }
+        store.log = UserWriteAheadLog.open(directory, snapshotLsn, user -> {
+            store.put(user);
+            store.replayedRecords++;
+        }, id -> {
+            store.deleteReplayed(id);
+            store.replayedRecords++;
+        });
+        store.recoveryTime = Duration.ofNanos(System.nanoTime() - start);
+        logger.info("Recovered {} users from {} in {} ms, replaying {} log records", store.count(), directory,
+                store.recoveryTime.toMillis(), store.replayedRecords);
+        return store;
+    }
+
+    /**
+     * Save a user and wait until it is durable.
+     *
+     * @param user            the user
+     * @param expectedVersion the version the stored user must have, or null to save the user in any case
+     * @return the saved user, or null if no user with its id has the expected version
+     */
+    @Override
+    public UserDTO save(UserDTO user, Long expectedVersion) {
+        UserDTO saved;
+        long lsn;
+        writeLock.lock();
+        try {
+            saved = super.save(user, expectedVersion);
+            if (saved == null) {
+                return null;
+            }
+            lsn = log.appendPut(saved);
+        } finally {
+            writeLock.unlock();
+        }
+        log.awaitDurable(lsn);
+        snapshotIfDue();
+        return saved;
+    }
+
+    /**
+     * Create new users together and wait once until all of them are durable.
+     *
+     * @param users the users, without ids
+     * @return the created users, in the same order
+     */
+    @Override
+    public List<UserDTO> insertAll(List<UserDTO> users) {
+        List<UserDTO> created;
+        long lsn = 0;
+        writeLock.lock();
+        try {
+            created = super.insertAll(users);
+            for (UserDTO user : created) {
+                lsn = log.appendPut(user);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        log.awaitDurable(lsn);
+        snapshotIfDue();
+        return created;
+    }
+
+    /**
+     * Save users and wait once until all of them are durable. Stops at the first user that cannot be saved;
+     * the users before it stay saved.
+     *
+     * @param users the users
+     * @return the saved users
+     */
+    public List<UserDTO> saveAll(Collection<UserDTO> users) {
+        List<UserDTO> saved = new ArrayList<>(users.size());
+        long lsn = 0;
+        try {
+            writeLock.lock();
+            try {
+                for (UserDTO user : users) {
+                    UserDTO savedUser = super.save(user, null);
+                    lsn = log.appendPut(savedUser);
+                    saved.add(savedUser);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        } finally {
+            log.awaitDurable(lsn);
+        }
+        snapshotIfDue();
+        return saved;
+    }
+
+    /**
+     * Set the non-null fields of the changes on a user and wait until the change is durable.
+     *
+     * @param id              the id
+     * @param changes         the fields to set
+     * @param expectedVersion the version the user must have, or null to update any version
+     * @return 1 if the user was updated, 0 if it did not exist or had another version
+     */
+    @Override
+    public int updateFields(Long id, UserDTO changes, Long expectedVersion) {
+        long lsn;
+        writeLock.lock();
+        try {
+            if (super.updateFields(id, changes, expectedVersion) == 0) {
+                return 0;
+            }
+            lsn = log.appendPut(findDTOById(id).orElseThrow());
+        } finally {
+            writeLock.unlock();
+        }
+        log.awaitDurable(lsn);
+        snapshotIfDue();
+        return 1;
+    }
+
+    /**
+     * Delete a user and wait until the deletion is durable.
+     *
+     * @param id the id
+     * @return the number of deleted users, 0 if the user did not exist
+     */
+    @Override
+    public int deleteUserById(Long id) {
+        long lsn;
+        writeLock.lock();
+        try {
+            if (super.deleteUserById(id) == 0) {
+                return 0;
+            }
+            lsn = log.appendDelete(id);
+        } finally {
+            writeLock.unlock();
+        }
+        log.awaitDurable(lsn);
+        snapshotIfDue();
+        return 1;
+    }
+
+    /**
+     * Write a snapshot of all users, then delete the older snapshots and the log segments it covers.
+     */
+    public void snapshot() {
+        long lsn;
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            lsn = log.roll();
+            snapshot(directory.resolve(snapshotName(lsn)));
+        } finally {
+            writeLock.unlock();
+        }
+        log.deleteSegmentsUpTo(lsn);
+        for (Path older : snapshots(directory)) {
+            if (snapshotLsn(older) < lsn) {
+                try {
+                    Files.deleteIfExists(older);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Cannot delete " + older, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets how long opening the store took.
+     *
+     * @return the recovery time
+     */
+    public Duration getRecoveryTime() {
+        return recoveryTime;
+    }
+
+    /**
+     * Gets the number of log records replayed on open, after the snapshot.
+     *
+     * @return the number of records
+     */
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    /**
+     * Force the log and close it. Does not write a snapshot, but waits for one running in the background.
+     */
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            log.close();
+        } finally {
+            writeLock.unlock();
+        }
+        Thread running = snapshotThread;
+        if (running != null) {
+            try {
+                running.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void deleteReplayed(long id) {
+        super.deleteUserById(id);
+    }
+
+    private void snapshotIfDue() {
+        if (log.getBytesSinceRoll() < snapshotAfterBytes || !snapshotting.compareAndSet(false, true)) {
+            return;
+        }
+        snapshotThread = Thread.ofVirtual().name("user-store-snapshot").start(() -> {
+            try {
+                snapshot();
+            } catch (RuntimeException ex) {
+                logger.error("Snapshot of users in {} failed: {}", directory, ex.getMessage(), ex);
+            } finally {
+                snapshotting.set(false);
+            }
+        });
+    }
+
+    private static List<Path> snapshots(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches("users-\\d+\\.snapshot"))
+                    .sorted()
+                    .toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot list " + directory, ex);
+        }
+    }
+
+    private static long snapshotLsn(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring("users-".length(), name.length() - ".snapshot".length()));
+    }
+
+    private static String snapshotName(long lsn) {
+        return String.format("users-%020d.snapshot", lsn);
+    }
+}
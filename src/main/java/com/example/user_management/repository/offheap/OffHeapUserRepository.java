@@ -0,0 +1,216 @@
+package com.example.user_management.repository.offheap;
+
+import com.example.user_management.model.User;
+import com.example.user_management.repository.UserStore;
+import com.example.user_management.repository.UserVersion;
+import com.example.user_management.repository.UsernameAndEmail;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserFilter;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The type Off heap user repository. Serves the {@link UserStore} of the user API from an
+ * {@link OffHeapUserStore}, or from a {@link DurableUserStore} to keep the users across restarts.
+ * <p>
+ * Users are handed out as detached {@link User} objects that are never persisted. Saving one that was read
+ * replaces the stored user only if it still has the version it was read at, like the optimistic locking of
+ * the entity. Streams read the users one page at a time, so they never copy the whole store to the heap.
+ */
+public class OffHeapUserRepository implements UserStore {
+
+    /**
+     * Number of users a stream reads from the store at a time.
+     */
+    static final int STREAM_PAGE_SIZE = 1_000;
+
+    private final OffHeapUserStore store;
+
+    /**
+     * Instantiates a new Off heap user repository.
+     *
+     * @param store the store
+     */
+    public OffHeapUserRepository(OffHeapUserStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Optional<User> findByIdForWrite(Long id) {
+        return store.findDTOById(id).map(OffHeapUserRepository::toUser);
+    }
+
+    @Override
+    public User save(User user) {
+        UserDTO dto = new UserDTO(user.getUserId(), user.getUsername(), user.getEmail(), user.getFirstName(),
+                user.getLastName(), null, null);
+        UserDTO saved = store.save(dto, user.getUserId() == null ? null : user.getVersion());
+        if (saved == null) {
+            throw new ObjectOptimisticLockingFailureException(User.class, user.getUserId());
+        }
+        return toUser(saved);
+    }
+
+    @Override
+    public List<User> insertAll(List<User> users) {
+        List<UserDTO> dtos = new ArrayList<>(users.size());
+        for (User user : users) {
+            dtos.add(new UserDTO(user.getUserId(), user.getUsername(), user.getEmail(), user.getFirstName(),
+                    user.getLastName(), null, null));
+        }
+        List<User> inserted = new ArrayList<>(users.size());
+        store.insertAll(dtos).forEach(user -> inserted.add(toUser(user)));
+        return inserted;
+    }
+
+    @Override
+    public List<String> findExistingUsernames(Collection<String> usernames) {
+        return store.findExistingUsernames(usernames);
+    }
+
+    @Override
+    public List<String> findExistingEmails(Collection<String> emails) {
+        return store.findExistingEmails(emails);
+    }
+
+    @Override
+    public Optional<UserDTO> findDTOById(Long id) {
+        return store.findDTOById(id);
+    }
+
+    @Override
+    public Optional<UserDTO> findDTOByUsername(String username) {
+        return store.findDTOByUsername(username);
+    }
+
+    @Override
+    public List<UserDTO> findDTOsByIdIn(Collection<Long> ids) {
+        return store.findDTOsByIdIn(ids);
+    }
+
+    @Override
+    public List<UserDTO> findDTOsByUsernameIn(Collection<String> usernames) {
+        return store.findDTOsByUsernameIn(usernames);
+    }
+
+    @Override
+    public List<UserDTO> findAllDTOs() {
+        return store.findAllDTOs();
+    }
+
+    @Override
+    public List<UserDTO> findDTOPage(Long afterUserId, UserFilter filter, int limit) {
+        return store.findDTOPage(afterUserId, filter, limit);
+    }
+
+    @Override
+    public List<UserVersion> findPageVersions(Long afterUserId, UserFilter filter, int limit) {
+        return store.findPageVersions(afterUserId, filter, limit);
+    }
+
+    @Override
+    public Optional<Long> findVersionById(Long id) {
+        return store.findVersionById(id);
+    }
+
+    @Override
+    public Optional<UserVersion> findVersionByUsername(String username) {
+        return store.findVersionByUsername(username);
+    }
+
+    @Override
+    public int updateFields(Long id, UserDTO changes, Long expectedVersion) {
+        return store.updateFields(id, changes, expectedVersion);
+    }
+
+    @Override
+    public int deleteUserById(Long id) {
+        return store.deleteUserById(id);
+    }
+
+    @Override
+    public Stream<UserDTO> streamAllDTOs() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new PageIterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public Stream<UsernameAndEmail> streamUsernamesAndEmails() {
+        return streamAllDTOs().map(Keys::new);
+    }
+
+    @Override
+    public long count() {
+        return store.count();
+    }
+
+    private static User toUser(UserDTO user) {
+        return new User(user.getUserId(), user.getUsername(), user.getEmail(), user.getFirstName(),
+                user.getLastName(), user.getCreatedAt(), user.getVersion());
+    }
+
+    /**
+     * Iterates over all users in id order, reading the next page once the previous one is used up.
+     */
+    private final class PageIterator implements Iterator<UserDTO> {
+
+        private Iterator<UserDTO> page = List.<UserDTO>of().iterator();
+        private Long after;
+        private boolean last;
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext() && !last) {
+                List<UserDTO> users = store.findDTOPage(after, null, STREAM_PAGE_SIZE);
+                last = users.size() < STREAM_PAGE_SIZE;
+                if (!users.isEmpty()) {
+                    after = users.get(users.size() - 1).getUserId();
+                }
+                page = users.iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public UserDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+    }
+
+    /**
+     * The username and email of a user.
+     */
+    private static final class Keys implements UsernameAndEmail {
+
+        private final String username;
+        private final String email;
+
+        private Keys(UserDTO user) {
+            this.username = user.getUsername();
+            this.email = user.getEmail();
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public String getEmail() {
+            return email;
+        }
+    }
+}
@@ -0,0 +1,944 @@
+package com.example.user_management.repository.offheap;
+
+import com.example.user_management.repository.UserRepository;
+import com.example.user_management.repository.UserVersion;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserFilter;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * In-memory user store that keeps users outside the Java heap, for deployments that serve the user
+ * directory from memory without a database.
+ * <p>
+ * Users are encoded into one direct byte buffer, the slab: a fixed header with the id, version and creation
+ * time, followed by the username, email, first name and last name as length-prefixed UTF-8. The heap only
+ * holds primitive arrays: an open-addressing index from id to slab offset, hash indexes over the username and
+ * email bytes, and the sorted ids for ordered listing and keyset paging. No object is kept per user, and
+ * lookups compare bytes in the slab instead of decoding the strings.
+ * <p>
+ * It answers the dto queries of {@link UserRepository} with the same method names and semantics, including
+ * {@link DataIntegrityViolationException} for a taken username or email. An update appends the new record and
+ * leaves the old one as garbage, which is compacted away once it makes up half of the slab.
+ * {@link #snapshot(Path)} writes the compacted slab to a memory-mapped file, and {@link #restore(Path)} maps it
+ * back and rebuilds the indexes in one sequential pass, so a restart does not reload every user.
+ * <p>
+ * Reads run concurrently under a read lock; writes take the write lock. The slab is limited to 1 GiB. The store
+ * itself is not durable; {@link DurableUserStore} adds a write-ahead log.
+ */
+public class OffHeapUserStore {
+
+    private static final int SNAPSHOT_MAGIC = 0x55534552;
+    private static final int SNAPSHOT_FORMAT = 1;
+    private static final int SNAPSHOT_HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int INITIAL_SLAB_BYTES = 1 << 20;
+    private static final int MAX_SLAB_BYTES = 1 << 30;
+    private static final int ID = 4;
+    private static final int VERSION = ID + 8;
+    private static final int CREATED_AT = VERSION + 8;
+    private static final int FIELDS = CREATED_AT + 8;
+    private static final int USERNAME = 0;
+    private static final int EMAIL = 1;
+    private static final int FIRST_NAME = 2;
+    private static final int LAST_NAME = 3;
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private ByteBuffer slab;
+    private int slabEnd;
+    private int garbageBytes;
+    private long nextId = 1;
+    private final IdIndex byId = new IdIndex(1024);
+    private final FieldIndex byUsername = new FieldIndex(USERNAME, 1024);
+    private final FieldIndex byEmail = new FieldIndex(EMAIL, 1024);
+    private long[] sortedIds = new long[1024];
+    private int count;
+
+    /**
+     * Instantiates a new empty Off heap user store.
+     */
+    public OffHeapUserStore() {
+        this.slab = ByteBuffer.allocateDirect(INITIAL_SLAB_BYTES);
+    }
+
+    /**
+     * Restore a store from a snapshot.
+     *
+     * @param file the snapshot written by {@link #snapshot(Path)}
+     * @return the store
+     */
+    public static OffHeapUserStore restore(Path file) {
+        OffHeapUserStore store = new OffHeapUserStore();
+        store.load(file);
+        return store;
+    }
+
+    /**
+     * Replace the users of this empty store with the users of a snapshot.
+     *
+     * @param file the snapshot written by {@link #snapshot(Path)}
+     */
+    void load(Path file) {
+        lock.writeLock().lock();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < SNAPSHOT_HEADER_BYTES || mapped.getInt(0) != SNAPSHOT_MAGIC
+                    || mapped.getInt(4) != SNAPSHOT_FORMAT) {
+                throw new IllegalArgumentException(file + " is not a user store snapshot");
+            }
+            int length = mapped.getInt(16);
+            if (channel.size() < SNAPSHOT_HEADER_BYTES + (long) length) {
+                throw new IllegalArgumentException(file + " is truncated");
+            }
+            ensureCapacity(length);
+            slab.put(0, mapped, SNAPSHOT_HEADER_BYTES, length);
+            slabEnd = length;
+            indexRecords();
+            nextId = Math.max(mapped.getLong(8), nextId);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot restore users from " + file, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write the users to a memory-mapped file, replacing it atomically.
+     *
+     * @param file the file
+     */
+    public void snapshot(Path file) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int length = slabEnd - garbageBytes;
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    SNAPSHOT_HEADER_BYTES + (long) length);
+            mapped.putInt(0, SNAPSHOT_MAGIC);
+            mapped.putInt(4, SNAPSHOT_FORMAT);
+            mapped.putLong(8, nextId);
+            mapped.putInt(16, length);
+            int position = SNAPSHOT_HEADER_BYTES;
+            for (int i = 0; i < count; i++) {
+                int offset = byId.get(sortedIds[i]);
+                int recordLength = slab.getInt(offset);
+                mapped.put(position, slab, offset, recordLength);
+                position += recordLength;
+            }
+            mapped.force();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write users to " + tmp, ex);
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot replace " + file, ex);
+        }
+    }
+
+    /**
+     * Save a user. A user without an id is created with the next free id, version 0 and the current time; a
+     * user with the id of a stored user replaces its fields and increments its version; any other user is
+     * stored as given, so users read from another store keep their ids and versions.
+     *
+     * @param user the user
+     * @return the saved user
+     */
+    public UserDTO save(UserDTO user) {
+        return save(user, null);
+    }
+
+    /**
+     * Save a user like {@link #save(UserDTO)}, but with an expected version only replace the stored user with
+     * its id if that user still has the version.
+     *
+     * @param user            the user
+     * @param expectedVersion the version the stored user must have, or null to save the user in any case
+     * @return the saved user, or null if no user with its id has the expected version
+     */
+    public UserDTO save(UserDTO user, Long expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            return saveLocked(user, expectedVersion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Create new users together: if a username or email is taken, by a stored user or by another of the users,
+     * none of them is created.
+     *
+     * @param users the users, without ids
+     * @return the created users, in the same order
+     * @throws DataIntegrityViolationException if a username or email is taken
+     */
+    public List<UserDTO> insertAll(List<UserDTO> users) {
+        lock.writeLock().lock();
+        try {
+            Set<String> usernames = new HashSet<>();
+            Set<String> emails = new HashSet<>();
+            for (UserDTO user : users) {
+                if (user.getUserId() != null) {
+                    throw new IllegalArgumentException("New users must not have an id: " + user.getUserId());
+                }
+                if (user.getUsername() == null || user.getEmail() == null) {
+                    throw new IllegalArgumentException("Username and email are required");
+                }
+                if (!usernames.add(user.getUsername()) || byUsername.get(encode(user.getUsername())) >= 0) {
+                    throw new DataIntegrityViolationException("Username " + user.getUsername() + " is already taken");
+                }
+                if (!emails.add(user.getEmail()) || byEmail.get(encode(user.getEmail())) >= 0) {
+                    throw new DataIntegrityViolationException("Email " + user.getEmail() + " is already taken");
+                }
+            }
+            List<UserDTO> created = new ArrayList<>(users.size());
+            for (UserDTO user : users) {
+                created.add(saveLocked(user, null));
+            }
+            return created;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private UserDTO saveLocked(UserDTO user, Long expectedVersion) {
+        int previous = user.getUserId() == null ? -1 : byId.get(user.getUserId());
+        if (expectedVersion != null && (previous < 0 || slab.getLong(previous + VERSION) != expectedVersion)) {
+            return null;
+        }
+        long id;
+        long version;
+        LocalDateTime createdAt;
+        if (previous >= 0) {
+            id = user.getUserId();
+            version = slab.getLong(previous + VERSION) + 1;
+            createdAt = readCreatedAt(previous);
+        } else {
+            id = user.getUserId() == null ? nextId : user.getUserId();
+            version = user.getVersion() == null ? 0 : user.getVersion();
+            createdAt = user.getCreatedAt() == null ? LocalDateTime.now() : user.getCreatedAt();
+        }
+        if (id <= 0) {
+            throw new IllegalArgumentException("User id must be positive: " + id);
+        }
+        int offset = write(id, version, createdAt, user.getUsername(), user.getEmail(), user.getFirstName(),
+                user.getLastName(), previous);
+        nextId = Math.max(nextId, id + 1);
+        return read(offset);
+    }
+
+    /**
+     * Store a user exactly as given, with its id, version and creation time, replacing the user with its id.
+     *
+     * @param user the user
+     */
+    void put(UserDTO user) {
+        lock.writeLock().lock();
+        try {
+            write(user.getUserId(), user.getVersion(), user.getCreatedAt(), user.getUsername(), user.getEmail(),
+                    user.getFirstName(), user.getLastName(), byId.get(user.getUserId()));
+            nextId = Math.max(nextId, user.getUserId() + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Set the non-null username, email, first name and last name of the changes on a user and increment its
+     * version.
+     *
+     * @param id              the id
+     * @param changes         the fields to set
+     * @param expectedVersion the version the user must have, or null to update any version
+     * @return 1 if the user was updated, 0 if it did not exist or had another version
+     */
+    public int updateFields(Long id, UserDTO changes, Long expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            int previous = byId.get(id);
+            if (previous < 0 || expectedVersion != null && slab.getLong(previous + VERSION) != expectedVersion) {
+                return 0;
+            }
+            write(id, slab.getLong(previous + VERSION) + 1, readCreatedAt(previous),
+                    changes.getUsername() != null ? changes.getUsername() : readField(previous, USERNAME),
+                    changes.getEmail() != null ? changes.getEmail() : readField(previous, EMAIL),
+                    changes.getFirstName() != null ? changes.getFirstName() : readField(previous, FIRST_NAME),
+                    changes.getLastName() != null ? changes.getLastName() : readField(previous, LAST_NAME),
+                    previous);
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Delete a user.
+     *
+     * @param id the id
+     * @return the number of deleted users, 0 if the user did not exist
+     */
+    public int deleteUserById(Long id) {
+        lock.writeLock().lock();
+        try {
+            int offset = byId.get(id);
+            if (offset < 0) {
+                return 0;
+            }
+            unindex(id, offset);
+            compactIfWasteful();
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find a user by id as a dto.
+     *
+     * @param id the id
+     * @return the user, empty if it does not exist
+     */
+    public Optional<UserDTO> findDTOById(Long id) {
+        return readLocked(() -> {
+            int offset = byId.get(id);
+            return offset < 0 ? Optional.empty() : Optional.of(read(offset));
+        });
+    }
+
+    /**
+     * Find a user by username as a dto.
+     *
+     * @param username the username
+     * @return the user, empty if it does not exist
+     */
+    public Optional<UserDTO> findDTOByUsername(String username) {
+        byte[] bytes = encode(username);
+        return readLocked(() -> {
+            int offset = byUsername.get(bytes);
+            return offset < 0 ? Optional.empty() : Optional.of(read(offset));
+        });
+    }
+
+    /**
+     * Find the users with the given ids as dtos.
+     *
+     * @param ids the ids
+     * @return the users that exist, in no particular order
+     */
+    public List<UserDTO> findDTOsByIdIn(Collection<Long> ids) {
+        return readLocked(() -> {
+            List<UserDTO> users = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                int offset = byId.get(id);
+                if (offset >= 0) {
+                    users.add(read(offset));
+                }
+            }
+            return users;
+        });
+    }
+
+    /**
+     * Find the users with the given usernames as dtos.
+     *
+     * @param usernames the usernames
+     * @return the users that exist, in no particular order
+     */
+    public List<UserDTO> findDTOsByUsernameIn(Collection<String> usernames) {
+        return findByField(byUsername, usernames, this::read);
+    }
+
+    /**
+     * Find all users as dtos, ordered by user id.
+     *
+     * @return the users
+     */
+    public List<UserDTO> findAllDTOs() {
+        return findDTOPage(null, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Find one keyset page of users ordered by user id as dtos.
+     *
+     * @param afterUserId the user id to continue after, or null for the first page
+     * @param filter      the filter, may be null
+     * @param limit       the maximum number of users to return
+     * @return the users
+     */
+    public List<UserDTO> findDTOPage(Long afterUserId, UserFilter filter, int limit) {
+        return findPage(afterUserId, filter, limit, this::read);
+    }
+
+    /**
+     * Find the ids and versions of the users {@link #findDTOPage(Long, UserFilter, int)} would return.
+     *
+     * @param afterUserId the user id to continue after, or null for the first page
+     * @param filter      the filter, may be null
+     * @param limit       the maximum number of users to return
+     * @return the ids and versions
+     */
+    public List<UserVersion> findPageVersions(Long afterUserId, UserFilter filter, int limit) {
+        return findPage(afterUserId, filter, limit,
+                offset -> new UserVersion(slab.getLong(offset + ID), slab.getLong(offset + VERSION)));
+    }
+
+    /**
+     * Find the version of a user.
+     *
+     * @param id the id
+     * @return the version, empty if the user does not exist
+     */
+    public Optional<Long> findVersionById(Long id) {
+        return readLocked(() -> {
+            int offset = byId.get(id);
+            return offset < 0 ? Optional.empty() : Optional.of(slab.getLong(offset + VERSION));
+        });
+    }
+
+    /**
+     * Find the id and version of a user by username.
+     *
+     * @param username the username
+     * @return the id and version, empty if the user does not exist
+     */
+    public Optional<UserVersion> findVersionByUsername(String username) {
+        byte[] bytes = encode(username);
+        return readLocked(() -> {
+            int offset = byUsername.get(bytes);
+            return offset < 0 ? Optional.empty()
+                    : Optional.of(new UserVersion(slab.getLong(offset + ID), slab.getLong(offset + VERSION)));
+        });
+    }
+
+    /**
+     * Find which of the given usernames are already taken.
+     *
+     * @param usernames the usernames
+     * @return the usernames that exist
+     */
+    public List<String> findExistingUsernames(Collection<String> usernames) {
+        return findByField(byUsername, usernames, offset -> readField(offset, USERNAME));
+    }
+
+    /**
+     * Find which of the given emails are already taken.
+     *
+     * @param emails the emails
+     * @return the emails that exist
+     */
+    public List<String> findExistingEmails(Collection<String> emails) {
+        return findByField(byEmail, emails, offset -> readField(offset, EMAIL));
+    }
+
+    /**
+     * Gets the number of users.
+     *
+     * @return the count
+     */
+    public long count() {
+        return readLocked(() -> (long) count);
+    }
+
+    /**
+     * Gets the bytes of the slab holding live users, leaving out its free space and garbage.
+     *
+     * @return the bytes
+     */
+    public long getRecordBytes() {
+        return readLocked(() -> (long) slabEnd - garbageBytes);
+    }
+
+    /**
+     * Gets the bytes allocated for the slab, including its free space and garbage.
+     *
+     * @return the bytes
+     */
+    public long getOffHeapBytes() {
+        return readLocked(() -> (long) slab.capacity());
+    }
+
+    /**
+     * Gets the heap bytes of the id, username and email indexes and the sorted ids.
+     *
+     * @return the bytes
+     */
+    public long getIndexBytes() {
+        return readLocked(() -> byId.bytes() + byUsername.bytes() + byEmail.bytes() + 8L * sortedIds.length);
+    }
+
+    private <T> T readLocked(Supplier<T> read) {
+        lock.readLock().lock();
+        try {
+            return read.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> List<T> findByField(FieldIndex index, Collection<String> values, IntFunction<T> reader) {
+        List<byte[]> encoded = values.stream().map(OffHeapUserStore::encode).toList();
+        return readLocked(() -> {
+            List<T> found = new ArrayList<>(encoded.size());
+            for (byte[] bytes : encoded) {
+                int offset = index.get(bytes);
+                if (offset >= 0) {
+                    found.add(reader.apply(offset));
+                }
+            }
+            return found;
+        });
+    }
+
+    private <T> List<T> findPage(Long afterUserId, UserFilter filter, int limit, IntFunction<T> reader) {
+        byte[] usernamePrefix = filter == null || filter.getUsername() == null ? null : encode(filter.getUsername());
+        byte[] emailPrefix = filter == null || filter.getEmail() == null ? null : encode(filter.getEmail());
+        long createdAfter = filter == null || filter.getCreatedAfter() == null
+                ? NO_TIMESTAMP : toMicros(filter.getCreatedAfter());
+        long createdBefore = filter == null || filter.getCreatedBefore() == null
+                ? Long.MAX_VALUE : toMicros(filter.getCreatedBefore());
+        return readLocked(() -> {
+            List<T> page = new ArrayList<>(Math.min(limit, count));
+            int start = 0;
+            if (afterUserId != null) {
+                int found = Arrays.binarySearch(sortedIds, 0, count, afterUserId);
+                start = found < 0 ? -found - 1 : found + 1;
+            }
+            for (int i = start; i < count && page.size() < limit; i++) {
+                int offset = byId.get(sortedIds[i]);
+                long createdAt = slab.getLong(offset + CREATED_AT);
+                if ((usernamePrefix == null || startsWith(offset, USERNAME, usernamePrefix))
+                        && (emailPrefix == null || startsWith(offset, EMAIL, emailPrefix))
+                        && (createdAfter == NO_TIMESTAMP || createdAt != NO_TIMESTAMP && createdAt >= createdAfter)
+                        && (createdBefore == Long.MAX_VALUE || createdAt != NO_TIMESTAMP && createdAt < createdBefore)) {
+                    page.add(reader.apply(offset));
+                }
+            }
+            return page;
+        });
+    }
+
+    /**
+     * Append a record and point the indexes at it, replacing the record at the previous offset if any.
+     */
+    private int write(long id, long version, LocalDateTime createdAt, String username, String email,
+                      String firstName, String lastName, int previous) {
+        byte[][] fields = {encode(username), encode(email), encode(firstName), encode(lastName)};
+        if (fields[USERNAME] == null || fields[EMAIL] == null) {
+            throw new IllegalArgumentException("Username and email are required");
+        }
+        int owner = byUsername.get(fields[USERNAME]);
+        if (owner >= 0 && owner != previous) {
+            throw new DataIntegrityViolationException("Username " + username + " is already taken");
+        }
+        owner = byEmail.get(fields[EMAIL]);
+        if (owner >= 0 && owner != previous) {
+            throw new DataIntegrityViolationException("Email " + email + " is already taken");
+        }
+        int length = FIELDS;
+        for (byte[] field : fields) {
+            if (field != null && field.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Field of user " + id + " is longer than " + Short.MAX_VALUE
+                        + " bytes");
+            }
+            length += 2 + (field == null ? 0 : field.length);
+        }
+        if (previous >= 0) {
+            // The id keeps its place in sortedIds, so a replaced user costs no shift of the id array
+            byUsername.remove(previous);
+            byEmail.remove(previous);
+            garbageBytes += slab.getInt(previous);
+        }
+        ensureCapacity(slabEnd + length);
+        int offset = slabEnd;
+        slab.putInt(offset, length);
+        slab.putLong(offset + ID, id);
+        slab.putLong(offset + VERSION, version);
+        slab.putLong(offset + CREATED_AT, toMicros(createdAt));
+        int position = offset + FIELDS;
+        for (byte[] field : fields) {
+            slab.putShort(position, (short) (field == null ? -1 : field.length));
+            if (field != null) {
+                slab.put(position + 2, field);
+            }
+            position += 2 + (field == null ? 0 : field.length);
+        }
+        slabEnd += length;
+        if (previous >= 0) {
+            indexKeys(id, offset);
+        } else {
+            index(id, offset);
+        }
+        compactIfWasteful();
+        // Compaction may have moved the record
+        return byId.get(id);
+    }
+
+    private void index(long id, int offset) {
+        indexKeys(id, offset);
+        int position = count == 0 || sortedIds[count - 1] < id
+                ? count : -Arrays.binarySearch(sortedIds, 0, count, id) - 1;
+        if (count == sortedIds.length) {
+            sortedIds = Arrays.copyOf(sortedIds, count * 2);
+        }
+        System.arraycopy(sortedIds, position, sortedIds, position + 1, count - position);
+        sortedIds[position] = id;
+        count++;
+    }
+
+    private void indexKeys(long id, int offset) {
+        byId.put(id, offset);
+        byUsername.put(offset);
+        byEmail.put(offset);
+    }
+
+    private void unindex(long id, int offset) {
+        byId.remove(id);
+        byUsername.remove(offset);
+        byEmail.remove(offset);
+        int position = Arrays.binarySearch(sortedIds, 0, count, id);
+        System.arraycopy(sortedIds, position + 1, sortedIds, position, count - position - 1);
+        count--;
+        garbageBytes += slab.getInt(offset);
+    }
+
+    /**
+     * Index every record of a slab without garbage, in slab order.
+     */
+    private void indexRecords() {
+        byId.clear();
+        byUsername.clear();
+        byEmail.clear();
+        count = 0;
+        garbageBytes = 0;
+        for (int offset = 0; offset < slabEnd; offset += slab.getInt(offset)) {
+            long id = slab.getLong(offset + ID);
+            index(id, offset);
+            nextId = Math.max(nextId, id + 1);
+        }
+    }
+
+    private void compactIfWasteful() {
+        if (garbageBytes < INITIAL_SLAB_BYTES || garbageBytes * 2L < slabEnd) {
+            return;
+        }
+        ByteBuffer compacted = ByteBuffer.allocateDirect(slab.capacity());
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            int offset = byId.get(sortedIds[i]);
+            int length = slab.getInt(offset);
+            compacted.put(position, slab, offset, length);
+            position += length;
+        }
+        slab = compacted;
+        slabEnd = position;
+        indexRecords();
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= slab.capacity()) {
+            return;
+        }
+        if (required > MAX_SLAB_BYTES) {
+            throw new IllegalStateException("Off-heap user store is full at " + slab.capacity() + " bytes");
+        }
+        int capacity = slab.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        grown.put(0, slab, 0, slabEnd);
+        slab = grown;
+    }
+
+    private UserDTO read(int offset) {
+        return new UserDTO(slab.getLong(offset + ID), readField(offset, USERNAME), readField(offset, EMAIL),
+                readField(offset, FIRST_NAME), readField(offset, LAST_NAME), readCreatedAt(offset),
+                slab.getLong(offset + VERSION));
+    }
+
+    private LocalDateTime readCreatedAt(int offset) {
+        return fromMicros(slab.getLong(offset + CREATED_AT));
+    }
+
+    private String readField(int offset, int field) {
+        int position = fieldPosition(offset, field);
+        int length = slab.getShort(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        slab.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int fieldPosition(int offset, int field) {
+        int position = offset + FIELDS;
+        for (int i = 0; i < field; i++) {
+            position += 2 + Math.max(0, slab.getShort(position));
+        }
+        return position;
+    }
+
+    private boolean startsWith(int offset, int field, byte[] prefix) {
+        int position = fieldPosition(offset, field);
+        return slab.getShort(position) >= prefix.length && matches(position + 2, prefix, prefix.length);
+    }
+
+    private boolean equalsField(int offset, int field, byte[] value) {
+        int position = fieldPosition(offset, field);
+        return slab.getShort(position) == value.length && matches(position + 2, value, value.length);
+    }
+
+    private boolean matches(int position, byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            if (slab.get(position + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hashField(int offset, int field) {
+        int position = fieldPosition(offset, field);
+        int length = slab.getShort(position);
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + slab.get(position + 2 + i);
+        }
+        return hash;
+    }
+
+    private static int hash(byte[] bytes) {
+        return Arrays.hashCode(bytes);
+    }
+
+    private static int slot(int hash, int mask) {
+        int mixed = hash * 0x9E3779B9;
+        return (mixed ^ mixed >>> 16) & mask;
+    }
+
+    static long toMicros(LocalDateTime time) {
+        return time == null ? NO_TIMESTAMP : time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return micros == NO_TIMESTAMP ? null : LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Open-addressing map from user id to slab offset, with linear probing and backward-shift deletion.
+     * Id 0 marks a free slot.
+     */
+    private static final class IdIndex {
+
+        private long[] ids;
+        private int[] offsets;
+        private int size;
+
+        private IdIndex(int capacity) {
+            ids = new long[capacity];
+            offsets = new int[capacity];
+        }
+
+        private int get(long id) {
+            if (id == 0) {
+                return -1;
+            }
+            int mask = ids.length - 1;
+            for (int i = slot(Long.hashCode(id), mask); ; i = (i + 1) & mask) {
+                if (ids[i] == id) {
+                    return offsets[i];
+                }
+                if (ids[i] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        private void put(long id, int offset) {
+            if ((size + 1) * 2 > ids.length) {
+                resize(ids.length * 2);
+            }
+            int mask = ids.length - 1;
+            int i = slot(Long.hashCode(id), mask);
+            while (ids[i] != 0 && ids[i] != id) {
+                i = (i + 1) & mask;
+            }
+            if (ids[i] == 0) {
+                size++;
+            }
+            ids[i] = id;
+            offsets[i] = offset;
+        }
+
+        private void remove(long id) {
+            int mask = ids.length - 1;
+            int hole = slot(Long.hashCode(id), mask);
+            while (ids[hole] != id) {
+                if (ids[hole] == 0) {
+                    return;
+                }
+                hole = (hole + 1) & mask;
+            }
+            // Moves back every later entry of the probe run that may no longer be reachable past the hole
+            for (int i = (hole + 1) & mask; ids[i] != 0; i = (i + 1) & mask) {
+                int home = slot(Long.hashCode(ids[i]), mask);
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    ids[hole] = ids[i];
+                    offsets[hole] = offsets[i];
+                    hole = i;
+                }
+            }
+            ids[hole] = 0;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            long[] oldIds = ids;
+            int[] oldOffsets = offsets;
+            ids = new long[capacity];
+            offsets = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != 0) {
+                    put(oldIds[i], oldOffsets[i]);
+                }
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(ids, 0);
+            size = 0;
+        }
+
+        private long bytes() {
+            return 12L * ids.length;
+        }
+    }
+
+    /**
+     * Open-addressing set of slab offsets keyed by the bytes of one string field, with linear probing and
+     * backward-shift deletion. Keeps the hash of each entry so resizing does not read the slab.
+     */
+    private final class FieldIndex {
+
+        private final int field;
+        private int[] hashes;
+        private int[] offsets;
+        private int size;
+
+        private FieldIndex(int field, int capacity) {
+            this.field = field;
+            this.hashes = new int[capacity];
+            this.offsets = new int[capacity];
+            Arrays.fill(offsets, -1);
+        }
+
+        private int get(byte[] value) {
+            if (value == null) {
+                return -1;
+            }
+            int hash = hash(value);
+            int mask = offsets.length - 1;
+            for (int i = slot(hash, mask); offsets[i] >= 0; i = (i + 1) & mask) {
+                if (hashes[i] == hash && equalsField(offsets[i], field, value)) {
+                    return offsets[i];
+                }
+            }
+            return -1;
+        }
+
+        private void put(int offset) {
+            if ((size + 1) * 2 > offsets.length) {
+                resize(offsets.length * 2);
+            }
+            insert(hashField(offset, field), offset);
+        }
+
+        private void insert(int hash, int offset) {
+            int mask = offsets.length - 1;
+            int i = slot(hash, mask);
+            while (offsets[i] >= 0) {
+                i = (i + 1) & mask;
+            }
+            hashes[i] = hash;
+            offsets[i] = offset;
+            size++;
+        }
+
+        private void remove(int offset) {
+            int mask = offsets.length - 1;
+            int hole = slot(hashField(offset, field), mask);
+            while (offsets[hole] != offset) {
+                if (offsets[hole] < 0) {
+                    return;
+                }
+                hole = (hole + 1) & mask;
+            }
+            for (int i = (hole + 1) & mask; offsets[i] >= 0; i = (i + 1) & mask) {
+                int home = slot(hashes[i], mask);
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    hashes[hole] = hashes[i];
+                    offsets[hole] = offsets[i];
+                    hole = i;
+                }
+            }
+            offsets[hole] = -1;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            int[] oldHashes = hashes;
+            int[] oldOffsets = offsets;
+            hashes = new int[capacity];
+            offsets = new int[capacity];
+            Arrays.fill(offsets, -1);
+            size = 0;
+            for (int i = 0; i < oldOffsets.length; i++) {
+                if (oldOffsets[i] >= 0) {
+                    insert(oldHashes[i], oldOffsets[i]);
+                }
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(offsets, -1);
+            size = 0;
+        }
+
+        private long bytes() {
+            return 8L * offsets.length;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.user_management.repository.offheap;
+
+import com.example.user_management.service.dto.UserDTO;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of the writes to a {@link DurableUserStore}, split into segment files named after the first
+ * log sequence number they may hold.
+ * <p>
+ * Every record is framed by its length and a CRC32C checksum and carries its log sequence number and either the
+ * whole user after the write or the id of a deleted user. Appending only encodes the record into a buffer;
+ * {@link #awaitDurable(long)} writes and forces it. Writers waiting at the same time share one force: the first
+ * one writes everything buffered so far, and the others find their record already durable when they get the
+ * flush lock. A record cut off by a crash fails its length or checksum check on replay, and the log is truncated
+ * before it.
+ */
+final class UserWriteAheadLog implements Closeable {
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int FRAME_BYTES = 4 + 4;
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private final Path directory;
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private FileChannel segment;
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private long lastLsn;
+    private long bytesSinceRoll;
+    private volatile long durableLsn;
+    private volatile boolean failed;
+
+    private UserWriteAheadLog(Path directory, long lastLsn) {
+        this.directory = directory;
+        this.lastLsn = lastLsn;
+        this.durableLsn = lastLsn;
+    }
+
+    /**
+     * Replay the records after a log sequence number and open the log for appending after the last one.
+     *
+     * @param directory the directory of the segments
+     * @param afterLsn  the log sequence number the caller already has the writes up to
+     * @param put       receives the users written
+     * @param delete    receives the ids of the users deleted
+     * @return the log
+     */
+    static UserWriteAheadLog open(Path directory, long afterLsn, Consumer<UserDTO> put, LongConsumer delete) {
+        UserWriteAheadLog log = new UserWriteAheadLog(directory, afterLsn);
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            log.replay(segments.get(i), i == segments.size() - 1, put, delete);
+        }
+        log.durableLsn = log.lastLsn;
+        log.openSegment(segments.isEmpty() ? directory.resolve(segmentName(log.lastLsn + 1))
+                : segments.get(segments.size() - 1));
+        return log;
+    }
+
+    /**
+     * Gets the log sequence number of the last appended record.
+     *
+     * @return the log sequence number
+     */
+    long getLastLsn() {
+        pendingLock.lock();
+        try {
+            return lastLsn;
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the bytes appended since the log was opened or last rolled to a new segment.
+     *
+     * @return the bytes
+     */
+    long getBytesSinceRoll() {
+        pendingLock.lock();
+        try {
+            return bytesSinceRoll;
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * Append the user as it is after a write.
+     *
+     * @param user the user
+     * @return the log sequence number of the record
+     */
+    long appendPut(UserDTO user) {
+        byte[][] fields = {OffHeapUserStore.encode(user.getUsername()), OffHeapUserStore.encode(user.getEmail()),
+                OffHeapUserStore.encode(user.getFirstName()), OffHeapUserStore.encode(user.getLastName())};
+        int length = 8 + 1 + 8 + 8 + 8;
+        for (byte[] field : fields) {
+            length += 2 + (field == null ? 0 : field.length);
+        }
+        pendingLock.lock();
+        try {
+            ByteBuffer record = startRecord(length, PUT);
+            record.putLong(user.getUserId());
+            record.putLong(user.getVersion());
+            record.putLong(OffHeapUserStore.toMicros(user.getCreatedAt()));
+            for (byte[] field : fields) {
+                record.putShort((short) (field == null ? -1 : field.length));
+                if (field != null) {
+                    record.put(field);
+                }
+            }
+            return endRecord(length);
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * Append the deletion of a user.
+     *
+     * @param id the user id
+     * @return the log sequence number of the record
+     */
+    long appendDelete(long id) {
+        pendingLock.lock();
+        try {
+            startRecord(8 + 1 + 8, DELETE).putLong(id);
+            return endRecord(8 + 1 + 8);
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * Wait until a record is written and forced to disk, writing every record buffered so far if no other
+     * caller is doing so already.
+     *
+     * @param lsn the log sequence number of the record
+     */
+    void awaitDurable(long lsn) {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if (failed) {
+                throw new IllegalStateException("Write-ahead log in " + directory + " failed; the write may be lost");
+            }
+            if (durableLsn < lsn) {
+                flush();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Force every appended record and continue in a new segment, so the segments before it can be deleted
+     * once a snapshot covers them. The caller must keep other threads from appending.
+     *
+     * @return the log sequence number of the last record before the new segment
+     */
+    long roll() {
+        flushLock.lock();
+        try {
+            flush();
+            segment.close();
+            openSegment(directory.resolve(segmentName(lastLsn + 1)));
+            bytesSinceRoll = 0;
+            return lastLsn;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot roll the write-ahead log in " + directory, ex);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Delete the segments that only hold records up to a log sequence number.
+     *
+     * @param lsn the log sequence number covered by a snapshot
+     */
+    void deleteSegmentsUpTo(long lsn) {
+        List<Path> segments = segments(directory);
+        // A segment ends where the next one starts, and the last one is still being appended to
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (firstLsn(segments.get(i + 1)) - 1 <= lsn) {
+                try {
+                    Files.deleteIfExists(segments.get(i));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Cannot delete " + segments.get(i), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Force the buffered records and close the segment.
+     */
+    @Override
+    public void close() {
+        flushLock.lock();
+        try {
+            flush();
+            segment.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot close the write-ahead log in " + directory, ex);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private ByteBuffer startRecord(int length, byte type) {
+        if (pending.remaining() < FRAME_BYTES + length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position()
+                    + FRAME_BYTES + length));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        pending.putInt(length);
+        pending.putInt(0);
+        pending.putLong(++lastLsn);
+        pending.put(type);
+        return pending;
+    }
+
+    private long endRecord(int length) {
+        int payload = pending.position() - length;
+        CRC32C crc = new CRC32C();
+        crc.update(pending.slice(payload, length));
+        pending.putInt(payload - 4, (int) crc.getValue());
+        bytesSinceRoll += FRAME_BYTES + length;
+        return lastLsn;
+    }
+
+    /**
+     * Write and force everything buffered. Runs under the flush lock.
+     */
+    private void flush() {
+        ByteBuffer batch;
+        long batchLsn;
+        pendingLock.lock();
+        try {
+            batch = pending;
+            batchLsn = lastLsn;
+            pending = spare;
+        } finally {
+            pendingLock.unlock();
+        }
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                segment.write(batch);
+            }
+            segment.force(false);
+        } catch (IOException ex) {
+            // Later records must not be reported durable while these are missing
+            failed = true;
+            throw new UncheckedIOException("Cannot write the write-ahead log in " + directory, ex);
+        } finally {
+            batch.clear();
+            spare = batch;
+        }
+        durableLsn = batchLsn;
+    }
+
+    private void replay(Path file, boolean last, Consumer<UserDTO> put, LongConsumer delete) {
+        long valid;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (records.remaining() >= FRAME_BYTES) {
+                int start = records.position();
+                int length = records.getInt();
+                int checksum = records.getInt();
+                if (length <= 0 || length > records.remaining() || checksum != checksum(records, length)) {
+                    records.position(start);
+                    break;
+                }
+                long lsn = records.getLong();
+                byte type = records.get();
+                if (type == PUT) {
+                    UserDTO user = new UserDTO(records.getLong(), null, null, null, null, null, null);
+                    user.setVersion(records.getLong());
+                    user.setCreatedAt(OffHeapUserStore.fromMicros(records.getLong()));
+                    user.setUsername(readString(records));
+                    user.setEmail(readString(records));
+                    user.setFirstName(readString(records));
+                    user.setLastName(readString(records));
+                    if (lsn > lastLsn) {
+                        put.accept(user);
+                    }
+                } else {
+                    long id = records.getLong();
+                    if (lsn > lastLsn) {
+                        delete.accept(id);
+                    }
+                }
+                lastLsn = Math.max(lastLsn, lsn);
+            }
+            valid = records.position();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot replay " + file, ex);
+        }
+        try {
+            if (valid < Files.size(file)) {
+                if (!last) {
+                    throw new IllegalStateException("Write-ahead log segment " + file + " is corrupt at byte "
+                            + valid);
+                }
+                // The tail of the last segment was cut off by a crash before it was acknowledged
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot truncate " + file, ex);
+        }
+    }
+
+    private void openSegment(Path file) {
+        try {
+            segment = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            segment.position(segment.size());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open " + file, ex);
+        }
+    }
+
+    private static int checksum(ByteBuffer records, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(records.slice(records.position(), length));
+        return (int) crc.getValue();
+    }
+
+    private static String readString(ByteBuffer records) {
+        int length = records.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        records.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<Path> segments(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches("wal-\\d+\\.log"))
+                    .sorted()
+                    .toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot list " + directory, ex);
+        }
+    }
+
+    private static long firstLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("wal-".length(), name.length() - ".log".length()));
+    }
+
+    private static String segmentName(long firstLsn) {
+        return String.format("wal-%020d.log", firstLsn);
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.user_management.repository.reactive;
+
+import com.example.user_management.model.User;
+import com.example.user_management.repository.UserVersion;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserFilter;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of the dto queries of {@code UserRepository}, on R2DBC. Only active with the
+ * {@code reactive} profile.
+ * <p>
+ * The statements match the JPA ones: keyset pages ordered by user id with the same prefix and creation time
+ * filters, updates that increment the version in the statement, and deletes without a read. New users take
+ * their id from the {@code users_seq} default of the column, one sequence value per user. Hibernate uses every
+ * value it draws from the pooled sequence as the top of its own block of ids, so the ids taken here never
+ * collide with it; they only leave gaps.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    private static final String USER_COLUMNS = "user_id, username, email, first_name, last_name, created_at, version";
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Instantiates a new Reactive user repository.
+     *
+     * @param connectionFactory the connection factory
+     */
+    public ReactiveUserRepository(ConnectionFactory connectionFactory) {
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+    }
+
+    /**
+     * Find a user by id as a dto.
+     *
+     * @param id the id
+     * @return the user, or empty if it does not exist
+     */
+    public Mono<UserDTO> findDTOById(Long id) {
+        return databaseClient.sql("SELECT " + USER_COLUMNS + " FROM users WHERE user_id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toUserDTO)
+                .one();
+    }
+
+    /**
+     * Find a user by username as a dto.
+     *
+     * @param username the username
+     * @return the user, or empty if it does not exist
+     */
+    public Mono<UserDTO> findDTOByUsername(String username) {
+        return databaseClient.sql("SELECT " + USER_COLUMNS + " FROM users WHERE username = :username")
+                .bind("username", username)
+                .map(ReactiveUserRepository::toUserDTO)
+                .one();
+    }
+
+    /**
+     * Find the version of a user by id.
+     *
+     * @param id the id
+     * @return the version, or empty if the user does not exist
+     */
+    public Mono<Long> findVersionById(Long id) {
+        return databaseClient.sql("SELECT version FROM users WHERE user_id = :id")
+                .bind("id", id)
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    /**
+     * Find the id and version of a user by username.
+     *
+     * @param username the username
+     * @return the id and version, or empty if the user does not exist
+     */
+    public Mono<UserVersion> findVersionByUsername(String username) {
+        return databaseClient.sql("SELECT user_id, version FROM users WHERE username = :username")
+                .bind("username", username)
+                .map(row -> new UserVersion(row.get("user_id", Long.class), row.get("version", Long.class)))
+                .one();
+    }
+
+    /**
+     * Find one keyset page of users as dtos, ordered by user id.
+     *
+     * @param afterUserId the last user id of the previous page, or null for the first page
+     * @param filter      the filter, may be null
+     * @param limit       the maximum number of users
+     * @return the users
+     */
+    public Flux<UserDTO> findDTOPage(Long afterUserId, UserFilter filter, int limit) {
+        return page(USER_COLUMNS, afterUserId, filter, limit)
+                .map(ReactiveUserRepository::toUserDTO)
+                .all();
+    }
+
+    /**
+     * Find the ids and versions of the users {@link #findDTOPage(Long, UserFilter, int)} would return.
+     *
+     * @param afterUserId the last user id of the previous page, or null for the first page
+     * @param filter      the filter, may be null
+     * @param limit       the maximum number of users
+     * @return the ids and versions
+     */
+    public Flux<UserVersion> findPageVersions(Long afterUserId, UserFilter filter, int limit) {
+        return page("user_id, version", afterUserId, filter, limit)
+                .map(row -> new UserVersion(row.get("user_id", Long.class), row.get("version", Long.class)))
+                .all();
+    }
+
+    /**
+     * Stream all users as dtos ordered by user id, one keyset page of {@code chunkSize} users at a time. The
+     * next page is only queried once the subscriber has requested the users of the previous one, so a slow
+     * subscriber holds at most one page in memory.
+     *
+     * @param chunkSize the number of users per query
+     * @return the users
+     */
+    public Flux<UserDTO> streamAll(int chunkSize) {
+        return findDTOPage(null, null, chunkSize).collectList()
+                .expand(chunk -> chunk.size() < chunkSize ? Mono.<List<UserDTO>>empty()
+                        : findDTOPage(chunk.get(chunk.size() - 1).getUserId(), null, chunkSize).collectList())
+                .concatMapIterable(chunk -> chunk, 1);
+    }
+
+    /**
+     * Insert a new user with version 0.
+     *
+     * @param user the user, without id
+     * @return the inserted user with its id and creation time
+     */
+    public Mono<UserDTO> insert(UserDTO user) {
+        LocalDateTime createdAt = LocalDateTime.now().truncatedTo(User.CREATED_AT_PRECISION);
+        DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO users "
+                        + "(username, email, created_at, first_name, last_name, version) "
+                        + "VALUES (:username, :email, :createdAt, :firstName, :lastName, 0)")
+                .bind("createdAt", createdAt);
+        insert = bindFields(insert, user);
+        return insert.filter(statement -> statement.returnGeneratedValues("user_id"))
+                .map(row -> row.get("user_id", Long.class))
+                .one()
+                .map(id -> new UserDTO(id, user.getUsername(), user.getEmail(), user.getFirstName(),
+                        user.getLastName(), createdAt, 0L));
+    }
+
+    /**
+     * Replace the username, email, first name and last name of a user if it still has the version it was
+     * read with, and increment the version.
+     *
+     * @param user the user with the new fields and the version it was read with
+     * @return the updated user, or an {@link OptimisticLockingFailureException} if it was changed or deleted
+     * since it was read
+     */
+    public Mono<UserDTO> update(UserDTO user) {
+        DatabaseClient.GenericExecuteSpec update = databaseClient.sql("UPDATE users SET username = :username, "
+                        + "email = :email, first_name = :firstName, last_name = :lastName, version = version + 1 "
+                        + "WHERE user_id = :id AND version = :version")
+                .bind("id", user.getUserId())
+                .bind("version", user.getVersion());
+        return bindFields(update, user).fetch().rowsUpdated().flatMap(count -> count == 0
+                ? Mono.<UserDTO>error(new OptimisticLockingFailureException("User with ID " + user.getUserId()
+                        + " was modified concurrently"))
+                : Mono.just(new UserDTO(user.getUserId(), user.getUsername(), user.getEmail(), user.getFirstName(),
+                        user.getLastName(), user.getCreatedAt(), user.getVersion() + 1)));
+    }
+
+    /**
+     * Set the non-null username, email, first name and last name of the changes on a user and increment its
+     * version, with a single statement.
+     *
+     * @param id              the id
+     * @param changes         the fields to set
+     * @param expectedVersion the version the user must have, or null to update any version
+     * @return 1 if the user was updated, 0 if it did not exist or had another version
+     */
+    public Mono<Long> updateFields(Long id, UserDTO changes, Long expectedVersion) {
+        Map<String, Object> values = new HashMap<>();
+        StringBuilder sql = new StringBuilder("UPDATE users SET ");
+        setIfPresent(sql, values, "username", "username", changes.getUsername());
+        setIfPresent(sql, values, "email", "email", changes.getEmail());
+        setIfPresent(sql, values, "first_name", "firstName", changes.getFirstName());
+        setIfPresent(sql, values, "last_name", "lastName", changes.getLastName());
+        sql.append("version = version + 1 WHERE user_id = :id");
+        values.put("id", id);
+        if (expectedVersion != null) {
+            sql.append(" AND version = :version");
+            values.put("version", expectedVersion);
+        }
+        return databaseClient.sql(sql.toString()).bindValues(values).fetch().rowsUpdated();
+    }
+
+    /**
+     * Delete a user with a single statement, without reading it first.
+     *
+     * @param id the id
+     * @return the number of deleted users, 0 if the user did not exist
+     */
+    public Mono<Long> deleteUserById(Long id) {
+        return databaseClient.sql("DELETE FROM users WHERE user_id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private DatabaseClient.GenericExecuteSpec page(String columns, Long afterUserId, UserFilter filter, int limit) {
+        List<String> predicates = new ArrayList<>();
+        Map<String, Object> values = new HashMap<>();
+        if (afterUserId != null) {
+            predicates.add("user_id > :afterUserId");
+            values.put("afterUserId", afterUserId);
+        }
+        if (filter != null) {
+            if (filter.getUsername() != null && !filter.getUsername().isBlank()) {
+                predicates.add("username LIKE :username ESCAPE '\\'");
+                values.put("username", startsWith(filter.getUsername()));
+            }
+            if (filter.getEmail() != null && !filter.getEmail().isBlank()) {
+                predicates.add("email LIKE :email ESCAPE '\\'");
+                values.put("email", startsWith(filter.getEmail()));
+            }
+            if (filter.getCreatedAfter() != null) {
+                predicates.add("created_at >= :createdAfter");
+                values.put("createdAfter", filter.getCreatedAfter());
+            }
+            if (filter.getCreatedBefore() != null) {
+                predicates.add("created_at < :createdBefore");
+                values.put("createdBefore", filter.getCreatedBefore());
+            }
+        }
+        String where = predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+        return databaseClient.sql("SELECT " + columns + " FROM users" + where + " ORDER BY user_id LIMIT " + limit)
+                .bindValues(values);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindFields(DatabaseClient.GenericExecuteSpec spec,
+                                                                UserDTO user) {
+        spec = bindNullable(spec, "username", user.getUsername());
+        spec = bindNullable(spec, "email", user.getEmail());
+        spec = bindNullable(spec, "firstName", user.getFirstName());
+        return bindNullable(spec, "lastName", user.getLastName());
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                  String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private static void setIfPresent(StringBuilder sql, Map<String, Object> values, String column, String name,
+                                     String value) {
+        if (value != null) {
+            sql.append(column).append(" = :").append(name).append(", ");
+            values.put(name, value);
+        }
+    }
+
+    private static String startsWith(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    private static UserDTO toUserDTO(Readable row) {
+        return new UserDTO(row.get("user_id", Long.class), row.get("username", String.class),
+                row.get("email", String.class), row.get("first_name", String.class),
+                row.get("last_name", String.class), row.get("created_at", LocalDateTime.class),
+                row.get("version", Long.class));
+    }
+}
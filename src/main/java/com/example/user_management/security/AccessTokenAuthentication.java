@@ -0,0 +1,40 @@
+package com.example.user_management.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Authentication established from a verified access token.
+ */
+public class AccessTokenAuthentication extends AbstractAuthenticationToken {
+
+    private final String username;
+    private final String token;
+
+    /**
+     * Instantiates a new Access token authentication.
+     *
+     * @param username    the username
+     * @param token       the token
+     * @param authorities the authorities
+     */
+    public AccessTokenAuthentication(String username, String token,
+                                     Collection<? extends GrantedAuthority> authorities) {
+        super(authorities);
+        this.username = username;
+        this.token = token;
+        setAuthenticated(true);
+    }
+
+    @Override
+    public Object getCredentials() {
+        return token;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return username;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.user_management.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Issues and verifies compact HMAC-SHA256 signed access tokens.
+ * <p>
+ * A token is {@code <keyId>.<payload>.<signature>}, each part base64url encoded, where the payload holds
+ * the username, the authorities and the expiry. Verification recomputes the signature with the key named
+ * in the token and compares it in constant time; no password hashing or user lookup is involved.
+ * <p>
+ * Keys come from {@code user-management.security.token.keys} as comma separated {@code id:base64secret}
+ * pairs. New tokens are signed with {@code active-key-id}; every listed key still verifies, so a key is
+ * rotated by adding the new key, switching the active id, and removing the old key once its tokens
+ * expired. Without configured keys a random key is generated, which is only suitable for a single node.
+ */
+@Component
+public class AccessTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessTokenService.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String GENERATED_KEY_ID = "local";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, SecretKeySpec> keys = new LinkedHashMap<>();
+    private final String activeKeyId;
+    private final Duration ttl;
+    private final Clock clock;
+
+    /**
+     * Instantiates a new Access token service.
+     *
+     * @param keys        the key set as comma separated {@code id:base64secret} pairs
+     * @param activeKeyId the id of the key new tokens are signed with, defaults to the first key
+     * @param ttl         the token lifetime
+     */
+    @Autowired
+    public AccessTokenService(@Value("${user-management.security.token.keys:}") String keys,
+                              @Value("${user-management.security.token.active-key-id:}") String activeKeyId,
+                              @Value("${user-management.security.token.ttl:15m}") Duration ttl) {
+        this(keys, activeKeyId, ttl, Clock.systemUTC());
+    }
+
+    /**
+     * Instantiates a new Access token service with an explicit clock.
+     *
+     * @param keys        the key set as comma separated {@code id:base64secret} pairs
+     * @param activeKeyId the id of the key new tokens are signed with, defaults to the first key
+     * @param ttl         the token lifetime
+     * @param clock       the clock
+     */
+    public AccessTokenService(String keys, String activeKeyId, Duration ttl, Clock clock) {
+        for (String entry : keys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Token keys must be given as id:base64secret");
+            }
+            byte[] secret = Base64.getDecoder().decode(entry.substring(separator + 1).trim());
+            if (secret.length < 32) {
+                throw new IllegalArgumentException("Token key " + entry.substring(0, separator).trim()
+                        + " must be at least 256 bits");
+            }
+            this.keys.put(entry.substring(0, separator).trim(), new SecretKeySpec(secret, HMAC_ALGORITHM));
+        }
+        if (this.keys.isEmpty()) {
+            logger.warn("No access token keys configured, generating a key valid for this instance only");
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            this.keys.put(GENERATED_KEY_ID, new SecretKeySpec(secret, HMAC_ALGORITHM));
+        }
+        this.activeKeyId = activeKeyId.isBlank() ? this.keys.keySet().iterator().next() : activeKeyId;
+        if (!this.keys.containsKey(this.activeKeyId)) {
+            throw new IllegalArgumentException("Active token key " + this.activeKeyId + " is not configured");
+        }
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the token lifetime.
+     *
+     * @return the ttl
+     */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Issue a token for an authenticated user.
+     *
+     * @param authentication the authentication
+     * @return the token
+     */
+    public String issue(Authentication authentication) {
+        long expiresAt = clock.instant().plus(ttl).getEpochSecond();
+        String authorities = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(","));
+        String payload = authentication.getName() + "\n" + authorities + "\n" + expiresAt;
+        String signedPart = activeKeyId + "." + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return signedPart + "." + ENCODER.encodeToString(sign(keys.get(activeKeyId), signedPart));
+    }
+
+    /**
+     * Verify a token.
+     *
+     * @param token the token
+     * @return the authentication, or empty if the token is malformed, forged, signed with an unknown key or expired
+     */
+    public Optional<AccessTokenAuthentication> verify(String token) {
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot <= firstDot) {
+            return Optional.empty();
+        }
+        SecretKeySpec key = keys.get(token.substring(0, firstDot));
+        if (key == null) {
+            return Optional.empty();
+        }
+        String[] claims;
+        try {
+            byte[] signature = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(sign(key, token.substring(0, lastDot)), signature)) {
+                return Optional.empty();
+            }
+            claims = new String(DECODER.decode(token.substring(firstDot + 1, lastDot)), StandardCharsets.UTF_8)
+                    .split("\n", -1);
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+        if (claims.length != 3 || Long.parseLong(claims[2]) <= clock.instant().getEpochSecond()) {
+            return Optional.empty();
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (String authority : claims[1].split(",")) {
+            if (!authority.isEmpty()) {
+                authorities.add(new SimpleGrantedAuthority(authority));
+            }
+        }
+        return Optional.of(new AccessTokenAuthentication(claims[0], token, authorities));
+    }
+
+    private static byte[] sign(SecretKeySpec key, String signedPart) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(signedPart.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", ex);
+        }
+    }
+}
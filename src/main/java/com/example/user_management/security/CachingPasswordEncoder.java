@@ -0,0 +1,120 @@
+package com.example.user_management.security;
+
+import com.example.user_management.service.dto.CacheStatsDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Password encoder that remembers successful verifications for a short time.
+ * <p>
+ * HTTP Basic re-sends the password on every request and a BCrypt check costs tens of milliseconds of
+ * CPU, so repeated requests by the same client are answered from a cache of verified credentials. The
+ * cache key is an HMAC-SHA256, under a random per-process key, of the stored hash and the presented
+ * password: neither the raw password nor a plain digest of it is kept. Because the stored hash is part
+ * of the key, a changed password can never match an old entry. Only successful checks are cached, so
+ * wrong passwords always pay the full hashing cost.
+ */
+public class CachingPasswordEncoder implements PasswordEncoder {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final PasswordEncoder delegate;
+    private final Cache<String, Boolean> verified;
+    private final SecretKeySpec fingerprintKey;
+
+    /**
+     * Instantiates a new Caching password encoder.
+     *
+     * @param delegate the encoder doing the actual hashing
+     * @param ttl      how long a verified credential is trusted
+     * @param maxSize  the maximum number of verified credentials kept
+     */
+    public CachingPasswordEncoder(PasswordEncoder delegate, Duration ttl, long maxSize) {
+        this(delegate, ttl, maxSize, Ticker.systemTicker());
+    }
+
+    /**
+     * Instantiates a new Caching password encoder.
+     *
+     * @param delegate the encoder doing the actual hashing
+     * @param ttl      how long a verified credential is trusted
+     * @param maxSize  the maximum number of verified credentials kept
+     * @param ticker   the time source of the expiry
+     */
+    public CachingPasswordEncoder(PasswordEncoder delegate, Duration ttl, long maxSize, Ticker ticker) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).ticker(ticker)
+                .recordStats().build();
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.fingerprintKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+        String key = fingerprint(rawPassword, encodedPassword);
+        if (verified.getIfPresent(key) != null) {
+            return true;
+        }
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+        if (matches) {
+            verified.put(key, Boolean.TRUE);
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Forget every verified credential.
+     */
+    public void clear() {
+        verified.invalidateAll();
+    }
+
+    /**
+     * Gets the hit, miss and eviction counters.
+     *
+     * @return the stats
+     */
+    public CacheStatsDTO stats() {
+        CacheStats stats = verified.stats();
+        return new CacheStatsDTO(verified.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount());
+    }
+
+    private String fingerprint(CharSequence rawPassword, String encodedPassword) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(fingerprintKey);
+            mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(
+                    mac.doFinal(rawPassword.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.user_management.security;
+
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+/**
+ * In-memory user store that runs a callback whenever stored credentials change, so caches of verified
+ * credentials can be dropped.
+ */
+public class CredentialChangeAwareUserDetailsManager extends InMemoryUserDetailsManager {
+
+    private final Runnable onCredentialsChanged;
+
+    /**
+     * Instantiates a new Credential change aware user details manager.
+     *
+     * @param onCredentialsChanged the callback
+     * @param users                the initial users
+     */
+    public CredentialChangeAwareUserDetailsManager(Runnable onCredentialsChanged, UserDetails... users) {
+        super(users);
+        this.onCredentialsChanged = onCredentialsChanged;
+    }
+
+    @Override
+    public void updateUser(UserDetails user) {
+        super.updateUser(user);
+        onCredentialsChanged.run();
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        super.deleteUser(username);
+        onCredentialsChanged.run();
+    }
+
+    @Override
+    public void changePassword(String oldPassword, String newPassword) {
+        super.changePassword(oldPassword, newPassword);
+        onCredentialsChanged.run();
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserDetails updated = super.updatePassword(user, newPassword);
+        onCredentialsChanged.run();
+        return updated;
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.user_management.service;
+
+import com.example.user_management.exception.PreconditionFailedException;
+import com.example.user_management.exception.UserNotFoundException;
+import com.example.user_management.repository.UserVersion;
+import com.example.user_management.repository.reactive.ReactiveUserRepository;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserFilter;
+import com.example.user_management.service.dto.UserPageDTO;
+import com.example.user_management.service.event.ReactiveUserChangeOutbox;
+import com.example.user_management.service.event.UserChangedEvent;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reactive counterpart of {@link UserService} on {@link ReactiveUserRepository}, with the same validation,
+ * versioning and exceptions. Only active with the {@code reactive} profile.
+ * <p>
+ * Every read is a query; the user cache, the existence filter and sharding are not used. Every write records
+ * its changes through {@link ReactiveUserChangeOutbox} in the same transaction, and publishes a
+ * {@link UserChangedEvent} once it committed, so the change feed, the search index and the existence filter
+ * see the writes made here.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveUserChangeOutbox userChangeOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final int exportChunkSize;
+
+    /**
+     * Instantiates a new Reactive user service.
+     *
+     * @param userRepository   the user repository
+     * @param userChangeOutbox the user change outbox
+     * @param eventPublisher   the event publisher
+     * @param validator        the validator
+     * @param exportChunkSize  the number of users the export reads per query
+     * @param shardUrls        the shard urls, which must not be set
+     */
+    public ReactiveUserService(ReactiveUserRepository userRepository, ReactiveUserChangeOutbox userChangeOutbox,
+                               ApplicationEventPublisher eventPublisher, Validator validator,
+                               @Value("${user-management.reactive.export-chunk-size:500}") int exportChunkSize,
+                               @Value("${user-management.sharding.urls:}") String shardUrls) {
+        if (!shardUrls.isBlank()) {
+            throw new IllegalStateException("The reactive profile cannot be combined with sharding");
+        }
+        this.userRepository = userRepository;
+        this.userChangeOutbox = userChangeOutbox;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.exportChunkSize = exportChunkSize;
+    }
+
+    /**
+     * Gets one keyset page of users ordered by user id, fetching one row more than requested to find out
+     * whether a next page exists.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the page size, clamped to {@link UserService#MAX_PAGE_SIZE}
+     * @param filter the filter, may be null
+     * @return the user page
+     */
+    public Mono<UserPageDTO> getUsers(String cursor, int limit, UserFilter filter) {
+        return Mono.defer(() -> {
+            int pageSize = pageSize(limit);
+            return userRepository.findDTOPage(UserCursor.decode(cursor), filter, pageSize + 1).collectList()
+                    .map(users -> {
+                        boolean hasNext = users.size() > pageSize;
+                        List<UserDTO> content = hasNext ? users.subList(0, pageSize) : users;
+                        String nextCursor = hasNext ? UserCursor.encode(content.get(content.size() - 1).getUserId())
+                                : null;
+                        return new UserPageDTO(content, nextCursor, content.size());
+                    });
+        });
+    }
+
+    /**
+     * Gets the entity tag of the page {@link #getUsers(String, int, UserFilter)} would return, from the ids
+     * and versions of its users only.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the page size, clamped to {@link UserService#MAX_PAGE_SIZE}
+     * @param filter the filter, may be null
+     * @return the entity tag of the page
+     */
+    public Mono<String> getUsersETag(String cursor, int limit, UserFilter filter) {
+        return Mono.defer(() -> {
+            int pageSize = pageSize(limit);
+            return userRepository.findPageVersions(UserCursor.decode(cursor), filter, pageSize + 1).collectList()
+                    .map(users -> {
+                        boolean hasNext = users.size() > pageSize;
+                        return UserETag.ofPage(hasNext ? users.subList(0, pageSize) : users, hasNext);
+                    });
+        });
+    }
+
+    /**
+     * Stream all users ordered by user id, querying the next chunk only as the subscriber requests more.
+     *
+     * @return the users
+     */
+    public Flux<UserDTO> exportUsers() {
+        return userRepository.streamAll(exportChunkSize);
+    }
+
+    /**
+     * Gets user by id.
+     *
+     * @param id the id
+     * @return the user by id
+     */
+    public Mono<UserDTO> getUserById(Long id) {
+        return userRepository.findDTOById(id).switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    /**
+     * Gets the version of a user by id with a version-only query.
+     *
+     * @param id the id
+     * @return the version
+     */
+    public Mono<Long> getUserVersion(Long id) {
+        return userRepository.findVersionById(id).switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    /**
+     * Gets user by user name.
+     *
+     * @param username the username
+     * @return the user by user name
+     */
+    public Mono<UserDTO> getUserByUserName(String username) {
+        return userRepository.findDTOByUsername(username).switchIfEmpty(Mono.error(() -> notFound(username)));
+    }
+
+    /**
+     * Gets the id and version of a user by username with a version-only query.
+     *
+     * @param username the username
+     * @return the id and version
+     */
+    public Mono<UserVersion> getUserVersionByUserName(String username) {
+        return userRepository.findVersionByUsername(username).switchIfEmpty(Mono.error(() -> notFound(username)));
+    }
+
+    /**
+     * Whether a user with the username exists.
+     *
+     * @param username the username
+     * @return true if the user exists
+     */
+    public Mono<Boolean> userNameExists(String username) {
+        return userRepository.findVersionByUsername(username).hasElement();
+    }
+
+    /**
+     * Create user user dto.
+     *
+     * @param userDTO the user dto
+     * @return the user dto
+     */
+    public Mono<UserDTO> createUser(UserDTO userDTO) {
+        return userChangeOutbox.write(userRepository.insert(userDTO), saved -> UserChangedEvent.saved(List.of(saved)))
+                .doOnNext(created -> eventPublisher.publishEvent(UserChangedEvent.saved(List.of(created))));
+    }
+
+    /**
+     * Update user user dto if it still has the expected version. A concurrent update between reading and
+     * writing the user fails with an optimistic locking failure.
+     *
+     * @param id              the id
+     * @param updatedUser     the updated user
+     * @param expectedVersion the version the caller last read, or null to update any version
+     * @return the user dto
+     */
+    public Mono<UserDTO> updateUser(Long id, UserDTO updatedUser, Long expectedVersion) {
+        return getUserById(id)
+                .flatMap(user -> {
+                    if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+                        return Mono.<UserDTO>error(new PreconditionFailedException("User with ID " + id
+                                + " is at version "
+                                + user.getVersion() + ", not " + expectedVersion));
+                    }
+                    UserDTO changed = new UserDTO(id, updatedUser.getUsername(), updatedUser.getEmail(),
+                            updatedUser.getFirstName(), updatedUser.getLastName(), user.getCreatedAt(),
+                            user.getVersion());
+                    return userChangeOutbox.write(userRepository.update(changed),
+                            saved -> UserChangedEvent.saved(List.of(saved)));
+                })
+                .doOnNext(updated -> eventPublisher.publishEvent(UserChangedEvent.saved(List.of(updated))));
+    }
+
+    /**
+     * Set the non-null username, email, first name and last name of the changes on a user with a single
+     * UPDATE statement, without reading the user first. Only on failure is the version read, to tell a
+     * missing user from a version mismatch.
+     *
+     * @param id              the id
+     * @param changes         the fields to change
+     * @param expectedVersion the version the caller last read, or null to update any version
+     * @return the new version
+     */
+    public Mono<Long> patchUser(Long id, UserDTO changes, Long expectedVersion) {
+        return Mono.defer(() -> {
+            validatePresentFields(changes);
+            Mono<UserDTO> update = userRepository.updateFields(id, changes, expectedVersion)
+                    .filter(count -> count > 0)
+                    // Read in the transaction of the UPDATE, which still holds the row lock, so this is the
+                    // version it wrote
+                    .flatMap(count -> expectedVersion != null ? Mono.just(expectedVersion + 1)
+                            : userRepository.findVersionById(id))
+                    .map(version -> new UserDTO(id, changes.getUsername(), changes.getEmail(),
+                            changes.getFirstName(), changes.getLastName(), null, version));
+            return userChangeOutbox.write(update, UserChangedEvent::patched)
+                    .switchIfEmpty(getUserVersion(id)
+                            .flatMap(current -> Mono.<UserDTO>error(new PreconditionFailedException("User with ID "
+                                    + id + " is at version " + current + ", not " + expectedVersion))))
+                    .doOnNext(user -> eventPublisher.publishEvent(UserChangedEvent.patched(user)))
+                    .map(UserDTO::getVersion);
+        });
+    }
+
+    /**
+     * Delete user with a single DELETE statement, without reading it first.
+     *
+     * @param id the id
+     * @return completes once the user is deleted
+     */
+    public Mono<Void> deleteUser(Long id) {
+        return userChangeOutbox.write(userRepository.deleteUserById(id),
+                        count -> count > 0 ? UserChangedEvent.deleted(id) : null)
+                .filter(count -> count > 0)
+                .switchIfEmpty(Mono.error(() -> notFound(id)))
+                .doOnNext(count -> eventPublisher.publishEvent(UserChangedEvent.deleted(id)))
+                .then();
+    }
+
+    private void validatePresentFields(UserDTO changes) {
+        Set<ConstraintViolation<UserDTO>> violations = new HashSet<>();
+        for (String field : List.of("username", "email", "firstName", "lastName")) {
+            violations.addAll(validator.validateProperty(changes, field));
+        }
+        // Absent fields are left unchanged, so only the constraints of supplied fields apply
+        violations.removeIf(violation -> violation.getInvalidValue() == null);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+    }
+
+    private static int pageSize(int limit) {
+        return limit <= 0 ? UserService.DEFAULT_PAGE_SIZE : Math.min(limit, UserService.MAX_PAGE_SIZE);
+    }
+
+    private static UserNotFoundException notFound(Long id) {
+        return new UserNotFoundException("User with ID " + id + " not found");
+    }
+
+    private static UserNotFoundException notFound(String username) {
+        return new UserNotFoundException("User with username " + username + " not found");
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.user_management.service;
+
+import com.example.user_management.exception.BulkLimitExceededException;
+import com.example.user_management.repository.UserStore;
+import com.example.user_management.service.cache.UserCache;
+import com.example.user_management.service.cache.UserExistenceFilter;
+import com.example.user_management.service.dto.BatchGetItemDTO;
+import com.example.user_management.service.dto.BatchGetRequestDTO;
+import com.example.user_management.service.dto.BatchGetResultDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.shard.UserShards;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Looks up many users by id or username at once.
+ * <p>
+ * Keys are deduplicated and served from the {@link UserCache} first. Usernames the
+ * {@link UserExistenceFilter} rules out are reported as missing without a query. The remaining keys are
+ * loaded with {@code IN} queries of at most {@code user-management.batch-get.chunk-size} keys each, split by
+ * the shard that holds them.
+ */
+@Service
+public class UserBatchGetService {
+
+    private final UserStore userStore;
+    private final UserShards userShards;
+    private final UserCache userCache;
+    private final UserExistenceFilter userExistenceFilter;
+    private final int chunkSize;
+    private final int maxKeys;
+
+    /**
+     * Instantiates a new User batch get service.
+     *
+     * @param userStore           the user store
+     * @param userShards          the user shards
+     * @param userCache           the user cache
+     * @param userExistenceFilter the user existence filter
+     * @param chunkSize           the maximum number of keys per IN query
+     * @param maxKeys             the maximum number of ids and usernames accepted per request
+     */
+    public UserBatchGetService(UserStore userStore, UserShards userShards, UserCache userCache,
+                               UserExistenceFilter userExistenceFilter,
+                               @Value("${user-management.batch-get.chunk-size:500}") int chunkSize,
+                               @Value("${user-management.batch-get.max-keys:1000}") int maxKeys) {
+        this.userStore = userStore;
+        this.userShards = userShards;
+        this.userCache = userCache;
+        this.userExistenceFilter = userExistenceFilter;
+        this.chunkSize = chunkSize;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Get users by ids and usernames.
+     *
+     * @param request the ids and usernames
+     * @return one result per requested id, then one per requested username, in request order
+     */
+    public BatchGetResultDTO getUsers(BatchGetRequestDTO request) {
+        List<Long> ids = request.getIds() == null ? List.of() : request.getIds();
+        List<String> usernames = request.getUsernames() == null ? List.of() : request.getUsernames();
+        if (ids.size() + usernames.size() > maxKeys) {
+            throw new BulkLimitExceededException("A batch get accepts at most " + maxKeys + " ids and usernames");
+        }
+        Map<Long, UserDTO> byId = getByIds(ids);
+        Map<String, UserDTO> byUsername = getByUsernames(usernames);
+
+        List<BatchGetItemDTO> results = new ArrayList<>(ids.size() + usernames.size());
+        int found = 0;
+        for (Long id : ids) {
+            UserDTO user = id == null ? null : byId.get(id);
+            results.add(new BatchGetItemDTO(id, null, user != null, user));
+            found += user != null ? 1 : 0;
+        }
+        for (String username : usernames) {
+            UserDTO user = username == null ? null : byUsername.get(username);
+            results.add(new BatchGetItemDTO(null, username, user != null, user));
+            found += user != null ? 1 : 0;
+        }
+        return new BatchGetResultDTO(found, results.size() - found, results);
+    }
+
+    private Map<Long, UserDTO> getByIds(List<Long> ids) {
+        Set<Long> distinct = distinct(ids);
+        if (distinct.isEmpty()) {
+            return Map.of();
+        }
+        return userCache.getAllById(distinct,
+                missing -> load(missing,
+                        chunk -> userShards.findByIds(chunk, userStore::findDTOsByIdIn, UserDTO::getUserId),
+                        UserDTO::getUserId));
+    }
+
+    private Map<String, UserDTO> getByUsernames(List<String> usernames) {
+        Set<String> distinct = distinct(usernames);
+        distinct.removeIf(username -> !userExistenceFilter.mightContainUsername(username));
+        if (distinct.isEmpty()) {
+            return Map.of();
+        }
+        return userCache.getAllByUsername(distinct, missing -> {
+            Map<String, UserDTO> loaded =
+                    load(missing, chunk -> userShards.findByUsernames(chunk, userStore::findDTOsByUsernameIn),
+                            UserDTO::getUsername);
+            userExistenceFilter.recordUsernameFalsePositives(missing.size() - loaded.size());
+            return loaded;
+        });
+    }
+
+    private <K> Map<K, UserDTO> load(Set<K> keys, Function<Collection<K>, List<UserDTO>> query,
+                                     Function<UserDTO, K> keyOf) {
+        Map<K, UserDTO> users = new HashMap<>();
+        List<K> remaining = new ArrayList<>(keys);
+        for (int from = 0; from < remaining.size(); from += chunkSize) {
+            List<K> chunk = remaining.subList(from, Math.min(from + chunkSize, remaining.size()));
+            for (UserDTO user : query.apply(chunk)) {
+                users.put(keyOf.apply(user), user);
+            }
+        }
+        return users;
+    }
+
+    private static <K> Set<K> distinct(List<K> keys) {
+        Set<K> distinct = new LinkedHashSet<>(keys);
+        distinct.remove(null);
+        return distinct;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.user_management.service;
+
+import com.example.user_management.exception.BulkLimitExceededException;
+import com.example.user_management.model.User;
+import com.example.user_management.repository.UserStore;
+import com.example.user_management.service.cache.UserExistenceFilter;
+import com.example.user_management.service.dto.BulkCreateResultDTO;
+import com.example.user_management.service.dto.BulkItemResultDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.event.UserChangeOutbox;
+import com.example.user_management.service.event.UserChangedEvent;
+import com.example.user_management.service.mapper.UserMapper;
+import com.example.user_management.service.shard.UserShards;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates many users at once with batched inserts.
+ * <p>
+ * Items are validated individually, checked for username/email conflicts against the request and the
+ * {@link UserStore}, and the remaining ones are inserted in chunks of {@code user-management.bulk.batch-size},
+ * one transaction per chunk and shard. In the {@code users} table, ids come from the pooled {@code users_seq}
+ * sequence, so Hibernate groups each chunk into JDBC batches instead of one round trip per row; the off-heap
+ * store inserts a chunk under one lock. A chunk that still hits a unique constraint (a concurrent writer took a
+ * name) is retried row by row so only the offending rows fail.
+ * The created users are recorded in the change outbox in the transaction that inserts them.
+ */
+@Service
+public class UserBulkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserBulkService.class);
+
+    private final UserStore userStore;
+    private final UserShards userShards;
+    private final UserMapper userMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final UserExistenceFilter userExistenceFilter;
+    private final UserChangeOutbox userChangeOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxItems;
+
+    /**
+     * Instantiates a new User bulk service.
+     *
+     * @param userStore           the user store
+     * @param userShards          the user shards
+     * @param userMapper          the user mapper
+     * @param validator           the validator
+     * @param transactionManager  the transaction manager
+     * @param userExistenceFilter the user existence filter
+     * @param userChangeOutbox    the user change outbox
+     * @param eventPublisher      the event publisher
+     * @param batchSize           the number of users inserted per transaction
+     * @param maxItems            the maximum number of users accepted per request
+     */
+    public UserBulkService(UserStore userStore, UserShards userShards, UserMapper userMapper,
+                           Validator validator, PlatformTransactionManager transactionManager,
+                           UserExistenceFilter userExistenceFilter, UserChangeOutbox userChangeOutbox,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${user-management.bulk.batch-size:500}") int batchSize,
+                           @Value("${user-management.bulk.max-items:100000}") int maxItems) {
+        this.userStore = userStore;
+        this.userShards = userShards;
+        this.userMapper = userMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userExistenceFilter = userExistenceFilter;
+        this.userChangeOutbox = userChangeOutbox;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Create users in bulk.
+     *
+     * @param users the users
+     * @return one result per item, in request order
+     */
+    public BulkCreateResultDTO createUsers(List<UserDTO> users) {
+        if (users.size() > maxItems) {
+            throw new BulkLimitExceededException("A bulk request accepts at most " + maxItems + " users");
+        }
+        return create(users, true);
+    }
+
+    /**
+     * Create users in bulk that the caller already validated, skipping bean validation.
+     *
+     * @param users the users
+     * @return one result per item, in request order
+     */
+    public BulkCreateResultDTO createValidUsers(List<UserDTO> users) {
+        return create(users, false);
+    }
+
+    private BulkCreateResultDTO create(List<UserDTO> users, boolean validate) {
+        BulkItemResultDTO[] results = new BulkItemResultDTO[users.size()];
+        List<Integer> pending = validateAndDeduplicate(users, results, validate);
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Integer> chunk = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            insertChunk(users, chunk, results);
+        }
+        int created = 0;
+        for (BulkItemResultDTO result : results) {
+            if (result.getStatus() == BulkItemResultDTO.Status.CREATED) {
+                created++;
+            }
+        }
+        logger.info("Bulk created {} of {} users", created, users.size());
+        return new BulkCreateResultDTO(created, users.size() - created, Arrays.asList(results));
+    }
+
+    /**
+     * Validate every item and reject repeated usernames/emails within the request.
+     *
+     * @return indexes of the items still to insert
+     */
+    private List<Integer> validateAndDeduplicate(List<UserDTO> users, BulkItemResultDTO[] results,
+                                                 boolean validate) {
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        List<Integer> pending = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            UserDTO user = users.get(i);
+            if (user == null) {
+                results[i] = failure(i, BulkItemResultDTO.Status.INVALID, Map.of("user", "User is required"));
+                continue;
+            }
+            Set<ConstraintViolation<UserDTO>> violations = validate ? validator.validate(user) : Set.of();
+            if (!violations.isEmpty()) {
+                Map<String, String> errors = new HashMap<>();
+                violations.forEach(v -> errors.put(v.getPropertyPath().toString(), v.getMessage()));
+                results[i] = failure(i, BulkItemResultDTO.Status.INVALID, errors);
+            } else if (!usernames.add(user.getUsername())) {
+                results[i] = failure(i, BulkItemResultDTO.Status.CONFLICT,
+                        Map.of("username", "Username appears more than once in the request"));
+            } else if (!emails.add(user.getEmail())) {
+                results[i] = failure(i, BulkItemResultDTO.Status.CONFLICT,
+                        Map.of("email", "Email appears more than once in the request"));
+            } else {
+                pending.add(i);
+            }
+        }
+        return pending;
+    }
+
+    private void insertChunk(List<UserDTO> users, List<Integer> chunk, BulkItemResultDTO[] results) {
+        List<Integer> insertable = rejectExisting(users, chunk, results);
+        if (insertable.isEmpty()) {
+            return;
+        }
+        try {
+            List<User> entities = new ArrayList<>(insertable.size());
+            for (Integer index : insertable) {
+                User entity = userMapper.toUser(users.get(index));
+                userExistenceFilter.add(entity.getUsername(), entity.getEmail());
+                entity.setUserId(null);
+                entities.add(entity);
+            }
+            List<User> saved = userShards.insert(entities, group -> transactionTemplate.execute(status -> {
+                List<User> inserted = userStore.insertAll(group);
+                userChangeOutbox.append(UserChangedEvent.saved(toUserDTOs(inserted)));
+                return inserted;
+            }));
+            for (int i = 0; i < insertable.size(); i++) {
+                results[insertable.get(i)] = created(insertable.get(i), saved.get(i).getUserId());
+            }
+            eventPublisher.publishEvent(UserChangedEvent.saved(toUserDTOs(saved)));
+        } catch (RuntimeException ex) {
+            logger.warn("Bulk chunk of {} users failed, retrying row by row: {}", insertable.size(), ex.getMessage());
+            insertOneByOne(users, insertable, results);
+        }
+    }
+
+    private List<Integer> rejectExisting(List<UserDTO> users, List<Integer> chunk, BulkItemResultDTO[] results) {
+        // Only keys the existence filter cannot rule out are looked up
+        List<String> usernames = new ArrayList<>(chunk.size());
+        List<String> emails = new ArrayList<>(chunk.size());
+        for (Integer index : chunk) {
+            UserDTO user = users.get(index);
+            if (userExistenceFilter.mightContainUsername(user.getUsername())) {
+                usernames.add(user.getUsername());
+            }
+            if (userExistenceFilter.mightContainEmail(user.getEmail())) {
+                emails.add(user.getEmail());
+            }
+        }
+        Set<String> takenUsernames = usernames.isEmpty() ? Set.of()
+                : new HashSet<>(userShards.findExistingUsernames(usernames, userStore::findExistingUsernames));
+        Set<String> takenEmails = emails.isEmpty() ? Set.of()
+                : new HashSet<>(userShards.findExistingEmails(emails, userStore::findExistingEmails));
+        userExistenceFilter.recordUsernameFalsePositives(usernames.size() - takenUsernames.size());
+        userExistenceFilter.recordEmailFalsePositives(emails.size() - takenEmails.size());
+        List<Integer> insertable = new ArrayList<>(chunk.size());
+        for (Integer index : chunk) {
+            UserDTO user = users.get(index);
+            if (takenUsernames.contains(user.getUsername())) {
+                results[index] = failure(index, BulkItemResultDTO.Status.CONFLICT,
+                        Map.of("username", "Username already exists"));
+            } else if (takenEmails.contains(user.getEmail())) {
+                results[index] = failure(index, BulkItemResultDTO.Status.CONFLICT,
+                        Map.of("email", "Email already exists"));
+            } else {
+                insertable.add(index);
+            }
+        }
+        return insertable;
+    }
+
+    private void insertOneByOne(List<UserDTO> users, List<Integer> indexes, BulkItemResultDTO[] results) {
+        for (Integer index : indexes) {
+            User entity = userMapper.toUser(users.get(index));
+            entity.setUserId(null);
+            userExistenceFilter.add(entity.getUsername(), entity.getEmail());
+            try {
+                User saved = userShards.insert(entity, user -> userChangeOutbox.write(
+                        () -> userStore.save(user),
+                        inserted -> UserChangedEvent.saved(List.of(userMapper.toUserDTO(inserted)))));
+                results[index] = created(index, saved.getUserId());
+                eventPublisher.publishEvent(UserChangedEvent.saved(List.of(userMapper.toUserDTO(saved))));
+            } catch (DataIntegrityViolationException ex) {
+                results[index] = failure(index, BulkItemResultDTO.Status.CONFLICT,
+                        Map.of("user", "Username or email already exists"));
+            }
+        }
+    }
+
+    private List<UserDTO> toUserDTOs(List<User> users) {
+        List<UserDTO> dtos = new ArrayList<>(users.size());
+        users.forEach(user -> dtos.add(userMapper.toUserDTO(user)));
+        return dtos;
+    }
+
+    private static BulkItemResultDTO created(int index, Long userId) {
+        return new BulkItemResultDTO(index, BulkItemResultDTO.Status.CREATED, userId, null);
+    }
+
+    private static BulkItemResultDTO failure(int index, BulkItemResultDTO.Status status, Map<String, String> errors) {
+        return new BulkItemResultDTO(index, status, null, errors);
+    }
+}
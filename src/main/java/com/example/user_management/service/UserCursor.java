@@ -0,0 +1,53 @@
+package com.example.user_management.service;
+
+import com.example.user_management.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque keyset cursor handed out by paginated user listings.
+ * <p>
+ * The cursor carries the last {@code userId} of the previous page, so the next page is a plain
+ * {@code user_id > ?} range scan on the primary key regardless of how deep the client is.
+ */
+public final class UserCursor {
+
+    private static final String VERSION_PREFIX = "u1:";
+
+    private UserCursor() {
+    }
+
+    /**
+     * Encode the cursor pointing after the given user id.
+     *
+     * @param lastUserId the last user id of the current page
+     * @return the opaque cursor
+     */
+    public static String encode(Long lastUserId) {
+        String raw = VERSION_PREFIX + lastUserId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decode a cursor into the user id to continue after.
+     *
+     * @param cursor the opaque cursor, may be null or blank for the first page
+     * @return the user id to continue after, or null for the first page
+     * @throws InvalidCursorException if the cursor was not produced by {@link #encode(Long)}
+     */
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!raw.startsWith(VERSION_PREFIX)) {
+                throw new InvalidCursorException("Invalid cursor: " + cursor);
+            }
+            return Long.parseLong(raw.substring(VERSION_PREFIX.length()));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+    }
+}
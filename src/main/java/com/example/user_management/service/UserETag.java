@@ -0,0 +1,129 @@
+package com.example.user_management.service;
+
+import com.example.user_management.exception.PreconditionFailedException;
+import com.example.user_management.repository.UserVersion;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserPageDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Builds and parses the strong entity tags of users and user pages.
+ * <p>
+ * The tag of a user is its id and version, {@code "<id>.<version>"}; versions alone repeat across users, so a
+ * tag read from one user never matches another that later has the same username. The tag of a page is a
+ * digest of the ids and versions of its users and of whether a next page exists, so it changes whenever a user
+ * on the page is updated, created or deleted. Both can be computed from the ids and versions alone, without
+ * loading and mapping the users. These are the tags of the JSON representation;
+ * {@link UserRepresentation#tag(String)} derives those of the others.
+ */
+public final class UserETag {
+
+    private UserETag() {
+    }
+
+    /**
+     * The tag of one user.
+     *
+     * @param userId  the id of the user
+     * @param version the version of the user
+     * @return the quoted entity tag
+     */
+    public static String of(Long userId, Long version) {
+        return "\"" + userId + "." + version + "\"";
+    }
+
+    /**
+     * The tag of one user.
+     *
+     * @param user the id and version of the user
+     * @return the quoted entity tag
+     */
+    public static String of(UserVersion user) {
+        return of(user.userId(), user.version());
+    }
+
+    /**
+     * The tag of one user.
+     *
+     * @param user the user
+     * @return the quoted entity tag
+     */
+    public static String of(UserDTO user) {
+        return of(user.getUserId(), user.getVersion());
+    }
+
+    /**
+     * The tag of one page of users.
+     *
+     * @param users   the ids and versions of the users on the page, in page order
+     * @param hasNext whether a next page exists
+     * @return the quoted entity tag
+     */
+    public static String ofPage(List<UserVersion> users, boolean hasNext) {
+        MessageDigest digest = sha256();
+        StringBuilder key = new StringBuilder(users.size() * 16);
+        for (UserVersion user : users) {
+            key.append(user.userId()).append(':').append(user.version()).append(',');
+        }
+        key.append(hasNext);
+        byte[] hash = digest.digest(key.toString().getBytes(StandardCharsets.US_ASCII));
+        return "\"p" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+    }
+
+    /**
+     * The tag of a loaded page of users, equal to the one computed from the ids and versions of its users.
+     *
+     * @param page the page
+     * @return the quoted entity tag
+     */
+    public static String ofPage(UserPageDTO page) {
+        List<UserVersion> users = new ArrayList<>(page.getContent().size());
+        for (UserDTO user : page.getContent()) {
+            users.add(new UserVersion(user.getUserId(), user.getVersion()));
+        }
+        return ofPage(users, page.getNextCursor() != null);
+    }
+
+    /**
+     * Parse the version an {@code If-Match} header requires of a user.
+     *
+     * @param userId  the id of the user the request writes
+     * @param ifMatch the header value, may be null
+     * @return the required version, or null if any version matches
+     * @throws PreconditionFailedException if the header is not a single tag of this user
+     */
+    public static Long parseIfMatch(Long userId, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        // If-Match uses the strong comparison, so a weak tag never matches
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            // The tag of any representation names the user and the version it was read at
+            String value = UserRepresentation.stripSuffix(tag.substring(1, tag.length() - 1));
+            int dot = value.indexOf('.');
+            try {
+                if (dot > 0 && Long.parseLong(value.substring(0, dot)) == userId) {
+                    return Long.parseLong(value.substring(dot + 1));
+                }
+            } catch (NumberFormatException ex) {
+                // fall through
+            }
+        }
+        throw new PreconditionFailedException("If-Match " + ifMatch + " does not match the user");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
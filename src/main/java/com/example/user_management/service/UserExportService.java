@@ -0,0 +1,129 @@
+package com.example.user_management.service;
+
+import com.example.user_management.repository.UserStore;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.shard.UserShards;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams the whole user table to an output stream with constant memory.
+ * <p>
+ * Users are read from the {@link UserStore} as dtos, through a forward-only database cursor or page by page from
+ * the off-heap store, and written one at a time, so neither the users nor the output accumulate on the heap.
+ * The dtos are not managed by the persistence context. With sharding the shards are exported one after another.
+ */
+@Service
+public class UserExportService {
+
+    /**
+     * Number of rows written between two explicit flushes of the output.
+     */
+    static final int FLUSH_EVERY = 1_000;
+
+    static final String CSV_HEADER = "userId,username,email,firstName,lastName,createdAt";
+
+    private final UserStore userStore;
+    private final UserShards userShards;
+    private final ObjectWriter ndjsonWriter;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Instantiates a new User export service.
+     *
+     * @param userStore    the user store
+     * @param userShards   the user shards
+     * @param objectMapper the object mapper
+     */
+    public UserExportService(UserStore userStore, UserShards userShards, ObjectMapper objectMapper) {
+        this.userStore = userStore;
+        this.userShards = userShards;
+        this.objectMapper = objectMapper;
+        this.ndjsonWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Export all users in the given format.
+     *
+     * @param format the format
+     * @param out    the output stream, left open
+     * @return the number of users written
+     * @throws IOException if writing to the output fails
+     */
+    public long export(UserFileFormat format, OutputStream out) throws IOException {
+        try (Stream<UserDTO> users = userShards.streamAll(userStore::streamAllDTOs)) {
+            return format == UserFileFormat.CSV ? writeCsv(users.iterator(), out) : writeNdjson(users.iterator(), out);
+        }
+    }
+
+    private long writeNdjson(Iterator<UserDTO> users, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        long count = 0;
+        while (users.hasNext()) {
+            UserDTO user = users.next();
+            ndjsonWriter.writeValue(generator, user);
+            generator.writeRaw('\n');
+            if (++count % FLUSH_EVERY == 0) {
+                generator.flush();
+            }
+        }
+        generator.close();
+        return count;
+    }
+
+    private long writeCsv(Iterator<UserDTO> users, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        long count = 0;
+        while (users.hasNext()) {
+            UserDTO user = users.next();
+            writer.write(String.valueOf(user.getUserId()));
+            writer.write(',');
+            writeCsvField(writer, user.getUsername());
+            writer.write(',');
+            writeCsvField(writer, user.getEmail());
+            writer.write(',');
+            writeCsvField(writer, user.getFirstName());
+            writer.write(',');
+            writeCsvField(writer, user.getLastName());
+            writer.write(',');
+            writeCsvField(writer, user.getCreatedAt() == null ? null : user.getCreatedAt().toString());
+            writer.write('\n');
+            if (++count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.user_management.service;
+
+/**
+ * The file formats users are exported to and imported from.
+ */
+public enum UserFileFormat {
+    /**
+     * One JSON object per line.
+     */
+    NDJSON("application/x-ndjson"),
+    /**
+     * Comma separated values with a header row.
+     */
+    CSV("text/csv");
+
+    private final String contentType;
+
+    UserFileFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * Gets the content type.
+     *
+     * @return the content type
+     */
+    public String getContentType() {
+        return contentType;
+    }
+}
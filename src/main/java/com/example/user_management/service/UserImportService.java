@@ -0,0 +1,487 @@
+package com.example.user_management.service;
+
+import com.example.user_management.exception.ImportJobNotFoundException;
+import com.example.user_management.exception.ImportJobStateException;
+import com.example.user_management.model.ImportJob;
+import com.example.user_management.repository.ImportJobRepository;
+import com.example.user_management.service.dto.BulkCreateResultDTO;
+import com.example.user_management.service.dto.BulkItemResultDTO;
+import com.example.user_management.service.dto.ImportErrorDTO;
+import com.example.user_management.service.dto.ImportJobDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Imports users from uploaded CSV or NDJSON files in the background.
+ * <p>
+ * The upload is spooled to disk and read record by record. Records are grouped into chunks of
+ * {@code user-management.import.chunk-size}, parsed and validated on a worker pool, and written in
+ * file order through {@link UserBulkService}, one transaction per chunk. At most two chunks per worker
+ * are in flight, so the reader blocks when writing falls behind and memory does not grow with the file.
+ * Bad records are counted and sampled on the job without failing their chunk. After every committed
+ * chunk the job row records how many records are done, which is where a resumed job picks up, and the
+ * samples so far, so nothing about a job is held in memory once its run ends.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    /**
+     * Number of rejected records kept on a job for the status resource.
+     */
+    static final int MAX_ERROR_SAMPLES = 100;
+
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    /**
+     * Number of characters a CSV field quoted across lines may span before its record is rejected.
+     */
+    public static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private final ImportJobRepository importJobRepository;
+    private final UserBulkService userBulkService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final Path spoolDirectory;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    private final ExecutorService jobExecutor;
+    private final ExecutorService validationExecutor;
+    private final Set<String> activeJobs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Instantiates a new User import service.
+     *
+     * @param importJobRepository the import job repository
+     * @param userBulkService     the user bulk service
+     * @param validator           the validator
+     * @param objectMapper        the object mapper
+     * @param spoolDirectory      the directory uploads are spooled to
+     * @param chunkSize           the number of records committed per transaction
+     * @param workers             the number of validation threads
+     * @param maxConcurrentJobs   the number of imports processed at the same time
+     */
+    public UserImportService(ImportJobRepository importJobRepository, UserBulkService userBulkService,
+                             Validator validator, ObjectMapper objectMapper,
+                             @Value("${user-management.import.directory:${java.io.tmpdir}/user-imports}")
+                             String spoolDirectory,
+                             @Value("${user-management.import.chunk-size:500}") int chunkSize,
+                             @Value("${user-management.import.workers:4}") int workers,
+                             @Value("${user-management.import.max-concurrent-jobs:2}") int maxConcurrentJobs) {
+        this.importJobRepository = importJobRepository;
+        this.userBulkService = userBulkService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.spoolDirectory = Path.of(spoolDirectory);
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = workers * 2;
+        this.jobExecutor = Executors.newFixedThreadPool(maxConcurrentJobs, namedThreads("user-import-"));
+        this.validationExecutor = Executors.newFixedThreadPool(workers, namedThreads("user-import-validate-"));
+    }
+
+    /**
+     * Spool an upload to disk and queue its import.
+     *
+     * @param format  the file format
+     * @param content the file content
+     * @return the queued import job
+     * @throws IOException if the upload cannot be spooled
+     */
+    public ImportJobDTO startImport(UserFileFormat format, InputStream content) throws IOException {
+        String jobId = UUID.randomUUID().toString();
+        Files.createDirectories(spoolDirectory);
+        Path file = spoolDirectory.resolve(jobId + "." + format.name().toLowerCase(Locale.ROOT));
+        Files.copy(content, file);
+
+        ImportJob job = new ImportJob();
+        job.setJobId(jobId);
+        job.setFormat(format);
+        job.setFilePath(file.toString());
+        job.setStatus(ImportJob.Status.QUEUED);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setUpdatedAt(job.getCreatedAt());
+        importJobRepository.save(job);
+        submit(jobId);
+        logger.info("Queued import job {} ({})", jobId, format);
+        return toImportJobDTO(job);
+    }
+
+    /**
+     * Gets an import job.
+     *
+     * @param jobId the job id
+     * @return the import job
+     */
+    public ImportJobDTO getImport(String jobId) {
+        return toImportJobDTO(findJob(jobId));
+    }
+
+    /**
+     * Resume a failed or interrupted import after its last committed chunk.
+     *
+     * @param jobId the job id
+     * @return the queued import job
+     */
+    public ImportJobDTO resumeImport(String jobId) {
+        ImportJob job = findJob(jobId);
+        if (job.getStatus() != ImportJob.Status.FAILED && job.getStatus() != ImportJob.Status.INTERRUPTED) {
+            throw new ImportJobStateException("Import job " + jobId + " is " + job.getStatus()
+                    + " and cannot be resumed");
+        }
+        job.setStatus(ImportJob.Status.QUEUED);
+        job.setMessage(null);
+        job.setUpdatedAt(LocalDateTime.now());
+        importJobRepository.save(job);
+        submit(jobId);
+        logger.info("Resuming import job {} after record {}", jobId, job.getRecordsCommitted());
+        return toImportJobDTO(job);
+    }
+
+    /**
+     * Jobs that were queued or running when the application stopped are marked interrupted so they can
+     * be resumed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markAbandonedJobsInterrupted() {
+        int abandoned = importJobRepository.updateStatus(
+                List.of(ImportJob.Status.QUEUED, ImportJob.Status.RUNNING), ImportJob.Status.INTERRUPTED);
+        if (abandoned > 0) {
+            logger.warn("Marked {} abandoned import jobs as interrupted", abandoned);
+        }
+    }
+
+    /**
+     * Stop the import threads. Running jobs end up interrupted and can be resumed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        validationExecutor.shutdownNow();
+    }
+
+    private void submit(String jobId) {
+        if (!activeJobs.add(jobId)) {
+            throw new ImportJobStateException("Import job " + jobId + " is already running");
+        }
+        jobExecutor.execute(() -> run(jobId));
+    }
+
+    private void run(String jobId) {
+        ImportJob job = findJob(jobId);
+        Deque<Future<ImportChunk>> inFlight = new ArrayDeque<>();
+        Path file = Path.of(job.getFilePath());
+        updateStatus(job, ImportJob.Status.RUNNING, null);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            RecordReader records = new RecordReader(reader, job.getFormat());
+            Map<String, Integer> columns = records.getColumns();
+            records.skip(job.getRecordsCommitted());
+            long nextRecord = job.getRecordsCommitted() + 1;
+            List<String> chunk;
+            while (!(chunk = records.read(chunkSize)).isEmpty()) {
+                long firstRecord = nextRecord;
+                List<String> chunkRecords = chunk;
+                nextRecord += chunk.size();
+                inFlight.add(validationExecutor.submit(
+                        () -> parseAndValidate(job.getFormat(), columns, firstRecord, chunkRecords)));
+                if (inFlight.size() >= maxChunksInFlight) {
+                    commit(job, inFlight.poll().get());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                commit(job, inFlight.poll().get());
+            }
+            Files.deleteIfExists(file);
+            updateStatus(job, ImportJob.Status.COMPLETED, null);
+            logger.info("Import job {} completed: {} created, {} failed", jobId, job.getCreated(), job.getFailed());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            inFlight.forEach(future -> future.cancel(true));
+            updateStatus(job, ImportJob.Status.INTERRUPTED, "Interrupted by application shutdown");
+        } catch (Exception ex) {
+            inFlight.forEach(future -> future.cancel(true));
+            logger.error("Import job {} failed after record {}: {}", jobId, job.getRecordsCommitted(),
+                    ex.getMessage(), ex);
+            updateStatus(job, ImportJob.Status.FAILED, ex.getMessage());
+        } finally {
+            activeJobs.remove(jobId);
+        }
+    }
+
+    private ImportChunk parseAndValidate(UserFileFormat format, Map<String, Integer> columns, long firstRecord,
+                                         List<String> records) {
+        List<UserDTO> users = new ArrayList<>(records.size());
+        long[] recordNumbers = new long[records.size()];
+        List<ImportErrorDTO> errors = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            long recordNumber = firstRecord + i;
+            try {
+                UserDTO user = format == UserFileFormat.CSV
+                        ? parseCsvRecord(columns, records.get(i))
+                        : objectMapper.readValue(records.get(i), UserDTO.class);
+                Set<ConstraintViolation<UserDTO>> violations = validator.validate(user);
+                if (violations.isEmpty()) {
+                    recordNumbers[users.size()] = recordNumber;
+                    users.add(user);
+                } else {
+                    errors.add(new ImportErrorDTO(recordNumber, violations.stream()
+                            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining("; "))));
+                }
+            } catch (IOException | RuntimeException ex) {
+                errors.add(new ImportErrorDTO(recordNumber, "Unreadable record: " + ex.getMessage()));
+            }
+        }
+        return new ImportChunk(records.size(), users, recordNumbers, errors);
+    }
+
+    private void commit(ImportJob job, ImportChunk chunk) {
+        BulkCreateResultDTO result = userBulkService.createValidUsers(chunk.users());
+        List<ImportErrorDTO> errors = new ArrayList<>(errorSamples(job));
+        long failed = chunk.errors().size();
+        chunk.errors().forEach(error -> sampleError(errors, error));
+        for (BulkItemResultDTO item : result.getResults()) {
+            if (item.getStatus() != BulkItemResultDTO.Status.CREATED) {
+                failed++;
+                sampleError(errors, new ImportErrorDTO(chunk.recordNumbers()[item.getIndex()],
+                        item.getStatus() + ": " + String.join("; ", item.getErrors().values())));
+            }
+        }
+        job.setRecordsCommitted(job.getRecordsCommitted() + chunk.size());
+        job.setCreated(job.getCreated() + result.getCreated());
+        job.setFailed(job.getFailed() + failed);
+        job.setErrorSamples(errors);
+        job.setUpdatedAt(LocalDateTime.now());
+        importJobRepository.save(job);
+    }
+
+    private static void sampleError(List<ImportErrorDTO> errors, ImportErrorDTO error) {
+        if (errors.size() < MAX_ERROR_SAMPLES) {
+            errors.add(error);
+        }
+    }
+
+    private void updateStatus(ImportJob job, ImportJob.Status status, String message) {
+        job.setStatus(status);
+        job.setMessage(message == null || message.length() <= MAX_MESSAGE_LENGTH
+                ? message : message.substring(0, MAX_MESSAGE_LENGTH));
+        job.setUpdatedAt(LocalDateTime.now());
+        importJobRepository.save(job);
+    }
+
+    private ImportJob findJob(String jobId) {
+        return importJobRepository.findById(jobId)
+                .orElseThrow(() -> new ImportJobNotFoundException("Import job " + jobId + " not found"));
+    }
+
+    private static ImportJobDTO toImportJobDTO(ImportJob job) {
+        return new ImportJobDTO(job.getJobId(), job.getFormat(), job.getStatus(), job.getRecordsCommitted(),
+                job.getCreated(), job.getFailed(), job.getMessage(), List.copyOf(errorSamples(job)),
+                job.getCreatedAt(), job.getUpdatedAt());
+    }
+
+    private static List<ImportErrorDTO> errorSamples(ImportJob job) {
+        // Null for jobs saved before the samples were stored
+        return job.getErrorSamples() == null ? List.of() : job.getErrorSamples();
+    }
+
+    private static UserDTO parseCsvRecord(Map<String, Integer> columns, String record) {
+        List<String> fields = splitCsvRecord(record);
+        UserDTO user = new UserDTO();
+        user.setUsername(csvField(columns, fields, "username"));
+        user.setEmail(csvField(columns, fields, "email"));
+        user.setFirstName(csvField(columns, fields, "firstName"));
+        user.setLastName(csvField(columns, fields, "lastName"));
+        String createdAt = csvField(columns, fields, "createdAt");
+        user.setCreatedAt(createdAt == null ? null : LocalDateTime.parse(createdAt));
+        return user;
+    }
+
+    private static String csvField(Map<String, Integer> columns, List<String> fields, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    /**
+     * Split one CSV record into fields, honouring quoted fields with escaped quotes, commas and newlines.
+     *
+     * @param record the record
+     * @return the fields
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    static List<String> splitCsvRecord(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Quoted field is not closed");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * One chunk of parsed records: the valid users with their record numbers, and the rejected records.
+     */
+    private record ImportChunk(int size, List<UserDTO> users, long[] recordNumbers, List<ImportErrorDTO> errors) {
+    }
+
+    /**
+     * Reads raw records from an import file, one line per record except for CSV fields quoted across lines.
+     * A quoted field that is not closed within {@link #MAX_RECORD_LENGTH} characters, or before the end of the
+     * file, leaves its first line as a record of its own, which fails to parse, and reading goes on with the
+     * next line.
+     */
+    private static final class RecordReader {
+
+        private final BufferedReader reader;
+        private final UserFileFormat format;
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        RecordReader(BufferedReader reader, UserFileFormat format) throws IOException {
+            this.reader = reader;
+            this.format = format;
+            if (format == UserFileFormat.CSV) {
+                String header = next();
+                if (header == null) {
+                    throw new IOException("The CSV file is empty");
+                }
+                List<String> names = splitCsvRecord(header.replace("\uFEFF", ""));
+                for (int i = 0; i < names.size(); i++) {
+                    columns.put(names.get(i).trim(), i);
+                }
+                if (!columns.containsKey("username") || !columns.containsKey("email")) {
+                    throw new IOException("The CSV header must contain the username and email columns");
+                }
+            }
+        }
+
+        Map<String, Integer> getColumns() {
+            return columns;
+        }
+
+        void skip(long records) throws IOException {
+            for (long i = 0; i < records && next() != null; i++) {
+                // skip records committed by an earlier run
+            }
+        }
+
+        List<String> read(int max) throws IOException {
+            List<String> records = new ArrayList<>(max);
+            String record;
+            while (records.size() < max && (record = next()) != null) {
+                records.add(record);
+            }
+            return records;
+        }
+
+        private String next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && line.isBlank());
+            if (line == null || format != UserFileFormat.CSV || !hasOpenQuote(line)) {
+                return line;
+            }
+            // Follow the quote parity character by character, so the record is read once and never grows past
+            // the limit
+            reader.mark(MAX_RECORD_LENGTH);
+            StringBuilder record = new StringBuilder(line).append('\n');
+            boolean open = true;
+            int consumed = 0;
+            int c;
+            while ((c = reader.read()) != -1 && ++consumed < MAX_RECORD_LENGTH) {
+                if (c == '\n' && !open) {
+                    return record.toString();
+                }
+                if (c == '"') {
+                    open = !open;
+                }
+                if (c != '\r') {
+                    record.append((char) c);
+                }
+            }
+            if (c == -1 && !open) {
+                return record.toString();
+            }
+            reader.reset();
+            return line;
+        }
+
+        private static boolean hasOpenQuote(String record) {
+            int quotes = 0;
+            for (int i = 0; i < record.length(); i++) {
+                if (record.charAt(i) == '"') {
+                    quotes++;
+                }
+            }
+            return quotes % 2 == 1;
+        }
+    }
+}
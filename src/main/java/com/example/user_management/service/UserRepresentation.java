@@ -0,0 +1,100 @@
+package com.example.user_management.service;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The media types user bodies are negotiated in. The same user has different bytes in each, so each has its
+ * own entity tags: JSON keeps the plain tags of {@link UserETag}, the others add a suffix to them.
+ */
+public enum UserRepresentation {
+
+    /**
+     * JSON, also chosen for {@code application/*+json}.
+     */
+    JSON(MediaType.APPLICATION_JSON, ""),
+
+    /**
+     * Smile, binary JSON.
+     */
+    SMILE(new MediaType("application", "x-jackson-smile"), "-smile"),
+
+    /**
+     * CBOR.
+     */
+    CBOR(MediaType.APPLICATION_CBOR, "-cbor");
+
+    private static final MediaType JSON_SUFFIX = new MediaType("application", "*+json");
+
+    private final MediaType mediaType;
+    private final String tagSuffix;
+
+    UserRepresentation(MediaType mediaType, String tagSuffix) {
+        this.mediaType = mediaType;
+        this.tagSuffix = tagSuffix;
+    }
+
+    /**
+     * Choose the representation of a response like content negotiation does: the most preferred accepted
+     * media type decides, and of the representations it allows the first available one wins. Without an
+     * Accept header, or without an acceptable representation, this is JSON; in the latter case the request is
+     * refused when the body is written.
+     *
+     * @param accept    the accepted media types, empty if any is accepted
+     * @param available the representations the response can be written in, in order of preference
+     * @return the representation
+     */
+    public static UserRepresentation negotiate(List<MediaType> accept, UserRepresentation... available) {
+        List<MediaType> accepted = new ArrayList<>(accept);
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType type : accepted) {
+            for (UserRepresentation representation : available) {
+                if (representation.isCompatibleWith(type)) {
+                    return representation;
+                }
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * The entity tag of this representation.
+     *
+     * @param tag the quoted tag of the JSON representation, from {@link UserETag}
+     * @return the quoted tag of this representation
+     */
+    public String tag(String tag) {
+        return tagSuffix.isEmpty() ? tag : tag.substring(0, tag.length() - 1) + tagSuffix + "\"";
+    }
+
+    /**
+     * Remove the suffix of any representation from an unquoted tag.
+     *
+     * @param tag the unquoted tag
+     * @return the unquoted tag of the JSON representation
+     */
+    static String stripSuffix(String tag) {
+        for (UserRepresentation representation : values()) {
+            if (!representation.tagSuffix.isEmpty() && tag.endsWith(representation.tagSuffix)) {
+                return tag.substring(0, tag.length() - representation.tagSuffix.length());
+            }
+        }
+        return tag;
+    }
+
+    /**
+     * Gets media type.
+     *
+     * @return the media type
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    private boolean isCompatibleWith(MediaType type) {
+        return type.isCompatibleWith(mediaType) || (this == JSON && type.isCompatibleWith(JSON_SUFFIX));
+    }
+}
@@ -1,33 +1,89 @@
 package com.example.user_management.service;
 
+import com.example.user_management.exception.PreconditionFailedException;
 import com.example.user_management.exception.UserNotFoundException;
 import com.example.user_management.model.User;
 import com.example.user_management.service.dto.UserDTO;
-import com.example.user_management.repository.UserRepository;
+import com.example.user_management.service.dto.UserFilter;
+import com.example.user_management.service.dto.UserPageDTO;
+import com.example.user_management.repository.UserStore;
+import com.example.user_management.repository.UserVersion;
+import com.example.user_management.service.cache.UserCache;
+import com.example.user_management.service.cache.UserExistenceFilter;
+import com.example.user_management.service.event.UserChangeOutbox;
+import com.example.user_management.service.event.UserChangedEvent;
 import com.example.user_management.service.mapper.UserMapper;
+import com.example.user_management.service.shard.UserShards;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 /**
- * The type User service.
+ * The type User service. Every public method is timed as {@code user.service}, tagged with the method and
+ * the exception it ended with.
+ * <p>
+ * Users are kept in the {@link UserStore}, the {@code users} table unless the off-heap store is enabled. Reads
+ * use its dto queries, which run in read-only transactions and never load managed entities. Only the write
+ * paths go through {@link User} and {@link UserMapper}. Every query runs through {@link UserShards}, on the
+ * shard that holds the user or on all shards. Every write records its changes through {@link UserChangeOutbox}
+ * in the same transaction; the off-heap store applies its writes even if that transaction rolls back.
  */
 @Service
+@Timed(value = "user.service", description = "Time spent in UserService methods")
 public class UserService {
 
-    private final UserRepository userRepository;
+    /**
+     * Page size used when the caller does not ask for one.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * Upper bound on the page size a caller can request.
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final UserStore userStore;
+    private final UserShards userShards;
     private final UserMapper userMapper;
+    private final UserCache userCache;
+    private final UserExistenceFilter userExistenceFilter;
+    private final UserChangeOutbox userChangeOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
 
     /**
      * Instantiates a new User service.
      *
-     * @param userMapper     the user mapper
-     * @param userRepository the user repository
+     * @param userMapper          the user mapper
+     * @param userStore           the user store
+     * @param userShards          the user shards
+     * @param userCache           the user cache
+     * @param userExistenceFilter the user existence filter
+     * @param userChangeOutbox    the user change outbox
+     * @param eventPublisher      the event publisher
+     * @param validator           the validator
      */
-    public UserService(UserMapper userMapper, UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public UserService(UserMapper userMapper, UserStore userStore, UserShards userShards,
+                       UserCache userCache, UserExistenceFilter userExistenceFilter,
+                       UserChangeOutbox userChangeOutbox, ApplicationEventPublisher eventPublisher,
+                       Validator validator) {
+        this.userStore = userStore;
+        this.userShards = userShards;
         this.userMapper = userMapper;
+        this.userCache = userCache;
+        this.userExistenceFilter = userExistenceFilter;
+        this.userChangeOutbox = userChangeOutbox;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
     }
 
     /**
@@ -36,8 +92,46 @@ public class UserService {
      * @return the all users
      */
     public List<UserDTO> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(userMapper::toUserDTO).collect(Collectors.toList());
+        return userShards.findOrdered(userStore::findAllDTOs, UserDTO::getUserId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets one keyset page of users ordered by user id.
+     * <p>
+     * Fetches one row more than requested to find out whether a next page exists without a count query.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the page size, clamped to {@link #MAX_PAGE_SIZE}
+     * @param filter the filter, may be null
+     * @return the user page
+     */
+    public UserPageDTO getUsers(String cursor, int limit, UserFilter filter) {
+        int pageSize = pageSize(limit);
+        Long after = UserCursor.decode(cursor);
+        List<UserDTO> users = userShards.findOrdered(() -> userStore.findDTOPage(after, filter, pageSize + 1),
+                UserDTO::getUserId, pageSize + 1);
+        boolean hasNext = users.size() > pageSize;
+        List<UserDTO> content = hasNext ? users.subList(0, pageSize) : users;
+        String nextCursor = hasNext ? UserCursor.encode(content.get(content.size() - 1).getUserId()) : null;
+        return new UserPageDTO(content, nextCursor, content.size());
+    }
+
+    /**
+     * Gets the entity tag of the page {@link #getUsers(String, int, UserFilter)} would return, from the ids
+     * and versions of its users only.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the page size, clamped to {@link #MAX_PAGE_SIZE}
+     * @param filter the filter, may be null
+     * @return the entity tag of the page
+     */
+    public String getUsersETag(String cursor, int limit, UserFilter filter) {
+        int pageSize = pageSize(limit);
+        Long after = UserCursor.decode(cursor);
+        List<UserVersion> users = userShards.findOrdered(
+                () -> userStore.findPageVersions(after, filter, pageSize + 1), UserVersion::userId, pageSize + 1);
+        boolean hasNext = users.size() > pageSize;
+        return UserETag.ofPage(hasNext ? users.subList(0, pageSize) : users, hasNext);
     }
 
     /**
@@ -47,11 +141,50 @@ public class UserService {
      * @return the user by id
      */
     public UserDTO getUserById(Long id) {
-        return userRepository.findById(id)
-                .map(userMapper::toUserDTO)
+        UserDTO user = userCache.getById(id,
+                key -> userShards.findById(key, () -> userStore.findDTOById(key)).orElse(null));
+        if (user == null) {
+            throw new UserNotFoundException("User with ID " + id + " not found");
+        }
+        return user;
+    }
+
+    /**
+     * Gets the version of a user by id, from the cache or with a version-only query.
+     *
+     * @param id the id
+     * @return the version
+     */
+    public Long getUserVersion(Long id) {
+        UserDTO cached = userCache.peekById(id);
+        if (cached != null) {
+            return cached.getVersion();
+        }
+        return userShards.findById(id, () -> userStore.findVersionById(id))
                 .orElseThrow(() -> new UserNotFoundException("User with ID " + id + " not found"));
     }
 
+    /**
+     * Gets the id and version of a user by username, from the cache or with a version-only query.
+     *
+     * @param username the username
+     * @return the id and version
+     */
+    public UserVersion getUserVersionByUserName(String username) {
+        UserDTO cached = userCache.peekByUsername(username);
+        if (cached != null) {
+            return new UserVersion(cached.getUserId(), cached.getVersion());
+        }
+        UserVersion version = userExistenceFilter.mightContainUsername(username)
+                ? userShards.findByUsername(username, () -> userStore.findVersionByUsername(username))
+                        .orElse(null)
+                : null;
+        if (version == null) {
+            throw new UserNotFoundException("User with username " + username + " not found");
+        }
+        return version;
+    }
+
     /**
      * Gets user by user name.
      *
@@ -59,10 +192,33 @@ public class UserService {
      * @return the user by user name
      */
     public UserDTO getUserByUserName(String username) {
-        return userRepository.findByUsername(username)
-                .map(userMapper::toUserDTO)
-                .orElseThrow(() -> new UserNotFoundException("User with username " + username + " not found"));
+        UserDTO user = findByUserName(username);
+        if (user == null) {
+            throw new UserNotFoundException("User with username " + username + " not found");
+        }
+        return user;
+    }
 
+    /**
+     * Whether a user with the username exists. Most unknown usernames are answered without a database query.
+     *
+     * @param username the username
+     * @return true if the user exists
+     */
+    public boolean userNameExists(String username) {
+        return findByUserName(username) != null;
+    }
+
+    private UserDTO findByUserName(String username) {
+        if (!userExistenceFilter.mightContainUsername(username)) {
+            return null;
+        }
+        UserDTO user = userCache.getByUsername(username,
+                key -> userShards.findByUsername(key, () -> userStore.findDTOByUsername(key)).orElse(null));
+        if (user == null) {
+            userExistenceFilter.recordUsernameFalsePositives(1);
+        }
+        return user;
     }
 
 
@@ -74,8 +230,13 @@ public class UserService {
      */
     public UserDTO createUser(UserDTO userDTO) {
         User user = userMapper.toUser(userDTO);
-        user = userRepository.save(user);
-        return userMapper.toUserDTO(user);
+        userExistenceFilter.add(user.getUsername(), user.getEmail());
+        user = userShards.insert(user, newUser -> userChangeOutbox.write(() -> userStore.save(newUser),
+                saved -> UserChangedEvent.saved(List.of(userMapper.toUserDTO(saved)))));
+        userCache.evict(user.getUserId(), user.getUsername());
+        UserDTO created = userMapper.toUserDTO(user);
+        eventPublisher.publishEvent(UserChangedEvent.saved(List.of(created)));
+        return created;
     }
 
     /**
@@ -86,33 +247,133 @@ public class UserService {
      * @return the user dto
      */
     public UserDTO updateUser(Long id, UserDTO updatedUser) {
+        return updateUser(id, updatedUser, null);
+    }
+
+    /**
+     * Update user user dto if it still has the expected version. A concurrent update between reading and
+     * writing the user fails with an optimistic locking failure.
+     *
+     * @param id              the id
+     * @param updatedUser     the updated user
+     * @param expectedVersion the version the caller last read, or null to update any version
+     * @return the user dto
+     */
+    public UserDTO updateUser(Long id, UserDTO updatedUser, Long expectedVersion) {
         User user = findByUserId(id);
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new PreconditionFailedException("User with ID " + id + " is at version " + user.getVersion()
+                    + ", not " + expectedVersion);
+        }
+        String previousUsername = user.getUsername();
         user.setUsername(updatedUser.getUsername());
         user.setEmail(updatedUser.getEmail());
         user.setFirstName(updatedUser.getFirstName());
         user.setLastName(updatedUser.getLastName());
-        user = userRepository.save(user);
-        return userMapper.toUserDTO(user);
+        userExistenceFilter.add(user.getUsername(), user.getEmail());
+        User changed = user;
+        user = userShards.writeUser(id, changed.getUsername(), changed.getEmail(),
+                () -> userChangeOutbox.write(() -> userStore.save(changed),
+                        saved -> UserChangedEvent.saved(List.of(userMapper.toUserDTO(saved)))),
+                saved -> true);
+        userCache.evict(id, previousUsername, user.getUsername());
+        UserDTO updated = userMapper.toUserDTO(user);
+        eventPublisher.publishEvent(UserChangedEvent.saved(List.of(updated)));
+        return updated;
     }
 
     /**
-     * Delete user.
+     * Set the non-null username, email, first name and last name of the changes on a user with a single
+     * UPDATE statement, without reading the user first. Only on failure is the version read, to tell a
+     * missing user from a version mismatch.
+     *
+     * @param id              the id
+     * @param changes         the fields to change
+     * @param expectedVersion the version the caller last read, or null to update any version
+     * @return the new version
+     */
+    public Long patchUser(Long id, UserDTO changes, Long expectedVersion) {
+        validatePresentFields(changes);
+        userExistenceFilter.add(changes.getUsername(), changes.getEmail());
+        Long version = userShards.writeUser(id, changes.getUsername(), changes.getEmail(),
+                () -> userChangeOutbox.write(() -> updateFields(id, changes, expectedVersion),
+                        newVersion -> newVersion != null ? UserChangedEvent.patched(patched(id, changes, newVersion))
+                                : null),
+                Objects::nonNull);
+        if (version == null) {
+            Long current = userShards.findById(id, () -> userStore.findVersionById(id))
+                    .orElseThrow(() -> new UserNotFoundException("User with ID " + id + " not found"));
+            throw new PreconditionFailedException("User with ID " + id + " is at version " + current
+                    + ", not " + expectedVersion);
+        }
+        userCache.evictUnread(id, changes.getUsername());
+        eventPublisher.publishEvent(UserChangedEvent.patched(patched(id, changes, version)));
+        return version;
+    }
+
+    /**
+     * Run the UPDATE of a patch.
+     *
+     * @return the new version, or null if no user was updated
+     */
+    private Long updateFields(Long id, UserDTO changes, Long expectedVersion) {
+        if (userStore.updateFields(id, changes, expectedVersion) == 0) {
+            return null;
+        }
+        if (expectedVersion != null) {
+            return expectedVersion + 1;
+        }
+        // Read in the transaction of the UPDATE, which still holds the row lock, so this is the version it wrote
+        return userStore.findVersionById(id).orElseThrow();
+    }
+
+    private static UserDTO patched(Long id, UserDTO changes, Long version) {
+        return new UserDTO(id, changes.getUsername(), changes.getEmail(), changes.getFirstName(),
+                changes.getLastName(), null, version);
+    }
+
+    /**
+     * Delete user with a single DELETE statement, without reading it first.
      *
      * @param id the id
      */
     public void deleteUser(Long id) {
-        User user = findByUserId(id);
-        userRepository.delete(user);
+        int deleted = userShards.writeUser(id, null, null,
+                () -> userChangeOutbox.write(() -> userStore.deleteUserById(id),
+                        count -> count > 0 ? UserChangedEvent.deleted(id) : null),
+                count -> count > 0);
+        if (deleted == 0) {
+            throw new UserNotFoundException("User with ID " + id + " not found");
+        }
+        userShards.unregister(id);
+        userCache.evictUnread(id);
+        eventPublisher.publishEvent(UserChangedEvent.deleted(id));
+    }
+
+    private void validatePresentFields(UserDTO changes) {
+        Set<ConstraintViolation<UserDTO>> violations = new HashSet<>();
+        for (String field : List.of("username", "email", "firstName", "lastName")) {
+            violations.addAll(validator.validateProperty(changes, field));
+        }
+        // Absent fields are left unchanged, so only the constraints of supplied fields apply
+        violations.removeIf(violation -> violation.getInvalidValue() == null);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+    }
+
+    private static int pageSize(int limit) {
+        return limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
     }
 
     /**
-     * Find by user id user.
+     * Find by user id user, reading the primary.
      *
      * @param id the id
      * @return the user
      */
     public User findByUserId(Long id) {
-        return userRepository.findById(id)
+        return userShards.writeUser(id, null, null, () -> userStore.findByIdForWrite(id), Optional::isPresent)
                 .orElseThrow(() -> new UserNotFoundException("User with ID " + id + " not found"));
     }
 }
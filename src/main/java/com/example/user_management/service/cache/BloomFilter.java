@@ -0,0 +1,144 @@
+package com.example.user_management.service.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over strings. {@link #mightContain(String)} never returns false for a string that
+ * was added, and returns true for a string that was not added with roughly the configured probability as
+ * long as no more than the expected number of strings were added.
+ */
+public final class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final AtomicLong bitsSet = new AtomicLong();
+    private final long bitCount;
+    private final int hashFunctions;
+    private final long expectedInsertions;
+
+    private BloomFilter(long expectedInsertions, long bitCount, int hashFunctions) {
+        this.expectedInsertions = expectedInsertions;
+        this.bitCount = bitCount;
+        this.hashFunctions = hashFunctions;
+        this.words = new AtomicLongArray(Math.toIntExact((bitCount + 63) / 64));
+    }
+
+    /**
+     * Create a filter sized for the given number of strings and false-positive probability.
+     *
+     * @param expectedInsertions the expected number of strings
+     * @param fpp                the false-positive probability at that number of strings
+     * @return the bloom filter
+     */
+    public static BloomFilter create(long expectedInsertions, double fpp) {
+        long n = Math.max(1, expectedInsertions);
+        long bitCount = Math.max(64, (long) Math.ceil(-n * Math.log(fpp) / (LN2 * LN2)));
+        int hashFunctions = Math.max(1, (int) Math.round((double) bitCount / n * LN2));
+        return new BloomFilter(n, bitCount, hashFunctions);
+    }
+
+    /**
+     * Add a string.
+     *
+     * @param value the value
+     */
+    public void add(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            set(Math.floorMod(h1 + i * h2, bitCount));
+        }
+    }
+
+    /**
+     * Whether the string might have been added.
+     *
+     * @param value the value
+     * @return false if the string was certainly not added
+     */
+    public boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimate the current false-positive probability from the fraction of bits set.
+     *
+     * @return the estimated false-positive probability
+     */
+    public double estimatedFalsePositiveRate() {
+        return Math.pow((double) bitsSet.get() / bitCount, hashFunctions);
+    }
+
+    /**
+     * Gets the number of strings the filter was sized for.
+     *
+     * @return the expected insertions
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * Gets the number of bits.
+     *
+     * @return the bit count
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * Gets the number of hash functions.
+     *
+     * @return the hash functions
+     */
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    private void set(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        while (true) {
+            long current = words.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+            if (words.compareAndSet(word, current, current | mask)) {
+                bitsSet.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * FNV-1a over the characters, finished with the MurmurHash3 64-bit mixer.
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
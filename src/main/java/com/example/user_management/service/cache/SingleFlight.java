@@ -0,0 +1,142 @@
+package com.example.user_management.service.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the load, and callers arriving while it
+ * is in flight wait for it and get its result or its exception instead of loading again.
+ * <p>
+ * Every load is tagged with a generation, and a caller only joins a load of its own generation. Callers pass
+ * the write epoch of {@link UserCache}, so a caller that starts after a write never gets the result of a load
+ * that started before it. The number of loads in flight is bounded; beyond the bound callers load on their own.
+ * Waiting callers block on a future, not on a lock, so virtual threads stay unpinned.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final int maxInFlight;
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * Instantiates a new Single flight.
+     *
+     * @param maxInFlight the maximum number of keys loaded at once, 0 to disable coalescing
+     */
+    public SingleFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Load a value, or wait for the load of the same key and generation already in flight.
+     *
+     * @param key        the key
+     * @param generation the generation the caller may see results of
+     * @param loader     the loader
+     * @return the loaded value
+     */
+    public V load(K key, long generation, Function<K, V> loader) {
+        if (maxInFlight == 0) {
+            return loader.apply(key);
+        }
+        Flight<V> mine = new Flight<>(generation);
+        Flight<V> flight = inFlight.compute(key, (k, current) -> {
+            if (current != null && current.generation == generation) {
+                return current;
+            }
+            // A new key beyond the bound is not tracked; a stale load of the key is replaced by this one
+            return current == null && inFlight.size() >= maxInFlight ? null : mine;
+        });
+        if (flight == null) {
+            overflows.increment();
+            return loader.apply(key);
+        }
+        if (flight != mine) {
+            coalesced.increment();
+            return flight.await();
+        }
+        loads.increment();
+        try {
+            V value = loader.apply(key);
+            mine.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            mine.result.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Gets the number of keys being loaded.
+     *
+     * @return the number of loads in flight
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Gets the number of loads that ran.
+     *
+     * @return the number of loads
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Gets the number of callers that waited for a load in flight instead of loading.
+     *
+     * @return the number of coalesced callers
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Gets the number of callers that loaded on their own because too many loads were in flight.
+     *
+     * @return the number of overflows
+     */
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    private static final class Flight<V> {
+
+        private final long generation;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private Flight(long generation) {
+            this.generation = generation;
+        }
+
+        private V await() {
+            try {
+                return result.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a load in flight", ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (ex.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException("Load in flight failed", ex.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.user_management.service.cache;
+
+import com.example.user_management.datasource.ReadYourWrites;
+import com.example.user_management.service.dto.CacheStatsDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of users keyed by id and by username.
+ * <p>
+ * Both maps are size-bounded and expire entries a fixed time after they were loaded. Loads run outside
+ * the cache's locks, since a loader blocking on JDBC inside a compute would pin a virtual thread to its
+ * carrier. Instead every eviction advances a write epoch, and a loaded user is only stored if no
+ * eviction happened since its load started; a writer that invalidates after committing can therefore
+ * never be overwritten by a reader that loaded the old row. A {@code max-size} of 0 disables caching.
+ * <p>
+ * A load that starts after the eviction is not covered by the epoch, and with a read replica it could read the
+ * row the replica has not caught up with yet and cache it for the whole ttl. Misses of a user written within
+ * the last {@code replica-lag} are therefore loaded from the primary, see {@link ReadYourWrites#onPrimary}.
+ * <p>
+ * Concurrent misses on the same key share one load through {@link SingleFlight}, also with caching disabled,
+ * so a burst of requests for one user sends one query instead of one per request.
+ * <p>
+ * The usernames a user is cached under are tracked by id, so a user written without being read can be
+ * evicted from the username map without scanning it.
+ * <p>
+ * Cached {@link UserDTO} instances are shared between callers and must not be modified.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+    private final Cache<Long, UserDTO> byId;
+    private final Cache<String, UserDTO> byUsername;
+    private final SingleFlight<Long, UserDTO> byIdLoads;
+    private final SingleFlight<String, UserDTO> byUsernameLoads;
+    private final AtomicLong writeEpoch = new AtomicLong();
+    private final Map<Long, Set<String>> usernamesById = new ConcurrentHashMap<>();
+    private final Cache<Object, Boolean> recentWrites;
+
+    /**
+     * Instantiates a new User cache.
+     *
+     * @param maxSize          the maximum number of entries per key type
+     * @param ttl              how long an entry is served after it was loaded
+     * @param maxLoadsInFlight the maximum number of keys loaded at once per key type, 0 to load every miss
+     * @param replicaLag       how long after a write misses of the user are loaded from the primary
+     */
+    public UserCache(@Value("${user-management.cache.max-size:100000}") long maxSize,
+                     @Value("${user-management.cache.ttl:5m}") Duration ttl,
+                     @Value("${user-management.cache.max-loads-in-flight:10000}") int maxLoadsInFlight,
+                     @Value("${user-management.cache.replica-lag:5s}") Duration replicaLag) {
+        this.byId = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        this.byUsername = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats()
+                .<String, UserDTO>evictionListener((username, user, cause) -> unlink(username, user))
+                .build();
+        this.byIdLoads = new SingleFlight<>(maxLoadsInFlight);
+        this.byUsernameLoads = new SingleFlight<>(maxLoadsInFlight);
+        this.recentWrites = Caffeine.newBuilder().maximumSize(replicaLag.isPositive() ? maxSize : 0)
+                .expireAfterWrite(replicaLag).build();
+    }
+
+    /**
+     * Gets a user by id, loading it on a miss. Loader results of null are not cached.
+     *
+     * @param id     the id
+     * @param loader the loader
+     * @return the user, or null if the loader found none
+     */
+    public UserDTO getById(Long id, Function<Long, UserDTO> loader) {
+        return getOrLoad(byId, byIdLoads, id, loader, (key, previous, user) -> {
+        });
+    }
+
+    /**
+     * Gets a user by username, loading it on a miss. Loader results of null are not cached.
+     *
+     * @param username the username
+     * @param loader   the loader
+     * @return the user, or null if the loader found none
+     */
+    public UserDTO getByUsername(String username, Function<String, UserDTO> loader) {
+        return getOrLoad(byUsername, byUsernameLoads, username, loader, this::link);
+    }
+
+    /**
+     * Gets users by id, loading all missing ones with one call to the loader.
+     *
+     * @param ids    the ids
+     * @param loader loads the users of the missing ids; ids without a user are left out
+     * @return the users by id, without the ids that were not found
+     */
+    public Map<Long, UserDTO> getAllById(Collection<Long> ids, Function<Set<Long>, Map<Long, UserDTO>> loader) {
+        return getAllOrLoad(byId, ids, loader, (key, previous, user) -> {
+        });
+    }
+
+    /**
+     * Gets users by username, loading all missing ones with one call to the loader.
+     *
+     * @param usernames the usernames
+     * @param loader    loads the users of the missing usernames; usernames without a user are left out
+     * @return the users by username, without the usernames that were not found
+     */
+    public Map<String, UserDTO> getAllByUsername(Collection<String> usernames,
+                                                 Function<Set<String>, Map<String, UserDTO>> loader) {
+        return getAllOrLoad(byUsername, usernames, loader, this::link);
+    }
+
+    /**
+     * Gets a cached user by id without loading it.
+     *
+     * @param id the id
+     * @return the user, or null if not cached
+     */
+    public UserDTO peekById(Long id) {
+        return byId.getIfPresent(id);
+    }
+
+    /**
+     * Gets a cached user by username without loading it.
+     *
+     * @param username the username
+     * @return the user, or null if not cached
+     */
+    public UserDTO peekByUsername(String username) {
+        return byUsername.getIfPresent(username);
+    }
+
+    /**
+     * Evict a user after it was written. Besides the given usernames, the username of the cached id
+     * entry is evicted too, so a rename never leaves the old username pointing at the user.
+     *
+     * @param id        the user id
+     * @param usernames the usernames the user had before and after the write
+     */
+    public void evict(Long id, String... usernames) {
+        // Recorded before the epoch moves, so a load either sees the new epoch's eviction or goes to the primary
+        UserDTO cached = byId.getIfPresent(id);
+        recordWrite(id);
+        recordWrite(cached != null ? cached.getUsername() : null);
+        for (String username : usernames) {
+            recordWrite(username);
+        }
+        writeEpoch.incrementAndGet();
+        cached = byId.getIfPresent(id);
+        byId.invalidate(id);
+        if (cached != null) {
+            invalidateUsername(cached.getUsername(), null);
+        }
+        for (String username : usernames) {
+            if (username != null) {
+                invalidateUsername(username, null);
+            }
+        }
+    }
+
+    /**
+     * Evict a user after it was written without being read, so its previous username is unknown. Besides the
+     * given usernames, evicts every username the user is cached under.
+     *
+     * @param id        the user id
+     * @param usernames the usernames the user had after the write, if it changed
+     */
+    public void evictUnread(Long id, String... usernames) {
+        Set<String> cached = usernamesById.get(id);
+        if (cached != null) {
+            cached.forEach(this::recordWrite);
+        }
+        evict(id, usernames);
+        if (cached != null) {
+            for (String username : cached) {
+                invalidateUsername(username, id);
+            }
+        }
+    }
+
+    /**
+     * Publishes both maps as Micrometer cache metrics, named {@code usersById} and {@code usersByUsername}.
+     * Their loads are counted as {@code user_management.cache.loads}, tagged with whether the caller
+     * {@code loaded}, was {@code coalesced} into a load in flight, or loaded on its own because too many
+     * loads were in flight ({@code overflow}).
+     *
+     * @param registry the registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "usersById");
+        CaffeineCacheMetrics.monitor(registry, byUsername, "usersByUsername");
+        bindLoads(registry, "usersById", byIdLoads);
+        bindLoads(registry, "usersByUsername", byUsernameLoads);
+    }
+
+    /**
+     * Gets the load counters of both maps.
+     *
+     * @return the single flights by cache name
+     */
+    public Map<String, SingleFlight<?, UserDTO>> loads() {
+        Map<String, SingleFlight<?, UserDTO>> loads = new LinkedHashMap<>();
+        loads.put("usersById", byIdLoads);
+        loads.put("usersByUsername", byUsernameLoads);
+        return loads;
+    }
+
+    /**
+     * Gets the hit, miss and eviction counters of both maps.
+     *
+     * @return the stats by cache name
+     */
+    public Map<String, CacheStatsDTO> stats() {
+        Map<String, CacheStatsDTO> stats = new LinkedHashMap<>();
+        stats.put("usersById", toCacheStatsDTO(byId));
+        stats.put("usersByUsername", toCacheStatsDTO(byUsername));
+        return stats;
+    }
+
+    private <K> UserDTO getOrLoad(Cache<K, UserDTO> cache, SingleFlight<K, UserDTO> loads, K key,
+                                  Function<K, UserDTO> loader, StoreListener<K> onStore) {
+        UserDTO cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long epoch = writeEpoch.get();
+        UserDTO loaded = loads.load(key, epoch, recentWrites.getIfPresent(key) != null
+                ? k -> ReadYourWrites.onPrimary(() -> loader.apply(k))
+                : loader);
+        if (loaded != null) {
+            // The epoch check and the store are one atomic step, so an eviction either sees the entry or
+            // prevents it from being stored
+            store(cache, key, loaded, epoch, onStore);
+        }
+        return loaded;
+    }
+
+    private <K> Map<K, UserDTO> getAllOrLoad(Cache<K, UserDTO> cache, Collection<K> keys,
+                                             Function<Set<K>, Map<K, UserDTO>> loader,
+                                             StoreListener<K> onStore) {
+        Map<K, UserDTO> users = new HashMap<>(cache.getAllPresent(keys));
+        Set<K> missing = new LinkedHashSet<>(keys);
+        missing.removeAll(users.keySet());
+        if (missing.isEmpty()) {
+            return users;
+        }
+        long epoch = writeEpoch.get();
+        Map<K, UserDTO> loaded = recentWrites.getAllPresent(missing).isEmpty()
+                ? loader.apply(missing)
+                : ReadYourWrites.onPrimary(() -> loader.apply(missing));
+        loaded.forEach((key, user) -> store(cache, key, user, epoch, onStore));
+        users.putAll(loaded);
+        return users;
+    }
+
+    private <K> void store(Cache<K, UserDTO> cache, K key, UserDTO user, long epoch, StoreListener<K> onStore) {
+        cache.asMap().compute(key, (k, current) -> {
+            if (writeEpoch.get() != epoch) {
+                return current;
+            }
+            onStore.stored(k, current, user);
+            return user;
+        });
+    }
+
+    private void recordWrite(Object key) {
+        if (key != null) {
+            recentWrites.put(key, Boolean.TRUE);
+        }
+    }
+
+    private void invalidateUsername(String username, Long id) {
+        byUsername.asMap().computeIfPresent(username, (k, user) -> {
+            if (id != null && !id.equals(user.getUserId())) {
+                return user;
+            }
+            unlink(k, user);
+            return null;
+        });
+    }
+
+    /**
+     * Record that a user is cached under a username, unlinking the user the username pointed at before.
+     */
+    private void link(String username, UserDTO previous, UserDTO user) {
+        if (previous != null && !previous.getUserId().equals(user.getUserId())) {
+            unlink(username, previous);
+        }
+        usernamesById.compute(user.getUserId(), (id, names) -> {
+            Set<String> linked = names == null ? ConcurrentHashMap.newKeySet() : names;
+            linked.add(username);
+            return linked;
+        });
+    }
+
+    private void unlink(String username, UserDTO user) {
+        if (username == null || user == null) {
+            return;
+        }
+        usernamesById.computeIfPresent(user.getUserId(), (id, names) -> {
+            names.remove(username);
+            return names.isEmpty() ? null : names;
+        });
+    }
+
+    private static void bindLoads(MeterRegistry registry, String cache, SingleFlight<?, ?> loads) {
+        FunctionCounter.builder("user_management.cache.loads", loads, SingleFlight::getLoads)
+                .description("User cache misses by how they were loaded")
+                .tags("cache", cache, "result", "loaded")
+                .register(registry);
+        FunctionCounter.builder("user_management.cache.loads", loads, SingleFlight::getCoalesced)
+                .description("User cache misses by how they were loaded")
+                .tags("cache", cache, "result", "coalesced")
+                .register(registry);
+        FunctionCounter.builder("user_management.cache.loads", loads, SingleFlight::getOverflows)
+                .description("User cache misses by how they were loaded")
+                .tags("cache", cache, "result", "overflow")
+                .register(registry);
+        Gauge.builder("user_management.cache.loads.in_flight", loads, SingleFlight::getInFlight)
+                .description("User cache loads in flight")
+                .tag("cache", cache)
+                .register(registry);
+    }
+
+    private static CacheStatsDTO toCacheStatsDTO(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheStatsDTO(cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount());
+    }
+
+    /**
+     * Called while a loaded user is stored under a key, with the user the key held before.
+     */
+    @FunctionalInterface
+    private interface StoreListener<K> {
+
+        void stored(K key, UserDTO previous, UserDTO user);
+    }
+}
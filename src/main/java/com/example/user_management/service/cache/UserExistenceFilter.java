@@ -0,0 +1,232 @@
+package com.example.user_management.service.cache;
+
+import com.example.user_management.repository.UsernameAndEmail;
+import com.example.user_management.service.dto.ExistenceFilterStatsDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filters over all usernames and emails, so lookups of keys that do not exist can be answered without
+ * a database query.
+ * <p>
+ * A key is added before the row is inserted and again once it is committed, so the filter never reports a
+ * committed key as absent, also not while it is rebuilt. Deleted keys stay in the filter until the next
+ * rebuild. Until the first build, and when disabled, every key is reported as possibly present.
+ * <p>
+ * The filters only see writes made through this instance, so users inserted by another instance, by SQL or by a
+ * migration are reported as absent until the next rebuild. They are therefore off by default; enable them with
+ * {@code user-management.existence-filter.enabled=true} only when this instance makes every write.
+ */
+@Component
+public class UserExistenceFilter implements MeterBinder {
+
+    private final boolean enabled;
+    private final double fpp;
+    private final Tracked usernames = new Tracked();
+    private final Tracked emails = new Tracked();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Filters current;
+    private volatile Filters building;
+
+    /**
+     * Instantiates a new User existence filter.
+     *
+     * @param enabled whether lookups consult the filters
+     * @param fpp     the target false-positive probability
+     */
+    public UserExistenceFilter(@Value("${user-management.existence-filter.enabled:false}") boolean enabled,
+                               @Value("${user-management.existence-filter.fpp:0.01}") double fpp) {
+        this.enabled = enabled;
+        this.fpp = fpp;
+    }
+
+    /**
+     * Whether the filters are in use.
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether a user with this username might exist. A false answer is certain.
+     *
+     * @param username the username
+     * @return false if no user has this username
+     */
+    public boolean mightContainUsername(String username) {
+        return mightContain(usernames, Filters::usernames, username);
+    }
+
+    /**
+     * Whether a user with this email might exist. A false answer is certain.
+     *
+     * @param email the email
+     * @return false if no user has this email
+     */
+    public boolean mightContainEmail(String email) {
+        return mightContain(emails, Filters::emails, email);
+    }
+
+    /**
+     * Record usernames the filter let through that turned out not to exist.
+     *
+     * @param count the count
+     */
+    public void recordUsernameFalsePositives(int count) {
+        if (enabled && current != null) {
+            usernames.falsePositives.add(count);
+        }
+    }
+
+    /**
+     * Record emails the filter let through that turned out not to exist.
+     *
+     * @param count the count
+     */
+    public void recordEmailFalsePositives(int count) {
+        if (enabled && current != null) {
+            emails.falsePositives.add(count);
+        }
+    }
+
+    /**
+     * Add the keys of a user that is about to be written or was just committed.
+     *
+     * @param username the username
+     * @param email    the email
+     */
+    public void add(String username, String email) {
+        // Read the filter being built first: once it has replaced the current one, current already is it
+        Filters next = building;
+        Filters filters = current;
+        if (filters != null) {
+            filters.add(username, email);
+        }
+        if (next != null && next != filters) {
+            next.add(username, email);
+        }
+    }
+
+    /**
+     * Replace the filters with ones built from all users. Keys added while building end up in both.
+     *
+     * @param expectedInsertions the number of users to size the filters for
+     * @param users              all users
+     */
+    public void replaceAll(long expectedInsertions, Stream<UsernameAndEmail> users) {
+        rebuildLock.lock();
+        try {
+            Filters next = new Filters(BloomFilter.create(expectedInsertions, fpp),
+                    BloomFilter.create(expectedInsertions, fpp));
+            building = next;
+            try {
+                users.forEach(user -> next.add(user.getUsername(), user.getEmail()));
+                current = next;
+            } finally {
+                building = null;
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the size and the estimated and measured false-positive rates of both filters.
+     *
+     * @return the stats by filter name
+     */
+    public Map<String, ExistenceFilterStatsDTO> stats() {
+        Map<String, ExistenceFilterStatsDTO> stats = new LinkedHashMap<>();
+        stats.put("usernames", toStatsDTO(usernames, Filters::usernames));
+        stats.put("emails", toStatsDTO(emails, Filters::emails));
+        return stats;
+    }
+
+    /**
+     * Publishes lookups answered by the filters and their measured false-positive rate per filter.
+     *
+     * @param registry the registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "usernames", usernames);
+        bind(registry, "emails", emails);
+    }
+
+    private boolean mightContain(Tracked tracked, Function<Filters, BloomFilter> filter, String key) {
+        Filters filters = current;
+        if (!enabled || filters == null || key == null) {
+            return true;
+        }
+        if (!filter.apply(filters).mightContain(key)) {
+            tracked.negatives.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private ExistenceFilterStatsDTO toStatsDTO(Tracked tracked, Function<Filters, BloomFilter> filter) {
+        Filters filters = current;
+        BloomFilter bloomFilter = filters == null ? null : filter.apply(filters);
+        return new ExistenceFilterStatsDTO(
+                bloomFilter == null ? 0 : bloomFilter.getExpectedInsertions(),
+                bloomFilter == null ? 0 : bloomFilter.getBitCount(),
+                bloomFilter == null ? 0 : bloomFilter.getHashFunctions(),
+                bloomFilter == null ? 0 : bloomFilter.estimatedFalsePositiveRate(),
+                tracked.negatives.sum(), tracked.falsePositives.sum(), tracked.measuredFalsePositiveRate());
+    }
+
+    private static void bind(MeterRegistry registry, String name, Tracked tracked) {
+        FunctionCounter.builder("user_management.existence_filter.negatives", tracked, t -> t.negatives.sum())
+                .description("Lookups answered as absent without a database query")
+                .tag("filter", name)
+                .register(registry);
+        FunctionCounter.builder("user_management.existence_filter.false_positives", tracked,
+                        t -> t.falsePositives.sum())
+                .description("Lookups let through for keys that did not exist")
+                .tag("filter", name)
+                .register(registry);
+        Gauge.builder("user_management.existence_filter.false_positive_rate", tracked,
+                        Tracked::measuredFalsePositiveRate)
+                .description("Share of lookups for absent keys that the filter let through")
+                .tag("filter", name)
+                .register(registry);
+    }
+
+    private record Filters(BloomFilter usernames, BloomFilter emails) {
+
+        private void add(String username, String email) {
+            if (username != null) {
+                usernames.add(username);
+            }
+            if (email != null) {
+                emails.add(email);
+            }
+        }
+    }
+
+    private static final class Tracked {
+
+        private final LongAdder negatives = new LongAdder();
+        private final LongAdder falsePositives = new LongAdder();
+
+        private double measuredFalsePositiveRate() {
+            long falsePositiveCount = falsePositives.sum();
+            long absent = negatives.sum() + falsePositiveCount;
+            return absent == 0 ? 0 : (double) falsePositiveCount / absent;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.user_management.service.cache;
+
+import com.example.user_management.repository.UserStore;
+import com.example.user_management.repository.UsernameAndEmail;
+import com.example.user_management.service.event.UserChangedEvent;
+import com.example.user_management.service.shard.UserShards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.stream.Stream;
+
+/**
+ * Builds the {@link UserExistenceFilter} once the application is ready, rebuilds it periodically to drop
+ * deleted keys and to resize it to the grown store, and adds the keys of committed writes.
+ */
+@Service
+public class UserExistenceFilterLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExistenceFilterLoader.class);
+
+    /**
+     * Filters are sized for this many times the current number of users, leaving room to grow until the
+     * next rebuild.
+     */
+    private static final int GROWTH_FACTOR = 2;
+
+    private static final long MIN_EXPECTED_INSERTIONS = 10_000;
+
+    private final UserExistenceFilter userExistenceFilter;
+    private final UserStore userStore;
+    private final UserShards userShards;
+
+    /**
+     * Instantiates a new User existence filter loader.
+     *
+     * @param userExistenceFilter the user existence filter
+     * @param userStore           the user store
+     * @param userShards          the user shards
+     */
+    public UserExistenceFilterLoader(UserExistenceFilter userExistenceFilter, UserStore userStore,
+                                     UserShards userShards) {
+        this.userExistenceFilter = userExistenceFilter;
+        this.userStore = userStore;
+        this.userShards = userShards;
+    }
+
+    /**
+     * Rebuild the filters from the user store.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${user-management.existence-filter.rebuild-interval:PT1H}",
+            initialDelayString = "${user-management.existence-filter.rebuild-interval:PT1H}")
+    public void rebuild() {
+        if (!userExistenceFilter.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long count = userShards.isSharded() ? userShards.count() : userStore.count();
+        long expectedInsertions = Math.max(MIN_EXPECTED_INSERTIONS, count * GROWTH_FACTOR);
+        try (Stream<UsernameAndEmail> users = userShards.streamAll(userStore::streamUsernamesAndEmails)) {
+            userExistenceFilter.replaceAll(expectedInsertions, users);
+        }
+        logger.info("Rebuilt user existence filters for {} keys in {} ms", expectedInsertions,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Add the keys of committed writes.
+     *
+     * @param event the event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        event.getSaved().forEach(user -> userExistenceFilter.add(user.getUsername(), user.getEmail()));
+        event.getPatched().forEach(user -> userExistenceFilter.add(user.getUsername(), user.getEmail()));
+    }
+}
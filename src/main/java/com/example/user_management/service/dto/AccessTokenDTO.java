@@ -0,0 +1,29 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * The type Access token dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccessTokenDTO implements Serializable {
+
+    @JsonProperty("access_token")
+    private String accessToken;
+
+    @JsonProperty("token_type")
+    private String tokenType;
+
+    /**
+     * Lifetime of the token in seconds.
+     */
+    @JsonProperty("expires_in")
+    private long expiresIn;
+
+}
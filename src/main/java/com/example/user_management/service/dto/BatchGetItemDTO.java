@@ -0,0 +1,40 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * The type Batch get item dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchGetItemDTO implements Serializable {
+
+    /**
+     * The requested id, set for lookups by id.
+     */
+    @JsonProperty("id")
+    private Long id;
+
+    /**
+     * The requested username, set for lookups by username.
+     */
+    @JsonProperty("username")
+    private String username;
+
+    @JsonProperty("found")
+    private boolean found;
+
+    /**
+     * The user, set when found.
+     */
+    @JsonProperty("user")
+    private UserDTO user;
+
+}
@@ -0,0 +1,30 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The type Batch get request dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchGetRequestDTO implements Serializable {
+
+    /**
+     * The user ids to look up, may be null.
+     */
+    @JsonProperty("ids")
+    private List<Long> ids;
+
+    /**
+     * The usernames to look up, may be null.
+     */
+    @JsonProperty("usernames")
+    private List<String> usernames;
+
+}
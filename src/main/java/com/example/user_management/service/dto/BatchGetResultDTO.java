@@ -0,0 +1,30 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The type Batch get result dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchGetResultDTO implements Serializable {
+
+    @JsonProperty("found")
+    private int found;
+
+    @JsonProperty("missing")
+    private int missing;
+
+    /**
+     * One result per requested id, then one per requested username, in request order.
+     */
+    @JsonProperty("results")
+    private List<BatchGetItemDTO> results;
+
+}
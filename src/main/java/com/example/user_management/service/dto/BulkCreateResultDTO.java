@@ -0,0 +1,30 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The type Bulk create result dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateResultDTO implements Serializable {
+
+    @JsonProperty("created")
+    private int created;
+
+    @JsonProperty("failed")
+    private int failed;
+
+    /**
+     * One result per request item, in request order.
+     */
+    @JsonProperty("results")
+    private List<BulkItemResultDTO> results;
+
+}
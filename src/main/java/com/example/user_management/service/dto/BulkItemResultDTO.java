@@ -0,0 +1,55 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * The type Bulk item result dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResultDTO implements Serializable {
+
+    /**
+     * Position of the item in the request.
+     */
+    @JsonProperty("index")
+    private int index;
+
+    @JsonProperty("status")
+    private Status status;
+
+    @JsonProperty("userId")
+    private Long userId;
+
+    /**
+     * Field name to error message, set when the item was not created.
+     */
+    @JsonProperty("errors")
+    private Map<String, String> errors;
+
+    /**
+     * The outcome of one bulk item.
+     */
+    public enum Status {
+        /**
+         * The user was created.
+         */
+        CREATED,
+        /**
+         * The item failed validation.
+         */
+        INVALID,
+        /**
+         * The username or email is already taken.
+         */
+        CONFLICT
+    }
+}
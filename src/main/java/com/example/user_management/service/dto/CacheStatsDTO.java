@@ -0,0 +1,32 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * The type Cache stats dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDTO implements Serializable {
+
+    @JsonProperty("size")
+    private long size;
+
+    @JsonProperty("hits")
+    private long hits;
+
+    @JsonProperty("misses")
+    private long misses;
+
+    @JsonProperty("hitRate")
+    private double hitRate;
+
+    @JsonProperty("evictions")
+    private long evictions;
+
+}
@@ -0,0 +1,53 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * The type Existence filter stats dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExistenceFilterStatsDTO implements Serializable {
+
+    /**
+     * Number of keys the filter was sized for, 0 until it was first built.
+     */
+    @JsonProperty("expectedInsertions")
+    private long expectedInsertions;
+
+    @JsonProperty("bits")
+    private long bits;
+
+    @JsonProperty("hashFunctions")
+    private int hashFunctions;
+
+    /**
+     * False-positive probability estimated from the fraction of bits set.
+     */
+    @JsonProperty("estimatedFalsePositiveRate")
+    private double estimatedFalsePositiveRate;
+
+    /**
+     * Lookups the filter answered as absent without a database query.
+     */
+    @JsonProperty("negatives")
+    private long negatives;
+
+    /**
+     * Lookups the filter let through that the database then found absent.
+     */
+    @JsonProperty("falsePositives")
+    private long falsePositives;
+
+    /**
+     * Share of lookups for absent keys that the filter let through.
+     */
+    @JsonProperty("measuredFalsePositiveRate")
+    private double measuredFalsePositiveRate;
+
+}
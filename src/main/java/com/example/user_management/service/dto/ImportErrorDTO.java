@@ -0,0 +1,26 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * The type Import error dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportErrorDTO implements Serializable {
+
+    /**
+     * One-based position of the record in the file, not counting the CSV header.
+     */
+    @JsonProperty("record")
+    private long record;
+
+    @JsonProperty("message")
+    private String message;
+
+}
@@ -0,0 +1,54 @@
+package com.example.user_management.service.dto;
+
+import com.example.user_management.model.ImportJob;
+import com.example.user_management.service.UserFileFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The type Import job dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobDTO implements Serializable {
+
+    @JsonProperty("jobId")
+    private String jobId;
+
+    @JsonProperty("format")
+    private UserFileFormat format;
+
+    @JsonProperty("status")
+    private ImportJob.Status status;
+
+    @JsonProperty("recordsCommitted")
+    private long recordsCommitted;
+
+    @JsonProperty("created")
+    private long created;
+
+    @JsonProperty("failed")
+    private long failed;
+
+    @JsonProperty("message")
+    private String message;
+
+    /**
+     * The first rejected records of the current run.
+     */
+    @JsonProperty("errors")
+    private List<ImportErrorDTO> errors;
+
+    @JsonProperty("createdAt")
+    private LocalDateTime createdAt;
+
+    @JsonProperty("updatedAt")
+    private LocalDateTime updatedAt;
+
+}
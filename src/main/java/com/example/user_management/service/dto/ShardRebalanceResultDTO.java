@@ -0,0 +1,36 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The type Shard rebalance result dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardRebalanceResultDTO implements Serializable {
+
+    /**
+     * Number of users moved to another shard.
+     */
+    @JsonProperty("moved")
+    private int moved;
+
+    /**
+     * Number of users per shard before rebalancing, in shard order.
+     */
+    @JsonProperty("usersBefore")
+    private List<Long> usersBefore;
+
+    /**
+     * Number of users per shard after rebalancing, in shard order.
+     */
+    @JsonProperty("usersAfter")
+    private List<Long> usersAfter;
+
+}
@@ -0,0 +1,58 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * The type User change dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserChangeDTO implements Serializable {
+
+    /**
+     * Position of the change in the change feed. Consecutive changes have consecutive sequence numbers.
+     */
+    @JsonProperty("sequence")
+    private long sequence;
+
+    @JsonProperty("type")
+    private Type type;
+
+    @JsonProperty("userId")
+    private Long userId;
+
+    /**
+     * The user as it was saved, or the id and the changed fields of a patch. Absent for deletes.
+     */
+    @JsonProperty("user")
+    private UserDTO user;
+
+    @JsonProperty("changedAt")
+    private LocalDateTime changedAt;
+
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        /**
+         * The user was created or updated; the user holds all fields.
+         */
+        SAVED,
+        /**
+         * The user was updated without being read; the user holds the changed fields only.
+         */
+        PATCHED,
+        /**
+         * The user was deleted.
+         */
+        DELETED
+    }
+}
@@ -41,4 +41,11 @@ public class UserDTO implements Serializable {
     @JsonProperty("createdAt")
     private LocalDateTime createdAt;
 
+    /**
+     * Version of the user, incremented on every update. Ignored on create and update; send it as
+     * {@code If-Match} instead.
+     */
+    @JsonProperty("version")
+    private Long version;
+
 }
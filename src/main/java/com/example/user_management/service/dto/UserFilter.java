@@ -0,0 +1,36 @@
+package com.example.user_management.service.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * The type User filter.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserFilter {
+
+    /**
+     * Matches users whose username starts with this value.
+     */
+    private String username;
+
+    /**
+     * Matches users whose email starts with this value.
+     */
+    private String email;
+
+    /**
+     * Matches users created at or after this instant.
+     */
+    private LocalDateTime createdAfter;
+
+    /**
+     * Matches users created strictly before this instant.
+     */
+    private LocalDateTime createdBefore;
+
+}
@@ -0,0 +1,30 @@
+package com.example.user_management.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The type User page dto.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPageDTO implements Serializable {
+
+    @JsonProperty("content")
+    private List<UserDTO> content;
+
+    /**
+     * Opaque token to pass back as {@code cursor} to fetch the next page, {@code null} on the last page.
+     */
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+
+    @JsonProperty("size")
+    private int size;
+
+}
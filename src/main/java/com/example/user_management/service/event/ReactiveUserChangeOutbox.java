@@ -0,0 +1,95 @@
+package com.example.user_management.service.event;
+
+import com.example.user_management.service.dto.UserChangeDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reactive counterpart of {@link UserChangeOutbox}: writes the changes of a {@link UserChangedEvent} to the
+ * {@code user_outbox} table in the R2DBC transaction that changed the users, so {@link UserChangeRelay} moves
+ * them to the change log like the changes made through JPA. Only active with the {@code reactive} profile.
+ * <p>
+ * The transaction manager is not a bean, so the JPA transaction manager stays the only one for
+ * {@code @Transactional}. Every entry takes the next value of {@code user_outbox_seq}, like the entries
+ * written through JPA.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveUserChangeOutbox {
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Instantiates a new Reactive user change outbox.
+     *
+     * @param connectionFactory the connection factory
+     * @param objectMapper      the object mapper
+     */
+    public ReactiveUserChangeOutbox(ConnectionFactory connectionFactory, ObjectMapper objectMapper) {
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Run a write and record its changes in one transaction.
+     *
+     * @param write   the write
+     * @param changes the changes made by the result of the write, or null if nothing changed
+     * @param <T>     the result type
+     * @return the result of the write, emitted once the transaction committed
+     */
+    public <T> Mono<T> write(Mono<T> write, Function<T, UserChangedEvent> changes) {
+        return transactionalOperator.transactional(write.flatMap(result -> {
+            UserChangedEvent event = changes.apply(result);
+            return event == null ? Mono.just(result) : append(event).thenReturn(result);
+        }));
+    }
+
+    private Mono<Void> append(UserChangedEvent event) {
+        List<Mono<Long>> inserts = new ArrayList<>();
+        event.getSaved().forEach(user -> inserts.add(insert(UserChangeDTO.Type.SAVED, user.getUserId(), user)));
+        event.getPatched().forEach(user -> inserts.add(insert(UserChangeDTO.Type.PATCHED, user.getUserId(), user)));
+        event.getDeletedIds().forEach(id -> inserts.add(insert(UserChangeDTO.Type.DELETED, id, null)));
+        return Flux.concat(inserts).then();
+    }
+
+    private Mono<Long> insert(UserChangeDTO.Type type, Long userId, UserDTO user) {
+        DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO user_outbox "
+                        + "(outbox_id, change_type, user_id, payload, created_at) "
+                        + "VALUES (NEXT VALUE FOR user_outbox_seq, :changeType, :userId, :payload, :createdAt)")
+                .bind("changeType", type.name())
+                .bind("userId", userId)
+                .bind("createdAt", LocalDateTime.now());
+        String payload = payload(user);
+        insert = payload == null ? insert.bindNull("payload", String.class) : insert.bind("payload", payload);
+        return insert.fetch().rowsUpdated();
+    }
+
+    private String payload(UserDTO user) {
+        if (user == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(user);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize user " + user.getUserId(), ex);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.user_management.service.event;
+
+import com.example.user_management.service.dto.UserChangeDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams the change log to Server-Sent Events subscribers.
+ * <p>
+ * Each subscriber is served by its own virtual thread reading from {@link UserChangeRingBuffer} at the pace of
+ * its client, so a slow client only ever delays itself. A subscriber that falls more than the buffer behind
+ * reads the changes it missed from the change log instead. Every event carries its sequence number as the
+ * SSE id; resuming after it continues with the next change. If the changes to resume from were already
+ * pruned, a {@code reset} event with the first available sequence number comes first, telling the client to
+ * reload the users.
+ */
+@Service
+public class UserChangeFeed implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeFeed.class);
+
+    private final UserChangeRingBuffer ringBuffer;
+    private final UserChangeRelay userChangeRelay;
+    private final int batchSize;
+    private final Duration heartbeatInterval;
+    private final Duration emitterTimeout;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final LongAdder catchUps = new LongAdder();
+
+    /**
+     * Instantiates a new User change feed.
+     *
+     * @param ringBuffer        the ring buffer
+     * @param userChangeRelay   the user change relay
+     * @param batchSize         the number of changes read from the change log at a time
+     * @param heartbeatInterval how long a subscriber stays silent before a heartbeat comment is sent
+     * @param emitterTimeout    how long a subscription lasts before the client has to reconnect
+     */
+    public UserChangeFeed(UserChangeRingBuffer ringBuffer, UserChangeRelay userChangeRelay,
+                          @Value("${user-management.changes.batch-size:500}") int batchSize,
+                          @Value("${user-management.changes.heartbeat-interval:PT15S}") Duration heartbeatInterval,
+                          @Value("${user-management.changes.emitter-timeout:PT30M}") Duration emitterTimeout) {
+        this.ringBuffer = ringBuffer;
+        this.userChangeRelay = userChangeRelay;
+        this.batchSize = batchSize;
+        this.heartbeatInterval = heartbeatInterval;
+        this.emitterTimeout = emitterTimeout;
+    }
+
+    /**
+     * Subscribe to the changes after a sequence number.
+     *
+     * @param after the sequence number of the last change seen, or null to receive only new changes
+     * @return the emitter
+     */
+    public SseEmitter subscribe(Long after) {
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscription subscription = new Subscription(emitter, after == null ? ringBuffer.getLastSequence() : after);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(ex -> subscription.close());
+        subscriptions.add(subscription);
+        Thread.ofVirtual().name("user-changes").start(subscription);
+        return emitter;
+    }
+
+    /**
+     * Publishes {@code user_management.changes.subscribers} and {@code user_management.changes.catch_ups}, the
+     * number of times a subscriber fell behind the ring buffer and read from the change log.
+     *
+     * @param registry the registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user_management.changes.subscribers", subscriptions, Set::size)
+                .description("Open change feed subscriptions")
+                .register(registry);
+        FunctionCounter.builder("user_management.changes.catch_ups", catchUps, LongAdder::sum)
+                .description("Reads from the change log by subscribers behind the ring buffer")
+                .register(registry);
+    }
+
+    /**
+     * End every subscription.
+     */
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(Subscription::close);
+        ringBuffer.wakeUpAll();
+    }
+
+    private final class Subscription implements Runnable {
+
+        private final SseEmitter emitter;
+        private volatile boolean open = true;
+        private long cursor;
+
+        private Subscription(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (open) {
+                    UserChangeDTO change = ringBuffer.get(cursor + 1);
+                    if (change != null) {
+                        send(change);
+                    } else if (cursor + 1 <= ringBuffer.getLastSequence()) {
+                        catchUp();
+                    } else if (!ringBuffer.awaitAfter(cursor, heartbeatInterval) && open) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+                emitter.complete();
+            } catch (IOException | IllegalStateException ex) {
+                // The client went away or the emitter timed out
+                logger.debug("Change feed subscription ended at {}: {}", cursor, ex.getMessage());
+            } catch (RuntimeException ex) {
+                logger.warn("Change feed subscription failed at {}", cursor, ex);
+                emitter.completeWithError(ex);
+            } finally {
+                close();
+            }
+        }
+
+        private void catchUp() throws IOException {
+            catchUps.increment();
+            List<UserChangeDTO> changes = userChangeRelay.readAfter(cursor, batchSize);
+            if (changes.isEmpty()) {
+                // Published but not readable yet, for example on a lagging read replica
+                ringBuffer.awaitAfter(ringBuffer.getLastSequence(), heartbeatInterval);
+                return;
+            }
+            long first = changes.get(0).getSequence();
+            if (first > cursor + 1) {
+                logger.info("Change feed subscriber resumed after pruned change {}, resetting to {}", cursor, first);
+                emitter.send(SseEmitter.event().name("reset").data(first, MediaType.APPLICATION_JSON));
+            }
+            for (UserChangeDTO change : changes) {
+                send(change);
+            }
+        }
+
+        private void send(UserChangeDTO change) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(change.getSequence()))
+                    .data(change, MediaType.APPLICATION_JSON));
+            cursor = change.getSequence();
+        }
+
+        private void close() {
+            open = false;
+            subscriptions.remove(this);
+        }
+    }
+}
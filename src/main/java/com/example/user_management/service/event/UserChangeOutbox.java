@@ -0,0 +1,86 @@
+package com.example.user_management.service.event;
+
+import com.example.user_management.model.UserOutboxEntry;
+import com.example.user_management.repository.UserOutboxRepository;
+import com.example.user_management.service.dto.UserChangeDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Writes the changes of a {@link UserChangedEvent} to the {@code user_outbox} table in the transaction that
+ * changed the users, so a change is in the outbox if and only if it was committed. With sharding the entry is
+ * written on the shard the write runs on. {@link UserChangeRelay} moves the entries to the change log.
+ */
+@Component
+public class UserChangeOutbox {
+
+    private final UserOutboxRepository userOutboxRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Instantiates a new User change outbox.
+     *
+     * @param userOutboxRepository the user outbox repository
+     * @param objectMapper         the object mapper
+     * @param transactionManager   the transaction manager
+     */
+    public UserChangeOutbox(UserOutboxRepository userOutboxRepository, ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager) {
+        this.userOutboxRepository = userOutboxRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Run a write and record its changes in one transaction, joining the transaction of the caller if any.
+     * The write is flushed before its changes are taken from the result, so they carry the new versions.
+     *
+     * @param write   the write
+     * @param changes the changes made by the result of the write, or null if nothing changed
+     * @param <T>     the result type
+     * @return the result of the write
+     */
+    public <T> T write(Supplier<T> write, Function<T, UserChangedEvent> changes) {
+        return transactionTemplate.execute(status -> {
+            T result = write.get();
+            // Flushed through the repository so constraint violations are translated like on commit
+            userOutboxRepository.flush();
+            UserChangedEvent event = changes.apply(result);
+            if (event != null) {
+                append(event);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Record the changes in the current transaction.
+     *
+     * @param event the changes
+     */
+    public void append(UserChangedEvent event) {
+        List<UserOutboxEntry> entries = new ArrayList<>();
+        event.getSaved().forEach(user -> entries.add(entry(UserChangeDTO.Type.SAVED, user)));
+        event.getPatched().forEach(user -> entries.add(entry(UserChangeDTO.Type.PATCHED, user)));
+        event.getDeletedIds().forEach(id -> entries.add(new UserOutboxEntry(UserChangeDTO.Type.DELETED, id, null)));
+        userOutboxRepository.saveAll(entries);
+    }
+
+    private UserOutboxEntry entry(UserChangeDTO.Type type, UserDTO user) {
+        try {
+            return new UserOutboxEntry(type, user.getUserId(), objectMapper.writeValueAsString(user));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize user " + user.getUserId(), ex);
+        }
+    }
+}
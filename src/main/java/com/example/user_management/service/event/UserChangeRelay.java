@@ -0,0 +1,234 @@
+package com.example.user_management.service.event;
+
+import com.example.user_management.model.UserChange;
+import com.example.user_management.model.UserOutboxEntry;
+import com.example.user_management.repository.UserChangeRepository;
+import com.example.user_management.repository.UserOutboxRepository;
+import com.example.user_management.service.dto.UserChangeDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.shard.UserShards;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves changes from the outbox of every shard to the {@code user_changes} log on shard 0, which gives them
+ * consecutive sequence numbers, and publishes the new end of the log to {@link UserChangeRingBuffer}.
+ * <p>
+ * Runs on its own thread, woken up after every write and every {@code user-management.changes.poll-interval}
+ * otherwise. An outbox entry is only deleted after it was logged, and logging skips entries that were logged
+ * before, so each change is logged exactly once even if the relay stops in between. A batch is only logged
+ * under the {@code user_change_relay_lock} row on shard 0, so the relays of several instances take turns and
+ * one that read entries another already logged skips them. Every instance tails the log, so subscribers see
+ * the changes written through any instance.
+ */
+@Service
+public class UserChangeRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeRelay.class);
+
+    private final UserOutboxRepository userOutboxRepository;
+    private final UserChangeRepository userChangeRepository;
+    private final UserShards userShards;
+    private final UserChangeRingBuffer ringBuffer;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration retention;
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile Thread relayThread;
+
+    /**
+     * Instantiates a new User change relay.
+     *
+     * @param userOutboxRepository the user outbox repository
+     * @param userChangeRepository the user change repository
+     * @param userShards           the user shards
+     * @param ringBuffer           the ring buffer
+     * @param objectMapper         the object mapper
+     * @param transactionManager   the transaction manager
+     * @param batchSize            the number of changes moved or read at a time
+     * @param pollInterval         how often to look for changes written through other instances
+     * @param retention            how long logged changes are kept
+     */
+    public UserChangeRelay(UserOutboxRepository userOutboxRepository, UserChangeRepository userChangeRepository,
+                           UserShards userShards, UserChangeRingBuffer ringBuffer, ObjectMapper objectMapper,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${user-management.changes.batch-size:500}") int batchSize,
+                           @Value("${user-management.changes.poll-interval:PT1S}") Duration pollInterval,
+                           @Value("${user-management.changes.retention:P7D}") Duration retention) {
+        this.userOutboxRepository = userOutboxRepository;
+        this.userChangeRepository = userChangeRepository;
+        this.userShards = userShards;
+        this.ringBuffer = ringBuffer;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+    }
+
+    /**
+     * Start relaying at the current end of the log.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Long last = userShards.onShard(UserShards.DIRECTORY_SHARD, userChangeRepository::findLastSequence);
+        ringBuffer.startAfter(last == null ? 0 : last);
+        Thread thread = new Thread(this::run, "user-change-relay");
+        thread.setDaemon(true);
+        relayThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Stop relaying.
+     *
+     * @throws InterruptedException if interrupted while waiting for the relay to stop
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread thread = relayThread;
+        relayThread = null;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Wake up the relay after users changed.
+     *
+     * @param event the event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        wakeUp.release();
+    }
+
+    /**
+     * Delete the logged changes older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${user-management.changes.prune-interval:PT1H}",
+            initialDelayString = "${user-management.changes.prune-interval:PT1H}")
+    public void pruneChanges() {
+        int deleted = userShards.onShard(UserShards.DIRECTORY_SHARD,
+                () -> userChangeRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention)));
+        if (deleted > 0) {
+            logger.info("Pruned {} user changes older than {}", deleted, retention);
+        }
+    }
+
+    /**
+     * Read logged changes after a sequence number.
+     *
+     * @param sequence the sequence number of the last change seen
+     * @param limit    the maximum number of changes
+     * @return the changes ordered by sequence number
+     */
+    public List<UserChangeDTO> readAfter(long sequence, int limit) {
+        List<UserChange> changes = userShards.onShard(UserShards.DIRECTORY_SHARD,
+                () -> userChangeRepository.findByChangeSeqGreaterThanOrderByChangeSeqAsc(sequence, Limit.of(limit)));
+        List<UserChangeDTO> dtos = new ArrayList<>(changes.size());
+        changes.forEach(change -> dtos.add(toUserChangeDTO(change)));
+        return dtos;
+    }
+
+    /**
+     * Move all outbox entries to the log and publish the new end of the log. Runs one relay at a time, since
+     * the ring buffer takes a single publisher.
+     */
+    public synchronized void relay() {
+        for (int shard = 0; shard < userShards.getShardCount(); shard++) {
+            while (relayShard(shard)) {
+                // A full batch was moved, there may be more
+            }
+        }
+        List<UserChangeDTO> changes;
+        do {
+            changes = readAfter(ringBuffer.getLastSequence(), batchSize);
+            changes.forEach(ringBuffer::publish);
+        } while (changes.size() == batchSize);
+    }
+
+    private void run() {
+        while (relayThread == Thread.currentThread()) {
+            try {
+                relay();
+            } catch (RuntimeException ex) {
+                logger.warn("Relaying user changes failed, retrying in {}", pollInterval, ex);
+            }
+            try {
+                wakeUp.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if a full batch was moved
+     */
+    private boolean relayShard(int shard) {
+        List<UserOutboxEntry> entries = userShards.onShard(shard, () -> transactionTemplate.execute(
+                status -> userOutboxRepository.findByOrderByOutboxIdAsc(Limit.of(batchSize))));
+        if (entries.isEmpty()) {
+            return false;
+        }
+        List<Long> ids = new ArrayList<>(entries.size());
+        entries.forEach(entry -> ids.add(entry.getOutboxId()));
+        userShards.onShard(UserShards.DIRECTORY_SHARD, () -> transactionTemplate.execute(status -> {
+            if (userChangeRepository.lockRelay() == null) {
+                throw new IllegalStateException("The user_change_relay_lock row is missing");
+            }
+            Set<Long> logged = new HashSet<>(userChangeRepository.findLoggedOutboxIds(shard, ids));
+            Long last = userChangeRepository.findLastSequence();
+            long next = last == null ? 1 : last + 1;
+            List<UserChange> changes = new ArrayList<>(entries.size());
+            for (UserOutboxEntry entry : entries) {
+                if (!logged.contains(entry.getOutboxId())) {
+                    changes.add(new UserChange(next++, shard, entry));
+                }
+            }
+            return userChangeRepository.saveAll(changes);
+        }));
+        userShards.onShard(shard, () -> transactionTemplate.execute(status -> {
+            userOutboxRepository.deleteAllByIdInBatch(ids);
+            return null;
+        }));
+        return entries.size() == batchSize;
+    }
+
+    private UserChangeDTO toUserChangeDTO(UserChange change) {
+        try {
+            UserDTO user = change.getPayload() == null ? null
+                    : objectMapper.readValue(change.getPayload(), UserDTO.class);
+            return new UserChangeDTO(change.getChangeSeq(), change.getChangeType(), change.getUserId(), user,
+                    change.getCreatedAt());
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot read user change " + change.getChangeSeq(), ex);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.user_management.service.event;
+
+import com.example.user_management.service.dto.UserChangeDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded ring of the most recent changes of the change log, indexed by sequence number.
+ * <p>
+ * There is one publisher, {@link UserChangeRelay}, and any number of readers. Neither side takes a lock: the
+ * publisher overwrites the oldest slot and never waits for readers, and a reader that was lapped notices that
+ * the slot holds a newer sequence number and falls back to the change log. Readers waiting for the next
+ * change park and are unparked by the publisher.
+ */
+@Component
+public class UserChangeRingBuffer {
+
+    private final AtomicReferenceArray<UserChangeDTO> slots;
+    private final int mask;
+    private final Set<Thread> waiting = ConcurrentHashMap.newKeySet();
+    private volatile long lastSequence;
+
+    /**
+     * Instantiates a new User change ring buffer.
+     *
+     * @param capacity the number of changes kept, rounded up to a power of two
+     */
+    public UserChangeRingBuffer(@Value("${user-management.changes.buffer-size:4096}") int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Gets the number of changes kept.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Gets the sequence number of the last published change.
+     *
+     * @return the sequence number, 0 if none
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Set the sequence number the next published change follows, without publishing anything.
+     *
+     * @param sequence the sequence number
+     */
+    public void startAfter(long sequence) {
+        lastSequence = sequence;
+    }
+
+    /**
+     * Publish the change following the last published one. Only called by one thread.
+     *
+     * @param change the change
+     */
+    public void publish(UserChangeDTO change) {
+        slots.set((int) (change.getSequence() & mask), change);
+        lastSequence = change.getSequence();
+        waiting.forEach(LockSupport::unpark);
+    }
+
+    /**
+     * Gets a published change.
+     *
+     * @param sequence the sequence number
+     * @return the change, or null if it is not published yet or was overwritten
+     */
+    public UserChangeDTO get(long sequence) {
+        if (sequence > lastSequence) {
+            return null;
+        }
+        UserChangeDTO change = slots.get((int) (sequence & mask));
+        return change != null && change.getSequence() == sequence ? change : null;
+    }
+
+    /**
+     * Wait until a change after a sequence number is published.
+     *
+     * @param sequence the sequence number of the last change seen
+     * @param timeout  how long to wait at most
+     * @return true if a later change was published, false on timeout or interrupt
+     */
+    public boolean awaitAfter(long sequence, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Thread current = Thread.currentThread();
+        // Registered before checking, so a publish in between unparks this thread and the park returns at once
+        waiting.add(current);
+        try {
+            while (lastSequence <= sequence) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || current.isInterrupted()) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            return true;
+        } finally {
+            waiting.remove(current);
+        }
+    }
+
+    /**
+     * Wake up every waiting reader, so it can notice it should stop.
+     */
+    void wakeUpAll() {
+        waiting.forEach(LockSupport::unpark);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.user_management.service.event;
+
+import com.example.user_management.service.dto.UserDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published after users were created, updated or deleted. Listeners that keep derived state in sync use
+ * {@code @TransactionalEventListener(fallbackExecution = true)} so they only see committed writes.
+ */
+@Getter
+@AllArgsConstructor
+public class UserChangedEvent {
+
+    /**
+     * The users as they were saved.
+     */
+    private final List<UserDTO> saved;
+
+    /**
+     * The changed fields of users updated without being read: the id, the non-null fields that were set
+     * and the new version.
+     */
+    private final List<UserDTO> patched;
+
+    /**
+     * The ids of the deleted users.
+     */
+    private final List<Long> deletedIds;
+
+    /**
+     * Event for saved users.
+     *
+     * @param users the users
+     * @return the user changed event
+     */
+    public static UserChangedEvent saved(List<UserDTO> users) {
+        return new UserChangedEvent(users, List.of(), List.of());
+    }
+
+    /**
+     * Event for a deleted user.
+     *
+     * @param userId the user id
+     * @return the user changed event
+     */
+    public static UserChangedEvent deleted(Long userId) {
+        return new UserChangedEvent(List.of(), List.of(), List.of(userId));
+    }
+
+    /**
+     * Event for a user updated without being read.
+     *
+     * @param changes the id and the changed fields
+     * @return the user changed event
+     */
+    public static UserChangedEvent patched(UserDTO changes) {
+        return new UserChangedEvent(List.of(), List.of(changes), List.of());
+    }
+}
@@ -3,6 +3,7 @@ package com.example.user_management.service.mapper;
 import com.example.user_management.model.User;
 import com.example.user_management.service.dto.UserDTO;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
 
 /**
@@ -20,11 +21,13 @@ public interface UserMapper {
     UserDTO toUserDTO(User user);
 
     /**
-     * To user user.
+     * To user user. A missing creation time defaults to now; the version is managed by the persistence layer.
      *
      * @param userDTO the user dto
      * @return the user
      */
+    @Mapping(target = "createdAt", defaultExpression = "java(java.time.LocalDateTime.now())")
+    @Mapping(target = "version", ignore = true)
     User toUser(UserDTO userDTO);
 
 }
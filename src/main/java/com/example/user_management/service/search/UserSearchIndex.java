@@ -0,0 +1,453 @@
+package com.example.user_management.service.search;
+
+import com.example.user_management.service.dto.UserDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory trigram index over username, email, first name and last name for case-insensitive prefix and
+ * infix search.
+ * <p>
+ * Every field is indexed by its trigrams, plus two trigrams anchored at the start of the field so that
+ * prefixes of one or two characters can be looked up too. A query intersects the posting lists of its
+ * trigrams, smallest first, and verifies each candidate against the field values. Results are ranked
+ * exact match, then prefix match, then infix match, then by field (username, email, first name, last name)
+ * and user id. Infix matching needs at least three characters.
+ * <p>
+ * At most {@code max-candidates} candidates are examined per query, so a very unselective query returns the
+ * best matches among the first candidates rather than scanning the whole index.
+ * <p>
+ * Users get a new slot on every update; the old slot is dropped from results and reclaimed once dead slots
+ * outnumber live ones. The write that makes the index sparse then hands the compaction to a background thread,
+ * which builds a compacted copy outside the write lock like {@link #replaceAll(Iterator)}, so neither that write
+ * nor the searches and writes made meanwhile wait for it. Returned
+ * {@link UserDTO} instances are shared and must not be modified.
+ */
+@Component
+public class UserSearchIndex {
+
+    private static final char START = '\u0002';
+    private static final int MIN_INFIX_LENGTH = 3;
+    private static final Comparator<Hit> BEST_FIRST = Comparator.comparingInt(Hit::score).reversed()
+            .thenComparing(hit -> hit.user().getUserId());
+
+    private final int maxCandidates;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-search-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private State state = new State(16);
+    private List<Consumer<State>> pendingDuringRebuild;
+
+    /**
+     * Instantiates a new User search index.
+     *
+     * @param maxCandidates the maximum number of candidates examined per query
+     */
+    public UserSearchIndex(@Value("${user-management.search.max-candidates:10000}") int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Add a user or replace its previous version.
+     *
+     * @param user the user
+     */
+    public void put(UserDTO user) {
+        apply(current -> current.put(user));
+    }
+
+    /**
+     * Apply the non-null fields of the changes to an indexed user. The version is taken from the changes,
+     * or incremented if they do not carry one. Users that are not indexed are ignored.
+     *
+     * @param changes the user id and the changed fields
+     */
+    public void patch(UserDTO changes) {
+        apply(current -> current.patch(changes));
+    }
+
+    /**
+     * Remove a user.
+     *
+     * @param userId the user id
+     */
+    public void remove(Long userId) {
+        apply(current -> current.remove(userId));
+    }
+
+    /**
+     * Replace the whole index with the given users. Writes made while the new index is built are applied to
+     * it before it replaces the current one.
+     *
+     * @param users the users
+     */
+    public void replaceAll(Iterator<UserDTO> users) {
+        rebuildLock.lock();
+        try {
+            rebuild(current -> users);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Stop compacting in the background.
+     */
+    @PreDestroy
+    public void shutdown() {
+        compactionExecutor.shutdownNow();
+    }
+
+    /**
+     * Search users whose username, email, first name or last name starts with or contains the query,
+     * ignoring case.
+     *
+     * @param query the query
+     * @param limit the maximum number of results
+     * @return the best matches, best first
+     */
+    public List<UserDTO> search(String query, int limit) {
+        String q = lowerCase(query.trim());
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return state.search(q, limit, maxCandidates);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of indexed users.
+     *
+     * @return the size
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<State> write) {
+        boolean sparse;
+        lock.writeLock().lock();
+        try {
+            write.accept(state);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(write);
+            }
+            sparse = pendingDuringRebuild == null && state.isSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (sparse && compactionQueued.compareAndSet(false, true)) {
+            compactionExecutor.execute(this::compact);
+        }
+    }
+
+    private void compact() {
+        try {
+            // A rebuild that is already running replaces the sparse state anyway
+            if (rebuildLock.tryLock()) {
+                try {
+                    rebuild(current -> current.isSparse() ? current.liveUsers() : null);
+                } finally {
+                    rebuildLock.unlock();
+                }
+            }
+        } finally {
+            compactionQueued.set(false);
+        }
+    }
+
+    /**
+     * Build a new state outside the write lock and swap it in after applying the writes made meanwhile.
+     * Must be called holding the rebuild lock.
+     *
+     * @param source the users of the new state, given the current state; called under the write lock and may
+     *               return null to keep the current state
+     */
+    private void rebuild(Function<State, Iterator<UserDTO>> source) {
+        Iterator<UserDTO> users;
+        int capacity;
+        lock.writeLock().lock();
+        try {
+            users = source.apply(state);
+            if (users == null) {
+                return;
+            }
+            capacity = Math.max(16, state.live * 2);
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        State rebuilt = new State(capacity);
+        boolean complete = false;
+        try {
+            users.forEachRemaining(rebuilt::put);
+            complete = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (complete) {
+                    pendingDuringRebuild.forEach(write -> write.accept(rebuilt));
+                    state = rebuilt;
+                }
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static String lowerCase(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static long trigram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private record Hit(int score, UserDTO user) {
+    }
+
+    /**
+     * Growable sorted list of slots. Slots are only ever appended in increasing order.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[2];
+        private int size;
+
+        private void add(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size + (size >> 1) + 1);
+            }
+            values[size++] = value;
+        }
+
+        private boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+    }
+
+    private static final class State {
+
+        private UserDTO[] docs;
+        private int slots;
+        private int live;
+        private final Map<Long, Integer> slotByUserId = new HashMap<>();
+        private final Map<Long, IntList> postings = new HashMap<>();
+
+        private State(int capacity) {
+            this.docs = new UserDTO[capacity];
+        }
+
+        private void put(UserDTO user) {
+            remove(user.getUserId());
+            if (slots == docs.length) {
+                docs = Arrays.copyOf(docs, slots * 2);
+            }
+            int slot = slots++;
+            docs[slot] = user;
+            slotByUserId.put(user.getUserId(), slot);
+            live++;
+            for (String field : fields(user)) {
+                if (field != null) {
+                    String padded = START + "" + START + lowerCase(field);
+                    for (int i = 0; i + 3 <= padded.length(); i++) {
+                        postings.computeIfAbsent(trigram(padded.charAt(i), padded.charAt(i + 1), padded.charAt(i + 2)),
+                                key -> new IntList()).add(slot);
+                    }
+                }
+            }
+        }
+
+        private void patch(UserDTO changes) {
+            Integer slot = slotByUserId.get(changes.getUserId());
+            if (slot == null) {
+                return;
+            }
+            UserDTO user = docs[slot];
+            put(new UserDTO(user.getUserId(),
+                    changes.getUsername() != null ? changes.getUsername() : user.getUsername(),
+                    changes.getEmail() != null ? changes.getEmail() : user.getEmail(),
+                    changes.getFirstName() != null ? changes.getFirstName() : user.getFirstName(),
+                    changes.getLastName() != null ? changes.getLastName() : user.getLastName(),
+                    user.getCreatedAt(),
+                    changes.getVersion() != null ? changes.getVersion()
+                            : user.getVersion() == null ? null : user.getVersion() + 1));
+        }
+
+        private void remove(Long userId) {
+            Integer slot = slotByUserId.remove(userId);
+            if (slot != null) {
+                docs[slot] = null;
+                live--;
+            }
+        }
+
+        private boolean isSparse() {
+            return slots > 1024 && slots - live > live;
+        }
+
+        /**
+         * Copy the live users, so a compacted state can be built from them while this one keeps changing.
+         */
+        private Iterator<UserDTO> liveUsers() {
+            List<UserDTO> users = new ArrayList<>(live);
+            for (int slot = 0; slot < slots; slot++) {
+                if (docs[slot] != null) {
+                    users.add(docs[slot]);
+                }
+            }
+            return users.iterator();
+        }
+
+        private List<UserDTO> search(String q, int limit, int maxCandidates) {
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+            Set<Integer> prefixMatches = new HashSet<>();
+            scan(trigrams(START + "" + START + q), maxCandidates, slot -> {
+                int score = score(docs[slot], q, true);
+                if (score > 0) {
+                    prefixMatches.add(slot);
+                    offer(top, new Hit(score, docs[slot]), limit);
+                }
+                return true;
+            });
+            if (top.size() < limit && q.length() >= MIN_INFIX_LENGTH) {
+                scan(trigrams(q), maxCandidates, slot -> {
+                    if (!prefixMatches.contains(slot)) {
+                        int score = score(docs[slot], q, false);
+                        if (score > 0) {
+                            offer(top, new Hit(score, docs[slot]), limit);
+                        }
+                    }
+                    return true;
+                });
+            }
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(BEST_FIRST);
+            List<UserDTO> users = new ArrayList<>(hits.size());
+            for (Hit hit : hits) {
+                users.add(hit.user());
+            }
+            return users;
+        }
+
+        /**
+         * Visit the live slots present in every posting list of the given trigrams.
+         */
+        private void scan(long[] trigrams, int maxCandidates, IntPredicate visitor) {
+            IntList[] lists = new IntList[trigrams.length];
+            for (int i = 0; i < trigrams.length; i++) {
+                lists[i] = postings.get(trigrams[i]);
+                if (lists[i] == null) {
+                    return;
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+            IntList smallest = lists[0];
+            int examined = 0;
+            for (int i = 0; i < smallest.size && examined < maxCandidates; i++) {
+                int slot = smallest.values[i];
+                if (docs[slot] == null || !inAll(lists, slot)) {
+                    continue;
+                }
+                examined++;
+                if (!visitor.test(slot)) {
+                    return;
+                }
+            }
+        }
+
+        private static boolean inAll(IntList[] lists, int slot) {
+            for (int i = 1; i < lists.length; i++) {
+                if (!lists[i].contains(slot)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long[] trigrams(String value) {
+            Set<Long> trigrams = new LinkedHashSet<>();
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                trigrams.add(trigram(value.charAt(i), value.charAt(i + 1), value.charAt(i + 2)));
+            }
+            return trigrams.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        private static void offer(PriorityQueue<Hit> top, Hit hit, int limit) {
+            top.add(hit);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        /**
+         * Score the best matching field: 30 for an exact match, 20 for a prefix, 10 for an infix, plus 4 to 1
+         * for username, email, first name and last name. 0 if no field matches.
+         */
+        private static int score(UserDTO user, String q, boolean prefixOnly) {
+            String[] fields = fields(user);
+            int best = 0;
+            for (int i = 0; i < fields.length; i++) {
+                String field = fields[i];
+                if (field == null || field.length() < q.length()) {
+                    continue;
+                }
+                int weight = fields.length - i;
+                if (field.length() == q.length() && field.equalsIgnoreCase(q)) {
+                    best = Math.max(best, 30 + weight);
+                } else if (field.regionMatches(true, 0, q, 0, q.length())) {
+                    best = Math.max(best, 20 + weight);
+                } else if (!prefixOnly && containsIgnoreCase(field, q)) {
+                    best = Math.max(best, 10 + weight);
+                }
+            }
+            return best;
+        }
+
+        private static boolean containsIgnoreCase(String field, String q) {
+            for (int i = 1; i + q.length() <= field.length(); i++) {
+                if (field.regionMatches(true, i, q, 0, q.length())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String[] fields(UserDTO user) {
+            return new String[]{user.getUsername(), user.getEmail(), user.getFirstName(), user.getLastName()};
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.user_management.service.search;
+
+import com.example.user_management.repository.UserStore;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.event.UserChangedEvent;
+import com.example.user_management.service.shard.UserShards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the {@link UserSearchIndex} in sync with the user store and serves searches from it.
+ * <p>
+ * The index is loaded from the store once the application is ready and then follows every committed
+ * {@link UserChangedEvent}.
+ */
+@Service
+public class UserSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchService.class);
+
+    /**
+     * Number of results returned when the caller does not ask for a limit.
+     */
+    public static final int DEFAULT_LIMIT = 20;
+
+    /**
+     * Upper bound on the number of results a caller can request.
+     */
+    public static final int MAX_LIMIT = 100;
+
+    private final UserSearchIndex userSearchIndex;
+    private final UserStore userStore;
+    private final UserShards userShards;
+
+    /**
+     * Instantiates a new User search service.
+     *
+     * @param userSearchIndex the user search index
+     * @param userStore       the user store
+     * @param userShards      the user shards
+     */
+    public UserSearchService(UserSearchIndex userSearchIndex, UserStore userStore, UserShards userShards) {
+        this.userSearchIndex = userSearchIndex;
+        this.userStore = userStore;
+        this.userShards = userShards;
+    }
+
+    /**
+     * Search users by prefix or infix of username, email, first name or last name.
+     *
+     * @param query the query
+     * @param limit the maximum number of results, clamped to {@link #MAX_LIMIT}
+     * @return the matching users, best first
+     */
+    public List<UserDTO> search(String query, int limit) {
+        int size = limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        return userSearchIndex.search(query, size);
+    }
+
+    /**
+     * Reload the index from the user store.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        try (Stream<UserDTO> users = userShards.streamAll(userStore::streamAllDTOs)) {
+            userSearchIndex.replaceAll(users.iterator());
+        }
+        logger.info("Indexed {} users for search in {} ms", userSearchIndex.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Apply committed user writes to the index.
+     *
+     * @param event the event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        event.getSaved().forEach(userSearchIndex::put);
+        event.getPatched().forEach(userSearchIndex::patch);
+        event.getDeletedIds().forEach(userSearchIndex::remove);
+    }
+}
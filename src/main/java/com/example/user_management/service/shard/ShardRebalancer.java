@@ -0,0 +1,226 @@
+package com.example.user_management.service.shard;
+
+import com.example.user_management.model.UserLocation;
+import com.example.user_management.repository.UserRepository;
+import com.example.user_management.repository.UserVersion;
+import com.example.user_management.service.dto.ShardRebalanceResultDTO;
+import com.example.user_management.service.dto.UserDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves users between shards while they are being served, so the shards stay about equally full after one is
+ * added.
+ * <p>
+ * A user is moved under a row lock on its current shard: the row is copied to the target shard, the directory
+ * is pointed at the target, and the row is deleted from the source before the lock is released. Writes that
+ * waited for the lock find no row and are retried on the target by {@link UserShards#writeUser}. Until the
+ * source row is deleted the user exists on both shards, and queries over all shards return it once.
+ * <p>
+ * On the first start with sharding the directory is empty, and the users already on the shards, usually a
+ * former single database that became shard 0, are registered.
+ */
+@Service
+public class ShardRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final String COLUMNS = "user_id, username, email, created_at, first_name, last_name, version";
+    private static final int COLUMN_COUNT = 7;
+    private static final String LOCK_USER = "SELECT " + COLUMNS + " FROM users WHERE user_id = ? FOR UPDATE";
+    private static final String INSERT_USER = "INSERT INTO users (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_USER = "DELETE FROM users WHERE user_id = ?";
+
+    private final UserShards userShards;
+    private final UserRepository userRepository;
+    private final int batchSize;
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+
+    /**
+     * Instantiates a new Shard rebalancer.
+     *
+     * @param userShards     the user shards
+     * @param userRepository the user repository
+     * @param batchSize      the number of users picked from a shard at a time
+     */
+    public ShardRebalancer(UserShards userShards, UserRepository userRepository,
+                           @Value("${user-management.sharding.rebalance.batch-size:500}") int batchSize) {
+        this.userShards = userShards;
+        this.userRepository = userRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Register the users on all shards in an empty directory.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerExistingUsers() {
+        if (!userShards.isSharded() || !userShards.isDirectoryEmpty()) {
+            return;
+        }
+        long registered = 0;
+        for (int shard = 0; shard < userShards.getShardCount(); shard++) {
+            int current = shard;
+            Long after = null;
+            List<UserVersion> page;
+            do {
+                Long from = after;
+                page = userShards.onShard(current, () -> userRepository.findPageVersions(from, null, batchSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<Long> ids = new ArrayList<>(page.size());
+                page.forEach(user -> ids.add(user.userId()));
+                Set<Long> known = new HashSet<>(userShards.findRegisteredIds(ids));
+                ids.removeIf(known::contains);
+                if (!ids.isEmpty()) {
+                    List<UserLocation> locations = new ArrayList<>(ids.size());
+                    for (UserDTO user : userShards.onShard(current, () -> userRepository.findDTOsByIdIn(ids))) {
+                        locations.add(new UserLocation(user.getUserId(), user.getUsername(), user.getEmail(), current));
+                    }
+                    userShards.register(locations);
+                    registered += locations.size();
+                }
+                after = page.get(page.size() - 1).userId();
+            } while (page.size() == batchSize);
+        }
+        logger.info("Registered {} existing users in the user directory", registered);
+    }
+
+    /**
+     * Move users from the fullest to the emptiest shard until they differ by at most one user or the given
+     * number of users was moved. Runs one rebalance at a time.
+     *
+     * @param maxMoves the maximum number of users to move
+     * @return the number of moved users and of users per shard before and after
+     */
+    public ShardRebalanceResultDTO rebalance(int maxMoves) {
+        rebalanceLock.lock();
+        try {
+            List<Long> before = userShards.countPerShard();
+            long[] users = before.stream().mapToLong(Long::longValue).toArray();
+            int moved = 0;
+            while (moved < maxMoves) {
+                int from = 0;
+                int to = 0;
+                for (int shard = 1; shard < users.length; shard++) {
+                    from = users[shard] > users[from] ? shard : from;
+                    to = users[shard] < users[to] ? shard : to;
+                }
+                long excess = (users[from] - users[to]) / 2;
+                if (excess == 0) {
+                    break;
+                }
+                int movedInBatch = moveBatch(from, to, (int) Math.min(Math.min(excess, batchSize), maxMoves - moved));
+                if (movedInBatch == 0) {
+                    break;
+                }
+                users[from] -= movedInBatch;
+                users[to] += movedInBatch;
+                moved += movedInBatch;
+            }
+            List<Long> after = userShards.countPerShard();
+            logger.info("Moved {} users between shards, users per shard went from {} to {}", moved, before, after);
+            return new ShardRebalanceResultDTO(moved, before, after);
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    /**
+     * Move one user to another shard.
+     *
+     * @param id   the id
+     * @param from the shard the user is on
+     * @param to   the shard to move the user to
+     * @return false if the user is not on the shard it moves from
+     */
+    public boolean move(Long id, int from, int to) {
+        try (Connection source = userShards.getShardDataSource(from).getConnection()) {
+            source.setAutoCommit(false);
+            boolean copied = false;
+            boolean relocated = false;
+            try {
+                Object[] row = lockUser(source, id);
+                if (row != null) {
+                    execute(to, INSERT_USER, row);
+                    copied = true;
+                    relocated = userShards.relocate(id, from, to);
+                }
+                if (!relocated) {
+                    source.rollback();
+                    if (copied) {
+                        execute(to, DELETE_USER, id);
+                    }
+                    return false;
+                }
+                try (PreparedStatement delete = source.prepareStatement(DELETE_USER)) {
+                    delete.setLong(1, id);
+                    delete.executeUpdate();
+                }
+                source.commit();
+                return true;
+            } catch (SQLException | RuntimeException ex) {
+                if (relocated) {
+                    userShards.relocate(id, to, from);
+                }
+                if (copied) {
+                    execute(to, DELETE_USER, id);
+                }
+                source.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Moving user " + id + " from shard " + from + " to shard " + to
+                    + " failed", ex);
+        }
+    }
+
+    private int moveBatch(int from, int to, int count) {
+        int moved = 0;
+        for (UserVersion user : userShards.onShard(from, () -> userRepository.findPageVersions(null, null, count))) {
+            moved += move(user.userId(), from, to) ? 1 : 0;
+        }
+        return moved;
+    }
+
+    private static Object[] lockUser(Connection connection, Long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_USER)) {
+            statement.setLong(1, id);
+            try (ResultSet rows = statement.executeQuery()) {
+                if (!rows.next()) {
+                    return null;
+                }
+                Object[] row = new Object[COLUMN_COUNT];
+                for (int i = 0; i < COLUMN_COUNT; i++) {
+                    row[i] = rows.getObject(i + 1);
+                }
+                return row;
+            }
+        }
+    }
+
+    private void execute(int shard, String sql, Object... parameters) throws SQLException {
+        try (Connection connection = userShards.getShardDataSource(shard).getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+}
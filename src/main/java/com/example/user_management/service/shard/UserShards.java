@@ -0,0 +1,675 @@
+package com.example.user_management.service.shard;
+
+import com.example.user_management.datasource.ShardContext;
+import com.example.user_management.datasource.ShardRoutingDataSource;
+import com.example.user_management.model.User;
+import com.example.user_management.model.UserLocation;
+import com.example.user_management.repository.UserDirectoryRepository;
+import com.example.user_management.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs user queries on the shard that holds the user when {@code user-management.sharding.urls} configures
+ * several databases. Without sharding there is a single shard and every query runs as it is.
+ * <p>
+ * New users are placed on a shard by a hash of their username. Their ids come from that shard's
+ * {@code users_seq}, whose range starts at {@code shard << SHARD_SHIFT}, so an id names the shard its user was
+ * created on. The user directory on shard 0 records the username, email and current shard of every user: it
+ * answers username lookups, keeps usernames and emails unique across shards, and finds users that
+ * {@link ShardRebalancer} moved away from the shard their id names.
+ * <p>
+ * Queries without a key run on all shards in parallel and their results are merged by user id. A query must
+ * not run inside a transaction that already used another shard, since a transaction keeps its connection.
+ */
+@Component
+public class UserShards {
+
+    /**
+     * Shard holding the user directory and all tables that are not sharded.
+     */
+    public static final int DIRECTORY_SHARD = 0;
+
+    /**
+     * Position of the shard number in user ids.
+     */
+    public static final int SHARD_SHIFT = 48;
+
+    /**
+     * Upper bound on the number of shards, so that ids stay below 2^53 and exact in JavaScript clients.
+     */
+    public static final int MAX_SHARDS = 32;
+
+    private final UserRepository userRepository;
+    private final UserDirectoryRepository userDirectoryRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ShardRoutingDataSource routingDataSource;
+    private final int shardCount;
+    private final TransactionDefinition readOnlyTransaction;
+    private final TransactionTemplate directoryRead;
+    private final TransactionTemplate directoryWrite;
+    private final ExecutorService scatterExecutor;
+
+    /**
+     * Instantiates new User shards.
+     *
+     * @param userRepository          the user repository
+     * @param userDirectoryRepository the user directory repository
+     * @param transactionManager      the transaction manager
+     * @param routingDataSource       the shard routing data source, present when sharding is configured
+     * @param scatterThreads          the number of threads running queries on all shards
+     */
+    public UserShards(UserRepository userRepository, UserDirectoryRepository userDirectoryRepository,
+                      PlatformTransactionManager transactionManager,
+                      Optional<ShardRoutingDataSource> routingDataSource,
+                      @Value("${user-management.sharding.scatter-threads:16}") int scatterThreads) {
+        this.userRepository = userRepository;
+        this.userDirectoryRepository = userDirectoryRepository;
+        this.transactionManager = transactionManager;
+        this.routingDataSource = routingDataSource.orElse(null);
+        this.shardCount = routingDataSource.map(ShardRoutingDataSource::getShardCount).orElse(1);
+        DefaultTransactionDefinition readOnly =
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readOnly.setReadOnly(true);
+        this.readOnlyTransaction = readOnly;
+        this.directoryRead = new TransactionTemplate(transactionManager, readOnly);
+        this.directoryWrite = new TransactionTemplate(transactionManager,
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        this.scatterExecutor = shardCount == 1 ? null
+                : Executors.newFixedThreadPool(scatterThreads, namedThreads("user-shard-"));
+    }
+
+    /**
+     * Create user shards over a single database, for setups without sharding.
+     *
+     * @param userRepository     the user repository
+     * @param transactionManager the transaction manager
+     * @return the user shards
+     */
+    public static UserShards unsharded(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        return new UserShards(userRepository, null, transactionManager, Optional.empty(), 0);
+    }
+
+    /**
+     * Whether users are spread over several shards.
+     *
+     * @return true if sharded
+     */
+    public boolean isSharded() {
+        return routingDataSource != null;
+    }
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Gets the data source of a shard.
+     *
+     * @param shard the shard
+     * @return the data source
+     */
+    public DataSource getShardDataSource(int shard) {
+        if (routingDataSource == null) {
+            throw new IllegalStateException("Users are not sharded");
+        }
+        return routingDataSource.getShard(shard);
+    }
+
+    /**
+     * Gets the shard a user id was allocated on.
+     *
+     * @param id the id
+     * @return the shard, which may not exist for ids that were never allocated
+     */
+    public static int homeShard(long id) {
+        return (int) (id >>> SHARD_SHIFT);
+    }
+
+    /**
+     * Run an action with its queries routed to a shard.
+     *
+     * @param shard  the shard
+     * @param action the action
+     * @param <T>    the result type
+     * @return the result of the action
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        return isSharded() ? ShardContext.call(shard, action) : action.get();
+    }
+
+    /**
+     * Find a user by id on the shard its id names, then on the shard the directory names if it moved.
+     *
+     * @param id    the id
+     * @param query the query, run on one shard
+     * @param <T>   the result type
+     * @return the result, empty if the user does not exist
+     */
+    public <T> Optional<T> findById(Long id, Supplier<Optional<T>> query) {
+        if (!isSharded()) {
+            return query.get();
+        }
+        int home = homeShard(id);
+        if (home < shardCount) {
+            Optional<T> result = onShard(home, query);
+            if (result.isPresent()) {
+                return result;
+            }
+        }
+        Optional<UserLocation> location = locate(id);
+        if (location.isPresent() && location.get().getShard() != home) {
+            return onShard(location.get().getShard(), query);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Find a user by username on the shard the directory names.
+     *
+     * @param username the username
+     * @param query    the query, run on one shard
+     * @param <T>      the result type
+     * @return the result, empty if the user does not exist
+     */
+    public <T> Optional<T> findByUsername(String username, Supplier<Optional<T>> query) {
+        if (!isSharded()) {
+            return query.get();
+        }
+        Optional<UserLocation> location = inDirectory(directoryRead,
+                () -> userDirectoryRepository.findByUsername(username));
+        return location.isPresent() ? onShard(location.get().getShard(), query) : Optional.empty();
+    }
+
+    /**
+     * Find users by ids, querying each shard for the ids it holds, in parallel.
+     *
+     * @param ids   the ids
+     * @param query the query, run once per shard with the ids on that shard
+     * @param idOf  the id of a result
+     * @param <T>   the result type
+     * @return the results, in no particular order
+     */
+    public <T> List<T> findByIds(Collection<Long> ids, Function<Collection<Long>, List<T>> query,
+                                 Function<T, Long> idOf) {
+        if (!isSharded()) {
+            return query.apply(ids);
+        }
+        Map<Integer, List<Long>> byHome = new TreeMap<>();
+        for (Long id : ids) {
+            if (homeShard(id) < shardCount) {
+                byHome.computeIfAbsent(homeShard(id), shard -> new ArrayList<>()).add(id);
+            }
+        }
+        List<T> results = new ArrayList<>(ids.size());
+        onShards(byHome.keySet(), shard -> query.apply(byHome.get(shard))).forEach(results::addAll);
+        if (results.size() < ids.size()) {
+            Set<Long> missing = new HashSet<>(ids);
+            results.forEach(result -> missing.remove(idOf.apply(result)));
+            Map<Integer, List<Long>> moved = new TreeMap<>();
+            for (UserLocation location : inDirectory(directoryRead,
+                    () -> userDirectoryRepository.findAllById(missing))) {
+                if (location.getShard() != homeShard(location.getUserId())) {
+                    moved.computeIfAbsent(location.getShard(), shard -> new ArrayList<>()).add(location.getUserId());
+                }
+            }
+            onShards(moved.keySet(), shard -> query.apply(moved.get(shard))).forEach(results::addAll);
+        }
+        return results;
+    }
+
+    /**
+     * Find users by usernames, querying each shard the directory names for the usernames it holds, in parallel.
+     *
+     * @param usernames the usernames
+     * @param query     the query, run once per shard with the usernames on that shard
+     * @param <T>       the result type
+     * @return the results, in no particular order
+     */
+    public <T> List<T> findByUsernames(Collection<String> usernames, Function<Collection<String>, List<T>> query) {
+        if (!isSharded()) {
+            return query.apply(usernames);
+        }
+        Map<Integer, List<String>> byShard = new TreeMap<>();
+        for (UserLocation location : inDirectory(directoryRead,
+                () -> userDirectoryRepository.findByUsernameIn(usernames))) {
+            byShard.computeIfAbsent(location.getShard(), shard -> new ArrayList<>()).add(location.getUsername());
+        }
+        List<T> results = new ArrayList<>(usernames.size());
+        onShards(byShard.keySet(), shard -> query.apply(byShard.get(shard))).forEach(results::addAll);
+        return results;
+    }
+
+    /**
+     * Run a query on every shard in parallel and merge the results by user id. A user the rebalancer is
+     * copying between shards is returned once.
+     *
+     * @param query the query, run on each shard, returning results ordered by user id
+     * @param idOf  the id of a result
+     * @param limit the maximum number of results
+     * @param <T>   the result type
+     * @return at most limit results ordered by user id
+     */
+    public <T> List<T> findOrdered(Supplier<List<T>> query, Function<T, Long> idOf, int limit) {
+        if (!isSharded()) {
+            return query.get();
+        }
+        List<T> merged = new ArrayList<>();
+        onShards(allShards(), shard -> query.get()).forEach(merged::addAll);
+        merged.sort(Comparator.comparing(idOf));
+        List<T> results = new ArrayList<>(Math.min(limit, merged.size()));
+        Long previous = null;
+        for (T result : merged) {
+            Long id = idOf.apply(result);
+            if (!id.equals(previous)) {
+                if (results.size() == limit) {
+                    break;
+                }
+                results.add(result);
+                previous = id;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Stream a query over all shards one after another, each in its own read-only transaction, so the caller
+     * needs no transaction of its own. Within a shard the order of the query is kept.
+     *
+     * @param query the query, run on each shard
+     * @param <T>   the element type
+     * @return the stream, which the caller must close
+     */
+    public <T> Stream<T> streamAll(Supplier<Stream<T>> query) {
+        ShardIterator<T> iterator = new ShardIterator<>(query);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Count the users on each shard, in parallel.
+     *
+     * @return the number of users per shard, in shard order
+     */
+    public List<Long> countPerShard() {
+        return onShards(allShards(), shard -> userRepository.count());
+    }
+
+    /**
+     * Count the users on all shards.
+     *
+     * @return the number of users
+     */
+    public long count() {
+        return countPerShard().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Find which of the given usernames are taken on any shard.
+     *
+     * @param usernames the usernames
+     * @param query     finds the taken usernames when not sharded
+     * @return the usernames that exist
+     */
+    public List<String> findExistingUsernames(Collection<String> usernames,
+                                              Function<Collection<String>, List<String>> query) {
+        return isSharded()
+                ? inDirectory(directoryRead, () -> userDirectoryRepository.findExistingUsernames(usernames))
+                : query.apply(usernames);
+    }
+
+    /**
+     * Find which of the given emails are taken on any shard.
+     *
+     * @param emails the emails
+     * @param query  finds the taken emails when not sharded
+     * @return the emails that exist
+     */
+    public List<String> findExistingEmails(Collection<String> emails,
+                                           Function<Collection<String>, List<String>> query) {
+        return isSharded()
+                ? inDirectory(directoryRead, () -> userDirectoryRepository.findExistingEmails(emails))
+                : query.apply(emails);
+    }
+
+    /**
+     * Save a new user on the shard its username hashes to and register it in the directory.
+     *
+     * @param user the user
+     * @param save saves the user on the selected shard
+     * @return the saved user
+     */
+    public User insert(User user, UnaryOperator<User> save) {
+        return insert(List.of(user), users -> List.of(save.apply(users.get(0)))).get(0);
+    }
+
+    /**
+     * Save new users on the shards their usernames hash to and register them in the directory. If the
+     * directory rejects a username or email taken on another shard, the saved users are deleted again.
+     *
+     * @param users the users
+     * @param save  saves users on the selected shard, returning them in the same order
+     * @return the saved users, in the same order
+     */
+    public List<User> insert(List<User> users, UnaryOperator<List<User>> save) {
+        if (!isSharded()) {
+            return save.apply(users);
+        }
+        Map<Integer, List<Integer>> byShard = new TreeMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            byShard.computeIfAbsent(placeNew(users.get(i).getUsername()), shard -> new ArrayList<>()).add(i);
+        }
+        User[] saved = new User[users.size()];
+        Map<Integer, List<Long>> savedIds = new LinkedHashMap<>();
+        List<UserLocation> locations = new ArrayList<>(users.size());
+        try {
+            for (Map.Entry<Integer, List<Integer>> entry : byShard.entrySet()) {
+                int shard = entry.getKey();
+                List<Integer> indexes = entry.getValue();
+                List<User> group = new ArrayList<>(indexes.size());
+                indexes.forEach(index -> group.add(users.get(index)));
+                List<User> savedGroup = onShard(shard, () -> save.apply(group));
+                List<Long> ids = new ArrayList<>(indexes.size());
+                for (int i = 0; i < indexes.size(); i++) {
+                    User user = savedGroup.get(i);
+                    saved[indexes.get(i)] = user;
+                    ids.add(user.getUserId());
+                    locations.add(new UserLocation(user.getUserId(), user.getUsername(), user.getEmail(), shard));
+                }
+                savedIds.put(shard, ids);
+            }
+            inDirectory(directoryWrite, () -> userDirectoryRepository.saveAll(locations));
+        } catch (RuntimeException ex) {
+            savedIds.forEach((shard, ids) -> onShard(shard, () -> {
+                userRepository.deleteAllByIdInBatch(ids);
+                return null;
+            }));
+            throw ex;
+        }
+        return Arrays.asList(saved);
+    }
+
+    /**
+     * Run a write on the shard that holds a user. A new username or email is claimed in the directory first,
+     * and released again if the write fails or is not applied. A write that finds no user is retried once on
+     * the shard the user was moved to in the meantime.
+     *
+     * @param id       the id
+     * @param username the new username, or null if it does not change
+     * @param email    the new email, or null if it does not change
+     * @param write    the write, run on one shard
+     * @param applied  whether the result of the write means it was applied
+     * @param <T>      the result type
+     * @return the result of the write
+     */
+    public <T> T writeUser(Long id, String username, String email, Supplier<T> write, Predicate<T> applied) {
+        if (!isSharded()) {
+            return write.get();
+        }
+        UserLocation location = locate(id).orElse(null);
+        if (location == null) {
+            int home = homeShard(id);
+            return onShard(home < shardCount ? home : DIRECTORY_SHARD, write);
+        }
+        boolean rekeyed = (username != null && !username.equals(location.getUsername()))
+                || (email != null && !email.equals(location.getEmail()));
+        if (rekeyed) {
+            inDirectory(directoryWrite, () -> userDirectoryRepository.updateKeys(id, username, email));
+        }
+        boolean done = false;
+        try {
+            T result = onShard(location.getShard(), write);
+            if (!applied.test(result)) {
+                Optional<UserLocation> moved = locate(id);
+                if (moved.isPresent() && moved.get().getShard() != location.getShard()) {
+                    result = onShard(moved.get().getShard(), write);
+                }
+            }
+            done = applied.test(result);
+            return result;
+        } finally {
+            if (rekeyed && !done) {
+                inDirectory(directoryWrite,
+                        () -> userDirectoryRepository.updateKeys(id, location.getUsername(), location.getEmail()));
+            }
+        }
+    }
+
+    /**
+     * Remove a deleted user from the directory.
+     *
+     * @param id the id
+     */
+    public void unregister(Long id) {
+        if (isSharded()) {
+            inDirectory(directoryWrite, () -> userDirectoryRepository.deleteLocation(id));
+        }
+    }
+
+    /**
+     * Register users that are already stored on a shard.
+     *
+     * @param locations the locations
+     */
+    public void register(List<UserLocation> locations) {
+        inDirectory(directoryWrite, () -> userDirectoryRepository.saveAll(locations));
+    }
+
+    /**
+     * Find which of the given user ids are registered in the directory.
+     *
+     * @param ids the ids
+     * @return the registered ids
+     */
+    public List<Long> findRegisteredIds(Collection<Long> ids) {
+        return inDirectory(directoryRead, () -> userDirectoryRepository.findExistingUserIds(ids));
+    }
+
+    /**
+     * Whether the directory has no users, as before the first start with sharding.
+     *
+     * @return true if the directory is empty
+     */
+    public boolean isDirectoryEmpty() {
+        return inDirectory(directoryRead, () -> userDirectoryRepository.count() == 0);
+    }
+
+    /**
+     * Gets the location of a user from the directory.
+     *
+     * @param id the id
+     * @return the location, empty if the user is not registered
+     */
+    public Optional<UserLocation> locate(Long id) {
+        return inDirectory(directoryRead, () -> userDirectoryRepository.findById(id));
+    }
+
+    /**
+     * Record in the directory that a user moved to another shard.
+     *
+     * @param id   the id
+     * @param from the shard the user moves from
+     * @param to   the shard the user moves to
+     * @return false if the directory did not have the user on the shard it moves from
+     */
+    public boolean relocate(Long id, int from, int to) {
+        return inDirectory(directoryWrite, () -> userDirectoryRepository.updateShard(id, from, to)) == 1;
+    }
+
+    /**
+     * Stop the scatter threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+        }
+    }
+
+    private int placeNew(String username) {
+        return Math.floorMod(username.hashCode() * 0x9E3779B1, shardCount);
+    }
+
+    private List<Integer> allShards() {
+        List<Integer> shards = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    private <T> T inDirectory(TransactionTemplate transaction, Supplier<T> action) {
+        return onShard(DIRECTORY_SHARD, () -> transaction.execute(status -> action.get()));
+    }
+
+    /**
+     * Run an action on each of the given shards, on the scatter threads when there is more than one.
+     */
+    private <T> List<T> onShards(Collection<Integer> shards, IntFunction<T> action) {
+        if (shards.size() <= 1 || scatterExecutor == null) {
+            List<T> results = new ArrayList<>(shards.size());
+            shards.forEach(shard -> results.add(onShard(shard, () -> action.apply(shard))));
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(shards.size());
+        shards.forEach(shard -> futures.add(
+                scatterExecutor.submit(() -> ShardContext.call(shard, () -> action.apply(shard)))));
+        List<T> results = new ArrayList<>(shards.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying the shards", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Querying a shard failed", ex.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Iterates the query of one shard after the other, opening each shard's transaction when its first element
+     * is needed and committing it once its elements are consumed.
+     */
+    private final class ShardIterator<T> implements Iterator<T> {
+
+        private final Supplier<Stream<T>> query;
+        private int nextShard;
+        private TransactionStatus transaction;
+        private Stream<T> stream;
+        private Iterator<T> current = Collections.emptyIterator();
+
+        private ShardIterator(Supplier<Stream<T>> query) {
+            this.query = query;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                close();
+                if (nextShard == shardCount) {
+                    return false;
+                }
+                open(nextShard++);
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        private void open(int shard) {
+            onShard(shard, () -> {
+                transaction = transactionManager.getTransaction(readOnlyTransaction);
+                try {
+                    stream = query.get();
+                    current = stream.iterator();
+                } catch (RuntimeException ex) {
+                    TransactionStatus failed = transaction;
+                    transaction = null;
+                    transactionManager.rollback(failed);
+                    throw ex;
+                }
+                return null;
+            });
+        }
+
+        private void close() {
+            current = Collections.emptyIterator();
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } finally {
+                stream = null;
+                if (transaction != null) {
+                    TransactionStatus finished = transaction;
+                    transaction = null;
+                    transactionManager.commit(finished);
+                }
+            }
+        }
+    }
+}
@@ -1,4 +1,6 @@
-INSERT INTO users (username, email, created_at,first_name,last_name) VALUES
-('John', 'john@example.com', NOW(),'John' ,'Doe'),
-('Alice', 'alice@example.com', NOW(),'Alice','Schmidt'),
-('Bob', 'bob@example.com', NOW(),'Bob','Dorian');
\ No newline at end of file
+INSERT INTO users (username, email, created_at,first_name,last_name)
+SELECT username, email, NOW(), first_name, last_name FROM (VALUES
+('John', 'john@example.com', 'John' ,'Doe'),
+('Alice', 'alice@example.com', 'Alice','Schmidt'),
+('Bob', 'bob@example.com', 'Bob','Dorian')) AS seed(username, email, first_name, last_name)
+WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.username = seed.username);
@@ -1,8 +1,63 @@
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS users (
-id BIGINT AUTO_INCREMENT PRIMARY KEY,
+user_id BIGINT DEFAULT NEXT VALUE FOR users_seq PRIMARY KEY,
 username VARCHAR(255) NOT NULL UNIQUE,
 email VARCHAR(255) NOT NULL UNIQUE,
 created_at TIMESTAMP ,
 first_name VARCHAR(255),
-Last_name VARCHAR(255)
-    );
\ No newline at end of file
+Last_name VARCHAR(255),
+version BIGINT DEFAULT 0 NOT NULL
+    );
+
+CREATE INDEX IF NOT EXISTS idx_users_created_at ON users (created_at);
+
+CREATE TABLE IF NOT EXISTS import_jobs (
+job_id VARCHAR(36) PRIMARY KEY,
+format VARCHAR(16) NOT NULL,
+file_path VARCHAR(1024) NOT NULL,
+status VARCHAR(16) NOT NULL,
+records_committed BIGINT NOT NULL DEFAULT 0,
+created BIGINT NOT NULL DEFAULT 0,
+failed BIGINT NOT NULL DEFAULT 0,
+message VARCHAR(1024),
+error_samples JSON,
+created_at TIMESTAMP,
+updated_at TIMESTAMP
+    );
+
+CREATE TABLE IF NOT EXISTS user_directory (
+user_id BIGINT PRIMARY KEY,
+username VARCHAR(255) NOT NULL UNIQUE,
+email VARCHAR(255) NOT NULL UNIQUE,
+shard INT NOT NULL
+    );
+
+CREATE SEQUENCE IF NOT EXISTS user_outbox_seq START WITH 1 INCREMENT BY 1;
+ALTER SEQUENCE user_outbox_seq INCREMENT BY 1;
+
+CREATE TABLE IF NOT EXISTS user_outbox (
+outbox_id BIGINT PRIMARY KEY,
+change_type VARCHAR(16) NOT NULL,
+user_id BIGINT NOT NULL,
+payload VARCHAR(4096),
+created_at TIMESTAMP NOT NULL
+    );
+
+CREATE TABLE IF NOT EXISTS user_changes (
+change_seq BIGINT PRIMARY KEY,
+source_shard INT NOT NULL,
+outbox_id BIGINT NOT NULL,
+change_type VARCHAR(16) NOT NULL,
+user_id BIGINT NOT NULL,
+payload VARCHAR(4096),
+created_at TIMESTAMP NOT NULL,
+UNIQUE (source_shard, outbox_id)
+    );
+
+CREATE TABLE IF NOT EXISTS user_change_relay_lock (
+lock_id INT PRIMARY KEY
+    );
+
+INSERT INTO user_change_relay_lock (lock_id)
+SELECT 1 WHERE NOT EXISTS (SELECT 1 FROM user_change_relay_lock);
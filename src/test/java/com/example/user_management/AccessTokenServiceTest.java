@@ -0,0 +1,80 @@
+package com.example.user_management;
+
+import com.example.user_management.security.AccessTokenAuthentication;
+import com.example.user_management.security.AccessTokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Access token service test.
+ */
+public class AccessTokenServiceTest {
+
+    private static final String KEY_1 = "k1:" + Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String KEY_2 = "k2:" + Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+    private static final Clock NOW = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    private final Authentication user = UsernamePasswordAuthenticationToken.authenticated("user", null,
+            AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+
+    /**
+     * Test issued token verifies.
+     */
+    @Test
+    public void testIssueAndVerify() {
+        AccessTokenService service = new AccessTokenService(KEY_1, "", Duration.ofMinutes(15), NOW);
+        Optional<AccessTokenAuthentication> authentication = service.verify(service.issue(user));
+        assertTrue(authentication.isPresent());
+        assertEquals("user", authentication.get().getName());
+        assertEquals("ROLE_ADMIN", authentication.get().getAuthorities().iterator().next().getAuthority());
+    }
+
+    /**
+     * Test tampered token is rejected.
+     */
+    @Test
+    public void testVerify_Tampered() {
+        AccessTokenService service = new AccessTokenService(KEY_1, "", Duration.ofMinutes(15), NOW);
+        String token = service.issue(user);
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("admin\nROLE_ADMIN\n9999999999".getBytes());
+        String[] parts = token.split("\\.");
+        assertTrue(service.verify(parts[0] + "." + forgedPayload + "." + parts[2]).isEmpty());
+        assertTrue(service.verify("garbage").isEmpty());
+    }
+
+    /**
+     * Test expired token is rejected.
+     */
+    @Test
+    public void testVerify_Expired() {
+        String token = new AccessTokenService(KEY_1, "", Duration.ofMinutes(15), NOW).issue(user);
+        AccessTokenService later = new AccessTokenService(KEY_1, "", Duration.ofMinutes(15),
+                Clock.offset(NOW, Duration.ofMinutes(16)));
+        assertTrue(later.verify(token).isEmpty());
+    }
+
+    /**
+     * Test tokens signed with a previous key still verify after rotation, and tokens with a removed key do not.
+     */
+    @Test
+    public void testVerify_KeyRotation() {
+        String oldToken = new AccessTokenService(KEY_1, "", Duration.ofMinutes(15), NOW).issue(user);
+        AccessTokenService rotated = new AccessTokenService(KEY_1 + "," + KEY_2, "k2", Duration.ofMinutes(15), NOW);
+        assertTrue(rotated.verify(oldToken).isPresent());
+        assertTrue(rotated.issue(user).startsWith("k2."));
+        AccessTokenService retired = new AccessTokenService(KEY_2, "", Duration.ofMinutes(15), NOW);
+        assertTrue(retired.verify(oldToken).isEmpty());
+    }
+}
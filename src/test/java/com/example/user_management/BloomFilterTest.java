@@ -0,0 +1,37 @@
+package com.example.user_management;
+
+import com.example.user_management.service.cache.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Bloom filter test.
+ */
+public class BloomFilterTest {
+
+    private static final int KEYS = 100_000;
+
+    /**
+     * Test added keys are always found and absent keys rarely are.
+     */
+    @Test
+    public void testMightContain() {
+        BloomFilter bloomFilter = BloomFilter.create(KEYS, 0.01);
+        for (int i = 0; i < KEYS; i++) {
+            bloomFilter.add("user" + i);
+        }
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(bloomFilter.mightContain("user" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < KEYS; i++) {
+            if (bloomFilter.mightContain("absent" + i)) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / KEYS;
+        assertTrue(rate < 0.02, "False-positive rate " + rate);
+        assertEquals(0.01, bloomFilter.estimatedFalsePositiveRate(), 0.005);
+    }
+}
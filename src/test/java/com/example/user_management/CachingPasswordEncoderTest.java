@@ -0,0 +1,117 @@
+package com.example.user_management;
+
+import com.example.user_management.security.CachingPasswordEncoder;
+import com.example.user_management.security.CredentialChangeAwareUserDetailsManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Caching password encoder test.
+ */
+public class CachingPasswordEncoderTest {
+
+    private static final Duration TTL = Duration.ofSeconds(60);
+
+    private final AtomicInteger hashed = new AtomicInteger();
+    private final AtomicLong nanos = new AtomicLong();
+    private CachingPasswordEncoder encoder;
+
+    /**
+     * Sets up an encoder over a cheap BCrypt that counts its checks, on a clock the tests move.
+     */
+    @BeforeEach
+    public void setUp() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        PasswordEncoder counting = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return bcrypt.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                hashed.incrementAndGet();
+                return bcrypt.matches(rawPassword, encodedPassword);
+            }
+        };
+        encoder = new CachingPasswordEncoder(counting, TTL, 100, nanos::get);
+    }
+
+    /**
+     * Test a verified password is answered from the cache, and a wrong one is hashed on every attempt, also
+     * after the right one was cached.
+     */
+    @Test
+    public void testWrongPasswordIsNeverCached() {
+        String hash = encoder.encode("secret");
+        assertTrue(encoder.matches("secret", hash));
+        assertTrue(encoder.matches("secret", hash));
+        assertEquals(1, hashed.get());
+
+        assertFalse(encoder.matches("wrong", hash));
+        assertFalse(encoder.matches("wrong", hash));
+        assertEquals(3, hashed.get());
+        assertFalse(encoder.matches("secret", encoder.encode("other")));
+        assertEquals(1, encoder.stats().getSize());
+    }
+
+    /**
+     * Test changing a password through the user details manager drops the verified credentials, so the old
+     * password is rejected and checked against its hash again.
+     */
+    @Test
+    public void testPasswordChangeInvalidatesCache() {
+        UserDetails user = User.withUsername("user").password(encoder.encode("old")).roles("ADMIN").build();
+        CredentialChangeAwareUserDetailsManager manager = new CredentialChangeAwareUserDetailsManager(
+                encoder::clear, user);
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(manager);
+        provider.setPasswordEncoder(encoder);
+
+        assertTrue(provider.authenticate(token("old")).isAuthenticated());
+        assertTrue(provider.authenticate(token("old")).isAuthenticated());
+        assertEquals(1, hashed.get());
+
+        manager.updatePassword(manager.loadUserByUsername("user"), encoder.encode("new"));
+        assertEquals(0, encoder.stats().getSize());
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(token("old")));
+        assertTrue(provider.authenticate(token("new")).isAuthenticated());
+        assertEquals(3, hashed.get());
+
+        assertTrue(encoder.matches("old", user.getPassword()));
+        assertEquals(4, hashed.get());
+    }
+
+    /**
+     * Test a verified password is hashed again once its entry is older than the ttl.
+     */
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        String hash = encoder.encode("secret");
+        assertTrue(encoder.matches("secret", hash));
+
+        nanos.addAndGet(TTL.toNanos() - 1);
+        assertTrue(encoder.matches("secret", hash));
+        assertEquals(1, hashed.get());
+
+        nanos.addAndGet(1);
+        assertTrue(encoder.matches("secret", hash));
+        assertEquals(2, hashed.get());
+    }
+
+    private static UsernamePasswordAuthenticationToken token(String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated("user", password);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.user_management;
+
+import com.example.user_management.repository.offheap.DurableUserStore;
+import com.example.user_management.service.dto.UserDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Durable user store test.
+ */
+public class DurableUserStoreTest {
+
+    @TempDir
+    private Path dir;
+
+    /**
+     * Test writes acknowledged before a restart are there after it, from the log alone.
+     */
+    @Test
+    public void testRecoversFromLog() {
+        try (DurableUserStore store = DurableUserStore.open(dir, Long.MAX_VALUE)) {
+            store.save(user("john"));
+            Long alice = store.save(user("alice")).getUserId();
+            store.save(user("bob"));
+            store.updateFields(alice, new UserDTO(null, "alicia", null, null, null, null, null), 0L);
+            store.deleteUserById(1L);
+        }
+
+        try (DurableUserStore store = DurableUserStore.open(dir, Long.MAX_VALUE)) {
+            assertEquals(5, store.getReplayedRecords());
+            assertEquals(2, store.count());
+            assertTrue(store.findDTOById(1L).isEmpty());
+            assertEquals(1L, store.findDTOByUsername("alicia").orElseThrow().getVersion());
+            assertEquals(4L, store.save(user("carol")).getUserId());
+        }
+    }
+
+    /**
+     * Test a record cut off by a crash is dropped and the log continues after the last whole record.
+     *
+     * @throws IOException if the log cannot be cut
+     */
+    @Test
+    public void testTruncatesTornTail() throws IOException {
+        try (DurableUserStore store = DurableUserStore.open(dir, Long.MAX_VALUE)) {
+            store.save(user("john"));
+            store.save(user("alice"));
+        }
+        Path segment = files("wal-").get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (DurableUserStore store = DurableUserStore.open(dir, Long.MAX_VALUE)) {
+            assertEquals(1, store.count());
+            store.save(user("bob"));
+        }
+        try (DurableUserStore store = DurableUserStore.open(dir, Long.MAX_VALUE)) {
+            assertEquals(List.of("john", "bob"), store.findAllDTOs().stream().map(UserDTO::getUsername).toList());
+        }
+    }
+
+    /**
+     * Test a snapshot replaces the log it covers, and only later writes are replayed.
+     *
+     * @throws IOException if the directory cannot be listed
+     */
+    @Test
+    public void testSnapshotCompactsLog() throws IOException {
+        try (DurableUserStore store = DurableUserStore.open(dir, Long.MAX_VALUE)) {
+            for (int i = 0; i < 100; i++) {
+                store.save(user("user" + i));
+            }
+            store.snapshot();
+            store.snapshot();
+            store.deleteUserById(1L);
+        }
+        assertEquals(1, files("users-").size());
+        assertEquals(1, files("wal-").size());
+
+        try (DurableUserStore store = DurableUserStore.open(dir, Long.MAX_VALUE)) {
+            assertEquals(1, store.getReplayedRecords());
+            assertEquals(99, store.count());
+            assertEquals(101L, store.save(user("new")).getUserId());
+        }
+    }
+
+    /**
+     * Test concurrent writers are all durable, sharing forces of the log.
+     *
+     * @throws Exception if a writer fails
+     */
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        try (DurableUserStore store = DurableUserStore.open(dir, 4096);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<UserDTO>> saves = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                String username = "user" + i;
+                saves.add(executor.submit(() -> store.save(user(username))));
+            }
+            for (Future<UserDTO> save : saves) {
+                assertNotNull(save.get().getUserId());
+            }
+        }
+
+        try (DurableUserStore store = DurableUserStore.open(dir, 4096)) {
+            assertEquals(500, store.count());
+        }
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).sorted().toList();
+        }
+    }
+
+    private static UserDTO user(String username) {
+        return new UserDTO(null, username, username + "@example.com", "First", "Last", null, null);
+    }
+}
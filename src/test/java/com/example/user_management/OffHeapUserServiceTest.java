@@ -0,0 +1,194 @@
+package com.example.user_management;
+
+import com.example.user_management.exception.PreconditionFailedException;
+import com.example.user_management.model.ImportJob;
+import com.example.user_management.model.User;
+import com.example.user_management.repository.UserRepository;
+import com.example.user_management.repository.UserStore;
+import com.example.user_management.repository.offheap.DurableUserStore;
+import com.example.user_management.repository.offheap.OffHeapUserRepository;
+import com.example.user_management.repository.offheap.OffHeapUserStore;
+import com.example.user_management.service.UserBatchGetService;
+import com.example.user_management.service.UserBulkService;
+import com.example.user_management.service.UserExportService;
+import com.example.user_management.service.UserFileFormat;
+import com.example.user_management.service.UserImportService;
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.BatchGetRequestDTO;
+import com.example.user_management.service.dto.BulkCreateResultDTO;
+import com.example.user_management.service.dto.BulkItemResultDTO;
+import com.example.user_management.service.dto.ImportJobDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.search.UserSearchService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Off heap user service test. Runs the user service on the durable off-heap store.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:offheap;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "user-management.offheap.enabled=true"})
+@DirtiesContext
+public class OffHeapUserServiceTest {
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    private UserStore userStore;
+
+    @Autowired
+    private OffHeapUserStore offHeapUserStore;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserBatchGetService userBatchGetService;
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @Autowired
+    private UserBulkService userBulkService;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    /**
+     * Keep the store in the temporary directory.
+     *
+     * @param registry the registry
+     */
+    @DynamicPropertySource
+    static void storeDirectory(DynamicPropertyRegistry registry) {
+        registry.add("user-management.offheap.directory", () -> directory.toString());
+    }
+
+    /**
+     * Test writes go to the off-heap store instead of the users table, and every read path sees them.
+     */
+    @Test
+    public void testWritesAndReadsUseTheStore() {
+        assertInstanceOf(OffHeapUserRepository.class, userStore);
+        assertInstanceOf(DurableUserStore.class, offHeapUserStore);
+
+        UserDTO created = userService.createUser(newUser("offheap"));
+        assertTrue(offHeapUserStore.findDTOById(created.getUserId()).isPresent());
+        assertTrue(userRepository.findByUsername("offheap").isEmpty());
+
+        Long version = userService.patchUser(created.getUserId(), new UserDTO(null, null, null, "Patched", null,
+                null, null), created.getVersion());
+        assertEquals(1L, version);
+        UserDTO updated = userService.updateUser(created.getUserId(),
+                new UserDTO(null, "offheap", "offheap@example.com", "Updated", null, null, null), version);
+        assertEquals(2L, updated.getVersion());
+        assertNull(updated.getLastName());
+
+        assertEquals("Updated", userService.getUserByUserName("offheap").getFirstName());
+        assertEquals(2L, userService.getUserVersion(created.getUserId()));
+        assertEquals(List.of("offheap"), userService.getUsers(null, 10, null).getContent().stream()
+                .map(UserDTO::getUsername).filter("offheap"::equals).toList());
+        assertEquals(created.getUserId(), userSearchService.search("offheap", 10).get(0).getUserId());
+        assertEquals(1, userBatchGetService.getUsers(new BatchGetRequestDTO(List.of(created.getUserId()), null))
+                .getFound());
+    }
+
+    /**
+     * Test bulk creates, imports and the export use the store, and bulk creates check for taken names in it.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testBulkImportAndExportUseTheStore() throws Exception {
+        userService.createUser(newUser("offheaptaken"));
+        BulkCreateResultDTO result = userBulkService.createUsers(List.of(newUser("offheapbulk1"),
+                newUser("offheaptaken"), newUser("offheapbulk2")));
+        assertEquals(2, result.getCreated());
+        assertEquals(BulkItemResultDTO.Status.CONFLICT, result.getResults().get(1).getStatus());
+        Long bulkId = result.getResults().get(0).getUserId();
+        assertEquals("offheapbulk1", userService.getUserById(bulkId).getUsername());
+        assertTrue(userRepository.findByUsername("offheapbulk1").isEmpty());
+
+        ImportJobDTO job = userImportService.startImport(UserFileFormat.CSV, new ByteArrayInputStream(
+                "username,email\nofflineimport,offlineimport@example.com\n".getBytes(StandardCharsets.UTF_8)));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (job.getStatus() == ImportJob.Status.QUEUED || job.getStatus() == ImportJob.Status.RUNNING) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for import job " + job.getJobId());
+            Thread.sleep(10);
+            job = userImportService.getImport(job.getJobId());
+        }
+        assertEquals(1, job.getCreated());
+        assertEquals("offlineimport@example.com", userService.getUserByUserName("offlineimport").getEmail());
+        assertTrue(userRepository.findByUsername("offlineimport").isEmpty());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = userExportService.export(UserFileFormat.CSV, out);
+        assertEquals(offHeapUserStore.count(), exported);
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.contains("\n" + bulkId + ",offheapbulk1,offheapbulk1@example.com,First,Last,"));
+        assertTrue(csv.contains(",offlineimport,"));
+    }
+
+    /**
+     * Test a stale version is refused by the store as by the database.
+     */
+    @Test
+    public void testStaleWritesAreRefused() {
+        UserDTO created = userService.createUser(newUser("offheapstale"));
+        userService.patchUser(created.getUserId(), new UserDTO(null, null, null, "First", null, null, null), null);
+
+        assertThrows(PreconditionFailedException.class, () -> userService.patchUser(created.getUserId(),
+                new UserDTO(null, null, null, "Second", null, null, null), created.getVersion()));
+        assertThrows(PreconditionFailedException.class, () -> userService.updateUser(created.getUserId(),
+                newUser("offheapstale"), created.getVersion()));
+
+        User user = userStore.findByIdForWrite(created.getUserId()).orElseThrow();
+        userService.patchUser(created.getUserId(), new UserDTO(null, null, null, "Third", null, null, null), null);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> userStore.save(user));
+    }
+
+    /**
+     * Test the writes are in the log, so a store opened on the directory recovers them. Closes the store, so
+     * the next test gets a new context, which recovers the users from the directory too.
+     */
+    @Test
+    @DirtiesContext
+    public void testWritesAreDurable() {
+        UserDTO created = userService.createUser(newUser("offheapdurable"));
+        userService.deleteUser(userService.createUser(newUser("offheapdeleted")).getUserId());
+
+        ((DurableUserStore) offHeapUserStore).close();
+        try (DurableUserStore recovered = DurableUserStore.open(directory, Long.MAX_VALUE)) {
+            assertEquals(created.getUsername(),
+                    recovered.findDTOById(created.getUserId()).orElseThrow().getUsername());
+            assertTrue(recovered.findDTOByUsername("offheapdeleted").isEmpty());
+        }
+    }
+
+    private static UserDTO newUser(String username) {
+        return new UserDTO(null, username, username + "@example.com", "First", "Last", null, null);
+    }
+}
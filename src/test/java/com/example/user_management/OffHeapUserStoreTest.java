@@ -0,0 +1,187 @@
+package com.example.user_management;
+
+import com.example.user_management.repository.UserVersion;
+import com.example.user_management.repository.offheap.OffHeapUserStore;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Off heap user store test.
+ */
+public class OffHeapUserStoreTest {
+
+    private final OffHeapUserStore store = new OffHeapUserStore();
+
+    /**
+     * Test created users get ids and versions and can be found by id and username.
+     */
+    @Test
+    public void testSaveAndFind() {
+        UserDTO created = store.save(user(null, "jöhn", "john@example.com"));
+        assertEquals(1L, created.getUserId());
+        assertEquals(0L, created.getVersion());
+        assertNotNull(created.getCreatedAt());
+
+        assertEquals("john@example.com", store.findDTOByUsername("jöhn").orElseThrow().getEmail());
+        assertEquals("jöhn", store.findDTOById(1L).orElseThrow().getUsername());
+        assertTrue(store.findDTOById(2L).isEmpty());
+        assertTrue(store.findDTOByUsername("john").isEmpty());
+        assertEquals(List.of("john@example.com"), store.findExistingEmails(List.of("john@example.com", "x@y.z")));
+    }
+
+    /**
+     * Test users inserted together are created all or none: a name taken in the store or within the batch
+     * rejects the whole batch.
+     */
+    @Test
+    public void testInsertAll() {
+        store.save(user(null, "john", "john@example.com"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> store.insertAll(List.of(
+                user(null, "alice", "alice@example.com"), user(null, "john", "other@example.com"))));
+        assertThrows(DataIntegrityViolationException.class, () -> store.insertAll(List.of(
+                user(null, "alice", "alice@example.com"), user(null, "bob", "alice@example.com"))));
+        assertEquals(1, store.count());
+        assertTrue(store.findDTOByUsername("alice").isEmpty());
+
+        List<UserDTO> created = store.insertAll(List.of(user(null, "alice", "alice@example.com"),
+                user(null, "bob", "bob@example.com")));
+        assertEquals(List.of(2L, 3L), created.stream().map(UserDTO::getUserId).toList());
+        assertEquals(3L, store.findDTOByUsername("bob").orElseThrow().getUserId());
+    }
+
+    /**
+     * Test a taken username or email is rejected like by the database, and the rejected user is not stored.
+     */
+    @Test
+    public void testUniqueUsernameAndEmail() {
+        store.save(user(null, "john", "john@example.com"));
+        UserDTO alice = store.save(user(null, "alice", "alice@example.com"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> store.save(user(null, "john", "other@example.com")));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> store.updateFields(alice.getUserId(), user(null, null, "john@example.com"), null));
+        assertEquals(2, store.count());
+        assertEquals("alice@example.com", store.findDTOByUsername("alice").orElseThrow().getEmail());
+    }
+
+    /**
+     * Test updates increment the version, honour the expected version and move the username index.
+     */
+    @Test
+    public void testUpdateFields() {
+        Long id = store.save(user(null, "john", "john@example.com")).getUserId();
+
+        assertEquals(1, store.updateFields(id, user(null, "johnny", null), 0L));
+        assertEquals(0, store.updateFields(id, user(null, "johnathan", null), 0L));
+        assertEquals(0, store.updateFields(99L, user(null, "nobody", null), null));
+
+        UserDTO updated = store.findDTOByUsername("johnny").orElseThrow();
+        assertEquals(1L, updated.getVersion());
+        assertEquals("john@example.com", updated.getEmail());
+        assertEquals("Last", updated.getLastName());
+        assertTrue(store.findDTOByUsername("john").isEmpty());
+        assertEquals(new UserVersion(updated.getUserId(), 1L), store.findVersionByUsername("johnny").orElseThrow());
+    }
+
+    /**
+     * Test keyset pages are ordered by id and apply the filter.
+     */
+    @Test
+    public void testFindDTOPage() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (long id = 10; id >= 1; id--) {
+            UserDTO user = user(id, "user" + id, "user" + id + "@example.com");
+            user.setCreatedAt(base.plusDays(id));
+            store.save(user);
+        }
+
+        assertEquals(List.of(4L, 5L, 6L), ids(store.findDTOPage(3L, null, 3)));
+        UserFilter filter = new UserFilter("user1", null, base.plusDays(2), null);
+        assertEquals(List.of(10L), ids(store.findDTOPage(null, filter, 10)));
+        filter = new UserFilter(null, null, base.plusDays(3), base.plusDays(5));
+        assertEquals(List.of(new UserVersion(3L, 0L), new UserVersion(4L, 0L)),
+                store.findPageVersions(null, filter, 10));
+        assertEquals(10, store.findAllDTOs().size());
+    }
+
+    /**
+     * Test random writes, enough to compact the slab several times, leave the store equal to a map of the users.
+     */
+    @Test
+    public void testRandomWritesMatchModel() {
+        TreeMap<Long, String> model = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long id = 1 + random.nextInt(2_000);
+            if (random.nextInt(4) == 0) {
+                assertEquals(model.remove(id) != null ? 1 : 0, store.deleteUserById(id));
+            } else {
+                String username = "user" + id + "-" + i;
+                store.save(user(id, username, username + "@example.com"));
+                model.put(id, username);
+            }
+        }
+
+        assertEquals(model.size(), store.count());
+        assertEquals(List.copyOf(model.keySet()), ids(store.findAllDTOs()));
+        model.forEach((id, username) -> assertEquals(id, store.findDTOByUsername(username).orElseThrow().getUserId()));
+    }
+
+    /**
+     * Test a snapshot restores the same users, and the restored store keeps assigning new ids.
+     *
+     * @param dir the temporary directory
+     */
+    @Test
+    public void testSnapshotAndRestore(@TempDir Path dir) {
+        for (int i = 0; i < 1_000; i++) {
+            store.save(user(null, "user" + i, "user" + i + "@example.com"));
+        }
+        store.deleteUserById(500L);
+        store.updateFields(7L, user(null, null, null), null);
+        Path file = dir.resolve("users.snapshot");
+        store.snapshot(file);
+
+        OffHeapUserStore restored = OffHeapUserStore.restore(file);
+        assertEquals(999, restored.count());
+        assertTrue(restored.findDTOById(500L).isEmpty());
+        UserDTO user = restored.findDTOByUsername("user6").orElseThrow();
+        assertEquals(7L, user.getUserId());
+        assertEquals(1L, user.getVersion());
+        assertEquals(store.findDTOById(7L).orElseThrow().getCreatedAt(), user.getCreatedAt());
+        assertEquals(1_001L, restored.save(user(null, "new", "new@example.com")).getUserId());
+    }
+
+    /**
+     * Test the store stays small per user: the records plus the heap indexes.
+     */
+    @Test
+    public void testBytesPerUser() {
+        int users = 100_000;
+        for (int i = 0; i < users; i++) {
+            store.save(user(null, "user" + i, "user" + i + "@example.com"));
+        }
+        long bytesPerUser = (store.getRecordBytes() + store.getIndexBytes()) / users;
+        assertTrue(bytesPerUser < 200, "Bytes per user: " + bytesPerUser);
+    }
+
+    private static UserDTO user(Long id, String username, String email) {
+        return new UserDTO(id, username, email, "First", "Last", null, null);
+    }
+
+    private static List<Long> ids(List<UserDTO> users) {
+        return users.stream().map(UserDTO::getUserId).toList();
+    }
+}
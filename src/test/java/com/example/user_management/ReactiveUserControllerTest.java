@@ -0,0 +1,172 @@
+package com.example.user_management;
+
+import com.example.user_management.service.dto.UserChangeDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserPageDTO;
+import com.example.user_management.service.event.UserChangeRelay;
+import com.example.user_management.service.event.UserChangeRingBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Reactive user controller test.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+public class ReactiveUserControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private UserChangeRelay userChangeRelay;
+
+    @Autowired
+    private UserChangeRingBuffer ringBuffer;
+
+    private WebTestClient client;
+
+    /**
+     * Sets up a client sending the default credentials.
+     */
+    @BeforeEach
+    public void setUp() {
+        client = webTestClient.mutate()
+                .defaultHeaders(headers -> headers.setBasicAuth("user", "user@123"))
+                .build();
+    }
+
+    /**
+     * Test create, conditional read, update, patch and delete answer like the servlet stack, and every write
+     * reaches the change log through the outbox.
+     */
+    @Test
+    public void testCrudWithETags() {
+        userChangeRelay.relay();
+        long before = ringBuffer.getLastSequence();
+
+        EntityExchangeResult<UserDTO> result = client.post().uri("/api/v1/users")
+                .bodyValue(new UserDTO(null, "reactive", "reactive@example.com", "Re", "Active", null, null))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(UserDTO.class).returnResult();
+        Long id = result.getResponseBody().getUserId();
+        assertEquals("\"" + id + ".0\"", result.getResponseHeaders().getETag());
+
+        client.get().uri("/api/v1/users/{id}", id).header("If-None-Match", "\"" + id + ".0\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        client.put().uri("/api/v1/users/{id}", id).header("If-Match", "\"" + id + ".5\"")
+                .bodyValue(new UserDTO(null, "reactive", "reactive@example.com", "Re", "Changed", null, null))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        client.put().uri("/api/v1/users/{id}", id).header("If-Match", "\"" + id + ".0\"")
+                .bodyValue(new UserDTO(null, "reactive", "reactive@example.com", "Re", "Changed", null, null))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"" + id + ".1\"")
+                .expectBody().jsonPath("$.lastName").isEqualTo("Changed");
+        client.patch().uri("/api/v1/users/{id}", id).header("If-Match", "\"" + id + ".1\"")
+                .bodyValue(new UserDTO(null, null, null, "Patched", null, null, null))
+                .exchange()
+                .expectStatus().isNoContent()
+                .expectHeader().valueEquals("ETag", "\"" + id + ".2\"");
+        client.get().uri("/api/v1/users/username/{username}", "reactive")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.firstName").isEqualTo("Patched");
+        client.delete().uri("/api/v1/users/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("User successfully deleted.");
+        client.get().uri("/api/v1/users/{id}", id)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("User with ID " + id + " not found");
+
+        userChangeRelay.relay();
+        List<UserChangeDTO.Type> types = userChangeRelay.readAfter(before, 10).stream()
+                .filter(change -> id.equals(change.getUserId()))
+                .map(UserChangeDTO::getType)
+                .toList();
+        assertEquals(List.of(UserChangeDTO.Type.SAVED, UserChangeDTO.Type.SAVED, UserChangeDTO.Type.PATCHED,
+                UserChangeDTO.Type.DELETED), types);
+    }
+
+    /**
+     * Test invalid input is rejected with the same statuses and bodies as on the servlet stack.
+     */
+    @Test
+    public void testErrorMapping() {
+        client.post().uri("/api/v1/users")
+                .bodyValue(new UserDTO(null, "x", "not-an-email", null, null, null, null))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.username").isEqualTo("Username must be between 3 and 50 characters")
+                .jsonPath("$.email").isEqualTo("Email must be a valid email address");
+        client.get().uri("/api/v1/users/abc")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Invalid value for parameter id");
+        client.post().uri("/api/v1/users").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{not json")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Invalid JSON format");
+        client.get().uri("/api/v1/users?cursor=!")
+                .exchange()
+                .expectStatus().isBadRequest();
+        client.patch().uri("/api/v1/users/{id}", Long.MAX_VALUE).header("If-Match", "\"" + Long.MAX_VALUE + ".0\"")
+                .bodyValue(new UserDTO(null, null, null, "Nobody", null, null, null))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    /**
+     * Test pages follow the cursor, and the export streams every user as newline-delimited JSON.
+     */
+    @Test
+    public void testPagesAndExport() {
+        for (int i = 0; i < 5; i++) {
+            client.post().uri("/api/v1/users")
+                    .bodyValue(new UserDTO(null, "reactpage" + i, "reactpage" + i + "@example.com", null, null,
+                            null, null))
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+
+        UserPageDTO first = client.get().uri("/api/v1/users?username=reactpage&limit=3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserPageDTO.class).returnResult().getResponseBody();
+        assertEquals(3, first.getSize());
+        assertNotNull(first.getNextCursor());
+        UserPageDTO second = client.get()
+                .uri("/api/v1/users?username=reactpage&limit=3&cursor={cursor}", first.getNextCursor())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserPageDTO.class).returnResult().getResponseBody();
+        assertEquals(List.of("reactpage3", "reactpage4"),
+                second.getContent().stream().map(UserDTO::getUsername).toList());
+        assertNull(second.getNextCursor());
+
+        List<UserDTO> exported = client.get().uri("/api/v1/users/export").accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(UserDTO.class).getResponseBody()
+                .collectList().block();
+        assertEquals(5, exported.stream().filter(user -> user.getUsername().startsWith("reactpage")).count());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.user_management;
+
+import com.example.user_management.datasource.ReadWriteRoutingDataSource;
+import com.example.user_management.datasource.ReadYourWrites;
+import com.example.user_management.exception.UserNotFoundException;
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.UserDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Read replica routing test.
+ * <p>
+ * Runs against two separate in-memory H2 databases standing in for the primary and the replica. Nothing
+ * replicates between them, so a row only found through the service proves which one a call used.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "user-management.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;"
+                + "INIT=RUNSCRIPT FROM 'classpath:schema.sql'",
+        "user-management.cache.max-size=0",
+        "user-management.existence-filter.enabled=false"
+})
+public class ReadReplicaRoutingTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    /**
+     * Test reads are served by the replica.
+     */
+    @Test
+    public void testReadsGoToReplica() {
+        new JdbcTemplate(replicaDataSource).update("INSERT INTO users (username, email) VALUES (?, ?)",
+                "replicaonly", "replicaonly@example.com");
+        assertEquals("replicaonly@example.com", userService.getUserByUserName("replicaonly").getEmail());
+    }
+
+    /**
+     * Test writes go to the primary, and later reads of the same request follow them there.
+     */
+    @Test
+    public void testReadYourWrites() {
+        UserDTO created = userService.createUser(newUser("primaryonly"));
+        assertThrows(UserNotFoundException.class, () -> userService.getUserById(created.getUserId()));
+
+        ReadYourWrites.begin(false);
+        try {
+            UserDTO other = userService.createUser(newUser("primaryonly2"));
+            assertEquals("primaryonly2", userService.getUserById(other.getUserId()).getUsername());
+        } finally {
+            ReadYourWrites.end();
+        }
+    }
+
+    /**
+     * Test reads fall back to the primary when the replica cannot be reached.
+     *
+     * @throws Exception if the primary fails
+     */
+    @Test
+    public void testFallbackToPrimary() throws Exception {
+        DriverManagerDataSource primary = new DriverManagerDataSource("jdbc:h2:mem:fallback;DB_CLOSE_DELAY=-1");
+        DriverManagerDataSource unreachable = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/unreachable");
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, unreachable, Duration.ofSeconds(1));
+        routing.afterPropertiesSet();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try (Connection connection = routing.getConnection()) {
+            assertTrue(connection.isValid(1));
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+        assertFalse(routing.isReplicaHealthy());
+        assertEquals(1, routing.getPrimaryConnections());
+        assertEquals(0, routing.getReplicaConnections());
+    }
+
+    private static UserDTO newUser(String username) {
+        return new UserDTO(null, username, username + "@example.com", "First", "Last", null, null);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.user_management;
+
+import com.example.user_management.exception.UserNotFoundException;
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserPageDTO;
+import com.example.user_management.service.shard.ShardRebalancer;
+import com.example.user_management.service.shard.UserShards;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Sharded user storage test.
+ * <p>
+ * Runs against three separate in-memory H2 databases, one per shard.
+ */
+@SpringBootTest(properties = {
+        "user-management.sharding.urls=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1,"
+                + "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1",
+        "user-management.cache.max-size=0"
+})
+public class ShardedUserStorageTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserShards userShards;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    /**
+     * Test new users are spread over the shards and found by id and username.
+     */
+    @Test
+    public void testUsersSpreadOverShards() {
+        Set<Integer> shards = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            UserDTO created = userService.createUser(newUser("spread" + i));
+            shards.add(UserShards.homeShard(created.getUserId()));
+            assertEquals(created.getUsername(), userService.getUserById(created.getUserId()).getUsername());
+            assertEquals(created.getUserId(), userService.getUserByUserName(created.getUsername()).getUserId());
+        }
+        assertEquals(3, shards.size());
+    }
+
+    /**
+     * Test listing and paging merge the shards in id order without duplicates.
+     */
+    @Test
+    public void testListingIsOrderedAcrossShards() {
+        for (int i = 0; i < 10; i++) {
+            userService.createUser(newUser("listed" + i));
+        }
+        List<UserDTO> users = userService.getAllUsers();
+        List<Long> ids = new ArrayList<>();
+        users.forEach(user -> ids.add(user.getUserId()));
+        assertEquals(ids.stream().sorted().distinct().toList(), ids);
+        assertEquals(userShards.count(), users.size());
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserPageDTO page = userService.getUsers(cursor, 4, null);
+            page.getContent().forEach(user -> paged.add(user.getUserId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(ids, paged);
+    }
+
+    /**
+     * Test a moved user keeps being found and written.
+     */
+    @Test
+    public void testMovedUserStaysAvailable() {
+        UserDTO created = userService.createUser(newUser("moved"));
+        int from = UserShards.homeShard(created.getUserId());
+        int to = (from + 1) % userShards.getShardCount();
+        long before = userShards.countPerShard().get(to);
+
+        assertTrue(shardRebalancer.move(created.getUserId(), from, to));
+        assertFalse(shardRebalancer.move(created.getUserId(), from, to));
+        assertEquals(before + 1, userShards.countPerShard().get(to));
+        assertEquals("moved", userService.getUserById(created.getUserId()).getUsername());
+        assertEquals(created.getUserId(), userService.getUserByUserName("moved").getUserId());
+
+        UserDTO changes = new UserDTO(null, null, null, "Moved", null, null, null);
+        userService.patchUser(created.getUserId(), changes, null);
+        assertEquals("Moved", userService.getUserById(created.getUserId()).getFirstName());
+
+        userService.deleteUser(created.getUserId());
+        assertThrows(UserNotFoundException.class, () -> userService.getUserById(created.getUserId()));
+    }
+
+    /**
+     * Test an email taken on another shard is rejected and the rejected user is not kept.
+     */
+    @Test
+    public void testEmailIsUniqueAcrossShards() {
+        long users = userShards.count();
+        for (int i = 0; i < 10; i++) {
+            UserDTO user = new UserDTO(null, "taken" + i, "taken@example.com", "First", "Last", null, null);
+            if (i == 0) {
+                userService.createUser(user);
+            } else {
+                assertThrows(DataIntegrityViolationException.class, () -> userService.createUser(user));
+                assertThrows(UserNotFoundException.class, () -> userService.getUserByUserName(user.getUsername()));
+            }
+        }
+        assertEquals(users + 1, userShards.count());
+    }
+
+    /**
+     * Test the seeded users are registered in the directory on startup.
+     */
+    @Test
+    public void testExistingUsersAreRegistered() {
+        assertEquals("alice@example.com", userService.getUserByUserName("Alice").getEmail());
+    }
+
+    private static UserDTO newUser(String username) {
+        return new UserDTO(null, username, username + "@example.com", "First", "Last", null, null);
+    }
+}
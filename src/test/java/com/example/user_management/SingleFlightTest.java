@@ -0,0 +1,132 @@
+package com.example.user_management;
+
+import com.example.user_management.service.cache.SingleFlight;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Single flight test.
+ * <p>
+ * Holds the first load open until every other caller of the herd has joined it, so the counts do not depend
+ * on thread timing.
+ */
+public class SingleFlightTest {
+
+    private static final int HERD = 64;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(HERD);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger queries = new AtomicInteger();
+
+    /**
+     * Tear down.
+     */
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test a herd of concurrent lookups of one key sends one query and all callers get its result.
+     *
+     * @throws Exception if a caller fails
+     */
+    @Test
+    public void testHerdSharesOneLoad() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>(100);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < HERD; i++) {
+            results.add(executor.submit(() -> singleFlight.load(1L, 0, this::slowQuery)));
+        }
+        awaitCount(singleFlight::getCoalesced, HERD - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("user1", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, queries.get());
+        assertEquals(1, singleFlight.getLoads());
+        assertEquals(HERD - 1, singleFlight.getCoalesced());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    /**
+     * Test every caller of a failed load gets its exception.
+     *
+     * @throws Exception if waiting fails
+     */
+    @Test
+    public void testHerdSharesOneFailure() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>(100);
+        IllegalStateException failure = new IllegalStateException("Database unavailable");
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < HERD; i++) {
+            results.add(executor.submit(() -> singleFlight.load(1L, 0, key -> {
+                slowQuery(key);
+                throw failure;
+            })));
+        }
+        awaitCount(singleFlight::getCoalesced, HERD - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(failure, ex.getCause());
+        }
+        assertEquals(1, queries.get());
+    }
+
+    /**
+     * Test a caller of a later generation does not join a load that started before it, and callers beyond
+     * the bound load on their own.
+     *
+     * @throws Exception if a caller fails
+     */
+    @Test
+    public void testLaterGenerationAndOverflowLoadOnTheirOwn() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>(1);
+        Future<String> stale = executor.submit(() -> singleFlight.load(1L, 0, this::slowQuery));
+        awaitCount(queries::get, 1);
+
+        assertEquals("other", singleFlight.load(2L, 0, key -> "other"));
+        assertEquals(1, singleFlight.getOverflows());
+        assertEquals("fresh", singleFlight.load(1L, 1, key -> "fresh"));
+        assertEquals(1, singleFlight.getOverflows());
+
+        release.countDown();
+        assertEquals("user1", stale.get(5, TimeUnit.SECONDS));
+        assertEquals(0, singleFlight.getCoalesced());
+    }
+
+    private String slowQuery(Long key) {
+        queries.incrementAndGet();
+        try {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return "user" + key;
+    }
+
+    private static void awaitCount(LongSupplier count, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count.getAsLong() < expected) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for " + expected);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.user_management;
+
+import com.example.user_management.metrics.StatementCountFilter;
+import com.example.user_management.metrics.StatementCountingInspector;
+import com.example.user_management.service.dto.UserDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Statement count metrics test.
+ */
+@ExtendWith(OutputCaptureExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties =
+        "spring.datasource.url=jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+public class StatementCountMetricsTest {
+
+    private static final String URI = "/api/v1/users/{id}";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    /**
+     * Test the statements of a request are published through the actuator, tagged by its URI pattern.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    public void testStatementsAreServedByActuator() throws InterruptedException {
+        WebTestClient client = webTestClient.mutate()
+                .defaultHeaders(headers -> headers.setBasicAuth("user", "user@123"))
+                .build();
+        UserDTO created = client.post().uri("/api/v1/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDTO(null, "metered", "metered@example.com", null, null, null, null))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(UserDTO.class).returnResult().getResponseBody();
+        client.get().uri(URI, created.getUserId()).exchange().expectStatus().isOk();
+
+        // The filter records after the response is written, so the meter may not exist yet (404)
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        JsonNode metric;
+        do {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the statement count");
+            Thread.sleep(10);
+            metric = client.get()
+                    .uri("/actuator/metrics/http.server.requests.statements?tag=uri:{uri}&tag=method:GET", URI)
+                    .exchange()
+                    .expectBody(JsonNode.class).returnResult().getResponseBody();
+        } while (metric == null || statistic(metric, "COUNT") < 1);
+        assertEquals(1, statistic(metric, "COUNT"));
+        assertTrue(statistic(metric, "TOTAL") >= 1);
+    }
+
+    /**
+     * Test the Hibernate statistics behind the meters are collected without logging the metrics of every
+     * session.
+     *
+     * @param output the captured output
+     */
+    @Test
+    public void testSessionMetricsAreNotLogged(CapturedOutput output) {
+        WebTestClient client = webTestClient.mutate()
+                .defaultHeaders(headers -> headers.setBasicAuth("user", "user@123"))
+                .build();
+        client.get().uri("/api/v1/users?limit=1").exchange().expectStatus().isOk();
+        client.get().uri("/actuator/metrics/hibernate.sessions.open")
+                .exchange()
+                .expectStatus().isOk();
+        assertFalse(output.getAll().contains("Session Metrics"));
+    }
+
+    /**
+     * Test each request counts only its own statements, and nothing is left counting on the thread after it.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testCountDoesNotLeakAcrossRequests() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        StatementCountFilter filter = new StatementCountFilter(registry, 20);
+        StatementCountingInspector inspector = new StatementCountingInspector();
+
+        filter.doFilter(request("/first"), new MockHttpServletResponse(), statements(inspector, 3));
+        inspector.inspect("select 1");
+        filter.doFilter(request("/second"), new MockHttpServletResponse(), statements(inspector, 1));
+        inspector.inspect("select 1");
+
+        assertEquals(3, summary(registry, "/first").max());
+        assertEquals(1, summary(registry, "/second").max());
+        assertEquals(0, StatementCountingInspector.stop());
+    }
+
+    /**
+     * Test a request that fails is still recorded and stops counting.
+     */
+    @Test
+    public void testCountIsClearedWhenRequestFails() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        StatementCountFilter filter = new StatementCountFilter(registry, 20);
+        StatementCountingInspector inspector = new StatementCountingInspector();
+
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(request("/failing"),
+                new MockHttpServletResponse(), (request, response) -> {
+                    inspector.inspect("select 1");
+                    throw new IllegalStateException("Failed");
+                }));
+        inspector.inspect("select 1");
+
+        assertEquals(1, summary(registry, "/failing").max());
+        assertEquals(0, StatementCountingInspector.stop());
+    }
+
+    private static MockHttpServletRequest request(String pattern) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", pattern);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        return request;
+    }
+
+    private static FilterChain statements(StatementCountingInspector inspector, int statements) {
+        return (request, response) -> {
+            for (int i = 0; i < statements; i++) {
+                inspector.inspect("select * from users");
+            }
+        };
+    }
+
+    private static DistributionSummary summary(SimpleMeterRegistry registry, String uri) {
+        return registry.get("http.server.requests.statements").tag("uri", uri).summary();
+    }
+
+    private static double statistic(JsonNode metric, String statistic) {
+        for (JsonNode measurement : metric.get("measurements")) {
+            if (statistic.equals(measurement.get("statistic").asText())) {
+                return measurement.get("value").asDouble();
+            }
+        }
+        throw new AssertionError("No " + statistic + " in " + metric);
+    }
+}
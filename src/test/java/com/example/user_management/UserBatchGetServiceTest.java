@@ -0,0 +1,104 @@
+package com.example.user_management;
+
+import com.example.user_management.exception.BulkLimitExceededException;
+import com.example.user_management.repository.JpaUserStore;
+import com.example.user_management.repository.UserRepository;
+import com.example.user_management.service.UserBatchGetService;
+import com.example.user_management.service.cache.UserCache;
+import com.example.user_management.service.cache.UserExistenceFilter;
+import com.example.user_management.service.dto.BatchGetItemDTO;
+import com.example.user_management.service.dto.BatchGetRequestDTO;
+import com.example.user_management.service.dto.BatchGetResultDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.shard.UserShards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * The type User batch get service test.
+ */
+@ExtendWith(SpringExtension.class)
+public class UserBatchGetServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserBatchGetService userBatchGetService;
+
+    /**
+     * Sets up with IN queries of at most two keys.
+     */
+    @BeforeEach
+    public void setUp() {
+        userBatchGetService = new UserBatchGetService(new JpaUserStore(userRepository),
+                UserShards.unsharded(userRepository, null),
+                new UserCache(100, Duration.ofMinutes(5), 100, Duration.ofSeconds(5)), new UserExistenceFilter(true, 0.01), 2, 10);
+    }
+
+    /**
+     * Test results follow the request order, duplicates included, and misses are explicit.
+     */
+    @Test
+    public void testGetUsers_RequestOrderWithMisses() {
+        when(userRepository.findDTOsByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            List<UserDTO> users = new ArrayList<>();
+            ids.stream().filter(id -> id != 404L).forEach(id -> users.add(user(id)));
+            return users;
+        });
+
+        BatchGetResultDTO result = userBatchGetService.getUsers(
+                new BatchGetRequestDTO(Arrays.asList(3L, 404L, 1L, 3L, 2L), null));
+
+        assertEquals(4, result.getFound());
+        assertEquals(1, result.getMissing());
+        assertEquals(List.of(3L, 404L, 1L, 3L, 2L), result.getResults().stream().map(BatchGetItemDTO::getId).toList());
+        assertFalse(result.getResults().get(1).isFound());
+        assertNull(result.getResults().get(1).getUser());
+        assertEquals(3L, result.getResults().get(3).getUser().getUserId());
+        // 4 distinct ids in IN lists of 2
+        verify(userRepository, times(2)).findDTOsByIdIn(anyCollection());
+    }
+
+    /**
+     * Test cached users are not queried again.
+     */
+    @Test
+    public void testGetUsers_ServesCachedUsers() {
+        when(userRepository.findDTOsByIdIn(anyCollection())).thenReturn(List.of(user(1L)));
+        userBatchGetService.getUsers(new BatchGetRequestDTO(List.of(1L), null));
+        userBatchGetService.getUsers(new BatchGetRequestDTO(List.of(1L), null));
+        verify(userRepository, times(1)).findDTOsByIdIn(anyCollection());
+    }
+
+    /**
+     * Test too many keys are rejected.
+     */
+    @Test
+    public void testGetUsers_TooManyKeys() {
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            usernames.add("user" + i);
+        }
+        assertThrows(BulkLimitExceededException.class,
+                () -> userBatchGetService.getUsers(new BatchGetRequestDTO(null, usernames)));
+        verifyNoInteractions(userRepository);
+    }
+
+    private static UserDTO user(Long id) {
+        return new UserDTO(id, "user" + id, "user" + id + "@example.com", null, null, null, 0L);
+    }
+}
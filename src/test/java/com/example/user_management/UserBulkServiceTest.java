@@ -0,0 +1,203 @@
+package com.example.user_management;
+
+import com.example.user_management.model.User;
+import com.example.user_management.repository.UserRepository;
+import com.example.user_management.service.UserBulkService;
+import com.example.user_management.service.dto.BulkCreateResultDTO;
+import com.example.user_management.service.dto.BulkItemResultDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.shard.UserShards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The type User bulk service test. Inserts in chunks of two users and accepts at most five per request.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "user-management.bulk.batch-size=2",
+        "user-management.bulk.max-items=5",
+        "user-management.existence-filter.enabled=true"})
+public class UserBulkServiceTest {
+
+    @Autowired
+    private UserBulkService userBulkService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoSpyBean
+    private UserShards userShards;
+
+    private WebTestClient client;
+
+    /**
+     * Sets up a client sending the default credentials.
+     */
+    @BeforeEach
+    public void setUp() {
+        client = webTestClient.mutate()
+                .defaultHeaders(headers -> headers.setBasicAuth("user", "user@123"))
+                .build();
+    }
+
+    /**
+     * Test valid users are inserted one chunk per transaction and reported in request order.
+     */
+    @Test
+    public void testCreateUsers_Chunked() {
+        BulkCreateResultDTO result = userBulkService.createUsers(List.of(newUser("chunk1"), newUser("chunk2"),
+                newUser("chunk3"), newUser("chunk4"), newUser("chunk5")));
+
+        assertEquals(5, result.getCreated());
+        assertEquals(0, result.getFailed());
+        verify(userShards, times(3)).insert(anyList(), any());
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            BulkItemResultDTO item = result.getResults().get(i);
+            assertEquals(i, item.getIndex());
+            assertEquals(BulkItemResultDTO.Status.CREATED, item.getStatus());
+            assertEquals("chunk" + (i + 1), userRepository.findById(item.getUserId()).orElseThrow().getUsername());
+            ids.add(item.getUserId());
+        }
+        assertEquals(5, new HashSet<>(ids).size());
+    }
+
+    /**
+     * Test repeated usernames and emails within a request are rejected after their first occurrence, and
+     * invalid items are rejected without failing the others.
+     */
+    @Test
+    public void testCreateUsers_DeduplicatesWithinRequest() {
+        UserDTO sameEmail = newUser("dedupe2");
+        sameEmail.setEmail("dedupe1@example.com");
+        UserDTO invalid = newUser("dedupe3");
+        invalid.setEmail("not-an-email");
+        BulkCreateResultDTO result = userBulkService.createUsers(List.of(newUser("dedupe1"), newUser("dedupe1"),
+                sameEmail, invalid));
+
+        assertEquals(1, result.getCreated());
+        assertEquals(BulkItemResultDTO.Status.CREATED, result.getResults().get(0).getStatus());
+        assertConflict(result.getResults().get(1), "username", "Username appears more than once in the request");
+        assertConflict(result.getResults().get(2), "email", "Email appears more than once in the request");
+        assertEquals(BulkItemResultDTO.Status.INVALID, result.getResults().get(3).getStatus());
+        assertTrue(result.getResults().get(3).getErrors().containsKey("email"));
+        assertTrue(userRepository.findByUsername("dedupe2").isEmpty());
+    }
+
+    /**
+     * Test users whose username or email is already taken are rejected before the insert.
+     */
+    @Test
+    public void testCreateUsers_ExistingRows() {
+        userBulkService.createUsers(List.of(newUser("existing")));
+        UserDTO takenUsername = newUser("existing");
+        takenUsername.setEmail("existing1@example.com");
+        UserDTO takenEmail = newUser("existing2");
+        takenEmail.setEmail("existing@example.com");
+
+        BulkCreateResultDTO result = userBulkService.createUsers(List.of(takenUsername, takenEmail,
+                newUser("existing3")));
+
+        assertConflict(result.getResults().get(0), "username", "Username already exists");
+        assertConflict(result.getResults().get(1), "email", "Email already exists");
+        assertEquals(BulkItemResultDTO.Status.CREATED, result.getResults().get(2).getStatus());
+    }
+
+    /**
+     * Test a chunk that hits a unique constraint the pre-check missed is rolled back and retried row by row, so
+     * only the offending row fails. The existence filter rules out a user another instance inserted, so the
+     * pre-check does not look it up.
+     */
+    @Test
+    public void testCreateUsers_FallsBackRowByRow() {
+        Long racedId = userRepository.saveAndFlush(new User(null, "raced", "raced@example.com", null, null,
+                LocalDateTime.now(), null)).getUserId();
+
+        BulkCreateResultDTO result = userBulkService.createUsers(List.of(newUser("fallback"), newUser("raced")));
+
+        assertEquals(BulkItemResultDTO.Status.CREATED, result.getResults().get(0).getStatus());
+        assertConflict(result.getResults().get(1), "user", "Username or email already exists");
+        assertEquals(result.getResults().get(0).getUserId(),
+                userRepository.findByUsername("fallback").orElseThrow().getUserId());
+        assertEquals(racedId, userRepository.findByUsername("raced").orElseThrow().getUserId());
+    }
+
+    /**
+     * Test the endpoint answers 201 when every user was created.
+     */
+    @Test
+    public void testBulkEndpoint_AllCreated() {
+        BulkCreateResultDTO result = client.post().uri("/api/v1/users/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(newUser("http1"), newUser("http2")))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BulkCreateResultDTO.class).returnResult().getResponseBody();
+        assertEquals(2, result.getCreated());
+    }
+
+    /**
+     * Test the endpoint answers 207 with per-item results when some users were rejected.
+     */
+    @Test
+    public void testBulkEndpoint_PartiallyCreated() {
+        BulkCreateResultDTO result = client.post().uri("/api/v1/users/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(newUser("multi1"), newUser("multi1")))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.MULTI_STATUS)
+                .expectBody(BulkCreateResultDTO.class).returnResult().getResponseBody();
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getFailed());
+        assertEquals(BulkItemResultDTO.Status.CONFLICT, result.getResults().get(1).getStatus());
+    }
+
+    /**
+     * Test the endpoint rejects a request over the item limit without creating anyone.
+     */
+    @Test
+    public void testBulkEndpoint_TooManyUsers() {
+        List<UserDTO> users = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            users.add(newUser("limit" + i));
+        }
+        client.post().uri("/api/v1/users/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(users)
+                .exchange()
+                .expectStatus().isBadRequest();
+        assertTrue(userRepository.findByUsername("limit1").isEmpty());
+    }
+
+    private static void assertConflict(BulkItemResultDTO item, String field, String message) {
+        assertEquals(BulkItemResultDTO.Status.CONFLICT, item.getStatus());
+        assertNull(item.getUserId());
+        assertEquals(Map.of(field, message), item.getErrors());
+    }
+
+    private static UserDTO newUser(String username) {
+        return new UserDTO(null, username, username + "@example.com", "First", "Last", null, null);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.user_management;
+
+import com.example.user_management.datasource.ReadYourWrites;
+import com.example.user_management.service.cache.UserCache;
+import com.example.user_management.service.dto.UserDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type User cache test.
+ */
+public class UserCacheTest {
+
+    private UserCache userCache;
+
+    /**
+     * Sets up.
+     */
+    @BeforeEach
+    public void setUp() {
+        userCache = new UserCache(1_000, Duration.ofMinutes(5), 100, Duration.ofSeconds(5));
+    }
+
+    /**
+     * Test a user written without being read is evicted under every username it was cached under, and other
+     * users stay cached.
+     */
+    @Test
+    public void testEvictUnread_EvictsEveryUsernameOfTheUser() {
+        userCache.getByUsername("old", username -> user(1L, username));
+        userCache.getAllByUsername(List.of("other", "batch"), usernames -> Map.of(
+                "other", user(2L, "other"), "batch", user(1L, "batch")));
+        userCache.getById(1L, id -> user(id, "old"));
+
+        userCache.evictUnread(1L, "renamed");
+
+        assertNull(userCache.peekById(1L));
+        assertNull(userCache.peekByUsername("old"));
+        assertNull(userCache.peekByUsername("batch"));
+        assertEquals(2L, userCache.peekByUsername("other").getUserId());
+    }
+
+    /**
+     * Test a username that now belongs to another user is not evicted with its previous owner.
+     */
+    @Test
+    public void testEvictUnread_KeepsReassignedUsername() {
+        userCache.getByUsername("taken", username -> user(1L, username));
+        userCache.evict(1L, "taken");
+        userCache.getByUsername("taken", username -> user(2L, username));
+
+        userCache.evictUnread(1L);
+
+        assertEquals(2L, userCache.peekByUsername("taken").getUserId());
+        userCache.evictUnread(2L);
+        assertNull(userCache.peekByUsername("taken"));
+    }
+
+    /**
+     * Test misses of a recently written user are loaded from the primary, under every key it was written under,
+     * and other misses are not.
+     */
+    @Test
+    public void testLoadAfterWrite_ReadsPrimary() {
+        List<Boolean> primaryRequired = new ArrayList<>();
+        userCache.getById(1L, id -> user(id, "old"));
+        userCache.getById(2L, id -> loaded(primaryRequired, user(id, "other")));
+
+        userCache.evict(1L, "renamed");
+
+        userCache.getById(1L, id -> loaded(primaryRequired, user(id, "renamed")));
+        userCache.getByUsername("old", username -> loaded(primaryRequired, null));
+        userCache.getAllByUsername(List.of("renamed", "other"), usernames -> {
+            loaded(primaryRequired, null);
+            return Map.of();
+        });
+        userCache.getByUsername("other", username -> loaded(primaryRequired, null));
+
+        assertEquals(List.of(false, true, true, true, false), primaryRequired);
+        assertFalse(ReadYourWrites.isPrimaryRequired());
+    }
+
+    /**
+     * Test no miss is loaded from the primary once the replica lag has passed.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    public void testLoadAfterReplicaLag_ReadsReplica() throws InterruptedException {
+        List<Boolean> primaryRequired = new ArrayList<>();
+        userCache = new UserCache(1_000, Duration.ofMinutes(5), 100, Duration.ofMillis(50));
+        userCache.evict(1L, "user");
+        Thread.sleep(100);
+
+        userCache.getById(1L, id -> loaded(primaryRequired, user(id, "user")));
+        userCache.getByUsername("user", username -> loaded(primaryRequired, null));
+
+        assertEquals(List.of(false, false), primaryRequired);
+    }
+
+    private static UserDTO loaded(List<Boolean> primaryRequired, UserDTO user) {
+        primaryRequired.add(ReadYourWrites.isPrimaryRequired());
+        return user;
+    }
+
+    private static UserDTO user(Long id, String username) {
+        return new UserDTO(id, username, username + "@example.com", null, null, null, 0L);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.user_management;
+
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.UserChangeDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.event.UserChangeRelay;
+import com.example.user_management.service.event.UserChangeRingBuffer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type User change feed test.
+ */
+@SpringBootTest(properties = "user-management.existence-filter.enabled=false")
+public class UserChangeFeedTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserChangeRelay userChangeRelay;
+
+    @Autowired
+    private UserChangeRingBuffer ringBuffer;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Test committed writes reach the change log and the ring buffer in order, with consecutive sequence numbers.
+     */
+    @Test
+    public void testChangesAreRelayedInOrder() {
+        userChangeRelay.relay();
+        long before = ringBuffer.getLastSequence();
+
+        UserDTO created = userService.createUser(newUser("changefeed"));
+        userService.patchUser(created.getUserId(), new UserDTO(null, null, null, "Changed", null, null, null), null);
+        userService.deleteUser(created.getUserId());
+        userChangeRelay.relay();
+
+        List<UserChangeDTO> changes = userChangeRelay.readAfter(before, 10);
+        assertEquals(3, changes.size());
+        assertEquals(UserChangeDTO.Type.SAVED, changes.get(0).getType());
+        assertEquals("changefeed", changes.get(0).getUser().getUsername());
+        assertEquals(UserChangeDTO.Type.PATCHED, changes.get(1).getType());
+        assertEquals("Changed", changes.get(1).getUser().getFirstName());
+        assertEquals(1L, changes.get(1).getUser().getVersion());
+        assertEquals(UserChangeDTO.Type.DELETED, changes.get(2).getType());
+        assertNull(changes.get(2).getUser());
+        for (int i = 0; i < changes.size(); i++) {
+            assertEquals(created.getUserId(), changes.get(i).getUserId());
+            assertEquals(before + i + 1, changes.get(i).getSequence());
+            assertEquals(changes.get(i).getType(), ringBuffer.get(before + i + 1).getType());
+        }
+    }
+
+    /**
+     * Test a write that rolls back records no change.
+     */
+    @Test
+    public void testRolledBackWriteRecordsNoChange() {
+        userService.createUser(newUser("changefeeddup"));
+        userChangeRelay.relay();
+        long before = ringBuffer.getLastSequence();
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.createUser(newUser("changefeeddup")));
+        userChangeRelay.relay();
+        assertTrue(userChangeRelay.readAfter(before, 10).isEmpty());
+    }
+
+    /**
+     * Test a relay waits while another instance holds the relay lock row, and logs the changes once it is free.
+     *
+     * @throws Exception if the lock cannot be taken or the relay fails
+     */
+    @Test
+    public void testRelayWaitsForTheLockRow() throws Exception {
+        userChangeRelay.relay();
+        long before = ringBuffer.getLastSequence();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread relay;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement();
+                 ResultSet lock = statement.executeQuery(
+                         "SELECT lock_id FROM user_change_relay_lock WHERE lock_id = 1 FOR UPDATE")) {
+                assertTrue(lock.next());
+            }
+            userService.createUser(newUser("changefeedlocked"));
+            relay = new Thread(() -> {
+                try {
+                    userChangeRelay.relay();
+                } catch (Throwable ex) {
+                    failure.set(ex);
+                }
+            });
+            relay.start();
+            relay.join(300);
+            assertTrue(relay.isAlive());
+            assertTrue(userChangeRelay.readAfter(before, 10).isEmpty());
+            connection.commit();
+        }
+        relay.join(TimeUnit.SECONDS.toMillis(10));
+        assertNull(failure.get());
+
+        List<UserChangeDTO> changes = userChangeRelay.readAfter(before, 10);
+        assertEquals(1, changes.size());
+        assertEquals("changefeedlocked", changes.get(0).getUser().getUsername());
+    }
+
+    /**
+     * Test the ring buffer drops the oldest changes and readers can tell them from changes not published yet.
+     */
+    @Test
+    public void testRingBufferOverwritesOldest() {
+        UserChangeRingBuffer buffer = new UserChangeRingBuffer(4);
+        for (long sequence = 1; sequence <= 6; sequence++) {
+            buffer.publish(new UserChangeDTO(sequence, UserChangeDTO.Type.DELETED, sequence, null, null));
+        }
+        assertNull(buffer.get(2));
+        assertEquals(3L, buffer.get(3).getUserId());
+        assertEquals(6L, buffer.get(6).getUserId());
+        assertNull(buffer.get(7));
+        assertFalse(buffer.awaitAfter(6, Duration.ofMillis(10)));
+        assertTrue(buffer.awaitAfter(5, Duration.ofMillis(10)));
+    }
+
+    private static UserDTO newUser(String username) {
+        return new UserDTO(null, username, username + "@example.com", "First", "Last", null, null);
+    }
+}
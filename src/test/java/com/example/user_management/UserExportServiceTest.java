@@ -0,0 +1,164 @@
+package com.example.user_management;
+
+import com.example.user_management.service.UserExportService;
+import com.example.user_management.service.UserFileFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type User export service test.
+ * <p>
+ * Uses a file-backed H2 database so the seeded rows do not live on the test heap.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/h2/export-${random.uuid};DB_CLOSE_ON_EXIT=FALSE"
+})
+public class UserExportServiceTest {
+
+    private static final int SEED_BATCH_SIZE = 5_000;
+
+    /**
+     * Lines written between two heap samples.
+     */
+    private static final int SAMPLE_EVERY = 20_000;
+
+    /**
+     * How much more heap the export may hold at its end than at its first sample.
+     */
+    private static final long MAX_HEAP_GROWTH = 16L * 1024 * 1024;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${export.rows:200000}")
+    private int rows;
+
+    private long expectedRows;
+
+    /**
+     * Sets up.
+     */
+    @BeforeEach
+    public void setUp() {
+        seedUsers();
+        expectedRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+    }
+
+    /**
+     * Test export ndjson writes one line per user.
+     *
+     * @throws IOException the io exception
+     */
+    @Test
+    public void testExportNdjson() throws IOException {
+        LineCountingOutputStream out = new LineCountingOutputStream();
+        long exported = userExportService.export(UserFileFormat.NDJSON, out);
+        assertEquals(expectedRows, exported);
+        assertEquals(expectedRows, out.lines);
+    }
+
+    /**
+     * Test export csv writes a header and one line per user.
+     *
+     * @throws IOException the io exception
+     */
+    @Test
+    public void testExportCsv() throws IOException {
+        LineCountingOutputStream out = new LineCountingOutputStream();
+        long exported = userExportService.export(UserFileFormat.CSV, out);
+        assertEquals(expectedRows, exported);
+        assertEquals(expectedRows + 1, out.lines);
+    }
+
+    /**
+     * Test the export holds no more heap after the last user than after the first ones, so nothing written or
+     * read accumulates. Holding on to every exported entity would take well over the allowed growth.
+     *
+     * @throws IOException the io exception
+     */
+    @Test
+    public void testExportRunsInBoundedHeap() throws IOException {
+        HeapSamplingOutputStream out = new HeapSamplingOutputStream();
+        long exported = userExportService.export(UserFileFormat.NDJSON, out);
+        assertEquals(expectedRows, exported);
+        assertTrue(out.samples.size() >= 5, "Too few samples: " + out.samples);
+        long growth = out.samples.get(out.samples.size() - 1) - out.samples.get(0);
+        assertTrue(growth < MAX_HEAP_GROWTH, "Heap grew by " + growth + " bytes during the export: " + out.samples);
+    }
+
+    private void seedUsers() {
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE username = 'export0'", Long.class) > 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{"export" + i, "export" + i + "@example.com", Timestamp.valueOf(now),
+                    "First, \"quoted\"", "Last"});
+            if (batch.size() == SEED_BATCH_SIZE || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (username, email, created_at, first_name, last_name) "
+                        + "VALUES (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Discards everything written to it and counts the newlines.
+     */
+    private static class LineCountingOutputStream extends OutputStream {
+
+        long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the used heap after a full collection every {@link #SAMPLE_EVERY} lines.
+     */
+    private static final class HeapSamplingOutputStream extends LineCountingOutputStream {
+
+        private final List<Long> samples = new ArrayList<>();
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            long before = lines;
+            super.write(b, off, len);
+            if (lines / SAMPLE_EVERY > before / SAMPLE_EVERY) {
+                System.gc();
+                samples.add(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+            }
+        }
+    }
+}
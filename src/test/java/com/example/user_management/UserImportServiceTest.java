@@ -0,0 +1,213 @@
+package com.example.user_management;
+
+import com.example.user_management.model.ImportJob;
+import com.example.user_management.repository.ImportJobRepository;
+import com.example.user_management.repository.UserRepository;
+import com.example.user_management.service.UserBulkService;
+import com.example.user_management.service.UserFileFormat;
+import com.example.user_management.service.UserImportService;
+import com.example.user_management.service.dto.ImportErrorDTO;
+import com.example.user_management.service.dto.ImportJobDTO;
+import com.example.user_management.service.dto.UserDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doCallRealMethod;
+
+/**
+ * The type User import service test. Imports in chunks of two records so small files span several chunks.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:imports;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "user-management.import.chunk-size=2"})
+public class UserImportServiceTest {
+
+    @TempDir
+    private Path directory;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoSpyBean
+    private UserBulkService userBulkService;
+
+    /**
+     * Test quoted CSV fields keep their commas, escaped quotes and newlines, and rejected records are sampled
+     * on the job row.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testCsvQuotedFieldsAndEmbeddedNewlines() throws Exception {
+        String csv = """
+                username,email,firstName,lastName
+                quoted1,quoted1@example.com,"Smith, Jr.","O""Brien"
+                quoted2,quoted2@example.com,"Two
+                Lines",Last
+
+                quoted3,not-an-email,First,Last
+                """;
+        ImportJobDTO job = awaitEnd(userImportService.startImport(UserFileFormat.CSV, content(csv)));
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(3, job.getRecordsCommitted());
+        assertEquals(2, job.getCreated());
+        assertEquals(1, job.getFailed());
+        assertEquals("Smith, Jr.", userRepository.findByUsername("quoted1").orElseThrow().getFirstName());
+        assertEquals("O\"Brien", userRepository.findByUsername("quoted1").orElseThrow().getLastName());
+        assertEquals("Two\nLines", userRepository.findByUsername("quoted2").orElseThrow().getFirstName());
+
+        List<ImportErrorDTO> samples = importJobRepository.findById(job.getJobId()).orElseThrow().getErrorSamples();
+        assertEquals(1, samples.size());
+        assertEquals(3, samples.get(0).getRecord());
+        assertTrue(samples.get(0).getMessage().startsWith("email:"));
+        assertEquals(3, userImportService.getImport(job.getJobId()).getErrors().get(0).getRecord());
+    }
+
+    /**
+     * Test a quote that is never closed fails only its own record: once the quoted field would span more than
+     * the record limit, or reaches the end of the file, the following lines are read as records again.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testCsvUnclosedQuoteFailsOnlyItsRecord() throws Exception {
+        String name = "N".repeat(50);
+        StringBuilder csv = new StringBuilder("username,email,firstName,lastName\n")
+                .append("unclosed1,unclosed1@example.com,\"Never closed,Last\n");
+        int valid = UserImportService.MAX_RECORD_LENGTH / 120 + 10;
+        for (int i = 1; i <= valid; i++) {
+            csv.append("unclosed").append(i + 1).append(",unclosed").append(i + 1).append("@example.com,")
+                    .append(name).append(',').append(name).append('\n');
+        }
+        csv.append("unclosedlast,unclosedlast@example.com,First,\"Last\n");
+        assertTrue(csv.length() > UserImportService.MAX_RECORD_LENGTH);
+
+        ImportJobDTO job = awaitEnd(userImportService.startImport(UserFileFormat.CSV, content(csv.toString())));
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(valid + 2, job.getRecordsCommitted());
+        assertEquals(valid, job.getCreated());
+        assertEquals(2, job.getFailed());
+        assertEquals(List.of(1L, (long) valid + 2), job.getErrors().stream().map(ImportErrorDTO::getRecord).toList());
+        assertEquals("Unreadable record: Quoted field is not closed", job.getErrors().get(0).getMessage());
+        assertTrue(userRepository.findByUsername("unclosed2").isPresent());
+        assertTrue(userRepository.findByUsername("unclosed" + (valid + 1)).isPresent());
+    }
+
+    /**
+     * Test a job that was running when the application stopped is marked interrupted on startup, and resuming
+     * it skips the records its committed chunks covered and keeps the samples of the earlier run.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testResumeAfterCrash() throws Exception {
+        Path file = directory.resolve("crashed.ndjson");
+        Files.writeString(file, ndjson("crashed", 5));
+        userBulkService.createValidUsers(List.of(newUser("crashed1"), newUser("crashed2")));
+
+        ImportJob crashed = new ImportJob();
+        crashed.setJobId(UUID.randomUUID().toString());
+        crashed.setFormat(UserFileFormat.NDJSON);
+        crashed.setFilePath(file.toString());
+        crashed.setStatus(ImportJob.Status.RUNNING);
+        crashed.setRecordsCommitted(2);
+        crashed.setCreated(2);
+        crashed.setErrorSamples(new ArrayList<>(List.of(new ImportErrorDTO(1, "Sampled before the crash"))));
+        crashed.setCreatedAt(LocalDateTime.now());
+        importJobRepository.save(crashed);
+
+        userImportService.markAbandonedJobsInterrupted();
+        assertEquals(ImportJob.Status.INTERRUPTED, userImportService.getImport(crashed.getJobId()).getStatus());
+
+        ImportJobDTO job = awaitEnd(userImportService.resumeImport(crashed.getJobId()));
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(5, job.getRecordsCommitted());
+        assertEquals(5, job.getCreated());
+        assertEquals(0, job.getFailed());
+        assertEquals("Sampled before the crash", job.getErrors().get(0).getMessage());
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(userRepository.findByUsername("crashed" + i).isPresent());
+        }
+        assertFalse(Files.exists(file));
+    }
+
+    /**
+     * Test a chunk whose write fails leaves none of its users and stops the job at the previous chunk, and the
+     * resumed job writes that chunk again.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testFailedChunkIsRetriedOnResume() throws Exception {
+        doCallRealMethod()
+                .doThrow(new IllegalStateException("Database unavailable"))
+                .doCallRealMethod()
+                .when(userBulkService).createValidUsers(anyList());
+
+        ImportJobDTO job = awaitEnd(userImportService.startImport(UserFileFormat.NDJSON,
+                content(ndjson("rollback", 5))));
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertEquals("Database unavailable", job.getMessage());
+        assertEquals(2, job.getRecordsCommitted());
+        assertEquals(2, job.getCreated());
+        assertTrue(userRepository.findByUsername("rollback2").isPresent());
+        assertTrue(userRepository.findByUsername("rollback3").isEmpty());
+
+        job = awaitEnd(userImportService.resumeImport(job.getJobId()));
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(5, job.getCreated());
+        assertEquals(0, job.getFailed());
+        assertTrue(userRepository.findByUsername("rollback5").isPresent());
+    }
+
+    private ImportJobDTO awaitEnd(ImportJobDTO started) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        ImportJobDTO job = started;
+        while (job.getStatus() == ImportJob.Status.QUEUED || job.getStatus() == ImportJob.Status.RUNNING) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for import job " + started.getJobId());
+            Thread.sleep(10);
+            job = userImportService.getImport(started.getJobId());
+        }
+        return job;
+    }
+
+    private static String ndjson(String prefix, int users) {
+        StringBuilder records = new StringBuilder();
+        for (int i = 1; i <= users; i++) {
+            records.append("{\"username\":\"").append(prefix).append(i).append("\",\"email\":\"")
+                    .append(prefix).append(i).append("@example.com\"}\n");
+        }
+        return records.toString();
+    }
+
+    private static UserDTO newUser(String username) {
+        return new UserDTO(null, username, username + "@example.com", null, null, null, null);
+    }
+
+    private static ByteArrayInputStream content(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
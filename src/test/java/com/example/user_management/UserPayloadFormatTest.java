@@ -0,0 +1,197 @@
+package com.example.user_management;
+
+import com.example.user_management.service.dto.BulkCreateResultDTO;
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserPageDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type User payload format test.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class UserPayloadFormatTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private static final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+    private static final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private WebTestClient client;
+
+    /**
+     * Sets up a client sending the default credentials.
+     */
+    @BeforeEach
+    public void setUp() {
+        client = webTestClient.mutate()
+                .defaultHeaders(headers -> headers.setBasicAuth("user", "user@123"))
+                .build();
+    }
+
+    /**
+     * Test a user created with a CBOR body is answered in CBOR, and read back as Smile.
+     *
+     * @throws IOException the io exception
+     */
+    @Test
+    public void testSingleUserRoundTrip() throws IOException {
+        byte[] body = client.post().uri("/api/v1/users")
+                .contentType(MediaType.APPLICATION_CBOR).accept(MediaType.APPLICATION_CBOR)
+                .bodyValue(cborMapper.writeValueAsBytes(
+                        new UserDTO(null, "binary", "binary@example.com", "Bin", "Ary", null, null)))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        UserDTO created = cborMapper.readValue(body, UserDTO.class);
+        assertEquals("binary", created.getUsername());
+        assertNotNull(created.getCreatedAt());
+
+        body = client.get().uri("/api/v1/users/{id}", created.getUserId()).accept(SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(SMILE)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        UserDTO read = smileMapper.readValue(body, UserDTO.class);
+        assertEquals(created.getEmail(), read.getEmail());
+        assertEquals(created.getCreatedAt(), read.getCreatedAt());
+    }
+
+    /**
+     * Test a bulk create in Smile, and the created users paged in CBOR.
+     *
+     * @throws IOException the io exception
+     */
+    @Test
+    public void testBulkAndPage() throws IOException {
+        List<UserDTO> users = List.of(
+                new UserDTO(null, "binbulk0", "binbulk0@example.com", null, null, null, null),
+                new UserDTO(null, "binbulk1", "binbulk1@example.com", null, null, null, null));
+        byte[] body = client.post().uri("/api/v1/users/bulk")
+                .contentType(SMILE).accept(SMILE)
+                .bodyValue(smileMapper.writeValueAsBytes(users))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentType(SMILE)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        assertEquals(2, smileMapper.readValue(body, BulkCreateResultDTO.class).getCreated());
+
+        body = client.get().uri("/api/v1/users?username=binbulk").accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        UserPageDTO page = cborMapper.readValue(body, UserPageDTO.class);
+        assertEquals(List.of("binbulk0", "binbulk1"), page.getContent().stream().map(UserDTO::getUsername).toList());
+    }
+
+    /**
+     * Test each representation has its own entity tag and the responses vary by Accept, so a cached JSON
+     * body is never revalidated for a CBOR request, while If-Match accepts the tag of any representation.
+     */
+    @Test
+    public void testRepresentationETags() {
+        EntityExchangeResult<UserDTO> result = client.post().uri("/api/v1/users")
+                .bodyValue(new UserDTO(null, "tagged", "tagged@example.com", null, null, null, null))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody(UserDTO.class).returnResult();
+        UserDTO created = result.getResponseBody();
+        String tag = created.getUserId() + ".0";
+        assertEquals("\"" + tag + "\"", result.getResponseHeaders().getETag());
+
+        client.get().uri("/api/v1/users/{id}", created.getUserId()).accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + tag + "-cbor\"")
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        client.get().uri("/api/v1/users/{id}", created.getUserId()).accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + tag + "\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR);
+        client.get().uri("/api/v1/users/{id}", created.getUserId()).accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + tag + "-cbor\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        client.patch().uri("/api/v1/users/{id}", created.getUserId()).accept(SMILE)
+                .header(HttpHeaders.IF_MATCH, "\"" + tag + "-cbor\"")
+                .contentType(MediaType.APPLICATION_JSON).bodyValue("{\"firstName\":\"Tag\"}")
+                .exchange()
+                .expectStatus().isNoContent()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + created.getUserId() + ".1-smile\"");
+    }
+
+    /**
+     * Test the tag of a username names the user, so a client holding the tag of a deleted user is not told the
+     * user that took over its username is unchanged, and cannot write the new user with the old tag.
+     */
+    @Test
+    public void testUsernameETagNamesTheUser() {
+        UserDTO first = client.post().uri("/api/v1/users")
+                .bodyValue(new UserDTO(null, "reused", "reused@example.com", null, null, null, null))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(UserDTO.class).returnResult().getResponseBody();
+        String firstTag = "\"" + first.getUserId() + ".0\"";
+        client.get().uri("/api/v1/users/username/{username}", "reused").header(HttpHeaders.IF_NONE_MATCH, firstTag)
+                .exchange()
+                .expectStatus().isNotModified();
+        client.delete().uri("/api/v1/users/{id}", first.getUserId()).exchange().expectStatus().isOk();
+
+        UserDTO second = client.post().uri("/api/v1/users")
+                .bodyValue(new UserDTO(null, "reused", "reused@example.com", null, null, null, null))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(UserDTO.class).returnResult().getResponseBody();
+        client.get().uri("/api/v1/users/username/{username}", "reused").header(HttpHeaders.IF_NONE_MATCH, firstTag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + second.getUserId() + ".0\"");
+        client.patch().uri("/api/v1/users/{id}", second.getUserId()).header(HttpHeaders.IF_MATCH, firstTag)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue("{\"firstName\":\"Stale\"}")
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    /**
+     * Test JSON stays the default, and media types the API cannot produce or read are refused.
+     */
+    @Test
+    public void testNegotiation() {
+        client.get().uri("/api/v1/users?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON);
+        client.get().uri("/api/v1/users?limit=1").accept(MediaType.parseMediaType("application/x-protobuf"))
+                .exchange()
+                .expectStatus().isEqualTo(406);
+        client.post().uri("/api/v1/users").contentType(MediaType.parseMediaType("application/x-protobuf"))
+                .bodyValue(new byte[]{1, 2, 3})
+                .exchange()
+                .expectStatus().isEqualTo(415);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.user_management;
+
+import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.search.UserSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type User search index test.
+ */
+public class UserSearchIndexTest {
+
+    private UserSearchIndex userSearchIndex;
+
+    /**
+     * Sets up.
+     */
+    @BeforeEach
+    public void setUp() {
+        userSearchIndex = new UserSearchIndex(10_000);
+        userSearchIndex.replaceAll(List.of(
+                user(1L, "John", "john@example.com", "John", "Doe"),
+                user(2L, "Alice", "alice@example.com", "Alice", "Schmidt"),
+                user(3L, "Bob", "bob@example.com", "Bob", "Dorian"),
+                user(4L, "johnny", "jd@example.com", "Johnny", "Walker")).iterator());
+    }
+
+    /**
+     * Test search ranks exact matches before prefix matches and ignores case.
+     */
+    @Test
+    public void testSearch_Prefix() {
+        assertEquals(List.of(1L, 4L), ids(userSearchIndex.search("JOHN", 10)));
+        assertEquals(List.of(2L), ids(userSearchIndex.search("a", 10)));
+    }
+
+    /**
+     * Test search finds infix matches after prefix matches.
+     */
+    @Test
+    public void testSearch_Infix() {
+        assertEquals(List.of(2L), ids(userSearchIndex.search("chmid", 10)));
+        assertEquals(List.of(1L, 3L), ids(userSearchIndex.search("do", 10)));
+        assertEquals(4, userSearchIndex.search("example", 10).size());
+        assertEquals(2, userSearchIndex.search("example", 2).size());
+    }
+
+    /**
+     * Test the index follows updates and deletes.
+     */
+    @Test
+    public void testSearch_FollowsWrites() {
+        userSearchIndex.put(user(3L, "Robert", "robert@example.com", "Robert", "Dorian"));
+        assertTrue(userSearchIndex.search("bob", 10).isEmpty());
+        assertEquals(List.of(3L), ids(userSearchIndex.search("rob", 10)));
+
+        userSearchIndex.remove(1L);
+        assertEquals(List.of(4L), ids(userSearchIndex.search("john", 10)));
+        assertEquals(3, userSearchIndex.size());
+    }
+
+    /**
+     * Test deleted slots are reclaimed without losing live users.
+     */
+    @Test
+    public void testSearch_Compaction() {
+        for (long id = 100; id < 5_000; id++) {
+            userSearchIndex.put(user(id, "bulk" + id, "bulk" + id + "@example.com", null, null));
+            userSearchIndex.remove(id);
+        }
+        assertEquals(4, userSearchIndex.size());
+        assertEquals(List.of(1L, 4L), ids(userSearchIndex.search("john", 10)));
+    }
+
+    /**
+     * Test searches and writes made while compactions are built keep seeing every live user, and no write is
+     * lost when the compacted index replaces the old one.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    public void testSearch_CompactionKeepsConcurrentWrites() throws InterruptedException {
+        Thread churn = new Thread(() -> {
+            for (long id = 100; id < 20_000; id++) {
+                userSearchIndex.put(user(id, "churn" + id, "churn" + id + "@example.com", null, null));
+                userSearchIndex.remove(id);
+            }
+        });
+        Thread patches = new Thread(() -> {
+            for (long version = 1; version <= 2_000; version++) {
+                userSearchIndex.patch(new UserDTO(2L, null, null, "Alice" + version, null, null, version));
+            }
+        });
+        churn.start();
+        patches.start();
+        while (churn.isAlive() || patches.isAlive()) {
+            assertEquals(List.of(1L, 4L), ids(userSearchIndex.search("john", 10)));
+        }
+        churn.join();
+        patches.join();
+
+        assertEquals(4, userSearchIndex.size());
+        UserDTO alice = userSearchIndex.search("alice2000", 10).get(0);
+        assertEquals(2L, alice.getUserId());
+        assertEquals(2_000L, alice.getVersion());
+        assertTrue(userSearchIndex.search("alice1999", 10).isEmpty());
+    }
+
+    /**
+     * Test the write that makes the index sparse returns without waiting for the compaction, which runs on
+     * another thread while searches and writes go on.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    public void testSearch_CompactsInBackground() throws InterruptedException {
+        AtomicBoolean block = new AtomicBoolean();
+        AtomicReference<Thread> compactor = new AtomicReference<>();
+        CountDownLatch compacting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        userSearchIndex.put(new UserDTO(5L, "blocker", "blocker@example.com", null, null, null, 0L) {
+            @Override
+            public String getUsername() {
+                if (block.get() && compactor.compareAndSet(null, Thread.currentThread())) {
+                    compacting.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getUsername();
+            }
+        });
+        block.set(true);
+        try {
+            for (long id = 100; id < 5_000; id++) {
+                userSearchIndex.put(user(id, "bulk" + id, "bulk" + id + "@example.com", null, null));
+                userSearchIndex.remove(id);
+            }
+            assertTrue(compacting.await(5, TimeUnit.SECONDS));
+            assertNotSame(Thread.currentThread(), compactor.get());
+
+            userSearchIndex.put(user(6L, "newbie", "newbie@example.com", null, null));
+            assertEquals(List.of(6L), ids(userSearchIndex.search("newbie", 10)));
+            assertEquals(List.of(1L, 4L), ids(userSearchIndex.search("john", 10)));
+        } finally {
+            release.countDown();
+        }
+        assertEquals(6, userSearchIndex.size());
+    }
+
+    private static UserDTO user(Long id, String username, String email, String firstName, String lastName) {
+        return new UserDTO(id, username, email, firstName, lastName, null, 0L);
+    }
+
+    private static List<Long> ids(List<UserDTO> users) {
+        List<Long> ids = new ArrayList<>();
+        users.forEach(user -> ids.add(user.getUserId()));
+        return ids;
+    }
+}
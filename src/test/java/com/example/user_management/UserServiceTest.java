@@ -1,21 +1,38 @@
 package com.example.user_management;
 
+import com.example.user_management.exception.PreconditionFailedException;
 import com.example.user_management.exception.UserNotFoundException;
 import com.example.user_management.model.User;
+import com.example.user_management.repository.JpaUserStore;
 import com.example.user_management.repository.UserRepository;
+import com.example.user_management.repository.UsernameAndEmail;
 import com.example.user_management.service.UserService;
+import com.example.user_management.service.cache.UserCache;
+import com.example.user_management.service.cache.UserExistenceFilter;
+import com.example.user_management.service.UserCursor;
 import com.example.user_management.service.dto.UserDTO;
+import com.example.user_management.service.dto.UserFilter;
+import com.example.user_management.service.dto.UserPageDTO;
+import com.example.user_management.service.event.UserChangeOutbox;
 import com.example.user_management.service.mapper.UserMapper;
+import com.example.user_management.service.shard.UserShards;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -32,6 +49,12 @@ public class UserServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private UserChangeOutbox userChangeOutbox;
+
     @InjectMocks
     private UserService userService;
 
@@ -43,7 +66,12 @@ public class UserServiceTest {
      */
     @BeforeEach
     public void setUp() {
-        userService = new UserService(userMapper, userRepository);
+        when(userChangeOutbox.write(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        userService = new UserService(userMapper, new JpaUserStore(userRepository),
+                UserShards.unsharded(userRepository, null),
+                new UserCache(100, Duration.ofMinutes(5), 100, Duration.ofSeconds(5)), new UserExistenceFilter(true, 0.01),
+                userChangeOutbox, eventPublisher, Validation.buildDefaultValidatorFactory().getValidator());
         setupMockUsers();
     }
 
@@ -52,8 +80,7 @@ public class UserServiceTest {
      */
     @Test
     public void testGetUserById() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(mockUser));
-        when(userMapper.toUserDTO(mockUser)).thenReturn(mockUserDTO);
+        when(userRepository.findDTOById(1L)).thenReturn(Optional.of(mockUserDTO));
         UserDTO user = userService.getUserById(1L);
         assertNotNull(user);
         assertEquals("testuser", user.getUsername());
@@ -64,11 +91,72 @@ public class UserServiceTest {
      */
     @Test
     public void testGetUserById_UserNotFound() {
-        when(userRepository.findById(5L)).thenReturn(Optional.empty());
+        when(userRepository.findDTOById(5L)).thenReturn(Optional.empty());
         Exception exception = assertThrows(UserNotFoundException.class,
                 () -> userService.getUserById(5L));
         assertEquals("User with ID 5 not found", exception.getMessage());
-        verify(userRepository, times(1)).findById(5L);
+        verify(userRepository, times(1)).findDTOById(5L);
+    }
+
+    /**
+     * Test get user by id is served from the cache on the second call.
+     */
+    @Test
+    public void testGetUserById_Cached() {
+        when(userRepository.findDTOById(1L)).thenReturn(Optional.of(mockUserDTO));
+        userService.getUserById(1L);
+        UserDTO user = userService.getUserById(1L);
+        assertEquals("testuser", user.getUsername());
+        verify(userRepository, times(1)).findDTOById(1L);
+    }
+
+    /**
+     * Test get user by user name answers unknown usernames from the existence filter without a query.
+     */
+    @Test
+    public void testGetUserByUserName_FilteredMiss() {
+        UserExistenceFilter userExistenceFilter = new UserExistenceFilter(true, 0.01);
+        userExistenceFilter.replaceAll(1_000, Stream.of(new UsernameAndEmail() {
+            @Override
+            public String getUsername() {
+                return "testuser";
+            }
+
+            @Override
+            public String getEmail() {
+                return "test@example.com";
+            }
+        }));
+        userService = new UserService(userMapper, new JpaUserStore(userRepository),
+                UserShards.unsharded(userRepository, null),
+                new UserCache(100, Duration.ofMinutes(5), 100, Duration.ofSeconds(5)), userExistenceFilter, userChangeOutbox,
+                eventPublisher, Validation.buildDefaultValidatorFactory().getValidator());
+
+        assertThrows(UserNotFoundException.class, () -> userService.getUserByUserName("unknown"));
+        assertFalse(userService.userNameExists("unknown"));
+        verify(userRepository, never()).findDTOByUsername("unknown");
+        assertEquals(2, userExistenceFilter.stats().get("usernames").getNegatives());
+    }
+
+    /**
+     * Test update user evicts the old username so it is no longer served from the cache.
+     */
+    @Test
+    public void testUpdateUser_EvictsOldUsername() {
+        when(userRepository.findDTOByUsername("testuser")).thenReturn(Optional.of(mockUserDTO));
+        when(userMapper.toUserDTO(mockUser)).thenReturn(mockUserDTO);
+        userService.getUserByUserName("testuser");
+
+        UserDTO renamed = new UserDTO();
+        renamed.setUsername("renamed");
+        renamed.setEmail("test@example.com");
+        when(userRepository.findByIdForWrite(1L)).thenReturn(Optional.of(mockUser));
+        when(userRepository.save(mockUser)).thenReturn(mockUser);
+        userService.updateUser(1L, renamed);
+
+        when(userRepository.findDTOByUsername("testuser")).thenReturn(Optional.empty());
+        assertThrows(UserNotFoundException.class, () -> userService.getUserByUserName("testuser"));
+        verify(userRepository, times(2)).findDTOByUsername("testuser");
     }
 
     /**
@@ -90,12 +178,39 @@ public class UserServiceTest {
      */
     @Test
     public void testGetAllUsers() {
-        when(userRepository.findAll()).thenReturn(Collections.singletonList(mockUser));
-        when(userMapper.toUserDTO(mockUser)).thenReturn(mockUserDTO);
+        when(userRepository.findAllDTOs()).thenReturn(Collections.singletonList(mockUserDTO));
         List<UserDTO> users = userService.getAllUsers();
         assertNotNull(users, "Users list should not be null");
         assertEquals(1, users.size(), "Users list should contain 1 users");
-        verify(userRepository, times(1)).findAll();
+        verify(userRepository, times(1)).findAllDTOs();
+    }
+
+    /**
+     * Test get users returns next cursor when more rows exist.
+     */
+    @Test
+    public void testGetUsers_HasNextPage() {
+        UserDTO secondUser = new UserDTO();
+        secondUser.setUserId(2L);
+        UserFilter filter = new UserFilter();
+        when(userRepository.findDTOPage(null, filter, 2)).thenReturn(Arrays.asList(mockUserDTO, secondUser));
+        UserPageDTO page = userService.getUsers(null, 1, filter);
+        assertEquals(1, page.getSize());
+        assertEquals(List.of(mockUserDTO), page.getContent());
+        assertEquals(1L, UserCursor.decode(page.getNextCursor()));
+        verify(userMapper, never()).toUserDTO(any());
+    }
+
+    /**
+     * Test get users continues after the cursor and stops on the last page.
+     */
+    @Test
+    public void testGetUsers_LastPage() {
+        UserFilter filter = new UserFilter();
+        when(userRepository.findDTOPage(1L, filter, 51)).thenReturn(Collections.emptyList());
+        UserPageDTO page = userService.getUsers(UserCursor.encode(1L), 50, filter);
+        assertEquals(0, page.getSize());
+        assertNull(page.getNextCursor());
     }
 
     /**
@@ -108,7 +223,7 @@ public class UserServiceTest {
         updatedUserDTO.setUsername("updateduser");
         updatedUserDTO.setEmail("updated@example.com");
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(mockUser));
+        when(userRepository.findByIdForWrite(1L)).thenReturn(Optional.of(mockUser));
         when(userMapper.toUser(updatedUserDTO)).thenReturn(mockUser);
         when(userRepository.save(mockUser)).thenReturn(mockUser);
         when(userMapper.toUserDTO(mockUser)).thenReturn(updatedUserDTO);
@@ -118,20 +233,64 @@ public class UserServiceTest {
         assertNotNull(updateUser, "Updated user should not be null");
         assertEquals("updateduser", updateUser.getUsername(), "Username should be updated");
         assertEquals("updated@example.com", updateUser.getEmail(), "Email should be updated");
-        verify(userRepository, times(1)).findById(1L);
+        verify(userRepository, times(1)).findByIdForWrite(1L);
         verify(userRepository, times(1)).save(mockUser);
     }
 
+    /**
+     * Test update user rejects a stale If-Match version without saving.
+     */
+    @Test
+    public void testUpdateUser_VersionMismatch() {
+        mockUser.setVersion(3L);
+        when(userRepository.findByIdForWrite(1L)).thenReturn(Optional.of(mockUser));
+
+        assertThrows(PreconditionFailedException.class, () -> userService.updateUser(1L, mockUserDTO, 2L));
+        verify(userRepository, never()).save(any());
+    }
+
+    /**
+     * Test get user version uses the cached user or a version-only query, never the entity.
+     */
+    @Test
+    public void testGetUserVersion() {
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(4L));
+        when(userRepository.findVersionById(2L)).thenReturn(Optional.empty());
+
+        assertEquals(4L, userService.getUserVersion(1L));
+        assertThrows(UserNotFoundException.class, () -> userService.getUserVersion(2L));
+        verify(userRepository, never()).findById(any());
+    }
+
     /**
      * Test delete user.
      */
     @Test
     public void testDeleteUser() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(mockUser));
-        doNothing().when(userRepository).delete(mockUser);
+        when(userRepository.deleteUserById(1L)).thenReturn(1);
         userService.deleteUser(1L);
-        verify(userRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).delete(mockUser);
+        verify(userRepository, times(1)).deleteUserById(1L);
+        verify(userRepository, never()).findById(any());
+    }
+
+    /**
+     * Test delete user not found.
+     */
+    @Test
+    public void testDeleteUser_NotFound() {
+        when(userRepository.deleteUserById(2L)).thenReturn(0);
+        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(2L));
+    }
+
+    /**
+     * Test patch user validates only the supplied fields.
+     */
+    @Test
+    public void testPatchUser_InvalidField() {
+        UserDTO changes = new UserDTO();
+        changes.setEmail("not-an-email");
+        assertThrows(ConstraintViolationException.class, () -> userService.patchUser(1L, changes, null));
+        verify(userRepository, never()).updateFields(any(), any(), any());
     }
 
     private void setupMockUsers() {
@@ -0,0 +1,79 @@
+package com.example.user_management;
+
+import com.example.user_management.exception.UserNotFoundException;
+import com.example.user_management.metrics.StatementCountingInspector;
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.UserDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type User write statement count test.
+ * <p>
+ * Counts the SQL statements Hibernate sends for each write path, so a change that brings back a
+ * read-before-write shows up as a failure. A write that changes a user also inserts its change into the
+ * outbox. The outbox ids come from a pooled sequence that is only queried when the pool runs out, so the
+ * inspector leaves sequence fetches out of the count.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:statements;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+public class UserWriteStatementCountTest {
+
+    @Autowired
+    private UserService userService;
+
+    /**
+     * Test patch user sends one UPDATE and the outbox INSERT.
+     */
+    @Test
+    public void testPatchUser_OneStatementPlusOutbox() {
+        UserDTO user = createUser("patchcount");
+        UserDTO changes = new UserDTO();
+        changes.setFirstName("Patched");
+
+        StatementCountingInspector.start();
+        Long version = userService.patchUser(user.getUserId(), changes, user.getVersion());
+        assertEquals(2, StatementCountingInspector.stop());
+
+        UserDTO patched = userService.getUserById(user.getUserId());
+        assertEquals("Patched", patched.getFirstName());
+        assertEquals("patchcount", patched.getUsername());
+        assertEquals(version, patched.getVersion());
+    }
+
+    /**
+     * Test patch user of an unknown user sends the UPDATE and one version query.
+     */
+    @Test
+    public void testPatchUser_NotFound() {
+        UserDTO changes = new UserDTO();
+        changes.setFirstName("Patched");
+
+        StatementCountingInspector.start();
+        assertThrows(UserNotFoundException.class, () -> userService.patchUser(Long.MAX_VALUE, changes, null));
+        assertEquals(2, StatementCountingInspector.stop());
+    }
+
+    /**
+     * Test delete user sends one DELETE and the outbox INSERT, and only the DELETE when the user does not exist.
+     */
+    @Test
+    public void testDeleteUser_OneStatementPlusOutbox() {
+        UserDTO user = createUser("deletecount");
+
+        StatementCountingInspector.start();
+        userService.deleteUser(user.getUserId());
+        assertEquals(2, StatementCountingInspector.stop());
+
+        StatementCountingInspector.start();
+        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(user.getUserId()));
+        assertEquals(1, StatementCountingInspector.stop());
+    }
+
+    private UserDTO createUser(String username) {
+        return userService.createUser(new UserDTO(null, username, username + "@example.com", "First", "Last",
+                null, null));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.user_management;
+
+import com.example.user_management.datasource.ConnectionLimitingDataSource;
+import com.example.user_management.service.UserService;
+import com.example.user_management.service.dto.UserFilter;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Virtual thread pinning test.
+ * <p>
+ * Runs service calls on many more virtual threads than there are connections, so threads park while waiting
+ * for one, and records every {@code jdk.VirtualThreadPinned} event. A thread that parks while holding a
+ * monitor in the application's own code would show up here.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pinning;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.threads.virtual.enabled=true",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "user-management.jdbc.max-concurrent-connections=2",
+        "user-management.cache.max-size=0"
+})
+public class VirtualThreadPinningTest {
+
+    private static final int TASKS = 500;
+    private static final String APPLICATION_PACKAGE = "com.example.user_management.";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Test the data source is limited in virtual thread mode.
+     */
+    @Test
+    public void testDataSourceIsLimited() {
+        ConnectionLimitingDataSource limited = assertInstanceOf(ConnectionLimitingDataSource.class, dataSource);
+        assertEquals(2, limited.getAvailablePermits());
+    }
+
+    /**
+     * Test service calls do not pin virtual threads.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testServiceCallsDoNotPin() throws Exception {
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withStackTrace().withThreshold(Duration.ZERO);
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < TASKS; i++) {
+                    String username = List.of("John", "Alice", "Bob").get(i % 3);
+                    futures.add(executor.submit(() -> {
+                        userService.getUserByUserName(username);
+                        userService.getUsers(null, 10, new UserFilter());
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            recording.stop();
+        }
+
+        List<String> applicationPins = pinned.stream()
+                .filter(VirtualThreadPinningTest::isInApplicationCode)
+                .map(event -> event.getStackTrace().toString())
+                .collect(Collectors.toList());
+        assertTrue(applicationPins.isEmpty(), "Virtual threads pinned in application code: " + applicationPins);
+        assertEquals(2, ((ConnectionLimitingDataSource) dataSource).getAvailablePermits());
+    }
+
+    private static boolean isInApplicationCode(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return false;
+        }
+        boolean application = false;
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith("org.h2.")) {
+                // Pinned inside the embedded database's own locking, not ours
+                return false;
+            }
+            application |= type.startsWith(APPLICATION_PACKAGE);
+        }
+        return application;
+    }
+}